@@ -0,0 +1,123 @@
+package com.example.user;
+
+import com.example.user.entity.AccountBalance;
+import com.example.user.repository.AccountBalanceBatchRepository;
+import com.example.user.repository.IAccountBalanceRepository;
+import com.example.user.service.impl.AccountBalanceSequencer;
+import com.example.user.utils.Money;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Benchmark tranh chấp trên tài khoản "nóng": so sánh UPSERT số dư trực tiếp (mỗi vế một transaction,
+ * tranh nhau khóa dòng) với {@link AccountBalanceSequencer} (single-writer lane, gộp theo micro-batch).
+ * <p>
+ * Chạy bằng:
+ * <pre>
+ * ./gradlew benchmark -Dbench.contention.threads=64 -Dbench.contention.postings=1000
+ * </pre>
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:contentionbench;DB_CLOSE_DELAY=-1;MODE=MySQL;LOCK_TIMEOUT=30000",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.hikari.maximum-pool-size=64",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.balance.sequencer.enabled=true",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class BalanceContentionBenchmarkTest {
+    private static final long AMOUNT = 10_000 * Money.MINOR_UNITS_PER_UNIT;
+
+    @Autowired
+    private AccountBalanceBatchRepository balanceBatchRepository;
+
+    @Autowired
+    private IAccountBalanceRepository balanceRepository;
+
+    @Autowired
+    private AccountBalanceSequencer sequencer;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Benchmark: UPSERT trực tiếp vs Sequencer trên một tài khoản nóng")
+    void hotAccountContention() throws Exception {
+        int threads = Integer.getInteger("bench.contention.threads", 32);
+        int postings = Integer.getInteger("bench.contention.postings", 500);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        double direct = run(threads, postings, "hot-direct", delta ->
+                transaction.executeWithoutResult(status -> balanceBatchRepository.applyDeltas(List.of(delta))));
+        double sequenced = run(threads, postings, "hot-sequenced", delta ->
+                sequencer.submit(List.of(delta)).join());
+
+        System.out.println("\n================ HOT ACCOUNT CONTENTION BENCHMARK ================");
+        System.out.println("Threads x postings : " + threads + " x " + postings);
+        System.out.printf("Direct UPSERT      : %,.0f postings/s%n", direct);
+        System.out.printf("Sequencer          : %,.0f postings/s%n", sequenced);
+        System.out.printf("Speed-up           : %.2fx%n", sequenced / direct);
+
+        long expected = (long) threads * postings;
+        for (String account : List.of("hot-direct", "hot-sequenced")) {
+            AccountBalance balance = balanceRepository.findById(account).orElseThrow();
+            Assertions.assertEquals(expected, balance.getPostingCount(), "Không được mất vế hạch toán nào");
+            Assertions.assertEquals(Money.ofMinor(AMOUNT * expected), balance.getTotalHave());
+        }
+    }
+
+    /**
+     * @return Số vế hạch toán xử lý được mỗi giây.
+     */
+    private double run(int threads, int postings, String accountHash,
+                       Consumer<AccountBalanceBatchRepository.Delta> writer) throws Exception {
+        AccountBalanceBatchRepository.Delta delta =
+                new AccountBalanceBatchRepository.Delta(accountHash, LocalDate.now(), 0, AMOUNT, 0, 1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < postings; i++) {
+                    writer.accept(delta);
+                }
+                return null;
+            }));
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - started;
+        pool.shutdown();
+        return (double) threads * postings * 1_000_000_000L / elapsed;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.user;
+
+import com.example.user.utils.Money;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+
+/**
+ * Benchmark cấp phát bộ nhớ khi parse + cộng dồn số tiền: {@link BigDecimal} so với {@link Money} (đơn vị nhỏ nhất).
+ * <p>
+ * Mô phỏng luồng nóng của Bulk Ingestion / tổng hợp: đọc số tiền dạng text rồi cộng dồn.
+ * Không chạy cùng {@code ./gradlew test}. Chạy riêng bằng:
+ * <pre>
+ * ./gradlew benchmark -Dbench.money.amounts=10000000
+ * </pre>
+ */
+@Tag("benchmark")
+class MoneyAllocationBenchmarkTest {
+    private static final int ROUNDS = 5;
+
+    @Test
+    @DisplayName("Benchmark: số byte cấp phát và thời gian cho mỗi số tiền")
+    void compareAllocation() {
+        int count = Integer.getInteger("bench.money.amounts", 1_000_000);
+        String[] amounts = new String[1024];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = (10_000 + i * 37) + "." + (i % 100 < 10 ? "0" : "") + (i % 100);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assertions.assertTrue(threads.isThreadAllocatedMemorySupported(), "JVM không hỗ trợ đo cấp phát theo luồng");
+
+        long[] bigDecimal = new long[2];
+        long[] money = new long[2];
+        BigDecimal decimalTotal = BigDecimal.ZERO;
+        long minorTotal = 0;
+        // Vòng đầu để JIT biên dịch, chỉ đo các vòng sau
+        for (int round = 0; round <= ROUNDS; round++) {
+            long bytes = threads.getCurrentThreadAllocatedBytes();
+            long started = System.nanoTime();
+            BigDecimal sum = BigDecimal.ZERO;
+            for (int i = 0; i < count; i++) {
+                sum = sum.add(new BigDecimal(amounts[i & 1023]));
+            }
+            long elapsed = System.nanoTime() - started;
+            long allocated = threads.getCurrentThreadAllocatedBytes() - bytes;
+            decimalTotal = sum;
+            if (round > 0) {
+                bigDecimal[0] += allocated;
+                bigDecimal[1] += elapsed;
+            }
+
+            bytes = threads.getCurrentThreadAllocatedBytes();
+            started = System.nanoTime();
+            long minorUnits = 0;
+            for (int i = 0; i < count; i++) {
+                String amount = amounts[i & 1023];
+                minorUnits = Money.add(minorUnits, Money.parseMinorUnits(amount, 0, amount.length()));
+            }
+            elapsed = System.nanoTime() - started;
+            allocated = threads.getCurrentThreadAllocatedBytes() - bytes;
+            minorTotal = minorUnits;
+            if (round > 0) {
+                money[0] += allocated;
+                money[1] += elapsed;
+            }
+        }
+
+        double operations = (double) count * ROUNDS;
+        System.out.println("\n================ MONEY ALLOCATION BENCHMARK ================");
+        System.out.println("Amounts per round : " + count + " x " + ROUNDS + " rounds");
+        System.out.printf("BigDecimal        : %.1f bytes/op, %.1f ns/op%n", bigDecimal[0] / operations, bigDecimal[1] / operations);
+        System.out.printf("Money (long)      : %.1f bytes/op, %.1f ns/op%n", money[0] / operations, money[1] / operations);
+
+        Assertions.assertEquals(0, decimalTotal.compareTo(Money.toBigDecimal(minorTotal)), "Hai cách phải cho cùng tổng");
+        Assertions.assertTrue(money[0] < bigDecimal[0], "Money phải cấp phát ít hơn BigDecimal");
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.user;
+
+import com.example.user.dto.response.SettlementLoadResponse;
+import com.example.user.service.ISettlementLoaderService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Benchmark nạp file quyết toán bằng Memory-mapped I/O.
+ * <p>
+ * Không chạy cùng {@code ./gradlew test}. Chạy riêng bằng:
+ * <pre>
+ * ./gradlew benchmark -Dbench.settlement.bytes=1073741824
+ * </pre>
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:settlementbench;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class SettlementLoaderBenchmarkTest {
+    private static final String FILE_NAME = "settlement.csv";
+
+    @TempDir
+    static Path settlementDir;
+
+    @Autowired
+    private ISettlementLoaderService settlementLoaderService;
+
+    @DynamicPropertySource
+    static void settlementProperties(DynamicPropertyRegistry registry) {
+        registry.add("app.settlement.base-dir", () -> settlementDir.toString());
+    }
+
+    @Test
+    @DisplayName("Benchmark: nạp file quyết toán, in ra số dòng ghi được mỗi giây")
+    void loadSettlementFile() throws IOException {
+        long targetBytes = Long.getLong("bench.settlement.bytes", 64L * 1024 * 1024);
+        long generated = generate(settlementDir.resolve(FILE_NAME), targetBytes);
+
+        SettlementLoadResponse result = settlementLoaderService.load(FILE_NAME);
+
+        System.out.println("\n================ SETTLEMENT LOADER BENCHMARK ================");
+        System.out.println("File size     : " + result.getBytes() + " bytes, " + result.getSegments() + " segments");
+        System.out.println("Records       : " + result.getRecords() + " (accepted " + result.getAccepted()
+                + ", duplicates " + result.getDuplicates() + ", rejected " + result.getRejected() + ")");
+        System.out.println("Rows written  : " + result.getRowsWritten() + " in " + result.getElapsedMillis() + " ms");
+        System.out.println("Throughput    : " + result.getRowsPerSecond() + " rows/s");
+
+        Assertions.assertEquals(generated, result.getAccepted(), "Mọi bản ghi hợp lệ phải được ghi");
+        Assertions.assertEquals(0, result.getRejected());
+        Assertions.assertEquals(generated * 2, result.getRowsWritten(), "Mỗi giao dịch ghi 2 vế Nợ/Có");
+    }
+
+    private long generate(Path file, long targetBytes) throws IOException {
+        long records = 0;
+        long written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            String header = "transactionId,sourceAccount,destAccount,amount,time\n";
+            writer.write(header);
+            written += header.length();
+            while (written < targetBytes) {
+                String line = "SETTLE-" + records
+                        + "," + (1_000_000_000L + records % 9_000_000_000L)
+                        + "," + (9_000_000_000L - records % 1_000_000_000L)
+                        + "," + (10_000 + records % 5_000_000) + ".50"
+                        + ",2025-01-" + String.format("%02d", 1 + records % 28) + "T10:15:30\n";
+                writer.write(line);
+                written += line.length();
+                records++;
+            }
+        }
+        return records;
+    }
+}
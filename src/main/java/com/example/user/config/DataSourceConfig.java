@@ -0,0 +1,72 @@
+package com.example.user.config;
+
+import com.example.user.datasource.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cấu hình DataSource chính với định tuyến đọc/ghi (thay cho DataSource tự cấu hình của Spring Boot).
+ * <p>
+ * <ul>
+ * <li>Primary: {@code spring.datasource.*} và {@code spring.datasource.hikari.*} như trước.</li>
+ * <li>Replica (tùy chọn): {@code app.datasource.replica.url}, {@code .username}, {@code .password}, {@code .pool-size}.
+ * Để trống URL thì mọi kết nối đi Primary.</li>
+ * </ul>
+ * Các transaction {@code readOnly = true} được chuyển tới Replica bởi {@link ReadWriteRoutingDataSource}.
+ * Mỗi pool có metrics Hikari riêng ({@code hikaricp.connections.*}, tag {@code pool=primary|replica}).
+ */
+@Slf4j
+@Configuration
+public class DataSourceConfig {
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties,
+                                 Environment environment,
+                                 ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        MeterRegistry meterRegistry = meterRegistryProvider.getObject();
+        MicrometerMetricsTrackerFactory metricsTrackerFactory = new MicrometerMetricsTrackerFactory(meterRegistry);
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName(ReadWriteRoutingDataSource.PRIMARY);
+        primary.setMetricsTrackerFactory(metricsTrackerFactory);
+        pools.add(primary);
+
+        HikariDataSource replica = null;
+        String replicaUrl = environment.getProperty("app.datasource.replica.url", "");
+        if (!replicaUrl.isBlank()) {
+            replica = new HikariDataSource();
+            replica.setPoolName(ReadWriteRoutingDataSource.REPLICA);
+            replica.setJdbcUrl(replicaUrl);
+            replica.setUsername(environment.getProperty("app.datasource.replica.username", properties.getUsername()));
+            replica.setPassword(environment.getProperty("app.datasource.replica.password", properties.getPassword()));
+            replica.setMaximumPoolSize(environment.getProperty("app.datasource.replica.pool-size", Integer.class, 10));
+            replica.setReadOnly(true);
+            replica.setMetricsTrackerFactory(metricsTrackerFactory);
+            pools.add(replica);
+            log.info("Read-only transactions are routed to the replica datasource");
+        }
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica, meterRegistry));
+    }
+
+    @PreDestroy
+    public void close() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
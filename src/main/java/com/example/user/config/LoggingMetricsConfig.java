@@ -0,0 +1,52 @@
+package com.example.user.config;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import com.example.user.logging.AsyncMaskingAppender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Iterator;
+
+/**
+ * Cấu hình đưa các chỉ số của pipeline log bất đồng bộ lên Micrometer.
+ * <p>
+ * Logback được khởi tạo trước Spring nên không thể inject {@code MeterRegistry} vào appender.
+ * Thay vào đó, class này tìm các {@link AsyncMaskingAppender} đang gắn trên ROOT logger
+ * và đăng ký các chỉ số:
+ * <ul>
+ * <li>{@code logging.async.queue.depth}: Số log đang chờ trong ring buffer.</li>
+ * <li>{@code logging.async.queue.capacity}: Sức chứa tối đa của ring buffer.</li>
+ * <li>{@code logging.async.dropped}: Tổng số log bị bỏ qua khi hàng đợi đầy.</li>
+ * </ul>
+ */
+@Configuration
+public class LoggingMetricsConfig {
+
+    @Bean
+    public MeterBinder asyncLoggingMetrics() {
+        return registry -> {
+            if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) return;
+            Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+            Iterator<Appender<ILoggingEvent>> iterator = root.iteratorForAppenders();
+            while (iterator.hasNext()) {
+                if (!(iterator.next() instanceof AsyncMaskingAppender appender)) continue;
+                Gauge.builder("logging.async.queue.depth", appender, AsyncMaskingAppender::getQueueDepth)
+                        .tag("appender", appender.getName())
+                        .register(registry);
+                Gauge.builder("logging.async.queue.capacity", appender, AsyncMaskingAppender::getCapacity)
+                        .tag("appender", appender.getName())
+                        .register(registry);
+                FunctionCounter.builder("logging.async.dropped", appender, AsyncMaskingAppender::getDroppedEventCount)
+                        .tag("appender", appender.getName())
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -5,6 +5,7 @@ import com.example.user.security.exeption.CustomAccessDeniedHandler;
 import com.example.user.security.exeption.CustomAuthenticationEntryPoint;
 import com.example.user.security.DynamicAuthorizationManager;
 import com.example.user.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -77,6 +78,13 @@ public class SecurityConfig {
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
 
                 .authorizeHttpRequests(auth -> {
+                    // Async dispatch của response dạng stream (SSE) đã được kiểm quyền ở request ban đầu
+                    auth.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll();
+
+                    // Endpoint cần Permission dù nằm dưới pattern public: khớp trước để không bị permitAll
+                    PublicEndpoints.PROTECTED_API.forEach(endpoint ->
+                            auth.requestMatchers(endpoint.getMethod(), endpoint.getPattern()).access(dynamicAuthorizationManager));
+
                     PublicEndpoints.PUBLIC_API.forEach(endpoint -> {
                         if (Objects.isNull(endpoint.getMethod())) {
                             // Nếu method null -> Cho phép tất cả method
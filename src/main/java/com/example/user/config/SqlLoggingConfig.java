@@ -0,0 +1,50 @@
+package com.example.user.config;
+
+import com.example.user.logging.SqlLoggingDataSource;
+import com.example.user.logging.SqlStatementRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Cấu hình ghi log SQL ở tầng JDBC (thay thế {@code spring.jpa.show-sql}).
+ * <p>
+ * Mọi Bean {@link DataSource} sẽ được bọc bởi {@link SqlLoggingDataSource}. Các tham số cấu hình:
+ * <ul>
+ * <li>{@code app.sql-log.enabled}: Bật/tắt (mặc định true).</li>
+ * <li>{@code app.sql-log.slow-threshold-ms}: Ngưỡng câu lệnh chậm, luôn được ghi log (mặc định 200ms).</li>
+ * <li>{@code app.sql-log.sample-rate}: Tỷ lệ ghi log các câu lệnh còn lại, từ 0 đến 1 (mặc định 0.01).</li>
+ * </ul>
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sql-log.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlLoggingConfig {
+
+    /**
+     * BeanPostProcessor phải được khai báo static để không kéo theo việc khởi tạo sớm class cấu hình.
+     * {@link MeterRegistry} được lấy trễ (lazy) qua {@link ObjectProvider} vì DataSource có thể được tạo trước nó.
+     */
+    @Bean
+    public static BeanPostProcessor sqlLoggingDataSourcePostProcessor(ObjectProvider<MeterRegistry> meterRegistry,
+                                                                      Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof SqlLoggingDataSource) {
+                    return bean;
+                }
+                SqlStatementRecorder recorder = new SqlStatementRecorder(
+                        meterRegistry::getObject,
+                        environment.getProperty("app.sql-log.slow-threshold-ms", Long.class, 200L),
+                        environment.getProperty("app.sql-log.sample-rate", Double.class, 0.01));
+                return new SqlLoggingDataSource(dataSource, recorder);
+            }
+        };
+    }
+}
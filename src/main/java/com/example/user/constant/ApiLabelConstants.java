@@ -40,6 +40,12 @@ public final class ApiLabelConstants {
     /** Thông báo lỗi mã hóa. */
     public static final String CRYPTO_ERROR = "Crypto error";
 
+    /** Thông báo lỗi chức năng chưa được hỗ trợ với cấu hình hiện tại (HTTP 501). */
+    public static final String NOT_IMPLEMENTED = "Not implemented";
+
+    /** Thông báo lỗi hệ thống tạm thời không nhận yêu cầu (HTTP 503). */
+    public static final String SERVICE_UNAVAILABLE = "Service unavailable";
+
     /** Thông báo lỗi hệ thống không mong muốn (HTTP 500). */
     public static final String INTERNAL_ERROR = "Internal server error";
 }
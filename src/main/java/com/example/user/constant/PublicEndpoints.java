@@ -25,6 +25,19 @@ public final class PublicEndpoints {
         }
     }
 
+    /**
+     * Các endpoint nằm dưới pattern public nhưng cần JWT và Permission; được khớp TRƯỚC {@link #PUBLIC_API}.
+     */
+    public static final List<Endpoint> PROTECTED_API = List.of(
+            new Endpoint("/api/transactions/ids", HttpMethod.POST),
+            new Endpoint("/api/transactions/multi-leg", HttpMethod.POST),
+            new Endpoint("/api/transactions/bulk", HttpMethod.POST),
+            new Endpoint("/api/transactions/statement", HttpMethod.GET),
+            new Endpoint("/api/transactions/balance", HttpMethod.GET),
+            new Endpoint("/api/transactions/daily-summary", HttpMethod.GET),
+            new Endpoint("/api/transactions/stream", HttpMethod.GET)
+    );
+
     public static final List<Endpoint> PUBLIC_API = List.of(
             new Endpoint("/api/auth/register", HttpMethod.POST),
             new Endpoint("/api/auth/login", HttpMethod.POST),
@@ -0,0 +1,32 @@
+package com.example.user.constant;
+
+/**
+ * Các quy tắc nghiệp vụ dùng chung cho dữ liệu giao dịch.
+ * <p>
+ * Được tham chiếu bởi annotation validate của {@code TransactionRequest} (API REST, Bulk Ingestion)
+ * và bởi các bộ parse cấp byte (Settlement Loader), đảm bảo mọi đường nạp dữ liệu cùng một bộ luật.
+ */
+public final class TransactionRules {
+    private TransactionRules(){}
+
+    /** Số tài khoản: chỉ gồm chữ số, độ dài từ 10 đến 13. */
+    public static final String ACCOUNT_PATTERN = "\\d{10,13}";
+
+    /** Độ dài tối thiểu của số tài khoản. */
+    public static final int ACCOUNT_MIN_LENGTH = 10;
+
+    /** Độ dài tối đa của số tài khoản. */
+    public static final int ACCOUNT_MAX_LENGTH = 13;
+
+    /** Số tiền giao dịch tối thiểu. */
+    public static final long MIN_AMOUNT = 10000;
+
+    /** Số chữ số phần nguyên tối đa của số tiền (để đơn vị nhỏ nhất luôn vừa một {@code long}). */
+    public static final int AMOUNT_MAX_INTEGER_DIGITS = 16;
+
+    /** Số chữ số thập phân tối đa của số tiền (bằng {@code Money.SCALE}). */
+    public static final int AMOUNT_MAX_FRACTION_DIGITS = 2;
+
+    /** Số vế tối đa của một giao dịch nhiều vế (để tổng các vế luôn vừa một {@code long} và vừa một JDBC Batch). */
+    public static final int MAX_POSTING_LEGS = 64;
+}
@@ -0,0 +1,63 @@
+package com.example.user.controller;
+
+import com.example.user.constant.TransactionRules;
+import com.example.user.dto.response.ApiResponseEntity;
+import com.example.user.dto.response.ApiResponseFactory;
+import com.example.user.dto.response.DailyTotalsResponse;
+import com.example.user.dto.response.TopAccountsResponse;
+import com.example.user.service.IAnalyticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/admin/analytics")
+@RequiredArgsConstructor
+@Validated
+public class AdminAnalyticsController {
+    private final IAnalyticsService analyticsService;
+
+    @Operation(
+            summary = "Daily totals of an account",
+            description = "Returns per-day debit/credit totals and posting counts of an account in [from, to), "
+                    + "aggregated in parallel over the in-memory columnar store."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Daily totals returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid account or time range"),
+            @ApiResponse(responseCode = "409", description = "Analytics store is disabled or still loading")
+    })
+    @GetMapping("/daily-totals")
+    public ApiResponseEntity<DailyTotalsResponse> dailyTotals(
+            @RequestParam @Pattern(regexp = TransactionRules.ACCOUNT_PATTERN, message = "{transaction.account.invalid}") String account,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ApiResponseFactory.success(analyticsService.dailyTotals(account, from, to));
+    }
+
+    @Operation(
+            summary = "Top accounts by volume",
+            description = "Returns the accounts with the highest debit + credit volume in [from, to)."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Top accounts returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid time range or limit"),
+            @ApiResponse(responseCode = "409", description = "Analytics store is disabled or still loading")
+    })
+    @GetMapping("/top-accounts")
+    public ApiResponseEntity<TopAccountsResponse> topAccounts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "10") @Min(1) @Max(1000) int limit) {
+        return ApiResponseFactory.success(analyticsService.topAccounts(from, to, limit));
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.user.controller;
+
+import com.example.user.dto.response.ApiResponseEntity;
+import com.example.user.dto.response.ApiResponseFactory;
+import com.example.user.dto.response.ArchiveResponse;
+import com.example.user.service.IArchiveService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/archive")
+@RequiredArgsConstructor
+public class AdminArchiveController {
+    private final IArchiveService archiveService;
+
+    @Operation(
+            summary = "Move old postings to the cold-storage archive",
+            description = "Moves whole transactions older than the retention cutoff from transaction_history into "
+                    + "compressed, encrypted monthly segment files. Lookups and statements keep reading them transparently."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Archive run finished"),
+            @ApiResponse(responseCode = "409", description = "Archive disabled, already running, or history is sharded")
+    })
+    @PostMapping("/run")
+    public ApiResponseEntity<ArchiveResponse> run() {
+        return ApiResponseFactory.success(archiveService.archive());
+    }
+}
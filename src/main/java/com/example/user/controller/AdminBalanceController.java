@@ -0,0 +1,32 @@
+package com.example.user.controller;
+
+import com.example.user.dto.response.ApiResponseEntity;
+import com.example.user.dto.response.ApiResponseFactory;
+import com.example.user.dto.response.BalanceRebuildResponse;
+import com.example.user.service.IAccountBalanceService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/balances")
+@RequiredArgsConstructor
+public class AdminBalanceController {
+    private final IAccountBalanceService accountBalanceService;
+
+    @Operation(
+            summary = "Rebuild account balances from history",
+            description = "Recomputes every account balance from transaction_history in parallel partitions, "
+                    + "compares it with account_balance and repairs drifted, missing and orphaned rows."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rebuild finished (see drift and repair counts)"),
+            @ApiResponse(responseCode = "409", description = "Another rebuild is already running")
+    })
+    @PostMapping("/rebuild")
+    public ApiResponseEntity<BalanceRebuildResponse> rebuild() {
+        return ApiResponseFactory.success(accountBalanceService.rebuild());
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.user.controller;
+
+import com.example.user.dto.response.ApiResponseEntity;
+import com.example.user.dto.response.ApiResponseFactory;
+import com.example.user.dto.response.HistoryPartitionResponse;
+import com.example.user.service.IHistoryPartitionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/history-partitions")
+@RequiredArgsConstructor
+public class AdminPartitionController {
+    private final IHistoryPartitionService partitionService;
+
+    @Operation(
+            summary = "Convert transaction_history to monthly partitions",
+            description = "One-off migration step: registers every existing transaction ID, then rebuilds the table "
+                    + "partitioned by month of time. The ALTER copies the whole table, run it in a maintenance window."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Table is partitioned"),
+            @ApiResponse(responseCode = "409", description = "Partitioning disabled or unsupported, or another run is in progress")
+    })
+    @PostMapping("/convert")
+    public ApiResponseEntity<HistoryPartitionResponse> convert() {
+        return ApiResponseFactory.success(partitionService.convert());
+    }
+
+    @Operation(
+            summary = "Add upcoming and drop expired history partitions",
+            description = "Splits future monthly partitions off the empty catch-all partition and drops partitions older "
+                    + "than the retention, after folding their totals into account_archive_total. Writes to "
+                    + "transaction_history are blocked while an expired partition is dropped."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Maintenance finished"),
+            @ApiResponse(responseCode = "409", description = "Partitioning disabled, table not converted yet, or another run is in progress")
+    })
+    @PostMapping("/maintain")
+    public ApiResponseEntity<HistoryPartitionResponse> maintain() {
+        return ApiResponseFactory.success(partitionService.maintain());
+    }
+}
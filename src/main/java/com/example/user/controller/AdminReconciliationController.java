@@ -0,0 +1,36 @@
+package com.example.user.controller;
+
+import com.example.user.dto.response.ApiResponseEntity;
+import com.example.user.dto.response.ApiResponseFactory;
+import com.example.user.dto.response.ReconciliationResponse;
+import com.example.user.service.IReconciliationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/reconciliation")
+@RequiredArgsConstructor
+public class AdminReconciliationController {
+    private final IReconciliationService reconciliationService;
+
+    @Operation(
+            summary = "Reconcile double-entry integrity",
+            description = "Scans transaction_history in write order (keyset pages, verified in parallel) from the last "
+                    + "checkpoint minus an overlap and reports "
+                    + "every transaction whose debit and credit totals differ or that is missing a leg."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Reconciliation finished (see unbalanced transactions)"),
+            @ApiResponse(responseCode = "409", description = "Another reconciliation is already running")
+    })
+    @PostMapping("/run")
+    public ApiResponseEntity<ReconciliationResponse> run(
+            @Parameter(description = "Ignore the checkpoint and rescan the whole table")
+            @RequestParam(defaultValue = "false") boolean full) {
+        return ApiResponseFactory.success(reconciliationService.reconcile(full));
+    }
+}
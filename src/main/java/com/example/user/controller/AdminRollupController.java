@@ -0,0 +1,32 @@
+package com.example.user.controller;
+
+import com.example.user.dto.response.ApiResponseEntity;
+import com.example.user.dto.response.ApiResponseFactory;
+import com.example.user.dto.response.RollupBackfillResponse;
+import com.example.user.service.IRollupService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/rollups")
+@RequiredArgsConstructor
+public class AdminRollupController {
+    private final IRollupService rollupService;
+
+    @Operation(
+            summary = "Backfill daily rollups from history",
+            description = "Recomputes per-account per-day totals from transaction_history in parallel partitions, "
+                    + "compares them with account_daily_rollup and inserts missing rows and repairs drifted or orphaned rows."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Backfill finished (see repair counts)"),
+            @ApiResponse(responseCode = "409", description = "Another backfill is already running")
+    })
+    @PostMapping("/backfill")
+    public ApiResponseEntity<RollupBackfillResponse> backfill() {
+        return ApiResponseFactory.success(rollupService.backfill());
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.user.controller;
+
+import com.example.user.dto.request.SettlementLoadRequest;
+import com.example.user.dto.response.ApiResponseEntity;
+import com.example.user.dto.response.ApiResponseFactory;
+import com.example.user.dto.response.SettlementLoadResponse;
+import com.example.user.service.ISettlementLoaderService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/settlements")
+@RequiredArgsConstructor
+@Validated
+public class AdminSettlementController {
+    private final ISettlementLoaderService settlementLoaderService;
+
+    @Operation(
+            summary = "Load a settlement file (memory-mapped)",
+            description = "Loads a CSV settlement file (transactionId,sourceAccount,destAccount,amount,time) located under the configured base directory. "
+                    + "The file is split into line-aligned segments that are memory-mapped and parsed in parallel, then written in large JDBC batches."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File loaded (see accepted/duplicate/rejected counts and rows/s)"),
+            @ApiResponse(responseCode = "400", description = "Path is blank, outside the base directory or unreadable"),
+            @ApiResponse(responseCode = "404", description = "Settlement file not found")
+    })
+    @PostMapping("/load")
+    public ApiResponseEntity<SettlementLoadResponse> load(@Valid @RequestBody SettlementLoadRequest request) {
+        return ApiResponseFactory.success(settlementLoaderService.load(request.getPath()));
+    }
+}
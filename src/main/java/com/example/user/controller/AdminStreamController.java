@@ -0,0 +1,33 @@
+package com.example.user.controller;
+
+import com.example.user.service.impl.PostingStreamHub;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/admin/stream")
+@RequiredArgsConstructor
+public class AdminStreamController {
+    private final PostingStreamHub postingStream;
+
+    @Operation(
+            summary = "Stream new postings of all accounts",
+            description = "Server-Sent Events stream for internal consumers: pushes a 'posting' event (TransactionResponse) "
+                    + "for every committed posting. Slow consumers whose buffer fills up are evicted."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream opened"),
+            @ApiResponse(responseCode = "409", description = "Streaming is disabled or the subscriber limit is reached")
+    })
+    @GetMapping(value = "/postings", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAllPostings() {
+        return postingStream.subscribeAll();
+    }
+}
@@ -1,26 +1,48 @@
 package com.example.user.controller;
 
 
+import com.example.user.constant.TransactionRules;
 import com.example.user.dto.request.InternalTransactionRequest;
+import com.example.user.dto.request.MultiLegTransactionRequest;
 import com.example.user.dto.request.TransactionDecryptedDTO;
 import com.example.user.dto.request.TransactionRequest;
 import com.example.user.dto.response.ApiResponseEntity;
 import com.example.user.dto.response.ApiResponseFactory;
 
+import com.example.user.dto.response.BalanceResponse;
+import com.example.user.dto.response.BulkIngestionResponse;
+import com.example.user.dto.response.DailyRollupResponse;
+import com.example.user.dto.response.StatementResponse;
+import com.example.user.dto.response.TransactionIdResponse;
 import com.example.user.dto.response.TransactionResponse;
+import com.example.user.enums.BulkFormat;
 import com.example.user.mapper.TransactionMapper;
+import com.example.user.service.IAccountBalanceService;
+import com.example.user.service.IRollupService;
+import com.example.user.service.ITransactionIngestionService;
 import com.example.user.service.ITransactionService;
+import com.example.user.service.impl.PostingStreamHub;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 
+import java.io.InputStream;
 import java.security.PublicKey;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -30,6 +52,10 @@ import java.util.List;
 @Slf4j
 public class TransactionController {
     private final ITransactionService transactionService;
+    private final ITransactionIngestionService ingestionService;
+    private final IAccountBalanceService accountBalanceService;
+    private final IRollupService rollupService;
+    private final PostingStreamHub postingStream;
     private final TransactionMapper mapper;
 
     @Operation(
@@ -47,6 +73,61 @@ public class TransactionController {
         return ApiResponseFactory.created(null);
     }
 
+    @Operation(
+            summary = "Reserve a server-assigned transaction ID",
+            description = "Optional for clients that cannot generate unique IDs: returns a time-ordered 64-bit ID (as a string) "
+                    + "to use as 'transactionId'. Reserve it before creating the transaction so that retries reuse the same ID."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Transaction ID reserved"),
+            @ApiResponse(responseCode = "500", description = "System clock moved backwards beyond the allowed skew"),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid JWT"),
+            @ApiResponse(responseCode = "403", description = "Role lacks the permission (granted to USER and above)")
+    })
+    @PostMapping("/ids")
+    public ApiResponseEntity<TransactionIdResponse> reserveTransactionId() {
+        return ApiResponseFactory.created(transactionService.nextTransactionId());
+    }
+
+    @Operation(
+            summary = "Create a multi-leg transaction",
+            description = "Creates N debit and credit entries (e.g. a payment with a fee split) atomically in one DB transaction. "
+                    + "Total debit must equal total credit; the Transaction ID is checked for duplicates like a regular transaction."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Transaction created successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data or unbalanced legs"),
+            @ApiResponse(responseCode = "409", description = "Transaction ID already exists (Conflict)"),
+            @ApiResponse(responseCode = "501", description = "Multi-leg transactions are not supported while the journal is "
+                    + "enabled or for transaction IDs routed to a secondary history shard"),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid JWT"),
+            @ApiResponse(responseCode = "403", description = "Role lacks the permission (granted to ADMIN only)")
+    })
+    @PostMapping("/multi-leg")
+    public ApiResponseEntity<?> createMultiLegTransaction(@Valid @RequestBody MultiLegTransactionRequest request) {
+        transactionService.createMultiLegTransaction(request);
+        return ApiResponseFactory.created(null);
+    }
+
+    @Operation(
+            summary = "Bulk ingest transactions (streaming)",
+            description = "Streams an NDJSON (application/x-ndjson) or CSV (text/csv: transactionId,sourceAccount,destAccount,amount,time) payload. "
+                    + "Records are validated and encrypted in parallel and written in large JDBC batches. Reports accepted/duplicate/rejected counts per chunk."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Payload processed (see per-chunk counts)"),
+            @ApiResponse(responseCode = "400", description = "Unsupported content type or unreadable payload"),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid JWT"),
+            @ApiResponse(responseCode = "403", description = "Role lacks the permission (granted to ADMIN only)")
+    })
+    // Không khai báo consumes: Content-Type không hỗ trợ (hoặc thiếu) được BulkFormat từ chối với 400 thay vì 415/500
+    @PostMapping("/bulk")
+    public ApiResponseEntity<BulkIngestionResponse> bulkIngest(
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            InputStream body) {
+        return ApiResponseFactory.success(ingestionService.ingest(body, BulkFormat.fromContentType(contentType)));
+    }
+
     @Operation(
             summary = "Get transaction details",
             description = "Retrieves a list of accounting entries (Debit & Credit) based on the Transaction ID. Account data is automatically decrypted."
@@ -62,6 +143,82 @@ public class TransactionController {
         return ApiResponseFactory.success(transactionService.getTransactionByTransactionId(transactionId));
     }
 
+    @Operation(
+            summary = "Get account statement (keyset pagination)",
+            description = "Returns the postings of an account in [from, to), newest first. Pass the returned 'nextCursor' "
+                    + "as 'cursor' to fetch the next page; every page costs the same regardless of how deep the cursor is."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statement page returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid account, time range, size or cursor"),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid JWT"),
+            @ApiResponse(responseCode = "403", description = "Role lacks the permission (granted to STAFF and above)")
+    })
+    @GetMapping("/statement")
+    public ApiResponseEntity<StatementResponse> getStatement(
+            @RequestParam @Pattern(regexp = TransactionRules.ACCOUNT_PATTERN, message = "{transaction.account.invalid}") String account,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int size) {
+        return ApiResponseFactory.success(transactionService.getStatement(account, from, to, cursor, size));
+    }
+
+    @Operation(
+            summary = "Get account balance",
+            description = "Returns the incrementally maintained balance of an account (total credit - total debit) with a single indexed lookup."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Balance found"),
+            @ApiResponse(responseCode = "400", description = "Invalid account"),
+            @ApiResponse(responseCode = "404", description = "Account has no postings"),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid JWT"),
+            @ApiResponse(responseCode = "403", description = "Role lacks the permission (granted to STAFF and above)")
+    })
+    @GetMapping("/balance")
+    public ApiResponseEntity<BalanceResponse> getBalance(
+            @RequestParam @Pattern(regexp = TransactionRules.ACCOUNT_PATTERN, message = "{transaction.account.invalid}") String account) {
+        return ApiResponseFactory.success(accountBalanceService.getBalance(account));
+    }
+
+    @Operation(
+            summary = "Get daily totals of an account",
+            description = "Returns per-day debit/credit totals and counts of an account in [from, to] (inclusive dates), "
+                    + "read from the incrementally maintained daily rollup instead of raw postings."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Daily totals returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid account or date range"),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid JWT"),
+            @ApiResponse(responseCode = "403", description = "Role lacks the permission (granted to STAFF and above)")
+    })
+    @GetMapping("/daily-summary")
+    public ApiResponseEntity<DailyRollupResponse> getDailySummary(
+            @RequestParam @Pattern(regexp = TransactionRules.ACCOUNT_PATTERN, message = "{transaction.account.invalid}") String account,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ApiResponseFactory.success(rollupService.getDailyRollups(account, from, to));
+    }
+
+    @Operation(
+            summary = "Stream new postings of an account",
+            description = "Server-Sent Events stream: pushes a 'posting' event (TransactionResponse) for each new posting "
+                    + "of the account once it is committed. Slow clients whose buffer fills up receive an 'evicted' event "
+                    + "and are disconnected."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream opened"),
+            @ApiResponse(responseCode = "400", description = "Invalid account"),
+            @ApiResponse(responseCode = "409", description = "Streaming is disabled or the subscriber limit is reached"),
+            @ApiResponse(responseCode = "401", description = "Missing or invalid JWT"),
+            @ApiResponse(responseCode = "403", description = "Role lacks the permission (granted to ADMIN only)")
+    })
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPostings(
+            @RequestParam @Pattern(regexp = TransactionRules.ACCOUNT_PATTERN, message = "{transaction.account.invalid}") String account) {
+        return postingStream.subscribe(account);
+    }
+
     @Operation(
             summary = "[TEST] Simulate Encryption (Raw -> Encrypted)",
             description = "Utility API to verify Mapper logic: Converts raw transaction data into encrypted internal packets (RSA)."
@@ -83,15 +240,20 @@ public class TransactionController {
 
     @Operation(
             summary = "[TEST] Verify Log Masking",
-            description = "Intentionally throws an exception to trigger logging. Use this to verify if TransactionID and Account are masked with '?' in the server logs."
+            description = "Intentionally throws an exception to trigger logging. Use this to verify if TransactionID and Account are masked with '?' in the server logs. "
+                    + "Sensitive values are passed as key-value fields: the text pattern appends them as key=value and masks them by regex; "
+                    + "the 'json-log' format masks them by key name without regex."
     )
     @ApiResponse(responseCode = "500", description = "Internal Server Error (Expected for log testing)")
     @GetMapping("/test-log")
     public void testLog() {
-        log.error(
-                "Lỗi giao dịch: TransactionID=TX-12345, Account=0123-456-789, InDebt=1000000,\n" +
-                        "Have=0, Time=2024-10-12T10:15:30"
-        );
+        log.atError()
+                .addKeyValue("transactionId", "TX-12345")
+                .addKeyValue("account", "0123-456-789")
+                .addKeyValue("inDebt", 1000000)
+                .addKeyValue("have", 0)
+                .addKeyValue("time", "2024-10-12T10:15:30")
+                .log("Lỗi giao dịch");
         throw new RuntimeException("Test exception");
     }
 }
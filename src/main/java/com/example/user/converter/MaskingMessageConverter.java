@@ -3,6 +3,10 @@ package com.example.user.converter;
 import ch.qos.logback.classic.pattern.MessageConverter;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.example.user.utils.LogMaskingUtil;
+import org.slf4j.event.KeyValuePair;
+
+import java.util.List;
+import java.util.Objects;
 
 /**
  * Bộ chuyển đổi log tùy chỉnh (Custom Logback Converter) dùng để tự động che giấu dữ liệu nhạy cảm.
@@ -24,6 +28,15 @@ public class MaskingMessageConverter extends MessageConverter {
      */
     @Override
     public String convert(ILoggingEvent event) {
-        return LogMaskingUtil.mask(event.getFormattedMessage());
+        List<KeyValuePair> pairs = event.getKeyValuePairs();
+        if (Objects.isNull(pairs) || pairs.isEmpty()) {
+            return LogMaskingUtil.mask(event.getFormattedMessage());
+        }
+        // Field key-value (dành cho log JSON) được nối vào sau message dạng key=value để cùng được che bằng Regex
+        StringBuilder message = new StringBuilder(event.getFormattedMessage());
+        for (KeyValuePair pair : pairs) {
+            message.append(' ').append(pair.key).append('=').append(pair.value);
+        }
+        return LogMaskingUtil.mask(message.toString());
     }
 }
@@ -0,0 +1,27 @@
+package com.example.user.converter;
+
+import com.example.user.utils.Money;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Objects;
+
+/**
+ * JPA Attribute Converter lưu {@link Money} xuống cột {@code BIGINT} (số đơn vị nhỏ nhất).
+ * <p>
+ * Cộng dồn {@code SUM(...)} trên cột BIGINT trong DB vẫn chính xác tuyệt đối, và JDBC đọc/ghi bằng
+ * {@code getLong}/{@code setLong} thay vì dựng {@code BigDecimal} cho từng ô.
+ */
+@Converter
+public class MoneyConverter implements AttributeConverter<Money, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(Money attribute) {
+        return Objects.isNull(attribute) ? null : attribute.minorUnits();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(Long dbData) {
+        return Objects.isNull(dbData) ? null : Money.ofMinor(dbData);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.user.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Định tuyến kết nối giữa Primary (ghi) và Replica (đọc).
+ * <p>
+ * Kết nối tới Replica khi và chỉ khi:
+ * <ul>
+ * <li>đang trong một transaction {@code readOnly = true} (ví dụ {@code @Transactional(readOnly = true)}), và</li>
+ * <li>request hiện tại không bị ghim vào Primary ({@link ReadYourWritesContext}).</li>
+ * </ul>
+ * Mọi trường hợp khác (transaction ghi, truy vấn ngoài transaction, luồng nền) dùng Primary. Khi một transaction ghi
+ * lấy kết nối, request hiện tại bị ghim vào Primary để các lần đọc sau thấy ngay dữ liệu vừa ghi (Read-Your-Writes).
+ * <p>
+ * Phải được bọc bởi {@code LazyConnectionDataSourceProxy}: kết nối thật chỉ được lấy ở câu lệnh đầu tiên, lúc đó
+ * cờ {@code readOnly} của transaction đã được thiết lập.
+ * <p>
+ * Đo lường: {@code datasource.routing.connections} (tag {@code pool}) và {@code datasource.routing.read_your_writes}
+ * (số lần đọc lẽ ra đi Replica nhưng bị chuyển về Primary).
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private final boolean hasReplica;
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+    private final Counter readYourWrites;
+
+    /**
+     * @param replica DataSource của Replica, hoặc {@code null} nếu không cấu hình (mọi kết nối đi Primary).
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, MeterRegistry meterRegistry) {
+        this.hasReplica = Objects.nonNull(replica);
+        setTargetDataSources(hasReplica
+                ? Map.of(PRIMARY, primary, REPLICA, replica)
+                : Map.of(PRIMARY, primary));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        this.primaryConnections = Counter.builder("datasource.routing.connections")
+                .tag("pool", PRIMARY).register(meterRegistry);
+        this.replicaConnections = Counter.builder("datasource.routing.connections")
+                .tag("pool", REPLICA).register(meterRegistry);
+        this.readYourWrites = Counter.builder("datasource.routing.read_your_writes")
+                .description("Read-only connections sent to the primary because the request wrote or asked for consistency")
+                .register(meterRegistry);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        if (!readOnly) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                ReadYourWritesContext.markWrite();
+            }
+            primaryConnections.increment();
+            return PRIMARY;
+        }
+        if (!hasReplica) {
+            primaryConnections.increment();
+            return PRIMARY;
+        }
+        if (ReadYourWritesContext.isPinnedToPrimary()) {
+            readYourWrites.increment();
+            primaryConnections.increment();
+            return PRIMARY;
+        }
+        replicaConnections.increment();
+        return REPLICA;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.user.datasource;
+
+import java.util.Objects;
+
+/**
+ * Phạm vi Read-Your-Writes của request hiện tại (ThreadLocal), do {@link ReadYourWritesFilter} mở và đóng.
+ * <p>
+ * Khi request đã ghi (một transaction ghi đã lấy kết nối tới Primary) hoặc client yêu cầu đọc nhất quán,
+ * mọi lần đọc sau đó trong cùng request đều đi tới Primary thay vì Replica (có thể đang trễ).
+ * Ngoài request HTTP (luồng nền) không có phạm vi: các hàm ở đây không có tác dụng.
+ */
+public final class ReadYourWritesContext {
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private ReadYourWritesContext() {
+    }
+
+    private static final class Scope {
+        private boolean pinned;
+    }
+
+    /**
+     * Mở phạm vi cho request hiện tại.
+     *
+     * @param pinned {@code true} nếu request phải đọc từ Primary ngay từ đầu.
+     */
+    public static void begin(boolean pinned) {
+        Scope scope = new Scope();
+        scope.pinned = pinned;
+        CURRENT.set(scope);
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Ghi nhận request hiện tại vừa ghi vào Primary.
+     */
+    public static void markWrite() {
+        Scope scope = CURRENT.get();
+        if (Objects.nonNull(scope)) scope.pinned = true;
+    }
+
+    public static boolean isPinnedToPrimary() {
+        Scope scope = CURRENT.get();
+        return Objects.nonNull(scope) && scope.pinned;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.user.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Mở phạm vi {@link ReadYourWritesContext} cho mỗi request.
+ * <p>
+ * Client vừa ghi ở một request trước (ví dụ tạo giao dịch rồi tra cứu ngay) gửi header
+ * {@code X-Consistency: primary} để request đọc thẳng từ Primary.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    public static final String CONSISTENCY_HEADER = "X-Consistency";
+    public static final String CONSISTENCY_PRIMARY = "primary";
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        ReadYourWritesContext.begin(CONSISTENCY_PRIMARY.equalsIgnoreCase(request.getHeader(CONSISTENCY_HEADER)));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadYourWritesContext.end();
+        }
+    }
+}
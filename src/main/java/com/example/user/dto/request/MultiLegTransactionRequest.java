@@ -0,0 +1,71 @@
+package com.example.user.dto.request;
+
+import com.example.user.constant.TransactionRules;
+import com.example.user.enums.PostingLeg;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Yêu cầu tạo một giao dịch nhiều vế (ví dụ: tách phí - Nợ người trả, Có người nhận và Có tài khoản phí).
+ * <p>
+ * Các vế được validate từng trường ở đây; ràng buộc trên cả giao dịch (tổng Nợ = tổng Có, có cả 2 phía,
+ * tổng tối thiểu {@link TransactionRules#MIN_AMOUNT}) được kiểm tra trong MỘT lượt duyệt ở tầng Service.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MultiLegTransactionRequest {
+    @NotBlank(message = "{transaction.id.required}")
+    private String transactionId;
+
+    @NotNull(message = "{transaction.time.required}")
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDateTime time;
+
+    @NotEmpty(message = "{transaction.legs.required}")
+    @Size(max = TransactionRules.MAX_POSTING_LEGS, message = "{transaction.legs.size}")
+    private List<@Valid @NotNull(message = "{transaction.leg.required}") Leg> legs;
+
+    @Override
+    public String toString() {
+        return "MultiLegTransactionRequest{ TransactionId=?, Time=?, Legs=" + (Objects.isNull(legs) ? 0 : legs.size()) + " }";
+    }
+
+    /**
+     * Một vế: phía Nợ/Có, tài khoản và số tiền (dương) của vế.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Leg {
+        @NotNull(message = "{transaction.leg.required}")
+        private PostingLeg leg;
+
+        @NotBlank(message = "{transaction.account.invalid}")
+        @Pattern(regexp = TransactionRules.ACCOUNT_PATTERN, message = "{transaction.account.invalid}")
+        private String account;
+
+        @NotNull(message = "{transaction.amount.required}")
+        @Positive(message = "{transaction.amount.positive}")
+        @Digits(integer = TransactionRules.AMOUNT_MAX_INTEGER_DIGITS, fraction = TransactionRules.AMOUNT_MAX_FRACTION_DIGITS,
+                message = "{transaction.amount.digits}")
+        private BigDecimal amount;
+
+        @Override
+        public String toString() {
+            return "Leg{ Leg=" + leg + ", Account=?, Amount=? }";
+        }
+    }
+}
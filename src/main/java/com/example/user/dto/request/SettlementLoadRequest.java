@@ -0,0 +1,22 @@
+package com.example.user.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Yêu cầu nạp một file quyết toán (Settlement File) đang nằm trên máy chủ.
+ * <p>
+ * Đường dẫn là đường dẫn TƯƠNG ĐỐI so với thư mục cấu hình {@code app.settlement.base-dir};
+ * mọi đường dẫn trỏ ra ngoài thư mục này đều bị từ chối.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SettlementLoadRequest {
+    @NotBlank(message = "{settlement.path.required}")
+    private String path;
+}
@@ -1,5 +1,6 @@
 package com.example.user.dto.request;
 
+import com.example.user.constant.TransactionRules;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
@@ -26,16 +27,18 @@ public class TransactionRequest {
     private String transactionId;
 
     @NotBlank(message = "{transaction.source.required}")
-    @Pattern(regexp = "\\d{10,13}", message = "{transaction.source.invalid}")
+    @Pattern(regexp = TransactionRules.ACCOUNT_PATTERN, message = "{transaction.source.invalid}")
     private String sourceAccount;
 
     @NotBlank(message = "{transaction.dest.required}")
-    @Pattern(regexp = "\\d{10,13}", message = "{transaction.dest.invalid}")
+    @Pattern(regexp = TransactionRules.ACCOUNT_PATTERN, message = "{transaction.dest.invalid}")
     private String destAccount;
 
     @NotNull(message = "{transaction.amount.required}")
     @Positive(message = "{transaction.amount.positive}")
-    @Min(value = 10000, message = "{transaction.amount.min}")
+    @Min(value = TransactionRules.MIN_AMOUNT, message = "{transaction.amount.min}")
+    @Digits(integer = TransactionRules.AMOUNT_MAX_INTEGER_DIGITS, fraction = TransactionRules.AMOUNT_MAX_FRACTION_DIGITS,
+            message = "{transaction.amount.digits}")
     private BigDecimal amount;
 
     @NotNull(message = "{transaction.time.required}")
@@ -152,6 +152,32 @@ public class ApiResponseFactory {
                 .build();
     }
 
+    /**
+     * Trả về lỗi Not Implemented (HTTP 501).
+     * Dùng khi chức năng chưa được hỗ trợ với cấu hình hiện tại của hệ thống.
+     *
+     * @param message Chi tiết lỗi.
+     */
+    public static ApiResponseEntity<Void> notImplemented(String message) {
+        return ApiResponseEntity.<Void>builder()
+                .label(ApiLabelConstants.NOT_IMPLEMENTED)
+                .message(message)
+                .build();
+    }
+
+    /**
+     * Trả về lỗi Service Unavailable (HTTP 503).
+     * Dùng khi hệ thống tạm thời không nhận yêu cầu, client có thể thử lại sau.
+     *
+     * @param message Chi tiết lỗi.
+     */
+    public static ApiResponseEntity<Void> serviceUnavailable(String message) {
+        return ApiResponseEntity.<Void>builder()
+                .label(ApiLabelConstants.SERVICE_UNAVAILABLE)
+                .message(message)
+                .build();
+    }
+
     /**
      * Dùng cho các lỗi về mã hóa.
      * Sử dụng message mặc định từ ErrorMessages để bảo mật thông tin hệ thống.
@@ -0,0 +1,25 @@
+package com.example.user.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Kết quả chuyển các vế hạch toán cũ từ {@code transaction_history} sang kho lưu trữ.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchiveResponse {
+    /** Mốc lưu trữ: các vế có {@code time} trước mốc này đã được chuyển. */
+    private LocalDateTime cutoff;
+    private int segmentsWritten;
+    private long rowsArchived;
+    /** Tổng dung lượng các Segment vừa ghi (đã nén và mã hóa). */
+    private long bytesWritten;
+    private long elapsedMillis;
+}
@@ -0,0 +1,28 @@
+package com.example.user.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kết quả đối soát và sửa lệch bảng {@code account_balance} so với {@code transaction_history}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceRebuildResponse {
+    private int partitions;
+    private long accountsChecked;
+    /** Tài khoản có số dư khác với tổng lịch sử. */
+    private long drifted;
+    /** Tài khoản có lịch sử nhưng chưa có dòng số dư. */
+    private long missing;
+    /** Dòng số dư không còn lịch sử tương ứng. */
+    private long orphaned;
+    private long repaired;
+    /** Số lệch bị bỏ qua vì tài khoản vừa có giao dịch mới trong lúc đối soát (chạy lại để xử lý). */
+    private long skippedConcurrent;
+    private long elapsedMillis;
+}
@@ -0,0 +1,24 @@
+package com.example.user.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Số dư hiện tại của một tài khoản (Số dư = Tổng Có - Tổng Nợ).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceResponse {
+    private BigDecimal balance;
+    private BigDecimal totalInDebt;
+    private BigDecimal totalHave;
+    private long postingCount;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,50 @@
+package com.example.user.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Kết quả nạp giao dịch hàng loạt, tổng hợp và chi tiết theo từng chunk.
+ * <p>
+ * Không chứa dữ liệu giao dịch (Account, Amount...), chỉ chứa số lượng và vị trí dòng lỗi.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkIngestionResponse {
+    private long received;
+    private long accepted;
+    private long duplicates;
+    private long rejected;
+    private List<ChunkResult> chunks;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ChunkResult {
+        private int chunk;
+        private int received;
+        private int accepted;
+        private int duplicates;
+        private int rejected;
+        /** Tối đa vài lỗi đầu tiên của chunk, dạng "line N: message". */
+        private List<String> errors;
+    }
+
+    public static BulkIngestionResponse from(List<ChunkResult> chunks) {
+        BulkIngestionResponse response = BulkIngestionResponse.builder().chunks(chunks).build();
+        for (ChunkResult chunk : chunks) {
+            response.received += chunk.getReceived();
+            response.accepted += chunk.getAccepted();
+            response.duplicates += chunk.getDuplicates();
+            response.rejected += chunk.getRejected();
+        }
+        return response;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.user.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Tổng Nợ/Có và số vế theo ngày của một tài khoản, đọc từ bảng tổng hợp {@code account_daily_rollup}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DailyRollupResponse {
+    private List<Day> days;
+    private BigDecimal totalInDebt;
+    private BigDecimal totalHave;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Day {
+        private LocalDate date;
+        private BigDecimal totalInDebt;
+        private BigDecimal totalHave;
+        private long debitCount;
+        private long creditCount;
+    }
+}
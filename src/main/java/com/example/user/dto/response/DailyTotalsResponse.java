@@ -0,0 +1,35 @@
+package com.example.user.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Tổng Nợ/Có theo ngày của một tài khoản (chỉ gồm các ngày có phát sinh).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DailyTotalsResponse {
+    private List<Day> days;
+    /** Số vế hạch toán đã quét để trả lời truy vấn. */
+    private long rowsScanned;
+    private long elapsedMicros;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Day {
+        private LocalDate date;
+        private BigDecimal totalInDebt;
+        private BigDecimal totalHave;
+        private long postingCount;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.user.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Kết quả chuyển đổi hoặc bảo trì phân vùng theo tháng của {@code transaction_history}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HistoryPartitionResponse {
+    /** Các partition sau lần chạy, theo thứ tự. */
+    private List<String> partitions;
+    private int partitionsCreated;
+    private int partitionsDropped;
+    private long elapsedMillis;
+}
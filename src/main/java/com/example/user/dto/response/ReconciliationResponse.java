@@ -0,0 +1,44 @@
+package com.example.user.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Kết quả đối soát kế toán kép trên {@code transaction_history}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationResponse {
+    /** Khoảng {@code recorded_at} đã quét trong lần chạy này ({@code scannedTo} rỗng nếu không có dòng nào). */
+    private LocalDateTime scannedFrom;
+    private LocalDateTime scannedTo;
+    private int chunks;
+    private long rowsScanned;
+    /** Giao dịch không cân trong phạm vi một chunk, đã được kiểm tra lại trên toàn bảng. */
+    private long candidatesVerified;
+    /** Lỗi của các lần chạy trước nay đã được sửa. */
+    private long resolved;
+    /** Tất cả giao dịch đang không cân (kể cả phát hiện từ các lần chạy trước). */
+    private List<UnbalancedTransaction> unbalanced;
+    private long elapsedMillis;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class UnbalancedTransaction {
+        private String transactionId;
+        private BigDecimal totalInDebt;
+        private BigDecimal totalHave;
+        private int legCount;
+        private LocalDateTime detectedAt;
+    }
+}
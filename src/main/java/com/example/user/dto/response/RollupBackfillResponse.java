@@ -0,0 +1,29 @@
+package com.example.user.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kết quả dựng lại bảng {@code account_daily_rollup} từ {@code transaction_history}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RollupBackfillResponse {
+    private int partitions;
+    /** Số cặp (tài khoản, ngày) đã kiểm tra. */
+    private long rollupsChecked;
+    /** Cặp (tài khoản, ngày) có lịch sử nhưng chưa có dòng tổng hợp. */
+    private long missing;
+    /** Dòng tổng hợp khác với tổng lịch sử. */
+    private long drifted;
+    /** Dòng tổng hợp không còn lịch sử tương ứng. */
+    private long orphaned;
+    private long repaired;
+    /** Số lệch bị bỏ qua vì có giao dịch mới trong lúc dựng lại (chạy lại để xử lý). */
+    private long skippedConcurrent;
+    private long elapsedMillis;
+}
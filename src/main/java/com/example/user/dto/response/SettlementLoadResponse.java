@@ -0,0 +1,30 @@
+package com.example.user.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Kết quả nạp file quyết toán: số lượng bản ghi theo trạng thái và thông lượng ghi DB.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SettlementLoadResponse {
+    private String file;
+    private long bytes;
+    private int segments;
+    private long records;
+    private long accepted;
+    private long duplicates;
+    private long rejected;
+    private long rowsWritten;
+    private long elapsedMillis;
+    private long rowsPerSecond;
+    /** Tối đa vài lỗi đầu tiên, dạng "offset N: reason" (không chứa dữ liệu giao dịch). */
+    private List<String> errors;
+}
@@ -0,0 +1,41 @@
+package com.example.user.dto.response;
+
+import com.example.user.enums.PostingLeg;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Một trang sao kê tài khoản (phân trang Keyset).
+ * <p>
+ * Để lấy trang tiếp theo, gửi lại {@code nextCursor} trong tham số {@code cursor}
+ * (cùng account và khoảng thời gian). {@code nextCursor} là null khi đã hết dữ liệu.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StatementResponse {
+    private List<Entry> entries;
+    private boolean hasNext;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Entry {
+        private String transactionId;
+        private PostingLeg leg;
+        private BigDecimal inDebt;
+        private BigDecimal have;
+        private LocalDateTime time;
+    }
+}
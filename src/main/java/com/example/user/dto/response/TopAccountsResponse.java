@@ -0,0 +1,34 @@
+package com.example.user.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Các tài khoản có doanh số (tổng Nợ + tổng Có) lớn nhất trong khoảng thời gian.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TopAccountsResponse {
+    private List<Entry> accounts;
+    private long rowsScanned;
+    private long elapsedMicros;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Entry {
+        private String account;
+        private BigDecimal volume;
+        private BigDecimal totalInDebt;
+        private BigDecimal totalHave;
+        private long postingCount;
+    }
+}
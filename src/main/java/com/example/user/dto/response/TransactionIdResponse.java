@@ -0,0 +1,17 @@
+package com.example.user.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * {@code transactionId} do máy chủ cấp (Snowflake), để client dùng trong request tạo giao dịch và khi gửi lại.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionIdResponse {
+    private String transactionId;
+}
@@ -0,0 +1,44 @@
+package com.example.user.entity;
+
+import com.example.user.converter.MoneyConverter;
+import com.example.user.utils.Money;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tổng lũy kế các vế hạch toán của một tài khoản đã rời {@code transaction_history}: chuyển sang kho lưu trữ lạnh
+ * (Archive) hoặc bị bỏ cùng partition tháng hết hạn.
+ * <p>
+ * Được cộng dồn trong CÙNG transaction với lệnh xóa các vế (hoặc với dấu {@code history_partition_purge}), nên
+ * tổng lịch sử còn trong DB + dòng này luôn bằng số dư lũy kế của tài khoản (dùng khi rebuild {@code account_balance}).
+ */
+@Entity
+@Table(name = "account_archive_total")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountArchiveTotal {
+    public static final String TABLE_NAME = "account_archive_total";
+
+    @Id
+    @Column(name = "account_hash", length = 64)
+    private String accountHash;
+
+    @Column(name = "total_in_debt", nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money totalInDebt;
+
+    @Column(name = "total_have", nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money totalHave;
+
+    @Column(name = "posting_count", nullable = false)
+    private Long postingCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
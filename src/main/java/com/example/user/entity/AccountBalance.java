@@ -0,0 +1,48 @@
+package com.example.user.entity;
+
+import com.example.user.converter.MoneyConverter;
+import com.example.user.utils.Money;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Số dư lũy kế của một tài khoản, được cập nhật tăng dần (incremental) cùng transaction với các vế hạch toán.
+ * <p>
+ * Khóa chính là Blind Index của số tài khoản ({@code account_hash}) nên đọc số dư chỉ là một lần tra cứu theo khóa chính,
+ * không phải cộng dồn toàn bộ lịch sử {@code transaction_history}.
+ * Số dư = tổng Có ({@code total_have}) - tổng Nợ ({@code total_in_debt}).
+ */
+@Entity
+@Table(name = "account_balance")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountBalance {
+    public static final String TABLE_NAME = "account_balance";
+
+    @Id
+    @Column(name = "account_hash", length = 64)
+    private String accountHash;
+
+    @Column(name = "total_in_debt", nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money totalInDebt;
+
+    @Column(name = "total_have", nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money totalHave;
+
+    @Column(name = "posting_count", nullable = false)
+    private Long postingCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public Money getBalance() {
+        return totalHave.minus(totalInDebt);
+    }
+}
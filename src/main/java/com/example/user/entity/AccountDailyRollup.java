@@ -0,0 +1,61 @@
+package com.example.user.entity;
+
+import com.example.user.converter.MoneyConverter;
+import com.example.user.utils.Money;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Tổng Nợ/Có và số vế của một tài khoản trong một ngày, được cộng dồn tăng dần cùng với {@link AccountBalance}.
+ * <p>
+ * Truy vấn theo khoảng ngày chỉ đọc tối đa một dòng mỗi ngày (quét khóa chính ({@code account_hash}, {@code rollup_date}))
+ * thay vì cộng dồn toàn bộ vế hạch toán trong {@code transaction_history}.
+ */
+@Entity
+@Table(name = "account_daily_rollup")
+@IdClass(AccountDailyRollup.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountDailyRollup {
+    public static final String TABLE_NAME = "account_daily_rollup";
+
+    @Id
+    @Column(name = "account_hash", length = 64)
+    private String accountHash;
+
+    @Id
+    @Column(name = "rollup_date")
+    private LocalDate rollupDate;
+
+    @Column(name = "total_in_debt", nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money totalInDebt;
+
+    @Column(name = "total_have", nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money totalHave;
+
+    @Column(name = "debit_count", nullable = false)
+    private Long debitCount;
+
+    @Column(name = "credit_count", nullable = false)
+    private Long creditCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String accountHash;
+        private LocalDate rollupDate;
+    }
+}
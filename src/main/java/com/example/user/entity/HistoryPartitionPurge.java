@@ -0,0 +1,35 @@
+package com.example.user.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Đánh dấu một partition tháng của {@code transaction_history} đã được cộng dồn vào {@code account_archive_total}
+ * và sắp (hoặc đã) bị {@code DROP PARTITION}.
+ * <p>
+ * Được ghi trong CÙNG transaction với lệnh cộng dồn, nên nếu ứng dụng dừng trước khi DROP, lần bảo trì sau
+ * chỉ DROP mà không cộng dồn lần nữa (và chỉ khi partition vẫn còn đúng {@code posting_count} vế đã cộng).
+ */
+@Entity
+@Table(name = "history_partition_purge")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HistoryPartitionPurge {
+    public static final String TABLE_NAME = "history_partition_purge";
+
+    @Id
+    @Column(name = "partition_name", length = 16)
+    private String partitionName;
+
+    @Column(name = "purged_at", nullable = false)
+    private LocalDateTime purgedAt;
+
+    /** Số vế đã được cộng dồn; {@code null} với dấu ghi trước khi có cột này. */
+    @Column(name = "posting_count")
+    private Long postingCount;
+}
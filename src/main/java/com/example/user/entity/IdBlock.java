@@ -0,0 +1,26 @@
+package com.example.user.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Bảng lưu trạng thái cấp phát ID theo khối (Hi/Lo) cho từng loại bản ghi.
+ * <p>
+ * Mỗi dòng giữ giá trị {@code hi} lớn nhất đã được cấp phát. Ứng dụng tăng giá trị này
+ * một lần cho cả một khối ID, thay vì một round trip DB cho mỗi bản ghi.
+ */
+@Entity
+@Table(name = "id_block")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdBlock {
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "next_hi", nullable = false)
+    private Long nextHi;
+}
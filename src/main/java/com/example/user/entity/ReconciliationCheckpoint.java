@@ -0,0 +1,37 @@
+package com.example.user.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tiến độ của một job quét {@code transaction_history} theo thứ tự ghi ({@code recorded_at}, {@code id}).
+ * <p>
+ * ({@code last_recorded_at}, {@code last_id}): dòng cuối cùng đã quét. Vì dòng commit muộn mang {@code recorded_at} sớm
+ * hơn lúc nó nhìn thấy được, lần chạy sau quét lại từ {@code last_recorded_at} trừ khoảng chồng lấn, không tiếp tục
+ * theo {@code last_id}. {@code last_recorded_at} rỗng (Checkpoint cũ theo ID) nghĩa là quét lại từ đầu.
+ */
+@Entity
+@Table(name = "reconciliation_checkpoint")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationCheckpoint {
+    public static final String TABLE_NAME = "reconciliation_checkpoint";
+
+    @Id
+    @Column(name = "job_name", length = 64)
+    private String jobName;
+
+    @Column(name = "last_id", nullable = false)
+    private Long lastId;
+
+    @Column(name = "last_recorded_at")
+    private LocalDateTime lastRecordedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,42 @@
+package com.example.user.entity;
+
+import com.example.user.converter.MoneyConverter;
+import com.example.user.utils.Money;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một giao dịch vi phạm nguyên tắc kế toán kép: tổng Nợ khác tổng Có, hoặc thiếu vế.
+ * <p>
+ * Được ghi bởi job đối soát và tự xóa khi lần đối soát sau thấy giao dịch đã cân.
+ */
+@Entity
+@Table(name = "reconciliation_issue")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationIssue {
+    public static final String TABLE_NAME = "reconciliation_issue";
+
+    @Id
+    @Column(name = "transaction_id")
+    private String transactionId;
+
+    @Column(name = "total_in_debt", nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money totalInDebt;
+
+    @Column(name = "total_have", nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money totalHave;
+
+    @Column(name = "leg_count", nullable = false)
+    private Integer legCount;
+
+    @Column(name = "detected_at", nullable = false)
+    private LocalDateTime detectedAt;
+}
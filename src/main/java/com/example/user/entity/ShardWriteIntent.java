@@ -0,0 +1,32 @@
+package com.example.user.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ý định ghi một giao dịch lên shard phụ của {@code transaction_history}, trên DB chính.
+ * <p>
+ * Được commit TRƯỚC khi ghi các vế lên shard và xóa trong CÙNG transaction ghi trạng thái dẫn xuất (Outbox, số dư...)
+ * trên DB chính. Dòng còn tồn tại quá lâu nghĩa là tiến trình đã dừng giữa hai lần commit: job khôi phục đọc lại các vế
+ * trên shard và ghi nốt trạng thái dẫn xuất (hoặc chỉ xóa dòng nếu shard không có vế nào).
+ */
+@Entity
+@Table(name = "shard_write_intent",
+        indexes = @Index(name = "idx_shard_write_intent_created", columnList = "created_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShardWriteIntent {
+    public static final String TABLE_NAME = "shard_write_intent";
+
+    @Id
+    @Column(name = "transaction_id")
+    private String transactionId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -1,26 +1,59 @@
 package com.example.user.entity;
 
+import com.example.user.constant.TransactionRules;
 import com.example.user.converter.AccountEncryptConverter;
+import com.example.user.converter.MoneyConverter;
+import com.example.user.enums.PostingLeg;
+import com.example.user.utils.Money;
 import jakarta.persistence.*;
-import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Objects;
 
+/**
+ * Một vế hạch toán (Nợ hoặc Có) của giao dịch.
+ * <p>
+ * ID được cấp phát phía ứng dụng (Hi/Lo) thay vì IDENTITY để Hibernate có thể gom các lệnh INSERT
+ * thành JDBC Batch. Vì ID đã có sẵn trước khi lưu, entity hiện thực {@link Persistable}
+ * để Spring Data gọi {@code persist} (không SELECT trước như {@code merge}).
+ * <p>
+ * Chống trùng giao dịch (Idempotency) dựa trên {@link TransactionRegistry}, ghi cùng transaction với các vế. Ràng buộc
+ * UNIQUE trên ({@code transaction_id}, {@code leg}, {@code leg_no}) giữ tính duy nhất của từng vế (mọi giao dịch đều có
+ * vế Nợ số 0). Khi bảng được phân vùng theo tháng ({@code HistoryPartitionManager}), khóa chính và khóa này được mở rộng
+ * thêm cột {@code time}; mọi truy vấn theo khoảng thời gian nên có điều kiện trên {@code time} để MySQL cắt bỏ partition.
+ * <p>
+ * Vì Account được mã hóa với IV ngẫu nhiên, việc tra cứu theo tài khoản dùng cột {@code account_hash} (Blind Index).
+ * Index ({@code account_hash}, {@code time}, {@code id}) phục vụ sao kê phân trang Keyset theo ({@code time}, {@code id}).
+ * Index ({@code recorded_at}, {@code id}) phục vụ đọc phần đuôi theo thứ tự ghi (Ledger Engine, xem {@code TailWatermark}).
+ * <p>
+ * Số tiền lưu dạng {@code BIGINT} đơn vị nhỏ nhất ({@link Money}, qua {@link MoneyConverter}).
+ */
 @Entity
+@Table(name = "transaction_history",
+        uniqueConstraints = @UniqueConstraint(name = TransactionHistory.UNIQUE_LEG_KEY, columnNames = {"transaction_id", "leg", "leg_no"}),
+        indexes = {
+                @Index(name = "idx_transaction_history_statement", columnList = "account_hash, time, id"),
+                @Index(name = "idx_transaction_history_recorded", columnList = "recorded_at, id")
+        })
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class TransactionHistory {
+public class TransactionHistory implements Persistable<Long> {
+    public static final String TABLE_NAME = "transaction_history";
+    public static final String UNIQUE_LEG_KEY = "uk_transaction_history_leg";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Setter(AccessLevel.NONE)
     private Long id;
 
@@ -28,31 +61,89 @@ public class TransactionHistory {
     @NotBlank(message = "Transaction ID cannot be blank")
     private String transactionId;
 
+    /**
+     * Lưu dạng {@code VARCHAR} (không phải {@code ENUM} mặc định của MySQLDialect), giống bảng trên các shard.
+     */
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(name = "leg", nullable = false, length = 6)
+    @NotNull(message = "Posting leg cannot be null")
+    private PostingLeg leg;
+
+    /**
+     * Số thứ tự của vế trong cùng phía (Nợ/Có) của giao dịch, bắt đầu từ 0. Giao dịch 2 vế luôn là 0;
+     * giao dịch nhiều vế đánh số các vế Nợ và các vế Có riêng.
+     */
+    @Column(name = "leg_no", nullable = false)
+    @ColumnDefault("0")
+    private int legNo;
+
     @Column(name = "account", nullable = false)
     @NotBlank(message = "Account cannot be blank")
-    @Pattern(regexp = "\\d{10,13}", message = "Account must be between 10 and 13 digits")
+    @Pattern(regexp = TransactionRules.ACCOUNT_PATTERN, message = "Account must be between 10 and 13 digits")
     @Convert(converter = AccountEncryptConverter.class)
     private String account;
 
+    /**
+     * Blind Index (HMAC-SHA256, HEX) của số tài khoản, xem {@code AccountBlindIndex}.
+     */
+    @Column(name = "account_hash", length = 64)
+    private String accountHash;
+
     @Column(name = "in_debt", nullable = false)
     @NotNull(message = "InDebt amount cannot be null")
-    @Min(value = 0, message = "InDebt cannot be negative")
-    private BigDecimal inDebt;
+    @Convert(converter = MoneyConverter.class)
+    private Money inDebt;
 
     @Column(name = "have", nullable = false)
     @NotNull(message = "InDebt amount cannot be null")
-    @Min(value = 0, message = "InDebt cannot be negative")
-    private BigDecimal have;
+    @Convert(converter = MoneyConverter.class)
+    private Money have;
 
     @Column(name = "time", nullable = false)
     @NotNull(message = "Transaction time cannot be null")
     private LocalDateTime time;
 
+    /**
+     * Giờ của DB lúc INSERT (do DB điền, luôn sớm hơn lúc commit). Khác {@code time} (giờ nghiệp vụ do client gửi),
+     * cột này tăng theo thứ tự ghi nên dùng làm mốc đọc phần đuôi.
+     */
+    @Column(name = "recorded_at", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "DATETIME(6) DEFAULT CURRENT_TIMESTAMP(6)")
+    @Setter(AccessLevel.NONE)
+    private LocalDateTime recordedAt;
+
+    @Transient
+    @Builder.Default
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean newEntity = true;
+
+    /**
+     * Thay cho {@code @Min(0)} (không áp dụng được cho {@link Money}).
+     */
+    @AssertTrue(message = "InDebt and Have cannot be negative")
+    private boolean isNonNegative() {
+        return (Objects.isNull(inDebt) || !inDebt.isNegative()) && (Objects.isNull(have) || !have.isNegative());
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostPersist
+    @PostLoad
+    private void markPersisted() {
+        newEntity = false;
+    }
+
     @Override
     public String toString() {
         return "TransactionHistory{" +
                 "id=" + id +
                 ", transactionId='?', " +
+                "leg=" + leg + ", " +
                 "account='?', " +
                 "inDebt=?, " +
                 "have=?, " +
@@ -0,0 +1,54 @@
+package com.example.user.entity;
+
+import com.example.user.converter.MoneyConverter;
+import com.example.user.enums.PostingLeg;
+import com.example.user.utils.Money;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một vế hạch toán chờ phát hành cho hệ thống hạ nguồn (Transactional Outbox).
+ * <p>
+ * Được ghi trong CÙNG transaction với {@code transaction_history} nên không thể có vế đã commit mà không có sự kiện
+ * (hay ngược lại). {@code id} trùng với ID của vế hạch toán, nên cũng là khóa chống trùng cho bên nhận.
+ * Dòng bị xóa sau khi đã phát hành thành công.
+ */
+@Entity
+@Table(name = "transaction_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionOutbox {
+    public static final String TABLE_NAME = "transaction_outbox";
+
+    @Id
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false)
+    private String transactionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "leg", nullable = false, length = 6)
+    private PostingLeg leg;
+
+    @Column(name = "account_hash", length = 64)
+    private String accountHash;
+
+    @Column(name = "in_debt", nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money inDebt;
+
+    @Column(name = "have", nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money have;
+
+    @Column(name = "time", nullable = false)
+    private LocalDateTime time;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
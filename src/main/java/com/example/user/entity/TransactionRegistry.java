@@ -0,0 +1,34 @@
+package com.example.user.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Sổ đăng ký các {@code transactionId} đã được ghi: chốt chặn chống trùng (Idempotency) cuối cùng trong DB.
+ * <p>
+ * Khóa {@code uk_transaction_history_leg} chỉ chặn được trùng khi {@code transaction_history} chưa phân vùng: MySQL buộc
+ * mọi khóa UNIQUE của bảng phân vùng chứa cột {@code time}, nên gửi lại cùng {@code transactionId} với {@code time} khác
+ * không vi phạm khóa đó. Bảng này không phân vùng, có UNIQUE({@code transaction_id}) và được ghi trong CÙNG transaction
+ * với các vế, trước các vế, nên giao dịch thứ hai luôn bị DB từ chối bất kể {@code time}.
+ * <p>
+ * Dòng vẫn được giữ khi các vế được chuyển sang kho lưu trữ hoặc partition chứa chúng bị bỏ.
+ */
+@Entity
+@Table(name = "transaction_registry",
+        uniqueConstraints = @UniqueConstraint(name = TransactionRegistry.UNIQUE_KEY, columnNames = "transaction_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionRegistry {
+    public static final String TABLE_NAME = "transaction_registry";
+    public static final String UNIQUE_KEY = "uk_transaction_registry_transaction";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false)
+    private String transactionId;
+}
@@ -0,0 +1,44 @@
+package com.example.user.enums;
+
+import com.example.user.exception.BadRequestException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Objects;
+
+/**
+ * Định dạng dữ liệu của API nạp giao dịch hàng loạt (Bulk Ingestion)
+ */
+@Getter
+@RequiredArgsConstructor
+public enum BulkFormat {
+
+    /**
+     * Mỗi dòng là một JSON object {@code TransactionRequest}
+     */
+    NDJSON("application/x-ndjson"),
+
+    /**
+     * Mỗi dòng: transactionId,sourceAccount,destAccount,amount,time (header là tùy chọn)
+     */
+    CSV("text/csv");
+
+    public static final String CSV_HEADER_PREFIX = "transactionId";
+
+    private final String mediaType;
+
+    /**
+     * Xác định định dạng từ header Content-Type (bỏ qua phần charset).
+     *
+     * @throws BadRequestException Nếu Content-Type không được hỗ trợ.
+     */
+    public static BulkFormat fromContentType(String contentType) {
+        if (Objects.nonNull(contentType)) {
+            String mediaType = contentType.split(";", 2)[0].trim();
+            for (BulkFormat format : values()) {
+                if (format.mediaType.equalsIgnoreCase(mediaType)) return format;
+            }
+        }
+        throw new BadRequestException("Unsupported bulk content type: " + contentType);
+    }
+}
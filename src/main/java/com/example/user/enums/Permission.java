@@ -9,7 +9,21 @@ public enum Permission {
     USER_READ("/api/users/**", "GET"),
     USER_CREATE("/api/users", "POST"),
     USER_UPDATE("/api/users/**", "PUT"),
-    USER_DELETE("/api/users/**", "DELETE");
+    USER_DELETE("/api/users/**", "DELETE"),
+    SETTLEMENT_LOAD("/api/admin/settlements/**", "POST"),
+    BALANCE_REBUILD("/api/admin/balances/**", "POST"),
+    RECONCILIATION_RUN("/api/admin/reconciliation/**", "POST"),
+    ANALYTICS_READ("/api/admin/analytics/**", "GET"),
+    ROLLUP_BACKFILL("/api/admin/rollups/**", "POST"),
+    POSTING_STREAM("/api/admin/stream/**", "GET"),
+    ARCHIVE_RUN("/api/admin/archive/**", "POST"),
+    TRANSACTION_ID_RESERVE("/api/transactions/ids", "POST"),
+    TRANSACTION_MULTI_LEG("/api/transactions/multi-leg", "POST"),
+    TRANSACTION_BULK("/api/transactions/bulk", "POST"),
+    STATEMENT_READ("/api/transactions/statement", "GET"),
+    BALANCE_READ("/api/transactions/balance", "GET"),
+    DAILY_SUMMARY_READ("/api/transactions/daily-summary", "GET"),
+    TRANSACTION_STREAM("/api/transactions/stream", "GET");
 
 
     private final String url;
@@ -0,0 +1,17 @@
+package com.example.user.enums;
+
+/**
+ * Chứa giá trị của trường leg, xác định vế hạch toán của một bản ghi giao dịch
+ */
+public enum PostingLeg {
+
+    /**
+     * Vế Ghi Nợ (tài khoản nguồn bị trừ tiền)
+     */
+    DEBIT,
+
+    /**
+     * Vế Ghi Có (tài khoản đích được cộng tiền)
+     */
+    CREDIT
+}
@@ -18,13 +18,17 @@ public enum Role {
      * người dùng có những quyền cơ bản
      */
     USER(Set.of(
-
+            Permission.TRANSACTION_ID_RESERVE
     )),
 
-    // STAFF: Chỉ xem và tạo user
+    // STAFF: Xem và tạo user, xem sao kê, số dư
     STAFF(Set.of(
             Permission.USER_READ,
-            Permission.USER_CREATE
+            Permission.USER_CREATE,
+            Permission.TRANSACTION_ID_RESERVE,
+            Permission.STATEMENT_READ,
+            Permission.BALANCE_READ,
+            Permission.DAILY_SUMMARY_READ
     )),
 
     // ADMIN: Có tất cả quyền
@@ -32,7 +36,21 @@ public enum Role {
             Permission.USER_READ,
             Permission.USER_CREATE,
             Permission.USER_UPDATE,
-            Permission.USER_DELETE
+            Permission.USER_DELETE,
+            Permission.SETTLEMENT_LOAD,
+            Permission.BALANCE_REBUILD,
+            Permission.RECONCILIATION_RUN,
+            Permission.ANALYTICS_READ,
+            Permission.ROLLUP_BACKFILL,
+            Permission.POSTING_STREAM,
+            Permission.ARCHIVE_RUN,
+            Permission.TRANSACTION_ID_RESERVE,
+            Permission.TRANSACTION_MULTI_LEG,
+            Permission.TRANSACTION_BULK,
+            Permission.STATEMENT_READ,
+            Permission.BALANCE_READ,
+            Permission.DAILY_SUMMARY_READ,
+            Permission.TRANSACTION_STREAM
     ));
     private final Set<Permission> permissions;
 }
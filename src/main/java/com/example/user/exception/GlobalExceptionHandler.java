@@ -232,6 +232,36 @@ public class GlobalExceptionHandler {
         return ApiResponseFactory.forbidden(ex.getMessage());
     }
 
+    /**
+     * Xử lý ngoại lệ {@link NotImplementedException}.
+     * <p>Chức năng chưa được hỗ trợ với cấu hình hiện tại: gửi lại y nguyên sẽ không thành công.</p>
+     *
+     * @param ex      Ngoại lệ chứa lý do.
+     * @param request Đối tượng request hiện tại.
+     * @return {@link ApiResponseEntity} chứa mã lỗi 501 (Not Implemented).
+     */
+    @ExceptionHandler(NotImplementedException.class)
+    @ResponseStatus(HttpStatus.NOT_IMPLEMENTED)
+    public ApiResponseEntity<?> handleNotImplemented(NotImplementedException ex, HttpServletRequest request) {
+        log.warn("NotImplemented at [{}]: {}", request.getRequestURI(), ex.getMessage());
+        return ApiResponseFactory.notImplemented(ex.getMessage());
+    }
+
+    /**
+     * Xử lý ngoại lệ {@link ServiceUnavailableException}.
+     * <p>Hệ thống tạm thời không nhận yêu cầu (quá tải, đang tạm dừng): client nên thử lại sau.</p>
+     *
+     * @param ex      Ngoại lệ chứa lý do.
+     * @param request Đối tượng request hiện tại.
+     * @return {@link ApiResponseEntity} chứa mã lỗi 503 (Service Unavailable).
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ApiResponseEntity<?> handleServiceUnavailable(ServiceUnavailableException ex, HttpServletRequest request) {
+        log.warn("ServiceUnavailable at [{}]: {}", request.getRequestURI(), ex.getMessage());
+        return ApiResponseFactory.serviceUnavailable(ex.getMessage());
+    }
+
     /**
      * Xử lý lỗi trong quá trình xử lý dữ liệu bảo mật (Decrypt, Verify Signature...).
      *
@@ -271,7 +301,9 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ApiResponseEntity<?> handleException(Exception ex, HttpServletRequest request) {
-        log.error("UNHANDLED EXCEPTION at [{}]: {}", request.getRequestURI(), ex.getMessage(), ex);
+        // Message của lỗi không xác định có thể chứa dữ liệu nhạy cảm (vd. giá trị vi phạm ràng buộc từ JDBC):
+        // không ghép vào message, chỉ đi kèm exception
+        log.error("UNHANDLED EXCEPTION at [{}]", request.getRequestURI(), ex);
         return ApiResponseFactory.internalError();
     }
 }
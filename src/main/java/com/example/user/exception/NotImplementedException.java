@@ -0,0 +1,17 @@
+package com.example.user.exception;
+
+/**
+ * Đại diện cho lỗi 501 Not Implemented.
+ * <p>
+ * Sử dụng khi: Yêu cầu hợp lệ nhưng chức năng chưa được hỗ trợ với cấu hình hiện tại của hệ thống; gửi lại y nguyên
+ * sẽ không thành công cho tới khi cấu hình thay đổi.
+ * Ví dụ: Giao dịch nhiều vế khi đang bật Journal hoặc khi giao dịch thuộc một shard phụ.
+ */
+public class NotImplementedException extends BaseException {
+    public NotImplementedException(String message) {
+        super(message);
+    }
+    public NotImplementedException(String message, Throwable cause){
+        super(message, cause);
+    }
+}
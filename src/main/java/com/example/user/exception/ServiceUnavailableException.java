@@ -0,0 +1,16 @@
+package com.example.user.exception;
+
+/**
+ * Đại diện cho lỗi 503 Service Unavailable.
+ * <p>
+ * Sử dụng khi: Hệ thống tạm thời không nhận thêm yêu cầu (quá tải, đang tạm dừng, đang tắt), client có thể thử lại sau.
+ * Ví dụ: Hàng đợi ghi đã đầy quá thời gian chờ, đang chốt snapshot để sửa số dư.
+ */
+public class ServiceUnavailableException extends BaseException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+    public ServiceUnavailableException(String message, Throwable cause){
+        super(message, cause);
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.user.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+import com.example.user.utils.MpscRingBuffer;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appender ghi log BẤT ĐỒNG BỘ dựa trên {@link MpscRingBuffer} (lock-free, có giới hạn).
+ * <p>
+ * Luồng xử lý request chỉ đưa {@link ILoggingEvent} vào hàng đợi rồi quay về ngay.
+ * Mọi công việc tốn kém được dời sang một luồng Consumer duy nhất:
+ * <ul>
+ * <li>Format message (thay thế tham số {@code {}}) và che dữ liệu nhạy cảm ({@code %maskMsg}).</li>
+ * <li>Ghi ra Console / File thông qua các appender con được gắn bằng {@code <appender-ref>}.</li>
+ * </ul>
+ *
+ * <b>Chính sách khi hàng đợi đầy (Overflow Policy):</b>
+ * <ul>
+ * <li>Log có level &le; {@code maxDiscardLevel} (mặc định INFO, tức DEBUG/INFO): bị BỎ QUA và được đếm vào {@code droppedEvents}.</li>
+ * <li>Log có level cao hơn (WARN/ERROR): luồng gọi sẽ CHỜ cho tới khi có chỗ trống, đảm bảo không mất log lỗi.</li>
+ * </ul>
+ * Các chỉ số {@link #getQueueDepth()} và {@link #getDroppedEventCount()} được đưa lên Micrometer
+ * bởi {@code LoggingMetricsConfig}.
+ */
+public class AsyncMaskingAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    private static final int DRAIN_BATCH = 256;
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long PRODUCER_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+    private final LongAdder droppedEvents = new LongAdder();
+
+    private int capacity = DEFAULT_CAPACITY;
+    private Level maxDiscardLevel = Level.INFO;
+    private long shutdownTimeoutMillis = 1000;
+
+    private MpscRingBuffer<ILoggingEvent> buffer;
+    private Thread worker;
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        if (isStarted()) return;
+        if (!appenders.iteratorForAppenders().hasNext()) {
+            addError("No appender attached to [" + getName() + "]. Use <appender-ref> to attach one.");
+            return;
+        }
+        buffer = new MpscRingBuffer<>(capacity);
+        running = true;
+        worker = new Thread(this::drainLoop, "async-log-" + getName());
+        worker.setDaemon(true);
+        super.start();
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) return;
+        super.stop();
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(shutdownTimeoutMillis);
+            if (worker.isAlive()) {
+                addWarn("Async log worker did not finish within " + shutdownTimeoutMillis + " ms, "
+                        + buffer.size() + " events may be lost");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // Chỉ chụp lại dữ liệu gắn với luồng hiện tại (tên luồng, MDC).
+        // Việc format message được để lại cho luồng Consumer.
+        event.getThreadName();
+        event.getMDCPropertyMap();
+
+        if (buffer.offer(event)) return;
+
+        if (event.getLevel().toInt() <= maxDiscardLevel.toInt()) {
+            droppedEvents.increment();
+            return;
+        }
+        while (!buffer.offer(event)) {
+            if (!running) {
+                droppedEvents.increment();
+                return;
+            }
+            LockSupport.parkNanos(PRODUCER_BACKOFF_NANOS);
+        }
+    }
+
+    private void drainLoop() {
+        long idleParkNanos = 1;
+        while (running || !buffer.isEmpty()) {
+            int drained = buffer.drain(this::dispatch, DRAIN_BATCH);
+            if (drained > 0) {
+                idleParkNanos = 1;
+                continue;
+            }
+            LockSupport.parkNanos(idleParkNanos);
+            idleParkNanos = Math.min(idleParkNanos << 1, MAX_IDLE_PARK_NANOS);
+        }
+    }
+
+    private void dispatch(ILoggingEvent event) {
+        try {
+            appenders.appendLoopOnAppenders(event);
+        } catch (RuntimeException e) {
+            addError("Failed to dispatch log event", e);
+        }
+    }
+
+    public int getQueueDepth() {
+        return buffer == null ? 0 : buffer.size();
+    }
+
+    public long getDroppedEventCount() {
+        return droppedEvents.sum();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public String getMaxDiscardLevel() {
+        return maxDiscardLevel.toString();
+    }
+
+    public void setMaxDiscardLevel(String level) {
+        this.maxDiscardLevel = Level.toLevel(level, Level.INFO);
+    }
+
+    public void setShutdownTimeoutMillis(long shutdownTimeoutMillis) {
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> newAppender) {
+        appenders.addAppender(newAppender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.user.logging;
+
+import java.util.Arrays;
+
+/**
+ * Bộ đệm byte có thể tái sử dụng, ghi trực tiếp JSON (UTF-8) mà không tạo String trung gian.
+ * <p>
+ * Mỗi luồng ghi log giữ một instance riêng (xem {@link MaskingJsonEncoder}) nên class này
+ * không cần đồng bộ hóa.
+ */
+final class JsonByteBuffer {
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final int INITIAL_SIZE = 1024;
+    private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+    private byte[] bytes = new byte[INITIAL_SIZE];
+    private int length;
+
+    void reset() {
+        if (bytes.length > MAX_RETAINED_SIZE) {
+            bytes = new byte[INITIAL_SIZE];
+        }
+        length = 0;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    JsonByteBuffer raw(char c) {
+        ensure(1);
+        bytes[length++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Ghi chuỗi ASCII không cần escape (tên field, hằng số).
+     */
+    JsonByteBuffer raw(String ascii) {
+        int n = ascii.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            bytes[length++] = (byte) ascii.charAt(i);
+        }
+        return this;
+    }
+
+    JsonByteBuffer number(long value) {
+        if (value == Long.MIN_VALUE) return raw(Long.toString(value));
+        ensure(20);
+        if (value < 0) {
+            bytes[length++] = '-';
+            value = -value;
+        }
+        int start = length;
+        do {
+            bytes[length++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            byte tmp = bytes[i];
+            bytes[i] = bytes[j];
+            bytes[j] = tmp;
+        }
+        return this;
+    }
+
+    /**
+     * Ghi một chuỗi JSON có dấu nháy kép, escape ký tự đặc biệt và mã hóa UTF-8.
+     */
+    JsonByteBuffer string(CharSequence value) {
+        raw('"');
+        escaped(value, 0, value.length());
+        return raw('"');
+    }
+
+    /**
+     * Ghi một đoạn ký tự đã escape (không kèm dấu nháy kép).
+     */
+    JsonByteBuffer escaped(CharSequence value, int from, int to) {
+        ensure((to - from) * 3);
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                ensure(2);
+                bytes[length++] = '\\';
+                bytes[length++] = (byte) c;
+            } else if (c < 0x20) {
+                writeControl(c);
+            } else if (c < 0x80) {
+                ensure(1);
+                bytes[length++] = (byte) c;
+            } else if (c < 0x800) {
+                ensure(2);
+                bytes[length++] = (byte) (0xC0 | (c >> 6));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensure(4);
+                bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                ensure(1);
+                bytes[length++] = '?';
+            } else {
+                ensure(3);
+                bytes[length++] = (byte) (0xE0 | (c >> 12));
+                bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    private void writeControl(char c) {
+        ensure(6);
+        bytes[length++] = '\\';
+        switch (c) {
+            case '\n' -> bytes[length++] = 'n';
+            case '\r' -> bytes[length++] = 'r';
+            case '\t' -> bytes[length++] = 't';
+            case '\b' -> bytes[length++] = 'b';
+            case '\f' -> bytes[length++] = 'f';
+            default -> {
+                bytes[length++] = 'u';
+                bytes[length++] = '0';
+                bytes[length++] = '0';
+                bytes[length++] = HEX[c >> 4];
+                bytes[length++] = HEX[c & 0xF];
+            }
+        }
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, length + extra));
+        }
+    }
+}
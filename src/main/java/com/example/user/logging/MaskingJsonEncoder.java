@@ -0,0 +1,188 @@
+package com.example.user.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.StackTraceElementProxy;
+import ch.qos.logback.core.encoder.EncoderBase;
+import org.slf4j.event.KeyValuePair;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Encoder ghi log dạng JSON có cấu trúc và che dữ liệu nhạy cảm THEO TÊN FIELD.
+ * <p>
+ * Khác với {@code MaskingMessageConverter} (quét Regex trên toàn bộ message), encoder này
+ * không chạy Regex trên nội dung log. Dữ liệu nhạy cảm phải được truyền dưới dạng key-value
+ * (SLF4J Fluent API) hoặc MDC, và được che bằng {@code ?} dựa trên tên key:
+ * <pre>
+ * log.atInfo()
+ *    .addKeyValue("transactionId", request.getTransactionId())
+ *    .addKeyValue("amount", request.getAmount())
+ *    .log("Transaction created");
+ *
+ * =&gt; {"ts":...,"level":"INFO",...,"message":"Transaction created","fields":{"transactionId":"?","amount":"?"}}
+ * </pre>
+ *
+ * Message được ghi nguyên văn ({@link ILoggingEvent#getFormattedMessage()}), nên KHÔNG được ghép giá trị nhạy cảm vào
+ * message. Message của exception cũng là văn bản tự do (driver JDBC thường kèm giá trị vi phạm ràng buộc) nên mặc định
+ * bị bỏ: {@code exception} chỉ gồm tên class và stack trace của cả chuỗi cause ({@code includeExceptionMessages} để
+ * bật lại khi chắc chắn không có dữ liệu nhạy cảm).
+ * <p>
+ * <b>Hiệu năng:</b> JSON được ghi trực tiếp (UTF-8) vào một {@link JsonByteBuffer} tái sử dụng theo từng luồng,
+ * chỉ cấp phát duy nhất mảng byte kết quả mà API {@code Encoder} của Logback yêu cầu.
+ */
+public class MaskingJsonEncoder extends EncoderBase<ILoggingEvent> {
+    private static final String MASK = "?";
+    private static final String DEFAULT_MASKED_KEYS =
+            "transactionId,account,sourceAccount,destAccount,amount,inDebt,have,time";
+    private static final String CAUSED_BY = "Caused by: ";
+    private static final String SUPPRESSED = "Suppressed: ";
+
+    private final ThreadLocal<JsonByteBuffer> buffers = ThreadLocal.withInitial(JsonByteBuffer::new);
+
+    private String[] maskedKeys = DEFAULT_MASKED_KEYS.split(",");
+    private boolean includeMdc = true;
+    private boolean includeExceptionMessages = false;
+
+    @Override
+    public byte[] headerBytes() {
+        return null;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        JsonByteBuffer out = buffers.get();
+        out.reset();
+
+        out.raw("{\"ts\":").number(event.getTimeStamp());
+        out.raw(",\"level\":").string(event.getLevel().toString());
+        out.raw(",\"logger\":").string(event.getLoggerName());
+        out.raw(",\"thread\":").string(Objects.toString(event.getThreadName(), ""));
+        out.raw(",\"message\":").string(Objects.toString(event.getFormattedMessage(), ""));
+
+        writeFields(out, event.getKeyValuePairs());
+        if (includeMdc) {
+            writeMdc(out, event.getMDCPropertyMap());
+        }
+
+        IThrowableProxy throwable = event.getThrowableProxy();
+        if (Objects.nonNull(throwable)) {
+            out.raw(",\"exception\":\"");
+            writeThrowable(out, throwable, "", "");
+            out.raw('"');
+        }
+        out.raw("}\n");
+        return out.toByteArray();
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return null;
+    }
+
+    /**
+     * Ghi exception theo dạng của {@code printStackTrace} (kể cả cause và suppressed) thẳng vào buffer; message chỉ
+     * được ghi khi bật {@code includeExceptionMessages}.
+     */
+    private void writeThrowable(JsonByteBuffer out, IThrowableProxy throwable, String prefix, String indent) {
+        out.escaped(indent, 0, indent.length()).escaped(prefix, 0, prefix.length());
+        String className = throwable.getClassName();
+        out.escaped(className, 0, className.length());
+        String message = throwable.getMessage();
+        if (includeExceptionMessages && Objects.nonNull(message)) {
+            out.raw(": ").escaped(message, 0, message.length());
+        }
+        StackTraceElementProxy[] frames = throwable.getStackTraceElementProxyArray();
+        int shown = frames.length - throwable.getCommonFrames();
+        for (int i = 0; i < shown; i++) {
+            String frame = frames[i].getSTEAsString();
+            out.raw("\\n\\t").escaped(indent, 0, indent.length()).escaped(frame, 0, frame.length());
+        }
+        if (throwable.getCommonFrames() > 0) {
+            out.raw("\\n\\t").escaped(indent, 0, indent.length()).raw("... ").number(throwable.getCommonFrames())
+                    .raw(" common frames omitted");
+        }
+        IThrowableProxy[] suppressed = throwable.getSuppressed();
+        if (Objects.nonNull(suppressed)) {
+            for (IThrowableProxy each : suppressed) {
+                out.raw("\\n");
+                writeThrowable(out, each, SUPPRESSED, indent + '\t');
+            }
+        }
+        IThrowableProxy cause = throwable.getCause();
+        if (Objects.nonNull(cause)) {
+            out.raw("\\n");
+            writeThrowable(out, cause, CAUSED_BY, indent);
+        }
+    }
+
+    private void writeFields(JsonByteBuffer out, List<KeyValuePair> pairs) {
+        if (Objects.isNull(pairs) || pairs.isEmpty()) return;
+        out.raw(",\"fields\":{");
+        for (int i = 0; i < pairs.size(); i++) {
+            KeyValuePair pair = pairs.get(i);
+            if (i > 0) out.raw(',');
+            writeEntry(out, pair.key, pair.value);
+        }
+        out.raw('}');
+    }
+
+    private void writeMdc(JsonByteBuffer out, Map<String, String> mdc) {
+        if (Objects.isNull(mdc) || mdc.isEmpty()) return;
+        out.raw(",\"mdc\":{");
+        boolean first = true;
+        for (Map.Entry<String, String> entry : mdc.entrySet()) {
+            if (!first) out.raw(',');
+            first = false;
+            writeEntry(out, entry.getKey(), entry.getValue());
+        }
+        out.raw('}');
+    }
+
+    private void writeEntry(JsonByteBuffer out, String key, Object value) {
+        out.string(key).raw(':');
+        if (isMasked(key)) {
+            out.string(MASK);
+        } else if (Objects.isNull(value)) {
+            out.raw("null");
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+            out.number(((Number) value).longValue());
+        } else if (value instanceof Boolean bool) {
+            out.raw(bool ? "true" : "false");
+        } else {
+            out.string(value.toString());
+        }
+    }
+
+    private boolean isMasked(String key) {
+        if (Objects.isNull(key)) return false;
+        for (String maskedKey : maskedKeys) {
+            if (maskedKey.equalsIgnoreCase(key)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Danh sách key cần che, phân tách bởi dấu phẩy (không phân biệt hoa thường).
+     */
+    public void setMaskedKeys(String maskedKeys) {
+        this.maskedKeys = Arrays.stream(maskedKeys.split(","))
+                .map(String::trim)
+                .filter(key -> !key.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    public void setIncludeMdc(boolean includeMdc) {
+        this.includeMdc = includeMdc;
+    }
+
+    /**
+     * Ghi cả message của exception (mặc định tắt vì không che được theo key).
+     */
+    public void setIncludeExceptionMessages(boolean includeExceptionMessages) {
+        this.includeExceptionMessages = includeExceptionMessages;
+    }
+}
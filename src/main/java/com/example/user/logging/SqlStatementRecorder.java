@@ -0,0 +1,160 @@
+package com.example.user.logging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.temporal.Temporal;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bộ ghi nhận thời gian thực thi SQL, thay thế cho {@code spring.jpa.show-sql}.
+ * <p>
+ * Với mỗi câu lệnh được thực thi qua {@link SqlLoggingDataSource}:
+ * <ul>
+ * <li><b>Histogram:</b> Ghi thời gian vào Timer {@code sql.statement.duration} gắn tag theo "hình dạng" câu lệnh
+ * (SQL đã chuẩn hóa khoảng trắng, gộp danh sách {@code ?}).</li>
+ * <li><b>Log chậm:</b> Câu lệnh vượt ngưỡng {@code slowThresholdMs} luôn được ghi ở mức WARN.</li>
+ * <li><b>Log mẫu:</b> Các câu lệnh còn lại chỉ được ghi theo tỷ lệ {@code sampleRate} ở mức INFO.</li>
+ * </ul>
+ * Tham số bind KHÔNG bao giờ được ghi giá trị thật, chỉ ghi kiểu và độ dài (Ví dụ: {@code String(44)}).
+ * Việc ghi ra Console do {@link AsyncMaskingAppender} đảm nhận nên không chặn luồng truy vấn.
+ */
+@Slf4j(topic = "sql")
+public class SqlStatementRecorder {
+    private static final String TIMER_NAME = "sql.statement.duration";
+    private static final String OTHER_SHAPE = "other";
+    private static final int MAX_SHAPES = 500;
+    private static final int MAX_SHAPE_LENGTH = 200;
+
+    private final Supplier<MeterRegistry> meterRegistrySupplier;
+    private volatile MeterRegistry meterRegistry;
+    private final long slowThresholdNanos;
+    private final double sampleRate;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * @param meterRegistrySupplier Nguồn lấy {@link MeterRegistry}, chỉ được gọi ở lần ghi nhận đầu tiên
+     *                              (DataSource thường được khởi tạo trước MeterRegistry).
+     */
+    public SqlStatementRecorder(Supplier<MeterRegistry> meterRegistrySupplier, long slowThresholdMs, double sampleRate) {
+        this.meterRegistrySupplier = meterRegistrySupplier;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Ghi nhận một lần thực thi câu lệnh SQL.
+     *
+     * @param sql          Câu lệnh SQL (có thể null nếu driver không cung cấp).
+     * @param elapsedNanos Thời gian thực thi (nano giây).
+     * @param parameters     Mảng tham số bind (chỉ dùng để mô tả kiểu, không ghi giá trị).
+     * @param parameterCount Số tham số hợp lệ trong mảng.
+     * @param batchSize    Số câu lệnh trong batch (0 nếu không phải batch).
+     */
+    public void record(String sql, long elapsedNanos, Object[] parameters, int parameterCount, int batchSize) {
+        String statement = Objects.toString(sql, "");
+        timerFor(statement).record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        boolean slow = elapsedNanos >= slowThresholdNanos;
+        if (!slow && (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) return;
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        if (slow) {
+            log.warn("Slow SQL ({} ms, batch={}): {} params={}", elapsedMs, batchSize, statement, describe(parameters, parameterCount));
+        } else if (log.isInfoEnabled()) {
+            log.info("Sampled SQL ({} ms, batch={}): {} params={}", elapsedMs, batchSize, statement, describe(parameters, parameterCount));
+        }
+    }
+
+    /**
+     * Timer được lấy theo hình dạng đã chuẩn hóa (không theo SQL gốc), để các biến thể IN-list của cùng một câu lệnh
+     * dùng chung một slot trong {@value #MAX_SHAPES} slot thay vì đẩy các hình dạng thật vào {@code other}.
+     */
+    private Timer timerFor(String sql) {
+        String shape = normalize(sql);
+        Timer timer = timers.get(shape);
+        if (Objects.nonNull(timer)) return timer;
+        if (timers.size() >= MAX_SHAPES) {
+            return timers.computeIfAbsent(OTHER_SHAPE, this::newTimer);
+        }
+        return timers.computeIfAbsent(shape, this::newTimer);
+    }
+
+    private Timer newTimer(String shape) {
+        MeterRegistry registry = meterRegistry;
+        if (Objects.isNull(registry)) {
+            registry = meterRegistrySupplier.get();
+            meterRegistry = registry;
+        }
+        return Timer.builder(TIMER_NAME)
+                .description("JDBC statement execution time per query shape")
+                .tag("shape", shape)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Chuẩn hóa SQL thành "hình dạng" câu lệnh: gộp khoảng trắng liên tiếp và
+     * thu gọn danh sách tham số {@code (?, ?, ?)} thành {@code (?)} để IN-list có độ dài khác nhau
+     * không tạo ra các histogram riêng biệt.
+     */
+    static String normalize(String sql) {
+        StringBuilder shape = new StringBuilder(Math.min(sql.length(), MAX_SHAPE_LENGTH));
+        boolean pendingSpace = false;
+        for (int i = 0; i < sql.length() && shape.length() < MAX_SHAPE_LENGTH; i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = !shape.isEmpty();
+                continue;
+            }
+            if (c == ',' && lastNonSpaceIs(shape, '?') && nextNonSpaceIs(sql, i + 1, '?')) {
+                i = sql.indexOf('?', i + 1);
+                pendingSpace = false;
+                continue;
+            }
+            if (pendingSpace) shape.append(' ');
+            pendingSpace = false;
+            shape.append(c);
+        }
+        return shape.toString();
+    }
+
+    private static boolean lastNonSpaceIs(StringBuilder shape, char expected) {
+        return !shape.isEmpty() && shape.charAt(shape.length() - 1) == expected;
+    }
+
+    private static boolean nextNonSpaceIs(String sql, int from, char expected) {
+        for (int i = from; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (!Character.isWhitespace(c)) return c == expected;
+        }
+        return false;
+    }
+
+    private static String describe(Object[] parameters, int parameterCount) {
+        if (Objects.isNull(parameters) || parameterCount == 0) return "[]";
+        StringBuilder description = new StringBuilder("[");
+        for (int i = 0; i < parameterCount; i++) {
+            if (i > 0) description.append(", ");
+            Object value = parameters[i];
+            if (Objects.isNull(value)) {
+                description.append("null");
+            } else if (value instanceof CharSequence text) {
+                description.append("String(").append(text.length()).append(')');
+            } else if (value instanceof byte[] bytes) {
+                description.append("Bytes(").append(bytes.length).append(')');
+            } else if (value instanceof Number || value instanceof Temporal) {
+                description.append(value.getClass().getSimpleName()).append("(?)");
+            } else {
+                description.append(value.getClass().getSimpleName());
+            }
+        }
+        return description.append(']').toString();
+    }
+}
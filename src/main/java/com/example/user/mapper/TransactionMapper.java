@@ -2,6 +2,7 @@ package com.example.user.mapper;
 
 import com.example.user.dto.request.InternalTransactionRequest;
 import com.example.user.dto.request.TransactionDecryptedDTO;
+import com.example.user.utils.Money;
 import com.example.user.utils.RsaUtil;
 import lombok.RequiredArgsConstructor;
 import org.mapstruct.Mapper;
@@ -54,16 +55,16 @@ public abstract class TransactionMapper {
     }
 
     /**
-     * Helper method: Mã hóa số BigDecimal.
-     * <p>Chuyển số thành String rồi mới mã hóa.</p>
+     * Helper method: Mã hóa số tiền {@link Money}.
+     * <p>Chuyển số thành String thập phân (ví dụ "10000.00") rồi mới mã hóa, bên nhận vẫn đọc được bằng {@link BigDecimal}.</p>
      *
      * @param value Giá trị số tiền.
      * @return Chuỗi mã hóa của số tiền.
      */
     @Named("rsaEncrypt")
-    public String rsaEncrypt(BigDecimal value) {
+    public String rsaEncrypt(Money value) {
         if (Objects.isNull(value)) return null;
-        return RsaUtil.encrypt(value.toPlainString(), publicKey);
+        return RsaUtil.encrypt(value.toString(), publicKey);
     }
 
     /**
@@ -89,8 +90,8 @@ public abstract class TransactionMapper {
             String transactionId,
             String account,
             String time,
-            BigDecimal inDebt,
-            BigDecimal have
+            Money inDebt,
+            Money have
     );
 
     /**
@@ -0,0 +1,109 @@
+package com.example.user.repository;
+
+import com.example.user.entity.AccountBalance;
+import com.example.user.entity.AccountDailyRollup;
+import com.example.user.utils.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Repository cập nhật {@code account_balance} và {@code account_daily_rollup} bằng JDBC Batch và lệnh UPSERT.
+ * <p>
+ * {@code INSERT ... ON DUPLICATE KEY UPDATE} cộng dồn trực tiếp trong DB: không cần SELECT trước,
+ * không có xung đột "chưa có dòng" giữa các transaction chạy song song. Phải được gọi trong cùng transaction
+ * với lệnh ghi {@code transaction_history} (hoặc trong transaction của {@code AccountBalanceSequencer})
+ * để số dư và tổng theo ngày luôn khớp với nhau.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AccountBalanceBatchRepository {
+    private static final String UPSERT_SQL = "INSERT INTO " + AccountBalance.TABLE_NAME
+            + " (account_hash, total_in_debt, total_have, posting_count, updated_at) VALUES (?, ?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE total_in_debt = total_in_debt + VALUES(total_in_debt),"
+            + " total_have = total_have + VALUES(total_have),"
+            + " posting_count = posting_count + VALUES(posting_count),"
+            + " updated_at = VALUES(updated_at)";
+    private static final String UPSERT_ROLLUP_SQL = "INSERT INTO " + AccountDailyRollup.TABLE_NAME
+            + " (account_hash, rollup_date, total_in_debt, total_have, debit_count, credit_count, updated_at)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE total_in_debt = total_in_debt + VALUES(total_in_debt),"
+            + " total_have = total_have + VALUES(total_have),"
+            + " debit_count = debit_count + VALUES(debit_count),"
+            + " credit_count = credit_count + VALUES(credit_count),"
+            + " updated_at = VALUES(updated_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Biến động số dư của một tài khoản trong một ngày.
+     *
+     * @param accountHash Blind Index của số tài khoản.
+     * @param day         Ngày giao dịch (khóa của {@code account_daily_rollup}).
+     * @param inDebt      Tổng ghi Nợ theo đơn vị nhỏ nhất (xem {@link Money}).
+     * @param have        Tổng ghi Có theo đơn vị nhỏ nhất.
+     * @param debits      Số vế Nợ được cộng dồn vào biến động này.
+     * @param credits     Số vế Có được cộng dồn vào biến động này.
+     */
+    public record Delta(String accountHash, LocalDate day, long inDebt, long have, long debits, long credits) {
+        public static Delta of(String accountHash, LocalDateTime time, long inDebt, long have, boolean debit) {
+            return new Delta(accountHash, time.toLocalDate(), inDebt, have, debit ? 1 : 0, debit ? 0 : 1);
+        }
+
+        public long postings() {
+            return debits + credits;
+        }
+
+        /**
+         * Cộng dồn hai biến động. {@code day} của kết quả là của biến động này (khi gộp theo tài khoản, ngày bị bỏ qua).
+         */
+        public Delta merge(Delta other) {
+            return new Delta(accountHash, day, Money.add(inDebt, other.inDebt), Money.add(have, other.have),
+                    debits + other.debits, credits + other.credits);
+        }
+    }
+
+    /**
+     * Gộp các biến động theo tài khoản (số dư) và theo (tài khoản, ngày) (tổng theo ngày) rồi UPSERT,
+     * mỗi khóa đúng MỘT lệnh.
+     * <p>
+     * Các lệnh được gửi theo thứ tự khóa tăng dần để mọi transaction khóa dòng theo cùng một thứ tự,
+     * tránh Deadlock khi hai giao dịch chạm cùng cặp tài khoản theo chiều ngược nhau.
+     */
+    public void applyDeltas(Collection<Delta> deltas) {
+        if (deltas.isEmpty()) return;
+        Map<String, Delta> balances = new TreeMap<>();
+        Map<String, Delta> rollups = new TreeMap<>();
+        for (Delta delta : deltas) {
+            balances.merge(delta.accountHash(), delta, Delta::merge);
+            rollups.merge(delta.accountHash() + '|' + delta.day(), delta, Delta::merge);
+        }
+        List<Delta> orderedBalances = new ArrayList<>(balances.values());
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(UPSERT_SQL, orderedBalances, orderedBalances.size(), (ps, delta) -> {
+            ps.setString(1, delta.accountHash());
+            ps.setLong(2, delta.inDebt());
+            ps.setLong(3, delta.have());
+            ps.setLong(4, delta.postings());
+            ps.setObject(5, now);
+        });
+        List<Delta> orderedRollups = new ArrayList<>(rollups.values());
+        jdbcTemplate.batchUpdate(UPSERT_ROLLUP_SQL, orderedRollups, orderedRollups.size(), (ps, delta) -> {
+            ps.setString(1, delta.accountHash());
+            ps.setObject(2, delta.day());
+            ps.setLong(3, delta.inDebt());
+            ps.setLong(4, delta.have());
+            ps.setLong(5, delta.debits());
+            ps.setLong(6, delta.credits());
+            ps.setObject(7, now);
+        });
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.user.repository;
+
+import com.example.user.entity.AccountBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface IAccountBalanceRepository extends JpaRepository<AccountBalance, String> {
+}
@@ -0,0 +1,14 @@
+package com.example.user.repository;
+
+import com.example.user.entity.AccountDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface IAccountDailyRollupRepository extends JpaRepository<AccountDailyRollup, AccountDailyRollup.Key> {
+    /**
+     * Tổng theo ngày của tài khoản trong khoảng [from, to], quét theo khóa chính.
+     */
+    List<AccountDailyRollup> findByAccountHashAndRollupDateBetweenOrderByRollupDate(String accountHash, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,7 @@
+package com.example.user.repository;
+
+import com.example.user.entity.ReconciliationCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface IReconciliationCheckpointRepository extends JpaRepository<ReconciliationCheckpoint, String> {
+}
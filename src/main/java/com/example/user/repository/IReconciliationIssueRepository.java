@@ -0,0 +1,7 @@
+package com.example.user.repository;
+
+import com.example.user.entity.ReconciliationIssue;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface IReconciliationIssueRepository extends JpaRepository<ReconciliationIssue, String> {
+}
@@ -1,10 +1,72 @@
 package com.example.user.repository;
 
 import com.example.user.entity.TransactionHistory;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ITransactionHistoryRepository extends JpaRepository<TransactionHistory, Long> {
     List<TransactionHistory> findByTransactionId(String transactionId);
+
+    /**
+     * Kiểm tra sự tồn tại của giao dịch qua index UNIQUE ({@code transaction_id}, {@code leg}).
+     * <p>
+     * Không tải entity nên không phải giải mã AES cột Account.
+     */
+    boolean existsByTransactionId(String transactionId);
+
+    /**
+     * Đếm số giao dịch (theo transactionId) để ước lượng kích thước Bloom Filter khi khởi động.
+     */
+    @Query("SELECT COUNT(DISTINCT t.transactionId) FROM TransactionHistory t")
+    long countDistinctTransactionIds();
+
+    /**
+     * Duyệt (streaming) toàn bộ transactionId, chỉ đọc cột cần thiết. Phải gọi trong một transaction.
+     */
+    @Query("SELECT DISTINCT t.transactionId FROM TransactionHistory t")
+    Stream<String> streamAllTransactionIds();
+
+    /**
+     * Trang đầu tiên của sao kê tài khoản, mới nhất trước, trong khoảng [{@code from}, {@code to}).
+     * <p>
+     * Dùng index ({@code account_hash}, {@code time}, {@code id}): DB chỉ đọc đúng {@code limit} dòng.
+     */
+    @Query("""
+            SELECT new com.example.user.repository.StatementRow(
+                   t.id, t.transactionId, t.leg, t.inDebt, t.have, t.time)
+            FROM TransactionHistory t
+            WHERE t.accountHash = :accountHash AND t.time >= :from AND t.time < :to
+            ORDER BY t.time DESC, t.id DESC""")
+    List<StatementRow> findStatementFirstPage(@Param("accountHash") String accountHash,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to,
+                                              Limit limit);
+
+    /**
+     * Trang kế tiếp sau con trỏ ({@code cursorTime}, {@code cursorId}) - phân trang Keyset.
+     * <p>
+     * Khác với OFFSET (phải đọc rồi bỏ qua toàn bộ các dòng phía trước), điều kiện Keyset cho phép DB
+     * nhảy thẳng tới vị trí con trỏ trên index, nên chi phí mỗi trang là như nhau dù con trỏ ở sâu tới đâu.
+     * Điều kiện {@code t.time <= :cursorTime} tách riêng khỏi vế OR để MySQL cắt bỏ các partition tháng mới hơn
+     * con trỏ (Partition Pruning không suy ra được từ biểu thức OR).
+     */
+    @Query("""
+            SELECT new com.example.user.repository.StatementRow(
+                   t.id, t.transactionId, t.leg, t.inDebt, t.have, t.time)
+            FROM TransactionHistory t
+            WHERE t.accountHash = :accountHash AND t.time >= :from AND t.time < :to
+              AND t.time <= :cursorTime AND (t.time < :cursorTime OR (t.time = :cursorTime AND t.id < :cursorId))
+            ORDER BY t.time DESC, t.id DESC""")
+    List<StatementRow> findStatementPageAfter(@Param("accountHash") String accountHash,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to,
+                                              @Param("cursorTime") LocalDateTime cursorTime,
+                                              @Param("cursorId") Long cursorId,
+                                              Limit limit);
 }
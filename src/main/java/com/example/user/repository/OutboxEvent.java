@@ -0,0 +1,19 @@
+package com.example.user.repository;
+
+import com.example.user.enums.PostingLeg;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một sự kiện "vế hạch toán mới" trong {@code transaction_outbox}.
+ * <p>
+ * Không chứa số tài khoản (kể cả dạng mã hóa): bên nhận dùng {@code accountHash} hoặc tra cứu theo {@code transactionId}.
+ *
+ * @param id        ID của vế hạch toán, tăng dần trong một instance (khóa chống trùng cho bên nhận).
+ * @param inDebt    Số tiền ghi Nợ theo đơn vị nhỏ nhất (xem {@code Money}).
+ * @param have      Số tiền ghi Có theo đơn vị nhỏ nhất.
+ * @param createdAt Thời điểm ghi vào Outbox, dùng để đo độ trễ phát hành.
+ */
+public record OutboxEvent(long id, String transactionId, PostingLeg leg, String accountHash,
+                          long inDebt, long have, LocalDateTime time, LocalDateTime createdAt) {
+}
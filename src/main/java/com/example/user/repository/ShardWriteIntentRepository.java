@@ -0,0 +1,94 @@
+package com.example.user.repository;
+
+import com.example.user.entity.ShardWriteIntent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Repository đọc/ghi {@code shard_write_intent} (xem {@link ShardWriteIntent}) bằng JDBC thuần, trên DB chính.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ShardWriteIntentRepository {
+    private static final String INSERT_SQL = "INSERT INTO " + ShardWriteIntent.TABLE_NAME
+            + " (transaction_id, created_at) VALUES (?, ?)";
+    private static final String TOUCH_SQL = "UPDATE " + ShardWriteIntent.TABLE_NAME
+            + " SET created_at = ? WHERE transaction_id IN (%s)";
+    private static final String LOCK_SQL = "SELECT transaction_id FROM " + ShardWriteIntent.TABLE_NAME
+            + " WHERE transaction_id IN (%s) FOR UPDATE";
+    /**
+     * SKIP LOCKED: bỏ qua dòng đang bị bộ ghi (hoặc job khôi phục của instance khác) khóa.
+     */
+    private static final String LOCK_EXPIRED_SQL = "SELECT transaction_id FROM " + ShardWriteIntent.TABLE_NAME
+            + " WHERE created_at < ? ORDER BY created_at LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String DELETE_SQL = "DELETE FROM " + ShardWriteIntent.TABLE_NAME + " WHERE transaction_id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Ghi ý định cho các giao dịch chưa có; dòng đã có (từ một lần ghi trước bị dừng giữa chừng) được làm mới
+     * {@code created_at} để job khôi phục không xử lý nó trong lúc lần ghi này đang chạy. Phải gọi trong transaction.
+     *
+     * @return Các giao dịch vừa được ghi ý định MỚI (không tính các dòng đã có).
+     */
+    public Set<String> record(Collection<String> transactionIds, LocalDateTime now) {
+        if (transactionIds.isEmpty()) return Set.of();
+        Set<String> existing = lock(transactionIds);
+        if (!existing.isEmpty()) {
+            jdbcTemplate.update(TOUCH_SQL.formatted(placeholders(existing.size())), touchArgs(existing, now));
+        }
+        List<String> fresh = transactionIds.stream().filter(id -> !existing.contains(id)).distinct().toList();
+        if (!fresh.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, fresh, fresh.size(), (ps, transactionId) -> {
+                ps.setString(1, transactionId);
+                ps.setObject(2, now);
+            });
+        }
+        return new HashSet<>(fresh);
+    }
+
+    /**
+     * Khóa các ý định còn tồn tại trong số {@code transactionIds} (chờ nếu đang bị khóa). Phải gọi trong transaction.
+     *
+     * @return Các giao dịch còn ý định.
+     */
+    public Set<String> lock(Collection<String> transactionIds) {
+        if (transactionIds.isEmpty()) return Set.of();
+        return new HashSet<>(jdbcTemplate.queryForList(LOCK_SQL.formatted(placeholders(transactionIds.size())),
+                String.class, transactionIds.toArray()));
+    }
+
+    /**
+     * Khóa tối đa {@code limit} ý định cũ hơn {@code cutoff}, cũ nhất trước. Phải gọi trong transaction.
+     */
+    public List<String> lockExpired(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.queryForList(LOCK_EXPIRED_SQL, String.class, cutoff, limit);
+    }
+
+    public int delete(Collection<String> transactionIds) {
+        if (transactionIds.isEmpty()) return 0;
+        return jdbcTemplate.update(DELETE_SQL.formatted(placeholders(transactionIds.size())), transactionIds.toArray());
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static Object[] touchArgs(Set<String> transactionIds, LocalDateTime now) {
+        Object[] args = new Object[transactionIds.size() + 1];
+        args[0] = now;
+        int i = 1;
+        for (String transactionId : transactionIds) {
+            args[i++] = transactionId;
+        }
+        return args;
+    }
+}
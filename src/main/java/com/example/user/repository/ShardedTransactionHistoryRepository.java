@@ -0,0 +1,260 @@
+package com.example.user.repository;
+
+import com.example.user.entity.TransactionHistory;
+import com.example.user.enums.PostingLeg;
+import com.example.user.utils.Money;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Phân mảnh (Sharding) {@code transaction_history} theo hash của {@code transactionId} trên N DataSource
+ * (tùy chọn, {@code app.sharding.urls}).
+ * <p>
+ * <b>Bố cục:</b> shard 0 là DataSource chính của ứng dụng (chứa mọi bảng khác: số dư, rollup, Outbox...), các shard
+ * còn lại được cấu hình qua {@code app.sharding.urls} và chỉ chứa {@code transaction_history} (tự tạo bảng nếu
+ * {@code app.sharding.initialize-schema=true}). Khi không cấu hình shard phụ, {@link #isSharded()} là {@code false}
+ * và các tầng trên dùng thẳng {@link ITransactionHistoryRepository} như trước.
+ * <p>
+ * <b>Định tuyến:</b> {@link #shardOf} băm {@code transactionId}, nên mọi vế của một giao dịch nằm trên CÙNG một
+ * shard và được ghi nguyên tử bằng transaction cục bộ của shard đó, cùng đăng ký trong {@code transaction_registry}
+ * của shard (chống trùng trên từng shard). Tra cứu theo {@code transactionId} chỉ chạm một shard.
+ * Thay đổi số shard làm thay đổi ánh xạ: phải phân bổ lại dữ liệu trước khi đổi {@code app.sharding.urls}.
+ * <p>
+ * <b>Scatter-Gather:</b> truy vấn theo tài khoản (sao kê) chạy song song trên mọi shard (mỗi shard một Virtual
+ * Thread) rồi gộp kết quả. ID cấp phát bởi {@code IIdGenerator} (Hi/Lo trên DB chính, hoặc Snowflake) nên duy nhất
+ * trên toàn bộ các shard.
+ */
+@Slf4j
+@Repository
+public class ShardedTransactionHistoryRepository {
+    private static final String SELECT_COLUMNS = "SELECT id, transaction_id, leg, account, account_hash, in_debt, have, time FROM "
+            + TransactionHistory.TABLE_NAME;
+    private static final String FIND_BY_TRANSACTION_ID_SQL = SELECT_COLUMNS + " WHERE transaction_id = ?";
+    private static final String EXISTS_SQL = "SELECT COUNT(*) FROM " + TransactionHistory.TABLE_NAME
+            + " WHERE transaction_id = ?";
+    private static final String DISTINCT_IDS_SQL = "SELECT DISTINCT transaction_id FROM " + TransactionHistory.TABLE_NAME;
+    private static final String COUNT_DISTINCT_IDS_SQL = "SELECT COUNT(DISTINCT transaction_id) FROM "
+            + TransactionHistory.TABLE_NAME;
+    private static final String DELETE_TRANSACTIONS_SQL = "DELETE FROM " + TransactionHistory.TABLE_NAME
+            + " WHERE transaction_id IN (%s)";
+    private static final String STATEMENT_FIRST_PAGE_SQL = "SELECT id, transaction_id, leg, in_debt, have, time FROM "
+            + TransactionHistory.TABLE_NAME + " WHERE account_hash = ? AND time >= ? AND time < ?"
+            + " ORDER BY time DESC, id DESC LIMIT ?";
+    private static final String STATEMENT_PAGE_AFTER_SQL = "SELECT id, transaction_id, leg, in_debt, have, time FROM "
+            + TransactionHistory.TABLE_NAME + " WHERE account_hash = ? AND time >= ? AND time < ?"
+            + " AND time <= ? AND (time < ? OR (time = ? AND id < ?)) ORDER BY time DESC, id DESC LIMIT ?";
+    private static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS " + TransactionHistory.TABLE_NAME + " ("
+            + "id BIGINT NOT NULL PRIMARY KEY, "
+            + "transaction_id VARCHAR(255) NOT NULL, "
+            + "leg VARCHAR(6) NOT NULL, "
+            + "leg_no INT NOT NULL DEFAULT 0, "
+            + "account VARCHAR(255) NOT NULL, "
+            + "account_hash VARCHAR(64), "
+            + "in_debt BIGINT NOT NULL, "
+            + "have BIGINT NOT NULL, "
+            + "time DATETIME(6) NOT NULL, "
+            + "recorded_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6), "
+            + "CONSTRAINT " + TransactionHistory.UNIQUE_LEG_KEY + " UNIQUE (transaction_id, leg, leg_no), "
+            + "INDEX idx_transaction_history_statement (account_hash, time, id), "
+            + "INDEX idx_transaction_history_recorded (recorded_at, id))";
+
+    private static final RowMapper<TransactionHistoryBatchRepository.Row> ROW_MAPPER = (rs, rowNum) ->
+            new TransactionHistoryBatchRepository.Row(rs.getLong(1), rs.getString(2), PostingLeg.valueOf(rs.getString(3)),
+                    rs.getString(4), rs.getString(5), rs.getLong(6), rs.getLong(7), rs.getObject(8, LocalDateTime.class));
+
+    private static final RowMapper<StatementRow> STATEMENT_ROW_MAPPER = (rs, rowNum) ->
+            new StatementRow(rs.getLong(1), rs.getString(2), PostingLeg.valueOf(rs.getString(3)),
+                    Money.ofMinor(rs.getLong(4)), Money.ofMinor(rs.getLong(5)), rs.getObject(6, LocalDateTime.class));
+
+    /**
+     * Một shard: JdbcTemplate và TransactionTemplate trên DataSource của shard đó.
+     */
+    public record Shard(int index, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        public boolean isPrimary() {
+            return index == 0;
+        }
+    }
+
+    private final List<Shard> shards;
+    private final List<HikariDataSource> ownedDataSources = new ArrayList<>();
+    private final ExecutorService scatterExecutor;
+
+    public ShardedTransactionHistoryRepository(JdbcTemplate jdbcTemplate,
+                                               PlatformTransactionManager transactionManager,
+                                               @Value("${app.sharding.urls:}") String urls,
+                                               @Value("${app.sharding.username:}") String username,
+                                               @Value("${app.sharding.password:}") String password,
+                                               @Value("${app.sharding.pool-size:10}") int poolSize,
+                                               @Value("${app.sharding.initialize-schema:true}") boolean initializeSchema) {
+        List<Shard> configured = new ArrayList<>();
+        configured.add(new Shard(0, jdbcTemplate, new TransactionTemplate(transactionManager)));
+        List<String> shardUrls = Arrays.stream(urls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+        for (String url : shardUrls) {
+            int index = configured.size();
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("history-shard-" + index);
+            dataSource.setJdbcUrl(url);
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+            dataSource.setMaximumPoolSize(poolSize);
+            ownedDataSources.add(dataSource);
+            JdbcTemplate shardTemplate = new JdbcTemplate(dataSource);
+            if (initializeSchema) {
+                shardTemplate.execute(CREATE_TABLE_SQL);
+                shardTemplate.execute(TransactionRegistryRepository.CREATE_TABLE_SQL);
+            }
+            configured.add(new Shard(index, shardTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource))));
+        }
+        this.shards = List.copyOf(configured);
+        this.scatterExecutor = isSharded() ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        if (isSharded()) {
+            log.info("Transaction history sharded across {} datasources", shards.size());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (Objects.nonNull(scatterExecutor)) scatterExecutor.shutdownNow();
+        ownedDataSources.forEach(HikariDataSource::close);
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    public List<Shard> shards() {
+        return shards;
+    }
+
+    /**
+     * Shard chứa giao dịch {@code transactionId}. Hàm băm ổn định giữa các JVM ({@link String#hashCode()} được đặc tả),
+     * trộn thêm bước finalizer của MurmurHash3 để các ID tuần tự phân bố đều.
+     */
+    public Shard shardOf(String transactionId) {
+        int hash = transactionId.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return shards.get(Math.floorMod(hash, shards.size()));
+    }
+
+    /**
+     * Ghi các vế lên shard. Phải được gọi trong transaction của {@code shard}.
+     */
+    public void insertAll(Shard shard, List<TransactionHistoryBatchRepository.Row> rows, int batchSize) {
+        TransactionHistoryBatchRepository.insertAll(shard.jdbcTemplate(), rows, batchSize);
+    }
+
+    /**
+     * Bù trừ (Compensation): xóa các giao dịch vừa ghi lên shard (cả đăng ký trong {@code transaction_registry}) khi bước
+     * ghi trạng thái dẫn xuất trên DB chính thất bại.
+     */
+    public int deleteTransactions(Shard shard, Collection<String> transactionIds) {
+        if (transactionIds.isEmpty()) return 0;
+        List<String> ids = List.copyOf(transactionIds);
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return shard.transactionTemplate().execute(status -> {
+            TransactionRegistryRepository.delete(shard.jdbcTemplate(), ids);
+            return shard.jdbcTemplate().update(DELETE_TRANSACTIONS_SQL.formatted(placeholders), ids.toArray());
+        });
+    }
+
+    /**
+     * Các vế của một giao dịch (Account còn ở dạng mã hóa), chỉ truy vấn shard chứa giao dịch.
+     */
+    public List<TransactionHistoryBatchRepository.Row> findByTransactionId(String transactionId) {
+        return shardOf(transactionId).jdbcTemplate().query(FIND_BY_TRANSACTION_ID_SQL, ROW_MAPPER, transactionId);
+    }
+
+    public boolean existsByTransactionId(String transactionId) {
+        Integer count = shardOf(transactionId).jdbcTemplate().queryForObject(EXISTS_SQL, Integer.class, transactionId);
+        return Objects.nonNull(count) && count > 0;
+    }
+
+    public long countDistinctTransactionIds() {
+        return scatter(shard -> shard.jdbcTemplate().queryForObject(COUNT_DISTINCT_IDS_SQL, Long.class)).stream()
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    /**
+     * Duyệt toàn bộ transactionId của mọi shard (tuần tự từng shard, đọc dạng streaming).
+     */
+    public void forEachTransactionId(Consumer<String> consumer) {
+        for (Shard shard : shards) {
+            shard.jdbcTemplate().query(DISTINCT_IDS_SQL, rs -> {
+                consumer.accept(rs.getString(1));
+            });
+        }
+    }
+
+    /**
+     * Một trang sao kê trên toàn bộ các shard: mỗi shard trả tối đa {@code limit} dòng theo cùng điều kiện Keyset,
+     * kết quả được gộp và cắt lại còn {@code limit} dòng đầu theo ({@code time}, {@code id}) giảm dần.
+     *
+     * @param cursorTime Thời điểm của con trỏ, hoặc {@code null} cho trang đầu.
+     */
+    public List<StatementRow> findStatementPage(String accountHash, LocalDateTime from, LocalDateTime to,
+                                                LocalDateTime cursorTime, Long cursorId, int limit) {
+        List<List<StatementRow>> pages = scatter(shard -> Objects.isNull(cursorTime)
+                ? shard.jdbcTemplate().query(STATEMENT_FIRST_PAGE_SQL, STATEMENT_ROW_MAPPER, accountHash, from, to, limit)
+                : shard.jdbcTemplate().query(STATEMENT_PAGE_AFTER_SQL, STATEMENT_ROW_MAPPER,
+                accountHash, from, to, cursorTime, cursorTime, cursorTime, cursorId, limit));
+        List<StatementRow> merged = new ArrayList<>();
+        pages.forEach(merged::addAll);
+        merged.sort(StatementRow.NEWEST_FIRST);
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+
+    /**
+     * Chạy {@code query} song song trên mọi shard và trả về kết quả theo thứ tự shard.
+     */
+    public <T> List<T> scatter(Function<Shard, T> query) {
+        if (!isSharded()) {
+            return List.of(query.apply(shards.get(0)));
+        }
+        List<Callable<T>> tasks = shards.stream().<Callable<T>>map(shard -> () -> query.apply(shard)).toList();
+        try {
+            List<T> results = new ArrayList<>(shards.size());
+            for (Future<T> future : scatterExecutor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Scatter-gather query interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException("Scatter-gather query failed", e.getCause());
+        }
+    }
+}
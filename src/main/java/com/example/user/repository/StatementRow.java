@@ -0,0 +1,20 @@
+package com.example.user.repository;
+
+import com.example.user.enums.PostingLeg;
+import com.example.user.utils.Money;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Một dòng sao kê tài khoản (Projection).
+ * <p>
+ * Chỉ đọc các cột cần thiết: không tải cột Account nên không phải giải mã AES cho từng dòng.
+ */
+public record StatementRow(Long id, String transactionId, PostingLeg leg,
+                           Money inDebt, Money have, LocalDateTime time) {
+    /** Thứ tự sao kê: mới nhất trước, cùng thứ tự với {@code ORDER BY time DESC, id DESC}. */
+    public static final Comparator<StatementRow> NEWEST_FIRST = Comparator.comparing(StatementRow::time)
+            .thenComparing(StatementRow::id)
+            .reversed();
+}
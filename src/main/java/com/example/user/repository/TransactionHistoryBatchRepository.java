@@ -0,0 +1,65 @@
+package com.example.user.repository;
+
+import com.example.user.entity.TransactionHistory;
+import com.example.user.enums.PostingLeg;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository ghi {@code transaction_history} bằng JDBC Batch thuần, dành cho các luồng nạp dữ liệu lớn.
+ * <p>
+ * Khác với {@link ITransactionHistoryRepository} (JPA), repository này nhận các dòng đã được
+ * chuẩn bị sẵn: ID đã cấp phát và Account đã MÃ HÓA AES. Nhờ vậy việc mã hóa có thể chạy song song
+ * ở tầng trên, còn tầng ghi chỉ gửi các batch INSERT lớn xuống DB.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionHistoryBatchRepository {
+    private static final String INSERT_SQL = "INSERT INTO " + TransactionHistory.TABLE_NAME
+            + " (id, transaction_id, leg, account, account_hash, in_debt, have, time) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Một dòng {@code transaction_history} đã sẵn sàng để INSERT.
+     *
+     * @param encryptedAccount Số tài khoản đã mã hóa (cùng định dạng với {@code AccountEncryptConverter}).
+     * @param accountHash      Blind Index của số tài khoản.
+     * @param inDebt           Số tiền ghi Nợ theo đơn vị nhỏ nhất (xem {@code Money}).
+     * @param have             Số tiền ghi Có theo đơn vị nhỏ nhất.
+     */
+    public record Row(long id, String transactionId, PostingLeg leg, String encryptedAccount, String accountHash,
+                      long inDebt, long have, LocalDateTime time) {
+    }
+
+    /**
+     * Ghi danh sách dòng theo các JDBC Batch kích thước {@code batchSize}, sau khi đăng ký {@code transactionId} của
+     * chúng vào {@code transaction_registry} (chống trùng, xem {@link TransactionRegistryRepository}).
+     * Phải được gọi trong một transaction: đăng ký và các vế được ghi nguyên tử (all-or-nothing).
+     */
+    public void insertAll(List<Row> rows, int batchSize) {
+        insertAll(jdbcTemplate, rows, batchSize);
+    }
+
+    /**
+     * Ghi danh sách dòng qua một {@link JdbcTemplate} bất kỳ (dùng chung với {@link ShardedTransactionHistoryRepository}).
+     */
+    static void insertAll(JdbcTemplate jdbcTemplate, List<Row> rows, int batchSize) {
+        TransactionRegistryRepository.register(jdbcTemplate, rows.stream().map(Row::transactionId).distinct().toList(),
+                batchSize);
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, batchSize, (ps, row) -> {
+            ps.setLong(1, row.id());
+            ps.setString(2, row.transactionId());
+            ps.setString(3, row.leg().name());
+            ps.setString(4, row.encryptedAccount());
+            ps.setString(5, row.accountHash());
+            ps.setLong(6, row.inDebt());
+            ps.setLong(7, row.have());
+            ps.setObject(8, row.time());
+        });
+    }
+}
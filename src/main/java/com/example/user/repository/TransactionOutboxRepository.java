@@ -0,0 +1,75 @@
+package com.example.user.repository;
+
+import com.example.user.entity.TransactionOutbox;
+import com.example.user.enums.PostingLeg;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Repository đọc/ghi {@code transaction_outbox} bằng JDBC thuần.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionOutboxRepository {
+    private static final String INSERT_SQL = "INSERT INTO " + TransactionOutbox.TABLE_NAME
+            + " (id, transaction_id, leg, account_hash, in_debt, have, time, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    /**
+     * SKIP LOCKED: nhiều relay (nhiều instance) chạy song song nhận các lô khác nhau thay vì chờ nhau hoặc phát trùng.
+     * <p>
+     * {@code ORDER BY id} chỉ để sự kiện cũ được nhận trước (giới hạn độ trễ), KHÔNG phải đảm bảo thứ tự. Các relay
+     * phát các lô rời nhau đồng thời, nên lô có ID lớn hơn có thể tới đích trước. ID cũng được cấp trước khi commit, nên
+     * ngay cả một relay cũng có thể phát một dòng ID nhỏ commit muộn sau các dòng ID lớn hơn.
+     */
+    private static final String LOCK_BATCH_SQL = "SELECT id, transaction_id, leg, account_hash, in_debt, have, time, created_at FROM "
+            + TransactionOutbox.TABLE_NAME + " ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String DELETE_SQL = "DELETE FROM " + TransactionOutbox.TABLE_NAME + " WHERE id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Ghi các sự kiện bằng một JDBC Batch. Phải được gọi trong transaction ghi {@code transaction_history}.
+     */
+    public void insertAll(Collection<OutboxEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+            ps.setLong(1, event.id());
+            ps.setString(2, event.transactionId());
+            ps.setString(3, event.leg().name());
+            ps.setString(4, event.accountHash());
+            ps.setLong(5, event.inDebt());
+            ps.setLong(6, event.have());
+            ps.setObject(7, event.time());
+            ps.setObject(8, event.createdAt());
+        });
+    }
+
+    /**
+     * Đọc và khóa tối đa {@code limit} sự kiện có ID nhỏ nhất chưa bị relay khác khóa.
+     * Phải gọi trong transaction (khóa giữ tới khi commit).
+     */
+    public List<OutboxEvent> lockBatch(int limit) {
+        return jdbcTemplate.query(LOCK_BATCH_SQL, (rs, rowNum) -> new OutboxEvent(
+                rs.getLong(1),
+                rs.getString(2),
+                PostingLeg.valueOf(rs.getString(3)),
+                rs.getString(4),
+                rs.getLong(5),
+                rs.getLong(6),
+                rs.getObject(7, LocalDateTime.class),
+                rs.getObject(8, LocalDateTime.class)), limit);
+    }
+
+    /**
+     * Xóa các sự kiện đã phát hành bằng MỘT lệnh {@code DELETE ... IN (...)}.
+     */
+    public int deleteAll(List<OutboxEvent> events) {
+        if (events.isEmpty()) return 0;
+        Object[] ids = events.stream().map(OutboxEvent::id).toArray();
+        return jdbcTemplate.update(String.format(DELETE_SQL, String.join(",", Collections.nCopies(ids.length, "?"))), ids);
+    }
+}
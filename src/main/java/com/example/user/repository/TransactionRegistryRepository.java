@@ -0,0 +1,53 @@
+package com.example.user.repository;
+
+import com.example.user.entity.TransactionRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Repository ghi {@code transaction_registry} (xem {@link TransactionRegistry}).
+ * <p>
+ * Mọi lần ghi vế vào {@code transaction_history} phải đăng ký {@code transactionId} trên CÙNG DB và trong CÙNG
+ * transaction; {@link TransactionHistoryBatchRepository} làm việc này cho các luồng JDBC Batch (kể cả shard phụ).
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionRegistryRepository {
+    private static final String INSERT_SQL = "INSERT INTO " + TransactionRegistry.TABLE_NAME + " (transaction_id) VALUES (?)";
+    private static final String DELETE_SQL = "DELETE FROM " + TransactionRegistry.TABLE_NAME + " WHERE transaction_id IN (%s)";
+    static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS " + TransactionRegistry.TABLE_NAME + " ("
+            + "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+            + "transaction_id VARCHAR(255) NOT NULL, "
+            + "CONSTRAINT " + TransactionRegistry.UNIQUE_KEY + " UNIQUE (transaction_id))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Đăng ký các giao dịch sắp được ghi. Phải được gọi trong transaction ghi các vế.
+     *
+     * @throws org.springframework.dao.DataIntegrityViolationException Vi phạm {@link TransactionRegistry#UNIQUE_KEY}
+     *                                                                 nếu một giao dịch đã tồn tại.
+     */
+    public void register(Collection<String> transactionIds) {
+        register(jdbcTemplate, transactionIds, transactionIds.size());
+    }
+
+    static void register(JdbcTemplate jdbcTemplate, Collection<String> transactionIds, int batchSize) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, transactionIds, Math.max(1, batchSize),
+                (ps, transactionId) -> ps.setString(1, transactionId));
+    }
+
+    /**
+     * Xóa đăng ký của các giao dịch vừa bị gỡ khỏi {@code transaction_history} (Compensation).
+     */
+    static int delete(JdbcTemplate jdbcTemplate, List<String> transactionIds) {
+        if (transactionIds.isEmpty()) return 0;
+        String placeholders = String.join(", ", Collections.nCopies(transactionIds.size(), "?"));
+        return jdbcTemplate.update(DELETE_SQL.formatted(placeholders), transactionIds.toArray());
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.user.service;
+
+import com.example.user.dto.response.BalanceRebuildResponse;
+import com.example.user.dto.response.BalanceResponse;
+
+/**
+ * Interface định nghĩa các nghiệp vụ về số dư tài khoản ({@code account_balance}).
+ */
+public interface IAccountBalanceService {
+    /**
+     * Đọc số dư hiện tại của tài khoản (một lần tra cứu theo khóa chính).
+     *
+     * @param account Số tài khoản (plain text).
+     * @return {@link BalanceResponse}.
+     */
+    BalanceResponse getBalance(String account);
+
+    /**
+     * Tính lại số dư của tất cả tài khoản từ {@code transaction_history} (song song theo phân vùng),
+     * so sánh với {@code account_balance} và sửa các dòng bị lệch.
+     *
+     * @return Thống kê đối soát.
+     */
+    BalanceRebuildResponse rebuild();
+}
@@ -0,0 +1,23 @@
+package com.example.user.service;
+
+import com.example.user.dto.response.DailyTotalsResponse;
+import com.example.user.dto.response.TopAccountsResponse;
+
+import java.time.LocalDateTime;
+
+/**
+ * Interface định nghĩa các truy vấn tổng hợp (báo cáo) trên lịch sử giao dịch.
+ */
+public interface IAnalyticsService {
+    /**
+     * Tổng Nợ/Có và số vế theo ngày của một tài khoản trong khoảng [from, to).
+     *
+     * @param account Số tài khoản (plain text).
+     */
+    DailyTotalsResponse dailyTotals(String account, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * {@code limit} tài khoản có doanh số lớn nhất trong khoảng [from, to).
+     */
+    TopAccountsResponse topAccounts(LocalDateTime from, LocalDateTime to, int limit);
+}
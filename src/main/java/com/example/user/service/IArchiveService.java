@@ -0,0 +1,16 @@
+package com.example.user.service;
+
+import com.example.user.dto.response.ArchiveResponse;
+
+/**
+ * Interface định nghĩa nghiệp vụ chuyển các vế hạch toán cũ sang kho lưu trữ lạnh (Archive).
+ */
+public interface IArchiveService {
+    /**
+     * Chuyển mọi vế có {@code time} trước mốc lưu trữ từ {@code transaction_history} sang các file Segment,
+     * theo từng lô giao dịch trọn vẹn.
+     *
+     * @return Thống kê lần chuyển.
+     */
+    ArchiveResponse archive();
+}
@@ -0,0 +1,22 @@
+package com.example.user.service;
+
+import com.example.user.dto.response.HistoryPartitionResponse;
+
+/**
+ * Interface định nghĩa nghiệp vụ phân vùng theo tháng của {@code transaction_history} (MySQL).
+ */
+public interface IHistoryPartitionService {
+    /**
+     * Chuyển bảng sang dạng phân vùng (một lần, viết lại toàn bộ bảng). Không làm gì nếu bảng đã được phân vùng.
+     *
+     * @return Các partition sau khi chuyển đổi.
+     */
+    HistoryPartitionResponse convert();
+
+    /**
+     * Tạo partition cho các tháng tới và bỏ các partition hết hạn trên bảng đã được phân vùng.
+     *
+     * @return Thống kê lần bảo trì.
+     */
+    HistoryPartitionResponse maintain();
+}
@@ -0,0 +1,17 @@
+package com.example.user.service;
+
+/**
+ * Bộ sinh ID phía ứng dụng cho các entity (thay cho {@code IDENTITY}, để Hibernate/JDBC gom được INSERT thành Batch).
+ * <p>
+ * Cài đặt được chọn theo {@code app.id.generator}: {@code hilo} (mặc định, {@link com.example.user.service.impl.HiLoIdGenerator})
+ * hoặc {@code snowflake} ({@link com.example.user.service.impl.SnowflakeIdGenerator}).
+ */
+public interface IIdGenerator {
+    /**
+     * Cấp phát ID kế tiếp cho bảng {@code table}.
+     *
+     * @param table Tên bảng đích (cài đặt có thể dùng làm không gian ID riêng hoặc bỏ qua nếu ID duy nhất toàn cục).
+     * @return ID duy nhất trong bảng, tăng dần trong phạm vi một instance.
+     */
+    long nextId(String table);
+}
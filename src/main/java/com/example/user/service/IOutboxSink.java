@@ -0,0 +1,24 @@
+package com.example.user.service;
+
+import com.example.user.repository.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Đích phát hành sự kiện của Outbox Relay (có thể thay thế: file cục bộ, hàng đợi trong tiến trình, message broker...).
+ * <p>
+ * Sink được chọn theo {@link #name()} khớp với {@code app.outbox.sink}.
+ */
+public interface IOutboxSink {
+    /**
+     * Tên dùng trong cấu hình {@code app.outbox.sink}.
+     */
+    String name();
+
+    /**
+     * Phát hành cả lô theo thứ tự trong lô (không có thứ tự giữa các lô, xem {@code OutboxRelay}). Chỉ được trả về khi
+     * toàn bộ lô đã được ghi nhận bền vững ở phía đích; ném ngoại lệ nếu không, relay sẽ thử lại cả lô
+     * (At-least-once, bên nhận chống trùng theo {@link OutboxEvent#id()}).
+     */
+    void publish(List<OutboxEvent> events) throws Exception;
+}
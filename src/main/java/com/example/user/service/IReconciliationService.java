@@ -0,0 +1,16 @@
+package com.example.user.service;
+
+import com.example.user.dto.response.ReconciliationResponse;
+
+/**
+ * Interface định nghĩa nghiệp vụ đối soát kế toán kép (Double-Entry) trên {@code transaction_history}.
+ */
+public interface IReconciliationService {
+    /**
+     * Kiểm tra mọi giao dịch có tổng Nợ bằng tổng Có (và đủ vế), quét theo thứ tự ghi từng trang Keyset và kiểm tra lại song song.
+     *
+     * @param full {@code true} để quét lại toàn bảng, bỏ qua Checkpoint của lần chạy trước.
+     * @return Kết quả đối soát, gồm tất cả giao dịch đang không cân.
+     */
+    ReconciliationResponse reconcile(boolean full);
+}
@@ -0,0 +1,25 @@
+package com.example.user.service;
+
+import com.example.user.dto.response.DailyRollupResponse;
+import com.example.user.dto.response.RollupBackfillResponse;
+
+import java.time.LocalDate;
+
+/**
+ * Interface định nghĩa các nghiệp vụ về tổng hợp theo ngày ({@code account_daily_rollup}).
+ */
+public interface IRollupService {
+    /**
+     * Tổng Nợ/Có theo ngày của tài khoản trong khoảng [from, to] (tính cả hai đầu).
+     *
+     * @param account Số tài khoản (plain text).
+     */
+    DailyRollupResponse getDailyRollups(String account, LocalDate from, LocalDate to);
+
+    /**
+     * Dựng bảng tổng hợp cho dữ liệu lịch sử (song song theo phân vùng) và sửa các dòng bị lệch.
+     *
+     * @return Thống kê dựng lại.
+     */
+    RollupBackfillResponse backfill();
+}
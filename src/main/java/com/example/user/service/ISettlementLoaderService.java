@@ -0,0 +1,19 @@
+package com.example.user.service;
+
+import com.example.user.dto.response.SettlementLoadResponse;
+
+/**
+ * Interface định nghĩa nghiệp vụ nạp file quyết toán (Settlement File) dung lượng lớn từ đĩa cục bộ.
+ * <p>
+ * File có cùng định dạng CSV với API Bulk Ingestion:
+ * {@code transactionId,sourceAccount,destAccount,amount,time} (dòng header là tùy chọn).
+ */
+public interface ISettlementLoaderService {
+    /**
+     * Nạp toàn bộ file và ghi 2 vế Nợ/Có cho mỗi giao dịch hợp lệ.
+     *
+     * @param relativePath Đường dẫn file, tương đối so với thư mục {@code app.settlement.base-dir}.
+     * @return Thống kê số bản ghi accepted/duplicate/rejected và thông lượng (rows/second).
+     */
+    SettlementLoadResponse load(String relativePath);
+}
@@ -0,0 +1,27 @@
+package com.example.user.service;
+
+import com.example.user.dto.response.BulkIngestionResponse;
+import com.example.user.enums.BulkFormat;
+
+import java.io.InputStream;
+
+/**
+ * Interface định nghĩa nghiệp vụ nạp giao dịch hàng loạt (Bulk Ingestion).
+ * <p>
+ * Dùng cho các file quyết toán cuối ngày (End-of-day Settlement) với hàng trăm nghìn giao dịch:
+ * <ul>
+ * <li>Đọc dữ liệu dạng luồng (Streaming), không tải toàn bộ payload vào bộ nhớ.</li>
+ * <li>Validate và mã hóa song song, ghi DB theo JDBC Batch lớn.</li>
+ * <li>Áp dụng cùng quy tắc Idempotency như API tạo giao dịch đơn lẻ.</li>
+ * </ul>
+ */
+public interface ITransactionIngestionService {
+    /**
+     * Nạp toàn bộ giao dịch từ luồng dữ liệu đầu vào.
+     *
+     * @param body   Luồng dữ liệu (NDJSON hoặc CSV), mỗi dòng một giao dịch.
+     * @param format Định dạng dữ liệu.
+     * @return Kết quả tổng hợp và chi tiết số lượng accepted/duplicate/rejected theo từng chunk.
+     */
+    BulkIngestionResponse ingest(InputStream body, BulkFormat format);
+}
@@ -1,9 +1,13 @@
 package com.example.user.service;
 
 import com.example.user.dto.request.InternalTransactionRequest;
+import com.example.user.dto.request.MultiLegTransactionRequest;
 import com.example.user.dto.request.TransactionRequest;
+import com.example.user.dto.response.StatementResponse;
+import com.example.user.dto.response.TransactionIdResponse;
 import com.example.user.dto.response.TransactionResponse;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -32,6 +36,26 @@ public interface ITransactionService {
      */
     void createTransaction(TransactionRequest request);
 
+    /**
+     * Lưu một giao dịch nhiều vế (N vế Nợ, M vế Có) một cách nguyên tử.
+     * <p>
+     * Tổng các vế Nợ phải bằng tổng các vế Có; tất cả các vế được ghi trong cùng một transaction, và
+     * {@code transactionId} được chống trùng giống như {@link #createTransaction}.
+     *
+     * @param request Mã giao dịch, thời điểm và danh sách các vế.
+     */
+    void createMultiLegTransaction(MultiLegTransactionRequest request);
+
+    /**
+     * Cấp một {@code transactionId} mới phía máy chủ (tùy chọn, cho client không tự sinh được mã duy nhất).
+     * <p>
+     * Mã được cấp TRƯỚC khi tạo giao dịch, nên client gửi lại request với cùng mã khi hết thời gian chờ
+     * vẫn được chống trùng như với mã tự sinh.
+     *
+     * @return Mã giao dịch duy nhất, sắp theo thời gian cấp.
+     */
+    TransactionIdResponse nextTransactionId();
+
     /**
      * Truy vấn chi tiết giao dịch dựa trên Mã giao dịch (Transaction ID).
      *
@@ -40,6 +64,20 @@ public interface ITransactionService {
      */
     List<TransactionResponse> getTransactionByTransactionId(String transactionId);
 
+    /**
+     * Sao kê các vế hạch toán của một tài khoản trong khoảng [{@code from}, {@code to}), mới nhất trước.
+     * <p>
+     * Phân trang Keyset trên ({@code time}, {@code id}): chi phí mỗi trang không phụ thuộc độ sâu của con trỏ.
+     *
+     * @param account Số tài khoản (plain text), được tra cứu qua Blind Index.
+     * @param from    Thời điểm bắt đầu (bao gồm).
+     * @param to      Thời điểm kết thúc (không bao gồm).
+     * @param cursor  Con trỏ {@code nextCursor} của trang trước, hoặc null cho trang đầu tiên.
+     * @param size    Số dòng tối đa mỗi trang.
+     * @return Một trang {@link StatementResponse}.
+     */
+    StatementResponse getStatement(String account, LocalDateTime from, LocalDateTime to, String cursor, int size);
+
     /**
      * Chuyển đổi yêu cầu giao dịch thô (Raw) thành các gói tin nội bộ đã được MÃ HÓA.
      * <p>
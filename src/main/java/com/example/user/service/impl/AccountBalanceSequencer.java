@@ -0,0 +1,412 @@
+package com.example.user.service.impl;
+
+import com.example.user.exception.ServiceUnavailableException;
+import com.example.user.repository.AccountBalanceBatchRepository;
+import com.example.user.utils.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bộ tuần tự hóa (Sequencer) cập nhật số dư theo tài khoản, loại bỏ tranh chấp khóa dòng trên các tài khoản "nóng".
+ * <p>
+ * Khi nhiều giao dịch cùng ghi vào một tài khoản (ví dụ tài khoản Merchant), mỗi lệnh UPSERT {@code account_balance}
+ * phải chờ khóa dòng của lệnh trước nên thông lượng sụp đổ. Sequencer giải quyết bằng cách:
+ * <ul>
+ * <li>Định tuyến mỗi biến động theo {@code account_hash} vào một <b>lane</b> cố định. Mỗi lane có MỘT luồng ghi duy nhất
+ * (Single Writer) và một {@link MpscRingBuffer}, nên mọi biến động của cùng tài khoản được ghi theo đúng thứ tự gửi vào
+ * và không bao giờ có hai luồng tranh nhau cùng một dòng số dư.</li>
+ * <li>Luồng ghi lấy ra cả một micro-batch và gộp theo tài khoản: tài khoản nóng chỉ tốn MỘT lệnh UPSERT cho cả lô
+ * thay vì một lệnh cho mỗi vế hạch toán.</li>
+ * <li>Cùng micro-batch đó cũng cộng dồn bảng tổng hợp theo ngày {@code account_daily_rollup} (một UPSERT cho mỗi
+ * cặp tài khoản/ngày), nên truy vấn theo khoảng ngày không phải quét lịch sử.</li>
+ * </ul>
+ * <b>Nhất quán:</b> Khi bật ({@code app.balance.sequencer.enabled=true}), biến động được gửi vào lane SAU KHI transaction
+ * ghi lịch sử commit (không cộng số dư cho giao dịch bị rollback), và luồng gọi chờ lane xác nhận trước khi trả về.
+ * Lịch sử đã commit thì request không bao giờ thất bại vì số dư: lô ghi lỗi được lane thử lại
+ * ({@code app.balance.sequencer.max-retries}, cách nhau {@code retry-backoff-ms}), luồng gọi chỉ chờ tối đa
+ * {@code await-timeout-ms} rồi ghi log. Nếu hết lượt thử hoặc tiến trình dừng giữa hai bước, số lệch được phát hiện
+ * và sửa bởi {@code POST /api/admin/balances/rebuild} (và {@code POST /api/admin/rollups/backfill} cho bảng tổng hợp).
+ * Khi tắt (mặc định), số dư được UPSERT trực tiếp trong cùng transaction với lịch sử như trước.
+ * <p>
+ * <b>Chốt snapshot (fence):</b> Giữa lúc lịch sử commit và lúc lane ghi xong, số dư tạm thời thiếu các vế đó. Rebuild và
+ * backfill so sánh lịch sử với số dư trong cùng một snapshot, nên nếu snapshot rơi vào khoảng này chúng sẽ "sửa" số dư
+ * cộng cả các vế chưa áp dụng, rồi lane cộng thêm lần nữa. Vì vậy mỗi biến động được tính là <i>đang dở dang</i> từ ngay
+ * trước khi commit lịch sử tới khi lane ghi xong (hoặc transaction rollback), và {@link #quiesced(Runnable)} chặn các
+ * commit mới rồi chờ hết biến động dở dang trước khi mở snapshot. Khoảng chặn chỉ kéo dài tới câu lệnh đầu tiên mở
+ * snapshot, không phải cả lần quét.
+ * <p>
+ * Commit bị chặn vẫn đang giữ khóa dòng của transaction lịch sử, nên cả hai phía chỉ chờ tối đa
+ * {@code app.balance.sequencer.fence-timeout-ms} (ngắn hơn nhiều so với {@code await-timeout-ms}): quá hạn thì commit
+ * bị rollback với 503 và nhả khóa ngay, còn rebuild/backfill đang chờ biến động dở dang thì bỏ cuộc để chạy lại sau.
+ */
+@Slf4j
+@Component
+public class AccountBalanceSequencer {
+    private static final String SHUT_DOWN = "Balance sequencer is shut down";
+    private static final String PAUSED = "Balance updates are paused for a balance rebuild, retry later";
+    private static final String DRAIN_TIMEOUT = "Timed out waiting for in-flight balance updates to drain";
+
+    private static final long PRODUCER_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final AccountBalanceBatchRepository balanceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxBatch;
+    private final long awaitTimeoutMillis;
+    private final long fenceTimeoutMillis;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final Lane[] lanes;
+    private final Counter failures;
+    private final DistributionSummary batchSize;
+
+    /** Khóa của fence: bảo vệ {@code accepting}, {@code pausers} và {@code inFlight}. */
+    private final Object fence = new Object();
+    private boolean accepting = true;
+    private int pausers;
+    private long inFlight;
+
+    private volatile boolean running = true;
+
+    public AccountBalanceSequencer(AccountBalanceBatchRepository balanceRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.balance.sequencer.enabled:false}") boolean enabled,
+                                   @Value("${app.balance.sequencer.lanes:8}") int laneCount,
+                                   @Value("${app.balance.sequencer.lane-capacity:4096}") int laneCapacity,
+                                   @Value("${app.balance.sequencer.max-batch:512}") int maxBatch,
+                                   @Value("${app.balance.sequencer.await-timeout-ms:5000}") long awaitTimeoutMillis,
+                                   @Value("${app.balance.sequencer.fence-timeout-ms:250}") long fenceTimeoutMillis,
+                                   @Value("${app.balance.sequencer.max-retries:5}") int maxRetries,
+                                   @Value("${app.balance.sequencer.retry-backoff-ms:200}") long retryBackoffMillis) {
+        this.balanceRepository = balanceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.awaitTimeoutMillis = awaitTimeoutMillis;
+        this.fenceTimeoutMillis = fenceTimeoutMillis;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.failures = Counter.builder("balance.sequencer.failures").register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("balance.sequencer.batch.size")
+                .description("Postings coalesced into one balance write")
+                .register(meterRegistry);
+        this.lanes = new Lane[enabled ? laneCount : 0];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(i, laneCapacity);
+            Gauge.builder("balance.sequencer.queue.depth", lanes[i].queue, MpscRingBuffer::size)
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+            lanes[i].start();
+        }
+    }
+
+    /**
+     * Áp dụng biến động số dư cho các vế vừa ghi.
+     * <p>
+     * Nếu đang trong một transaction, biến động chỉ được gửi vào lane sau khi transaction commit;
+     * ngoài transaction thì gửi ngay. Trong cả hai trường hợp luồng gọi chờ tới khi số dư đã được ghi
+     * (tối đa {@code await-timeout-ms}); sau commit mọi lỗi chỉ được ghi log, lane tiếp tục thử lại.
+     *
+     * @throws ServiceUnavailableException Nếu Sequencer đã tắt, hoặc đang chốt snapshot quá {@code fence-timeout-ms}
+     *                                     (ném từ {@code beforeCommit}: transaction ghi lịch sử bị rollback).
+     */
+    public void apply(Collection<AccountBalanceBatchRepository.Delta> deltas) {
+        if (deltas.isEmpty()) return;
+        if (!enabled) {
+            balanceRepository.applyDeltas(deltas);
+            return;
+        }
+        List<AccountBalanceBatchRepository.Delta> snapshot = List.copyOf(deltas);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private boolean entered;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // Tính là dở dang trước khi lịch sử commit, để quiesced() không mở snapshot giữa commit và lane
+                    enter();
+                    entered = true;
+                }
+
+                @Override
+                public void afterCommit() {
+                    // Lịch sử đã commit: ném lỗi ở đây sẽ báo thất bại cho một giao dịch đã thành công
+                    try {
+                        awaitApplied(enqueue(snapshot));
+                    } catch (RuntimeException e) {
+                        failures.increment();
+                        log.error("Balance update could not be queued after commit, run the balance rebuild to repair drift", e);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (entered && status != STATUS_COMMITTED) {
+                        exit();
+                    }
+                }
+            });
+        } else {
+            enter();
+            awaitApplied(enqueue(snapshot));
+        }
+    }
+
+    /**
+     * Gửi biến động vào lane tương ứng và trả về Future hoàn thành khi tất cả đã được ghi xuống DB.
+     *
+     * @throws ServiceUnavailableException Nếu Sequencer đã tắt hoặc đang chốt snapshot quá thời gian chờ.
+     */
+    public CompletableFuture<Void> submit(Collection<AccountBalanceBatchRepository.Delta> deltas) {
+        if (!enabled) {
+            transactionTemplate.executeWithoutResult(status -> balanceRepository.applyDeltas(deltas));
+            return CompletableFuture.completedFuture(null);
+        }
+        enter();
+        return enqueue(List.copyOf(deltas));
+    }
+
+    /**
+     * Chạy {@code action} khi không còn biến động nào đã commit lịch sử mà chưa được ghi vào số dư: chặn các commit mới,
+     * chờ biến động dở dang (kể cả trong lane) ghi xong, chạy {@code action} rồi mở lại.
+     * <p>
+     * Dùng để mở snapshot của rebuild/backfill: {@code action} nên là câu lệnh đầu tiên của transaction snapshot,
+     * vì mọi giao dịch đang ghi phải chờ trong suốt thời gian chạy nó.
+     *
+     * @throws ServiceUnavailableException Nếu biến động dở dang không ghi xong trong thời gian chờ.
+     */
+    public void quiesced(Runnable action) {
+        if (!enabled) {
+            action.run();
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fenceTimeoutMillis);
+        synchronized (fence) {
+            pausers++;
+            try {
+                while (inFlight > 0) {
+                    awaitFence(deadline, DRAIN_TIMEOUT);
+                }
+            } catch (RuntimeException e) {
+                resume();
+                throw e;
+            }
+        }
+        try {
+            action.run();
+        } finally {
+            resume();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Ngừng nhận biến động mới, chờ các biến động đã commit lịch sử ghi xong rồi mới dừng lane
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(awaitTimeoutMillis);
+        synchronized (fence) {
+            accepting = false;
+            fence.notifyAll();
+            try {
+                while (inFlight > 0) {
+                    awaitFence(deadline, DRAIN_TIMEOUT);
+                }
+            } catch (ServiceUnavailableException e) {
+                log.warn("Shutting down with {} balance updates in flight, run the balance rebuild to repair drift", inFlight);
+            }
+        }
+        running = false;
+        for (Lane lane : lanes) {
+            LockSupport.unpark(lane.worker);
+        }
+        for (Lane lane : lanes) {
+            try {
+                lane.worker.join(awaitTimeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        IllegalStateException stopped = new IllegalStateException(SHUT_DOWN);
+        for (Lane lane : lanes) {
+            lane.queue.drain(posting -> posting.done().completeExceptionally(stopped), Integer.MAX_VALUE);
+        }
+    }
+
+    private void enter() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fenceTimeoutMillis);
+        synchronized (fence) {
+            while (accepting && pausers > 0) {
+                awaitFence(deadline, PAUSED);
+            }
+            if (!accepting) {
+                throw new ServiceUnavailableException(SHUT_DOWN);
+            }
+            inFlight++;
+        }
+    }
+
+    private void exit() {
+        synchronized (fence) {
+            if (--inFlight == 0) {
+                fence.notifyAll();
+            }
+        }
+    }
+
+    private void resume() {
+        synchronized (fence) {
+            if (--pausers == 0) {
+                fence.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Chờ trên {@code fence} (phải đang giữ khóa) tối đa tới {@code deadline}.
+     */
+    private void awaitFence(long deadline, String timeoutMessage) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw new ServiceUnavailableException(timeoutMessage);
+        }
+        try {
+            TimeUnit.NANOSECONDS.timedWait(fence, remaining);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException(timeoutMessage, e);
+        }
+    }
+
+    /**
+     * Gửi biến động (đã được tính là dở dang qua {@link #enter()}) vào lane; hết dở dang khi lane ghi xong hoặc bỏ cuộc
+     * sau {@code max-retries} lần thử lại.
+     */
+    private CompletableFuture<Void> enqueue(List<AccountBalanceBatchRepository.Delta> deltas) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[deltas.size()];
+        int i = 0;
+        for (AccountBalanceBatchRepository.Delta delta : deltas) {
+            Posting posting = new Posting(delta, new CompletableFuture<>());
+            laneOf(delta.accountHash()).enqueue(posting);
+            futures[i++] = posting.done();
+        }
+        return CompletableFuture.allOf(futures).whenComplete((result, error) -> exit());
+    }
+
+    private void awaitApplied(CompletableFuture<Void> applied) {
+        try {
+            applied.get(awaitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failures.increment();
+        } catch (TimeoutException e) {
+            // Lịch sử đã commit: không làm hỏng request, biến động vẫn nằm trong lane và được thử lại
+            log.warn("Balance update not confirmed within {} ms after commit, the lane keeps retrying", awaitTimeoutMillis);
+        } catch (ExecutionException e) {
+            // Lane đã bỏ cuộc (đã ghi log và đếm lỗi): số dư sẽ được sửa bởi rebuild job
+            log.error("Balance update was not applied after commit, run the balance rebuild to repair drift", e.getCause());
+        }
+    }
+
+    private Lane laneOf(String accountHash) {
+        return lanes[Math.floorMod(accountHash.hashCode(), lanes.length)];
+    }
+
+    private record Posting(AccountBalanceBatchRepository.Delta delta, CompletableFuture<Void> done) {
+    }
+
+    private final class Lane {
+        private final MpscRingBuffer<Posting> queue;
+        private final Thread worker;
+        private final List<Posting> batch;
+
+        private Lane(int index, int capacity) {
+            this.queue = new MpscRingBuffer<>(capacity);
+            this.batch = new ArrayList<>(maxBatch);
+            this.worker = new Thread(this::run, "balance-sequencer-" + index);
+            this.worker.setDaemon(true);
+        }
+
+        private void start() {
+            worker.start();
+        }
+
+        private void enqueue(Posting posting) {
+            while (!queue.offer(posting)) {
+                if (!running) {
+                    posting.done().completeExceptionally(new IllegalStateException(SHUT_DOWN));
+                    return;
+                }
+                LockSupport.parkNanos(PRODUCER_BACKOFF_NANOS);
+            }
+            LockSupport.unpark(worker);
+        }
+
+        private void run() {
+            while (running || !queue.isEmpty()) {
+                if (queue.drain(batch::add, maxBatch) == 0) {
+                    // Producer luôn unpark sau khi offer (permit được giữ nếu tới trước park),
+                    // nên lane rảnh ngủ tới khi có việc thay vì thức dậy định kỳ
+                    LockSupport.park(this);
+                    continue;
+                }
+                flush();
+            }
+        }
+
+        /**
+         * Ghi cả micro-batch trong một transaction. Transaction lỗi đã rollback nên thử lại cùng lô là an toàn; lô vẫn
+         * được tính là dở dang trong lúc chờ thử lại, để rebuild không mở snapshot thiếu các biến động này.
+         */
+        private void flush() {
+            batchSize.record(batch.size());
+            List<AccountBalanceBatchRepository.Delta> deltas = new ArrayList<>(batch.size());
+            batch.forEach(posting -> deltas.add(posting.delta()));
+            try {
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> balanceRepository.applyDeltas(deltas));
+                        batch.forEach(posting -> posting.done().complete(null));
+                        return;
+                    } catch (RuntimeException e) {
+                        failures.increment();
+                        if (attempt > maxRetries || !running) {
+                            log.error("Balance update of {} postings failed after {} attempts, run the balance rebuild to repair drift",
+                                    deltas.size(), attempt, e);
+                            batch.forEach(posting -> posting.done().completeExceptionally(e));
+                            return;
+                        }
+                        log.warn("Balance update of {} postings failed (attempt {}), retrying in {} ms",
+                                deltas.size(), attempt, retryBackoffMillis, e);
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(retryBackoffMillis));
+                    }
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+}
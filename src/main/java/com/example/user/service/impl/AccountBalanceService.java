@@ -0,0 +1,170 @@
+package com.example.user.service.impl;
+
+import com.example.user.dto.response.BalanceRebuildResponse;
+import com.example.user.dto.response.BalanceResponse;
+import com.example.user.entity.AccountArchiveTotal;
+import com.example.user.entity.AccountBalance;
+import com.example.user.entity.TransactionHistory;
+import com.example.user.exception.ConflictException;
+import com.example.user.exception.NotFoundException;
+import com.example.user.repository.IAccountBalanceRepository;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.service.IAccountBalanceService;
+import com.example.user.utils.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Class triển khai nghiệp vụ số dư tài khoản.
+ * <p>
+ * <b>Rebuild:</b> {@link PartitionedSnapshotRepair} so sánh từng phân vùng {@code account_hash} trong một snapshot:
+ * số dư mong đợi là tổng lịch sử theo tài khoản (quét index {@code account_hash}) cộng với tổng các vế đã chuyển sang
+ * kho lưu trữ ({@code account_archive_total}). Dòng lệch được sửa bằng UPDATE có điều kiện trên giá trị đã đọc
+ * (Compare-And-Set), nên tài khoản vừa có giao dịch mới sau snapshot được bỏ qua thay vì bị ghi đè bằng số liệu cũ.
+ */
+@Slf4j
+@Service
+public class AccountBalanceService implements IAccountBalanceService {
+    private static final String BALANCE_NOT_FOUND = "Account has no postings";
+    private static final String REBUILD_RUNNING = "Balance rebuild is already running";
+
+    private static final String SUM_HISTORY_SQL = "SELECT account_hash, SUM(in_debt), SUM(have), COUNT(*) FROM "
+            + TransactionHistory.TABLE_NAME + " WHERE account_hash >= ? AND account_hash < ? GROUP BY account_hash";
+    private static final String SUM_ARCHIVE_SQL = "SELECT account_hash, total_in_debt, total_have, posting_count FROM "
+            + AccountArchiveTotal.TABLE_NAME + " WHERE account_hash >= ? AND account_hash < ?";
+    private static final String SELECT_BALANCE_SQL = "SELECT account_hash, total_in_debt, total_have, posting_count FROM "
+            + AccountBalance.TABLE_NAME + " WHERE account_hash >= ? AND account_hash < ?";
+    private static final String REPAIR_SQL = "UPDATE " + AccountBalance.TABLE_NAME
+            + " SET total_in_debt = ?, total_have = ?, posting_count = ?, updated_at = ?"
+            + " WHERE account_hash = ? AND total_in_debt = ? AND total_have = ? AND posting_count = ?";
+    private static final String INSERT_SQL = "INSERT INTO " + AccountBalance.TABLE_NAME
+            + " (account_hash, total_in_debt, total_have, posting_count, updated_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_ORPHAN_SQL = "DELETE FROM " + AccountBalance.TABLE_NAME
+            + " WHERE account_hash = ? AND total_in_debt = ? AND total_have = ? AND posting_count = ?";
+
+    private final IAccountBalanceRepository balanceRepository;
+    private final AccountBlindIndex accountBlindIndex;
+    private final LedgerEngine ledgerEngine;
+    private final JdbcTemplate jdbcTemplate;
+    private final PartitionedSnapshotRepair repair;
+    private final PartitionedSnapshotRepair.Target<String, Totals> balances = new BalanceTarget();
+
+    public AccountBalanceService(IAccountBalanceRepository balanceRepository,
+                                 AccountBlindIndex accountBlindIndex,
+                                 LedgerEngine ledgerEngine,
+                                 JdbcTemplate jdbcTemplate,
+                                 AccountBalanceSequencer balanceSequencer,
+                                 ShardedTransactionHistoryRepository historyShards,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.balance.rebuild.parallelism:4}") int parallelism) {
+        this.balanceRepository = balanceRepository;
+        this.accountBlindIndex = accountBlindIndex;
+        this.ledgerEngine = ledgerEngine;
+        this.jdbcTemplate = jdbcTemplate;
+        this.repair = new PartitionedSnapshotRepair("balance-rebuild", AccountBalance.TABLE_NAME, REBUILD_RUNNING,
+                jdbcTemplate, balanceSequencer, historyShards, transactionManager, parallelism);
+    }
+
+    /**
+     * Đọc từ {@link LedgerEngine} (trong bộ nhớ) khi engine đã sẵn sàng và vừa đọc phần đuôi trong giới hạn
+     * {@code app.ledger.max-staleness-ms}, nếu không thì đọc {@code account_balance}.
+     *
+     * @throws NotFoundException Nếu tài khoản chưa có vế hạch toán nào.
+     */
+    @Override
+    public BalanceResponse getBalance(String account) {
+        Optional<LedgerEngine.Balance> inMemory = ledgerEngine.balanceOf(account);
+        if (inMemory.isPresent()) {
+            LedgerEngine.Balance balance = inMemory.get();
+            return BalanceResponse.builder()
+                    .balance(balance.balance().toBigDecimal())
+                    .totalInDebt(balance.totalInDebt().toBigDecimal())
+                    .totalHave(balance.totalHave().toBigDecimal())
+                    .postingCount(balance.postings())
+                    .build();
+        }
+        AccountBalance balance = balanceRepository.findById(accountBlindIndex.of(account))
+                .orElseThrow(() -> new NotFoundException(BALANCE_NOT_FOUND));
+        return BalanceResponse.builder()
+                .balance(balance.getBalance().toBigDecimal())
+                .totalInDebt(balance.getTotalInDebt().toBigDecimal())
+                .totalHave(balance.getTotalHave().toBigDecimal())
+                .postingCount(balance.getPostingCount())
+                .updatedAt(balance.getUpdatedAt())
+                .build();
+    }
+
+    /**
+     * @throws ConflictException Nếu một lần rebuild khác đang chạy, hoặc {@code transaction_history} đang được phân mảnh
+     *                           (không có snapshot nhất quán chung giữa các shard).
+     */
+    @Override
+    public BalanceRebuildResponse rebuild() {
+        PartitionedSnapshotRepair.Result result = repair.run(balances);
+        log.info("Balance rebuild finished: accounts={}, drifted={}, missing={}, orphaned={}, repaired={}, skipped={} in {} ms",
+                result.checked(), result.drifted(), result.missing(), result.orphaned(), result.repaired(),
+                result.skipped(), result.elapsedMillis());
+        return BalanceRebuildResponse.builder()
+                .partitions(result.partitions())
+                .accountsChecked(result.checked())
+                .drifted(result.drifted())
+                .missing(result.missing())
+                .orphaned(result.orphaned())
+                .repaired(result.repaired())
+                .skippedConcurrent(result.skipped())
+                .elapsedMillis(result.elapsedMillis())
+                .build();
+    }
+
+    private record Totals(long inDebt, long have, long postings) {
+        private Totals plus(Totals other) {
+            return new Totals(Money.add(inDebt, other.inDebt), Money.add(have, other.have), postings + other.postings);
+        }
+    }
+
+    /**
+     * Bảng {@code account_balance}: khóa là {@code account_hash}.
+     */
+    private final class BalanceTarget implements PartitionedSnapshotRepair.Target<String, Totals> {
+        @Override
+        public void readExpected(String lower, String upper, Map<String, Totals> expected) {
+            jdbcTemplate.query(SUM_HISTORY_SQL, rs -> {
+                expected.put(rs.getString(1), new Totals(rs.getLong(2), rs.getLong(3), rs.getLong(4)));
+            }, lower, upper);
+            jdbcTemplate.query(SUM_ARCHIVE_SQL, rs -> {
+                expected.merge(rs.getString(1), new Totals(rs.getLong(2), rs.getLong(3), rs.getLong(4)), Totals::plus);
+            }, lower, upper);
+        }
+
+        @Override
+        public void readActual(String lower, String upper, Map<String, Totals> actual) {
+            jdbcTemplate.query(SELECT_BALANCE_SQL, rs -> {
+                actual.put(rs.getString(1), new Totals(rs.getLong(2), rs.getLong(3), rs.getLong(4)));
+            }, lower, upper);
+        }
+
+        @Override
+        public void insert(String accountHash, Totals target, LocalDateTime now) {
+            jdbcTemplate.update(INSERT_SQL, accountHash, target.inDebt(), target.have(), target.postings(), now);
+        }
+
+        @Override
+        public int update(String accountHash, Totals current, Totals target, LocalDateTime now) {
+            return jdbcTemplate.update(REPAIR_SQL, target.inDebt(), target.have(), target.postings(), now,
+                    accountHash, current.inDebt(), current.have(), current.postings());
+        }
+
+        @Override
+        public int delete(String accountHash, Totals current) {
+            return jdbcTemplate.update(DELETE_ORPHAN_SQL,
+                    accountHash, current.inDebt(), current.have(), current.postings());
+        }
+    }
+}
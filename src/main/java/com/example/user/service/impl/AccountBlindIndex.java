@@ -0,0 +1,37 @@
+package com.example.user.service.impl;
+
+import com.example.user.utils.AesUtil;
+import com.example.user.utils.BlindIndexUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Cung cấp Blind Index cho cột Account ({@code account_hash}).
+ * <p>
+ * Khóa HMAC lấy từ {@code crypto.blind-index.key} (Base64) nếu được cấu hình,
+ * ngược lại được dẫn xuất từ AES Key để không phải quản lý thêm một bí mật mới.
+ * <b>Lưu ý:</b> Đổi khóa đồng nghĩa với việc phải tính lại toàn bộ cột {@code account_hash}.
+ */
+@Component
+public class AccountBlindIndex {
+    private static final String PURPOSE = "blind-index:account";
+
+    private final SecretKey indexKey;
+
+    public AccountBlindIndex(SecretKey aesSecretKey,
+                             @Value("${crypto.blind-index.key:}") String indexKeyBase64) {
+        this.indexKey = indexKeyBase64.isBlank()
+                ? BlindIndexUtil.deriveKey(aesSecretKey, PURPOSE)
+                : BlindIndexUtil.deriveKey(AesUtil.loadKeyFromBase64(indexKeyBase64), PURPOSE);
+    }
+
+    public String of(String account) {
+        return BlindIndexUtil.hash(account, indexKey);
+    }
+
+    public String of(byte[] account, int offset, int length) {
+        return BlindIndexUtil.hash(account, offset, length, indexKey);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.user.service.impl;
+
+import com.example.user.entity.TransactionHistory;
+import com.example.user.utils.AesUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.util.List;
+
+/**
+ * Tính bổ sung {@code account_hash} cho các dòng {@code transaction_history} được ghi trước khi có Blind Index.
+ * <p>
+ * Chạy trên một luồng nền sau khi ứng dụng khởi động, duyệt theo Keyset trên {@code id}
+ * (mỗi lô tối đa {@code app.statement.backfill-batch-size} dòng). Các dòng chưa có hash sẽ không xuất hiện
+ * trong sao kê cho tới khi được xử lý xong.
+ */
+@Slf4j
+@Component
+public class AccountHashBackfill {
+    private static final String SELECT_SQL = "SELECT id, account FROM " + TransactionHistory.TABLE_NAME
+            + " WHERE account_hash IS NULL AND id > ? ORDER BY id LIMIT ?";
+    private static final String UPDATE_SQL = "UPDATE " + TransactionHistory.TABLE_NAME
+            + " SET account_hash = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SecretKey secretKey;
+    private final AccountBlindIndex accountBlindIndex;
+    private final int batchSize;
+
+    public AccountHashBackfill(JdbcTemplate jdbcTemplate,
+                               SecretKey secretKey,
+                               AccountBlindIndex accountBlindIndex,
+                               @Value("${app.statement.backfill-batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.secretKey = secretKey;
+        this.accountBlindIndex = accountBlindIndex;
+        this.batchSize = batchSize;
+    }
+
+    private record Pending(long id, String encryptedAccount) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillAsync() {
+        Thread worker = new Thread(this::backfill, "account-hash-backfill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Tính hash cho mọi dòng còn thiếu (chạy đồng bộ trên luồng gọi).
+     *
+     * @return Số dòng đã cập nhật (lỗi giữa chừng chỉ được ghi log, các lô trước đó vẫn giữ nguyên).
+     */
+    public long backfill() {
+        long updated = 0;
+        try {
+            long lastId = 0;
+            List<Pending> batch;
+            do {
+                batch = jdbcTemplate.query(SELECT_SQL,
+                        (rs, rowNum) -> new Pending(rs.getLong("id"), rs.getString("account")), lastId, batchSize);
+                if (batch.isEmpty()) break;
+                jdbcTemplate.batchUpdate(UPDATE_SQL, batch, batchSize, (ps, pending) -> {
+                    ps.setString(1, accountBlindIndex.of(AesUtil.decrypt(pending.encryptedAccount(), secretKey)));
+                    ps.setLong(2, pending.id());
+                });
+                updated += batch.size();
+                lastId = batch.get(batch.size() - 1).id();
+            } while (batch.size() == batchSize);
+            if (updated > 0) {
+                log.info("Backfilled account_hash for {} transaction_history rows", updated);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to backfill account_hash, statements may miss legacy rows", e);
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.user.service.impl;
+
+import com.example.user.entity.TransactionHistory;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.utils.TailWatermark;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Kho dữ liệu dạng cột (Columnar) trong bộ nhớ cho các truy vấn phân tích trên {@code transaction_history}
+ * (tùy chọn, {@code app.analytics.enabled=true}).
+ * <p>
+ * Mỗi vế hạch toán chỉ tốn 28 byte trong các mảng nguyên thủy, chia thành Segment {@value #SEGMENT_SIZE} dòng
+ * (mở rộng không cần sao chép dữ liệu cũ):
+ * <ul>
+ * <li>{@code account}: mã từ điển (Dictionary Encoding) {@code int} của {@code account_hash}.</li>
+ * <li>{@code inDebt}, {@code have}: số tiền theo đơn vị nhỏ nhất ({@code long}, đọc thẳng từ cột BIGINT).</li>
+ * <li>{@code epochSecond}: thời gian giao dịch (UTC).</li>
+ * </ul>
+ * <b>Đồng thời:</b> MỘT luồng nạp dữ liệu (Single Writer) ghi dòng mới rồi mới tăng {@code size} (volatile).
+ * Truy vấn lấy {@link Snapshot} (đọc {@code size} trước) nên luôn thấy một tiền tố nhất quán mà không cần khóa.
+ * <p>
+ * Dữ liệu được nạp lần đầu khi khởi động, sau đó đọc phần đuôi mỗi {@code app.analytics.refresh-interval-ms} theo
+ * Keyset trên {@code (recorded_at, id)}, quét lại {@code app.analytics.tail-overlap-ms} cuối và bỏ qua dòng đã nạp
+ * ({@link TailWatermark}): dòng có ID nhỏ commit muộn vẫn được nạp đúng một lần.
+ * <p>
+ * Khi bật lưu trữ ({@code app.archive.enabled=true}), kho chỉ phục vụ các vế từ mốc lưu trữ
+ * ({@link ArchiveSegmentStore#cutoff()}) trở về sau, giống bảng nóng sau mỗi lần lưu trữ: truy vấn bỏ qua vế cũ hơn
+ * {@link Snapshot#archivedBefore()}, và Segment chỉ chứa vế cũ hơn mốc được giải phóng khỏi bộ nhớ.
+ */
+@Slf4j
+@Component
+public class AnalyticsColumnStore {
+    public static final int SEGMENT_SHIFT = 16;
+    public static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    public static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final String TAIL_SQL = "SELECT id, account_hash, account, in_debt, have, time, recorded_at FROM "
+            + TransactionHistory.TABLE_NAME + " WHERE recorded_at >= ? AND (recorded_at > ? OR id > ?)"
+            + " AND account_hash IS NOT NULL ORDER BY recorded_at, id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ArchiveSegmentStore archive;
+    private final boolean enabled;
+    private final long refreshIntervalMillis;
+    private final int pageSize;
+    private final Map<String, Integer> dictionary = new ConcurrentHashMap<>();
+    private final TailWatermark tail;
+
+    private volatile Segment[] segments = new Segment[0];
+    private volatile int size;
+    private volatile String[] accountHashes = new String[1024];
+    /** Account đã mã hóa của một dòng bất kỳ thuộc tài khoản, chỉ giải mã khi cần hiển thị. */
+    private volatile String[] encryptedAccounts = new String[1024];
+    private volatile int accountCount;
+    /** Mốc lưu trữ (epoch second), {@link Long#MIN_VALUE} khi không bật lưu trữ. */
+    private volatile long archivedBefore = Long.MIN_VALUE;
+    private volatile long evictedRows;
+    private volatile boolean ready;
+    private volatile boolean running;
+    private Thread refresher;
+
+    public AnalyticsColumnStore(JdbcTemplate jdbcTemplate,
+                                ShardedTransactionHistoryRepository historyShards,
+                                ArchiveSegmentStore archive,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.analytics.enabled:false}") boolean enabled,
+                                @Value("${app.analytics.refresh-interval-ms:1000}") long refreshIntervalMillis,
+                                @Value("${app.analytics.tail-overlap-ms:10000}") long tailOverlapMillis,
+                                @Value("${app.analytics.page-size:10000}") int pageSize) {
+        if (enabled && historyShards.isSharded()) {
+            // Store đọc phần đuôi từ DB chính, không thấy các vế nằm trên shard phụ
+            throw new IllegalStateException("app.analytics.enabled is not supported while transaction history is sharded");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.archive = archive;
+        this.enabled = enabled;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.tail = new TailWatermark(tailOverlapMillis);
+        this.pageSize = pageSize;
+        Gauge.builder("analytics.rows", this, store -> store.size - store.evictedRows).register(meterRegistry);
+        Gauge.builder("analytics.accounts", this, store -> store.accountCount).register(meterRegistry);
+    }
+
+    /**
+     * Một Segment của các cột.
+     */
+    public static final class Segment {
+        public final int[] account = new int[SEGMENT_SIZE];
+        public final long[] inDebt = new long[SEGMENT_SIZE];
+        public final long[] have = new long[SEGMENT_SIZE];
+        public final long[] epochSecond = new long[SEGMENT_SIZE];
+        /** Thời gian lớn nhất trong Segment, chỉ luồng nạp dữ liệu đọc/ghi (quyết định loại Segment). */
+        private long maxEpochSecond = Long.MIN_VALUE;
+    }
+
+    /**
+     * Góc nhìn nhất quán: {@code rows} dòng đầu tiên và {@code accounts} mã tài khoản đầu tiên.
+     * <p>
+     * Phần tử {@code null} trong {@code segments} là Segment đã được loại sau khi lưu trữ; các dòng có
+     * {@code epochSecond < archivedBefore} đã được lưu trữ và không được tính.
+     */
+    public record Snapshot(Segment[] segments, int rows, int accounts, String[] accountHashes, String[] encryptedAccounts,
+                           long archivedBefore) {
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Snapshot snapshot() {
+        int rows = size;
+        int accounts = accountCount;
+        return new Snapshot(segments, rows, accounts, accountHashes, encryptedAccounts, archivedBefore);
+    }
+
+    /**
+     * @return Mã từ điển của tài khoản, hoặc -1 nếu tài khoản chưa có vế nào.
+     */
+    public int accountIdOf(String accountHash) {
+        return dictionary.getOrDefault(accountHash, -1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        refresher = new Thread(this::run, "analytics-refresh");
+        refresher.setDaemon(true);
+        refresher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (Objects.isNull(refresher)) return;
+        running = false;
+        LockSupport.unpark(refresher);
+    }
+
+    private void run() {
+        long started = System.nanoTime();
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.error("Initial analytics load failed, summary endpoints are disabled", e);
+            return;
+        }
+        ready = true;
+        log.info("Analytics column store loaded {} postings of {} accounts in {} ms",
+                size - evictedRows, accountCount, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        while (running) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(refreshIntervalMillis));
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                log.warn("Analytics refresh failed, retrying in {} ms", refreshIntervalMillis, e);
+            }
+        }
+    }
+
+    /**
+     * Nạp các dòng mới theo Keyset trên {@code (recorded_at, id)} từ {@code watermark - overlap}, bỏ qua dòng đã nạp,
+     * rồi loại các Segment đã được lưu trữ hết.
+     */
+    private void refresh() {
+        long cutoff = archive.isEnabled() ? archive.cutoff().toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE;
+        LocalDateTime fromRecordedAt = tail.scanFrom();
+        LocalDateTime afterRecordedAt = fromRecordedAt;
+        long afterId = Long.MIN_VALUE;
+        int loaded;
+        do {
+            PageEnd end = jdbcTemplate.query(TAIL_SQL, rs -> {
+                int count = 0;
+                long id = Long.MIN_VALUE;
+                LocalDateTime recordedAt = null;
+                while (rs.next()) {
+                    id = rs.getLong(1);
+                    recordedAt = rs.getObject(7, LocalDateTime.class);
+                    count++;
+                    if (!tail.accept(id, recordedAt)) continue;
+                    long epochSecond = rs.getObject(6, LocalDateTime.class).toEpochSecond(ZoneOffset.UTC);
+                    // Vế cũ hơn mốc lưu trữ không được truy vấn tính tới, không cần giữ trong bộ nhớ
+                    if (epochSecond < cutoff) continue;
+                    append(rs.getString(2), rs.getString(3), rs.getLong(4), rs.getLong(5), epochSecond);
+                }
+                return new PageEnd(count, recordedAt, id);
+            }, fromRecordedAt, afterRecordedAt, afterId, pageSize);
+            loaded = end.rows();
+            if (loaded > 0) {
+                afterRecordedAt = end.recordedAt();
+                afterId = end.id();
+            }
+        } while (running && loaded == pageSize);
+        tail.evict();
+        evictArchived(cutoff);
+    }
+
+    /**
+     * Dòng cuối của một trang đọc phần đuôi (Keyset cho trang tiếp theo).
+     */
+    private record PageEnd(int rows, LocalDateTime recordedAt, long id) {
+    }
+
+    /**
+     * Công bố mốc lưu trữ mới và giải phóng các Segment đã đầy mà mọi vế đều cũ hơn mốc. Segment bị loại được thay
+     * bằng {@code null} trong một mảng mới, nên chỉ số dòng không đổi và Snapshot đang dùng vẫn đọc được mảng cũ.
+     */
+    private void evictArchived(long cutoff) {
+        archivedBefore = cutoff;
+        if (cutoff == Long.MIN_VALUE) return;
+        Segment[] current = segments;
+        int fullSegments = size >>> SEGMENT_SHIFT;
+        Segment[] compacted = null;
+        int evicted = 0;
+        for (int index = 0; index < fullSegments; index++) {
+            Segment segment = current[index];
+            if (Objects.isNull(segment) || segment.maxEpochSecond >= cutoff) continue;
+            if (Objects.isNull(compacted)) {
+                compacted = current.clone();
+            }
+            compacted[index] = null;
+            evicted++;
+        }
+        if (Objects.isNull(compacted)) return;
+        segments = compacted;
+        evictedRows += (long) evicted * SEGMENT_SIZE;
+        log.info("Evicted {} archived analytics segments older than {}", evicted,
+                LocalDateTime.ofEpochSecond(cutoff, 0, ZoneOffset.UTC));
+    }
+
+    private void append(String accountHash, String encryptedAccount, long inDebt, long have, long epochSecond) {
+        Integer account = dictionary.get(accountHash);
+        if (Objects.isNull(account)) {
+            account = addAccount(accountHash, encryptedAccount);
+        }
+        int row = size;
+        int segmentIndex = row >>> SEGMENT_SHIFT;
+        if (segmentIndex == segments.length) {
+            Segment[] grown = Arrays.copyOf(segments, segmentIndex + 1);
+            grown[segmentIndex] = new Segment();
+            segments = grown;
+        }
+        Segment segment = segments[segmentIndex];
+        int offset = row & SEGMENT_MASK;
+        segment.account[offset] = account;
+        segment.inDebt[offset] = inDebt;
+        segment.have[offset] = have;
+        segment.epochSecond[offset] = epochSecond;
+        segment.maxEpochSecond = Math.max(segment.maxEpochSecond, epochSecond);
+        // Công bố dòng mới sau khi đã ghi đủ các cột
+        size = row + 1;
+    }
+
+    private int addAccount(String accountHash, String encryptedAccount) {
+        int id = accountCount;
+        if (id == accountHashes.length) {
+            accountHashes = Arrays.copyOf(accountHashes, id << 1);
+            encryptedAccounts = Arrays.copyOf(encryptedAccounts, id << 1);
+        }
+        accountHashes[id] = accountHash;
+        encryptedAccounts[id] = encryptedAccount;
+        dictionary.put(accountHash, id);
+        accountCount = id + 1;
+        return id;
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.user.service.impl;
+
+import com.example.user.dto.response.DailyTotalsResponse;
+import com.example.user.dto.response.TopAccountsResponse;
+import com.example.user.exception.BadRequestException;
+import com.example.user.exception.ConflictException;
+import com.example.user.service.IAnalyticsService;
+import com.example.user.utils.AesUtil;
+import com.example.user.utils.Money;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class triển khai các truy vấn tổng hợp trên {@link AnalyticsColumnStore}.
+ * <p>
+ * Mỗi truy vấn quét các cột nguyên thủy bằng Fork/Join: khoảng dòng được chia đôi tới khi đủ nhỏ, mỗi lá
+ * cộng dồn vào mảng {@code long[]} riêng (không khóa, không Boxing), rồi các mảng được cộng lại khi hợp nhất.
+ * Chỉ các tài khoản trả về mới cần giải mã Account.
+ */
+@Service
+public class AnalyticsService implements IAnalyticsService {
+    private static final String STORE_NOT_READY = "Analytics store is not enabled or still loading";
+    private static final String INVALID_TIME_RANGE = "'from' must be before 'to'";
+    private static final String RANGE_TOO_LONG = "Time range exceeds the maximum number of days";
+    private static final long SECONDS_PER_DAY = TimeUnit.DAYS.toSeconds(1);
+    private static final int DAY_COLUMNS = 3;
+    private static final int ACCOUNT_COLUMNS = 3;
+
+    private final AnalyticsColumnStore store;
+    private final AccountBlindIndex accountBlindIndex;
+    private final SecretKey secretKey;
+    private final ForkJoinPool pool;
+    private final int maxDays;
+
+    public AnalyticsService(AnalyticsColumnStore store,
+                            AccountBlindIndex accountBlindIndex,
+                            SecretKey secretKey,
+                            @Value("${app.analytics.parallelism:0}") int parallelism,
+                            @Value("${app.analytics.max-days:366}") int maxDays) {
+        this.store = store;
+        this.accountBlindIndex = accountBlindIndex;
+        this.secretKey = secretKey;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.maxDays = maxDays;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * @throws BadRequestException Nếu khoảng thời gian không hợp lệ hoặc dài hơn {@code app.analytics.max-days}.
+     * @throws ConflictException   Nếu kho dữ liệu chưa được bật hoặc đang nạp.
+     */
+    @Override
+    public DailyTotalsResponse dailyTotals(String account, LocalDateTime from, LocalDateTime to) {
+        long started = System.nanoTime();
+        AnalyticsColumnStore.Snapshot snapshot = readySnapshot();
+        long fromSecond = from.toEpochSecond(ZoneOffset.UTC);
+        long toSecond = to.toEpochSecond(ZoneOffset.UTC);
+        validateRange(fromSecond, toSecond);
+        long firstDay = Math.floorDiv(fromSecond, SECONDS_PER_DAY);
+        int days = (int) (Math.floorDiv(toSecond - 1, SECONDS_PER_DAY) - firstDay + 1);
+
+        int accountId = store.accountIdOf(accountBlindIndex.of(account));
+        List<DailyTotalsResponse.Day> result = new ArrayList<>();
+        if (accountId >= 0) {
+            long[] totals = pool.invoke(new DailyTask(snapshot, 0, snapshot.rows(), accountId,
+                    scanFrom(snapshot, fromSecond), toSecond, firstDay, days));
+            for (int day = 0; day < days; day++) {
+                int base = day * DAY_COLUMNS;
+                if (totals[base + 2] == 0) continue;
+                result.add(DailyTotalsResponse.Day.builder()
+                        .date(LocalDate.ofEpochDay(firstDay + day))
+                        .totalInDebt(toAmount(totals[base]))
+                        .totalHave(toAmount(totals[base + 1]))
+                        .postingCount(totals[base + 2])
+                        .build());
+            }
+        }
+        return DailyTotalsResponse.builder()
+                .days(result)
+                .rowsScanned(snapshot.rows())
+                .elapsedMicros(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started))
+                .build();
+    }
+
+    /**
+     * @throws BadRequestException Nếu khoảng thời gian không hợp lệ hoặc dài hơn {@code app.analytics.max-days}.
+     * @throws ConflictException   Nếu kho dữ liệu chưa được bật hoặc đang nạp.
+     */
+    @Override
+    public TopAccountsResponse topAccounts(LocalDateTime from, LocalDateTime to, int limit) {
+        long started = System.nanoTime();
+        AnalyticsColumnStore.Snapshot snapshot = readySnapshot();
+        long fromSecond = from.toEpochSecond(ZoneOffset.UTC);
+        long toSecond = to.toEpochSecond(ZoneOffset.UTC);
+        validateRange(fromSecond, toSecond);
+
+        // Lá đủ lớn để số mảng cộng dồn (mỗi mảng bằng số tài khoản) chỉ cỡ vài lần số luồng
+        int leafRows = Math.max(AnalyticsColumnStore.SEGMENT_SIZE, snapshot.rows() / (pool.getParallelism() * 4) + 1);
+        long[] totals = pool.invoke(new AccountTask(snapshot, 0, snapshot.rows(), scanFrom(snapshot, fromSecond),
+                toSecond, leafRows));
+
+        // Min-heap kích thước limit: O(n log limit) thay vì sắp xếp toàn bộ tài khoản
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1,
+                (a, b) -> Long.compare(volume(totals, a), volume(totals, b)));
+        for (int account = 0; account < snapshot.accounts(); account++) {
+            if (totals[account * ACCOUNT_COLUMNS + 2] == 0) continue;
+            top.offer(account);
+            if (top.size() > limit) top.poll();
+        }
+        List<TopAccountsResponse.Entry> entries = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            int account = top.poll();
+            int base = account * ACCOUNT_COLUMNS;
+            entries.add(0, TopAccountsResponse.Entry.builder()
+                    .account(AesUtil.decrypt(snapshot.encryptedAccounts()[account], secretKey))
+                    .volume(toAmount(volume(totals, account)))
+                    .totalInDebt(toAmount(totals[base]))
+                    .totalHave(toAmount(totals[base + 1]))
+                    .postingCount(totals[base + 2])
+                    .build());
+        }
+        return TopAccountsResponse.builder()
+                .accounts(entries)
+                .rowsScanned(snapshot.rows())
+                .elapsedMicros(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started))
+                .build();
+    }
+
+    /**
+     * Cộng dồn theo ngày cho một tài khoản: {@code [inDebt, have, count]} cho mỗi ngày.
+     */
+    private static final class DailyTask extends RecursiveTask<long[]> {
+        private final AnalyticsColumnStore.Snapshot snapshot;
+        private final int from;
+        private final int to;
+        private final int accountId;
+        private final long fromSecond;
+        private final long toSecond;
+        private final long firstDay;
+        private final int days;
+
+        private DailyTask(AnalyticsColumnStore.Snapshot snapshot, int from, int to, int accountId,
+                          long fromSecond, long toSecond, long firstDay, int days) {
+            this.snapshot = snapshot;
+            this.from = from;
+            this.to = to;
+            this.accountId = accountId;
+            this.fromSecond = fromSecond;
+            this.toSecond = toSecond;
+            this.firstDay = firstDay;
+            this.days = days;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > AnalyticsColumnStore.SEGMENT_SIZE) {
+                int middle = (from + to) >>> 1;
+                DailyTask left = new DailyTask(snapshot, from, middle, accountId, fromSecond, toSecond, firstDay, days);
+                left.fork();
+                long[] right = new DailyTask(snapshot, middle, to, accountId, fromSecond, toSecond, firstDay, days).compute();
+                return sum(left.join(), right);
+            }
+            long[] totals = new long[days * DAY_COLUMNS];
+            for (int row = from; row < to; row++) {
+                AnalyticsColumnStore.Segment segment = snapshot.segments()[row >>> AnalyticsColumnStore.SEGMENT_SHIFT];
+                if (Objects.isNull(segment)) {
+                    // Segment đã được loại sau khi lưu trữ: chuyển tới đầu Segment kế tiếp
+                    row |= AnalyticsColumnStore.SEGMENT_MASK;
+                    continue;
+                }
+                int offset = row & AnalyticsColumnStore.SEGMENT_MASK;
+                long second = segment.epochSecond[offset];
+                if (segment.account[offset] != accountId || second < fromSecond || second >= toSecond) continue;
+                int base = (int) (Math.floorDiv(second, SECONDS_PER_DAY) - firstDay) * DAY_COLUMNS;
+                totals[base] += segment.inDebt[offset];
+                totals[base + 1] += segment.have[offset];
+                totals[base + 2]++;
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * Cộng dồn theo tài khoản: {@code [inDebt, have, count]} cho mỗi mã tài khoản.
+     */
+    private static final class AccountTask extends RecursiveTask<long[]> {
+        private final AnalyticsColumnStore.Snapshot snapshot;
+        private final int from;
+        private final int to;
+        private final long fromSecond;
+        private final long toSecond;
+        private final int leafRows;
+
+        private AccountTask(AnalyticsColumnStore.Snapshot snapshot, int from, int to,
+                            long fromSecond, long toSecond, int leafRows) {
+            this.snapshot = snapshot;
+            this.from = from;
+            this.to = to;
+            this.fromSecond = fromSecond;
+            this.toSecond = toSecond;
+            this.leafRows = leafRows;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > leafRows) {
+                int middle = (from + to) >>> 1;
+                AccountTask left = new AccountTask(snapshot, from, middle, fromSecond, toSecond, leafRows);
+                left.fork();
+                long[] right = new AccountTask(snapshot, middle, to, fromSecond, toSecond, leafRows).compute();
+                return sum(left.join(), right);
+            }
+            long[] totals = new long[snapshot.accounts() * ACCOUNT_COLUMNS];
+            for (int row = from; row < to; row++) {
+                AnalyticsColumnStore.Segment segment = snapshot.segments()[row >>> AnalyticsColumnStore.SEGMENT_SHIFT];
+                if (Objects.isNull(segment)) {
+                    // Segment đã được loại sau khi lưu trữ: chuyển tới đầu Segment kế tiếp
+                    row |= AnalyticsColumnStore.SEGMENT_MASK;
+                    continue;
+                }
+                int offset = row & AnalyticsColumnStore.SEGMENT_MASK;
+                long second = segment.epochSecond[offset];
+                if (second < fromSecond || second >= toSecond) continue;
+                int base = segment.account[offset] * ACCOUNT_COLUMNS;
+                totals[base] += segment.inDebt[offset];
+                totals[base + 1] += segment.have[offset];
+                totals[base + 2]++;
+            }
+            return totals;
+        }
+    }
+
+    private AnalyticsColumnStore.Snapshot readySnapshot() {
+        if (!store.isReady()) {
+            throw new ConflictException(STORE_NOT_READY);
+        }
+        return store.snapshot();
+    }
+
+    /**
+     * Vế cũ hơn mốc lưu trữ đã rời bảng nóng: không tính, dù Segment chứa chúng chưa được loại.
+     */
+    private static long scanFrom(AnalyticsColumnStore.Snapshot snapshot, long fromSecond) {
+        return Math.max(fromSecond, snapshot.archivedBefore());
+    }
+
+    private void validateRange(long fromSecond, long toSecond) {
+        if (fromSecond >= toSecond) {
+            throw new BadRequestException(INVALID_TIME_RANGE);
+        }
+        if (toSecond - fromSecond > maxDays * SECONDS_PER_DAY) {
+            throw new BadRequestException(RANGE_TOO_LONG);
+        }
+    }
+
+    /**
+     * Cộng {@code right} vào {@code left} (cùng kích thước) và trả về {@code left}.
+     */
+    private static long[] sum(long[] left, long[] right) {
+        for (int i = 0; i < left.length; i++) {
+            left[i] += right[i];
+        }
+        return left;
+    }
+
+    private static long volume(long[] totals, int account) {
+        return totals[account * ACCOUNT_COLUMNS] + totals[account * ACCOUNT_COLUMNS + 1];
+    }
+
+    private static BigDecimal toAmount(long minorUnits) {
+        return Money.toBigDecimal(minorUnits);
+    }
+}
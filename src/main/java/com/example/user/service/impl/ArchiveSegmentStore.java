@@ -0,0 +1,573 @@
+package com.example.user.service.impl;
+
+import com.example.user.enums.PostingLeg;
+import com.example.user.exception.SecurityProcessException;
+import com.example.user.repository.StatementRow;
+import com.example.user.repository.TransactionHistoryBatchRepository;
+import com.example.user.utils.BloomFilter;
+import com.example.user.utils.Money;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Kho lưu trữ lạnh (Cold Storage) cho các vế hạch toán cũ, dạng file Segment bất biến (tùy chọn, {@code app.archive.enabled=true}).
+ * <p>
+ * <b>Bố cục:</b> {@code app.archive.path/yyyy-MM/segment-<seq>.seg} - mỗi tháng một thư mục (phân vùng theo thời gian),
+ * mỗi lần chuyển một lô dữ liệu tạo một Segment mới. Trong Segment, các dòng được sắp theo
+ * ({@code account_hash}, {@code time}, {@code id}) và chia thành các Block {@code app.archive.block-rows} dòng:
+ * <pre>
+ * [magic, version] [iv + AES-GCM(Deflate(rows))]* [index] [indexOffset, indexLength, crc32(index), magic]
+ * </pre>
+ * Mỗi Block được nén Deflate rồi mã hóa AES-GCM bằng khóa AES của ứng dụng, với Associated Data là (tên Segment, số Block)
+ * để không thể tráo Block giữa các vị trí. Số tài khoản trong Block vẫn ở dạng đã mã hóa như trong DB.
+ * <p>
+ * <b>Sparse Index:</b> phần index (không chứa dữ liệu nhạy cảm: chỉ Blind Index, thời điểm và ID) giữ khóa đầu tiên của
+ * mỗi Block và một Bloom Filter {@code transactionId} cho mỗi Block và cho cả Segment. Index của mọi Segment được nạp
+ * vào bộ nhớ khi khởi động; dữ liệu Block chỉ được đọc khi cần:
+ * <ul>
+ * <li>Tra cứu theo {@code transactionId}: lọc Segment rồi Block bằng Bloom Filter, chỉ giải mã các Block nghi chứa.</li>
+ * <li>Sao kê: tìm nhị phân các Block chứa khoảng (tài khoản, thời gian), đọc từ Block mới nhất về cũ nhất
+ * và dừng khi đủ số dòng cần.</li>
+ * </ul>
+ * Block đã giải mã được giữ trong Block Cache riêng (Caffeine, giới hạn theo dung lượng ước tính
+ * {@code app.archive.block-cache.max-bytes}), tách biệt với cache giao dịch để việc đọc dữ liệu cũ không đẩy dữ liệu
+ * nóng ra khỏi cache.
+ * <p>
+ * Segment được ghi ra file tạm, {@code fsync} rồi đổi tên nguyên tử; file tạm còn sót (ứng dụng dừng giữa chừng) bị xóa
+ * khi khởi động.
+ */
+@Slf4j
+@Component
+public class ArchiveSegmentStore {
+    private static final int MAGIC = 0x41524331; // "ARC1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    private static final int FOOTER_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final String AES_GCM = "AES/GCM/NoPadding";
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_LENGTH = 128;
+    private static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+    /** Row + LocalDateTime + phần đầu của 3 String, ước lượng thô. */
+    private static final int ROW_OVERHEAD_BYTES = 200;
+    private static final int BLOCK_OVERHEAD_BYTES = 96;
+    private static final PostingLeg[] LEGS = PostingLeg.values();
+    private static final Comparator<TransactionHistoryBatchRepository.Row> ROW_ORDER =
+            Comparator.comparing(TransactionHistoryBatchRepository.Row::accountHash)
+                    .thenComparing(TransactionHistoryBatchRepository.Row::time)
+                    .thenComparingLong(TransactionHistoryBatchRepository.Row::id);
+
+    private final SecretKey secretKey;
+    private final boolean enabled;
+    private final Path root;
+    private final int retentionDays;
+    private final int blockRows;
+    private final Cache<BlockKey, List<TransactionHistoryBatchRepository.Row>> blockCache;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final SecureRandom random = new SecureRandom();
+
+    public ArchiveSegmentStore(SecretKey secretKey,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.archive.enabled:false}") boolean enabled,
+                               @Value("${app.archive.path:./data/archive}") String path,
+                               @Value("${app.archive.retention-days:365}") int retentionDays,
+                               @Value("${app.archive.block-rows:512}") int blockRows,
+                               @Value("${app.archive.block-cache.max-bytes:33554432}") long blockCacheBytes) {
+        this.secretKey = secretKey;
+        this.enabled = enabled;
+        this.root = Path.of(path).toAbsolutePath();
+        this.retentionDays = retentionDays;
+        this.blockRows = blockRows;
+        this.blockCache = Caffeine.newBuilder()
+                .maximumWeight(blockCacheBytes)
+                .weigher(ArchiveSegmentStore::estimateBytes)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, blockCache, "archive_blocks");
+        Gauge.builder("archive.segments", segments, List::size).register(meterRegistry);
+        Gauge.builder("archive.rows", segments, all -> all.stream().mapToLong(Segment::rowCount).sum())
+                .register(meterRegistry);
+        if (enabled) {
+            try {
+                loadCatalog();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load archive segments from " + root, e);
+            }
+        }
+    }
+
+    /**
+     * Vị trí và thông tin của một Segment vừa ghi.
+     */
+    public record WrittenSegment(String name, long rows, long bytes) {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Mốc lưu trữ: đầu tháng chứa ngày (hôm nay - {@code app.archive.retention-days}). Chỉ các vế trước mốc này được
+     * chuyển sang kho lưu trữ, và luôn theo trọn tháng.
+     */
+    public LocalDateTime cutoff() {
+        return LocalDate.now().minusDays(retentionDays).withDayOfMonth(1).atStartOfDay();
+    }
+
+    /**
+     * Ghi một Segment cho các vế thuộc cùng tháng {@code month}. Segment chỉ được đọc sau khi file đã được
+     * {@code fsync} và đổi tên thành công.
+     */
+    public WrittenSegment write(YearMonth month, List<TransactionHistoryBatchRepository.Row> rows) throws IOException {
+        List<TransactionHistoryBatchRepository.Row> sorted = new ArrayList<>(rows);
+        sorted.sort(ROW_ORDER);
+        String name = month.format(MONTH_FORMAT) + '/' + SEGMENT_PREFIX
+                + "%012d".formatted(sequence.incrementAndGet()) + SEGMENT_SUFFIX;
+        Path target = root.resolve(name);
+        Files.createDirectories(target.getParent());
+        Path temporary = target.resolveSibling(target.getFileName() + TEMPORARY_SUFFIX);
+
+        BloomFilter transactionIds = new BloomFilter(Math.max(1, sorted.size()), BLOOM_FALSE_POSITIVE_RATE);
+        List<Block> blocks = new ArrayList<>();
+        LocalDateTime minTime = LocalDateTime.MAX;
+        LocalDateTime maxTime = LocalDateTime.MIN;
+        long size;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = writeFully(channel, ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip(), 0);
+            for (int from = 0; from < sorted.size(); from += blockRows) {
+                List<TransactionHistoryBatchRepository.Row> blockRowList =
+                        sorted.subList(from, Math.min(sorted.size(), from + blockRows));
+                BloomFilter blockIds = new BloomFilter(blockRowList.size(), BLOOM_FALSE_POSITIVE_RATE);
+                for (TransactionHistoryBatchRepository.Row row : blockRowList) {
+                    transactionIds.put(row.transactionId());
+                    blockIds.put(row.transactionId());
+                    if (row.time().isBefore(minTime)) minTime = row.time();
+                    if (row.time().isAfter(maxTime)) maxTime = row.time();
+                }
+                int number = blocks.size();
+                byte[] sealed = seal(encodeBlock(blockRowList), associatedData(name, number));
+                blocks.add(new Block(number, position, sealed.length, blockRowList.size(),
+                        Key.of(blockRowList.get(0)), blockIds));
+                position += writeFully(channel, ByteBuffer.wrap(sealed), position);
+            }
+            byte[] index = encodeIndex(sorted.size(), minTime, maxTime, blocks, transactionIds);
+            CRC32 crc = new CRC32();
+            crc.update(index);
+            long indexOffset = position;
+            position += writeFully(channel, ByteBuffer.wrap(index), position);
+            position += writeFully(channel, ByteBuffer.allocate(FOOTER_BYTES)
+                    .putLong(indexOffset).putInt(index.length).putLong(crc.getValue()).putInt(MAGIC).flip(), position);
+            channel.force(true);
+            size = position;
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        segments.add(new Segment(target, name, minTime, maxTime, sorted.size(), List.copyOf(blocks), transactionIds));
+        return new WrittenSegment(name, sorted.size(), size);
+    }
+
+    /**
+     * Gỡ và xóa một Segment vừa ghi (khi transaction xóa các vế khỏi DB thất bại), để dữ liệu không tồn tại ở cả 2 nơi.
+     */
+    public void discard(WrittenSegment written) {
+        segments.removeIf(segment -> segment.name().equals(written.name()));
+        blockCache.asMap().keySet().removeIf(key -> key.segment().equals(written.name()));
+        try {
+            Files.deleteIfExists(root.resolve(written.name()));
+        } catch (IOException e) {
+            log.error("Failed to delete discarded archive segment {}", written.name(), e);
+        }
+    }
+
+    /**
+     * Các vế của một giao dịch trong kho lưu trữ (rỗng nếu không có), mỗi ID đúng một lần.
+     */
+    public List<TransactionHistoryBatchRepository.Row> findByTransactionId(String transactionId) {
+        Map<Long, TransactionHistoryBatchRepository.Row> found = new LinkedHashMap<>();
+        for (Segment segment : segments) {
+            if (!segment.transactionIds().mightContain(transactionId)) continue;
+            for (Block block : segment.blocks()) {
+                if (!block.transactionIds().mightContain(transactionId)) continue;
+                for (TransactionHistoryBatchRepository.Row row : block(segment, block)) {
+                    if (transactionId.equals(row.transactionId())) found.putIfAbsent(row.id(), row);
+                }
+            }
+        }
+        return List.copyOf(found.values());
+    }
+
+    /**
+     * Gộp trang sao kê đọc từ DB với các vế cùng điều kiện Keyset trong kho lưu trữ.
+     * Không đọc Block nào nếu trang DB đã đủ {@code limit} dòng và dòng cũ nhất vẫn mới hơn mọi vế đã lưu trữ.
+     *
+     * @param current    Trang đọc từ DB, theo thứ tự {@link StatementRow#NEWEST_FIRST}.
+     * @param cursorTime Thời điểm của con trỏ, hoặc {@code null} cho trang đầu.
+     */
+    public List<StatementRow> mergeStatementPage(List<StatementRow> current, String accountHash, LocalDateTime from,
+                                                 LocalDateTime to, LocalDateTime cursorTime, Long cursorId, int limit) {
+        if (segments.isEmpty()) return current;
+        if (current.size() >= limit && current.get(current.size() - 1).time().isAfter(newestArchivedTime())) {
+            return current;
+        }
+        List<StatementRow> archived = findStatementPage(accountHash, from, to, cursorTime, cursorId, limit);
+        if (archived.isEmpty()) return current;
+        // Dòng có ở cả DB và kho lưu trữ (ứng dụng dừng giữa lúc ghi Segment và xóa khỏi DB) chỉ được lấy một lần
+        Map<Long, StatementRow> merged = new LinkedHashMap<>();
+        current.forEach(row -> merged.put(row.id(), row));
+        archived.forEach(row -> merged.putIfAbsent(row.id(), row));
+        List<StatementRow> rows = new ArrayList<>(merged.values());
+        rows.sort(StatementRow.NEWEST_FIRST);
+        return rows.size() > limit ? rows.subList(0, limit) : rows;
+    }
+
+    /**
+     * Duyệt mọi {@code transactionId} trong kho lưu trữ (đọc thẳng từ file, không đi qua Block Cache).
+     */
+    public void forEachTransactionId(Consumer<String> consumer) {
+        for (Segment segment : segments) {
+            for (Block block : segment.blocks()) {
+                readBlock(segment, block).forEach(row -> consumer.accept(row.transactionId()));
+            }
+        }
+    }
+
+    private List<StatementRow> findStatementPage(String accountHash, LocalDateTime from, LocalDateTime to,
+                                                 LocalDateTime cursorTime, Long cursorId, int limit) {
+        Key lower = new Key(accountHash, from, Long.MIN_VALUE);
+        Key upper = Objects.isNull(cursorTime) || !cursorTime.isBefore(to)
+                ? new Key(accountHash, to, Long.MIN_VALUE)
+                : new Key(accountHash, cursorTime, cursorId);
+        Map<Long, StatementRow> found = new LinkedHashMap<>();
+        for (Segment segment : segments) {
+            if (segment.maxTime().isBefore(from) || segment.minTime().isAfter(upper.time())) continue;
+            List<Block> blocks = segment.blocks();
+            int first = Math.max(0, lastBlockStartingBefore(blocks, lower, true));
+            int last = lastBlockStartingBefore(blocks, upper, false);
+            int collected = 0;
+            // Từ Block mới nhất về cũ nhất; các Block cũ hơn của Segment này không thể lọt vào trang khi đã đủ dòng
+            for (int i = last; i >= first && collected < limit; i--) {
+                List<TransactionHistoryBatchRepository.Row> rows = block(segment, blocks.get(i));
+                for (int j = rows.size() - 1; j >= 0; j--) {
+                    TransactionHistoryBatchRepository.Row row = rows.get(j);
+                    Key key = Key.of(row);
+                    if (key.compareTo(lower) < 0 || key.compareTo(upper) >= 0) continue;
+                    if (Objects.isNull(found.putIfAbsent(row.id(), toStatementRow(row)))) collected++;
+                }
+            }
+        }
+        List<StatementRow> rows = new ArrayList<>(found.values());
+        rows.sort(StatementRow.NEWEST_FIRST);
+        return rows.size() > limit ? rows.subList(0, limit) : rows;
+    }
+
+    /**
+     * Chỉ số Block cuối cùng có khóa đầu nhỏ hơn {@code key} (hoặc bằng, khi {@code inclusive}); -1 nếu không có.
+     */
+    private static int lastBlockStartingBefore(List<Block> blocks, Key key, boolean inclusive) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        int result = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compared = blocks.get(middle).first().compareTo(key);
+            if (compared < 0 || (inclusive && compared == 0)) {
+                result = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return result;
+    }
+
+    private LocalDateTime newestArchivedTime() {
+        LocalDateTime newest = LocalDateTime.MIN;
+        for (Segment segment : segments) {
+            if (segment.maxTime().isAfter(newest)) newest = segment.maxTime();
+        }
+        return newest;
+    }
+
+    private List<TransactionHistoryBatchRepository.Row> block(Segment segment, Block block) {
+        return blockCache.get(new BlockKey(segment.name(), block.number()), key -> readBlock(segment, block));
+    }
+
+    private List<TransactionHistoryBatchRepository.Row> readBlock(Segment segment, Block block) {
+        try (FileChannel channel = FileChannel.open(segment.path(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(block.length());
+            readFully(channel, buffer, block.offset());
+            return decodeBlock(open(buffer.array(), associatedData(segment.name(), block.number())), block.rowCount());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive block " + block.number() + " of " + segment.name(), e);
+        }
+    }
+
+    private void loadCatalog() throws IOException {
+        if (!Files.isDirectory(root)) return;
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root, 2)) {
+            files = walk.filter(Files::isRegularFile).sorted().toList();
+        }
+        List<Segment> loaded = new ArrayList<>();
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            if (fileName.endsWith(TEMPORARY_SUFFIX)) {
+                log.warn("Deleting unfinished archive segment {}", file);
+                Files.deleteIfExists(file);
+                continue;
+            }
+            if (!fileName.startsWith(SEGMENT_PREFIX) || !fileName.endsWith(SEGMENT_SUFFIX)) continue;
+            String name = file.getParent().getFileName() + "/" + fileName;
+            loaded.add(readSegment(file, name));
+            long number = Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+            sequence.accumulateAndGet(number, Math::max);
+        }
+        segments.addAll(loaded);
+        log.info("Loaded {} archive segments ({} rows) from {}", loaded.size(),
+                loaded.stream().mapToLong(Segment::rowCount).sum(), root);
+    }
+
+    private static Segment readSegment(Path file, String name) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + FOOTER_BYTES) {
+                throw new IOException("Archive segment " + name + " is truncated");
+            }
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES);
+            readFully(channel, footer, size - FOOTER_BYTES);
+            long indexOffset = footer.getLong();
+            int indexLength = footer.getInt();
+            long expectedCrc = footer.getLong();
+            if (footer.getInt() != MAGIC || indexOffset < HEADER_BYTES || indexOffset + indexLength != size - FOOTER_BYTES) {
+                throw new IOException("Archive segment " + name + " has an invalid footer");
+            }
+            ByteBuffer index = ByteBuffer.allocate(indexLength);
+            readFully(channel, index, indexOffset);
+            CRC32 crc = new CRC32();
+            crc.update(index.array());
+            if (crc.getValue() != expectedCrc) {
+                throw new IOException("Archive segment " + name + " index is corrupted");
+            }
+            return decodeIndex(file, name, index.array());
+        }
+    }
+
+    /**
+     * Index: [rowCount, minTime, maxTime, blockCount] [offset, length, rowCount, firstKey, bloom]* [bloom Segment].
+     */
+    private static byte[] encodeIndex(long rowCount, LocalDateTime minTime, LocalDateTime maxTime, List<Block> blocks,
+                                      BloomFilter transactionIds) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(rowCount);
+            writeTime(out, minTime);
+            writeTime(out, maxTime);
+            out.writeInt(blocks.size());
+            for (Block block : blocks) {
+                out.writeLong(block.offset());
+                out.writeInt(block.length());
+                out.writeInt(block.rowCount());
+                out.writeUTF(block.first().accountHash());
+                writeTime(out, block.first().time());
+                out.writeLong(block.first().id());
+                block.transactionIds().writeTo(out);
+            }
+            transactionIds.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Segment decodeIndex(Path file, String name, byte[] index) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(index))) {
+            long rowCount = in.readLong();
+            LocalDateTime minTime = readTime(in);
+            LocalDateTime maxTime = readTime(in);
+            int blockCount = in.readInt();
+            List<Block> blocks = new ArrayList<>(blockCount);
+            for (int number = 0; number < blockCount; number++) {
+                long offset = in.readLong();
+                int length = in.readInt();
+                int rows = in.readInt();
+                Key first = new Key(in.readUTF(), readTime(in), in.readLong());
+                blocks.add(new Block(number, offset, length, rows, first, BloomFilter.readFrom(in)));
+            }
+            return new Segment(file, name, minTime, maxTime, rowCount, List.copyOf(blocks), BloomFilter.readFrom(in));
+        }
+    }
+
+    private static byte[] encodeBlock(List<TransactionHistoryBatchRepository.Row> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            for (TransactionHistoryBatchRepository.Row row : rows) {
+                out.writeLong(row.id());
+                out.writeUTF(row.transactionId());
+                out.writeByte(row.leg().ordinal());
+                out.writeUTF(row.encryptedAccount());
+                out.writeUTF(row.accountHash());
+                out.writeLong(row.inDebt());
+                out.writeLong(row.have());
+                writeTime(out, row.time());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<TransactionHistoryBatchRepository.Row> decodeBlock(byte[] block, int rowCount) throws IOException {
+        List<TransactionHistoryBatchRepository.Row> rows = new ArrayList<>(rowCount);
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(block)))) {
+            for (int i = 0; i < rowCount; i++) {
+                rows.add(new TransactionHistoryBatchRepository.Row(in.readLong(), in.readUTF(), LEGS[in.readByte()],
+                        in.readUTF(), in.readUTF(), in.readLong(), in.readLong(), readTime(in)));
+            }
+        }
+        return List.copyOf(rows);
+    }
+
+    private byte[] seal(byte[] plain, byte[] associatedData) {
+        try {
+            byte[] iv = new byte[GCM_IV_LENGTH];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance(AES_GCM);
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+            cipher.updateAAD(associatedData);
+            byte[] sealed = new byte[GCM_IV_LENGTH + cipher.getOutputSize(plain.length)];
+            System.arraycopy(iv, 0, sealed, 0, GCM_IV_LENGTH);
+            cipher.doFinal(plain, 0, plain.length, sealed, GCM_IV_LENGTH);
+            return sealed;
+        } catch (GeneralSecurityException e) {
+            throw new SecurityProcessException("Processing Error: Unable to encrypt archive block", e);
+        }
+    }
+
+    private byte[] open(byte[] sealed, byte[] associatedData) {
+        try {
+            Cipher cipher = Cipher.getInstance(AES_GCM);
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, sealed, 0, GCM_IV_LENGTH));
+            cipher.updateAAD(associatedData);
+            return cipher.doFinal(sealed, GCM_IV_LENGTH, sealed.length - GCM_IV_LENGTH);
+        } catch (AEADBadTagException e) {
+            throw new SecurityProcessException("Decryption failed: Archive block integrity check failed", e);
+        } catch (GeneralSecurityException e) {
+            throw new SecurityProcessException("Processing Error: Unable to decrypt archive block", e);
+        }
+    }
+
+    private static byte[] associatedData(String segmentName, int blockNumber) {
+        return (segmentName + '#' + blockNumber).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return length;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of archive segment");
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    private static StatementRow toStatementRow(TransactionHistoryBatchRepository.Row row) {
+        return new StatementRow(row.id(), row.transactionId(), row.leg(), Money.ofMinor(row.inDebt()),
+                Money.ofMinor(row.have()), row.time());
+    }
+
+    private static int estimateBytes(BlockKey key, List<TransactionHistoryBatchRepository.Row> rows) {
+        int bytes = BLOCK_OVERHEAD_BYTES;
+        for (TransactionHistoryBatchRepository.Row row : rows) {
+            bytes += ROW_OVERHEAD_BYTES + row.transactionId().length() + row.encryptedAccount().length()
+                    + row.accountHash().length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Khóa sắp xếp trong Segment: ({@code account_hash}, {@code time}, {@code id}).
+     */
+    private record Key(String accountHash, LocalDateTime time, long id) implements Comparable<Key> {
+        private static Key of(TransactionHistoryBatchRepository.Row row) {
+            return new Key(row.accountHash(), row.time(), row.id());
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int compared = accountHash.compareTo(other.accountHash);
+            if (compared != 0) return compared;
+            compared = time.compareTo(other.time);
+            return compared != 0 ? compared : Long.compare(id, other.id);
+        }
+    }
+
+    private record Block(int number, long offset, int length, int rowCount, Key first, BloomFilter transactionIds) {
+    }
+
+    private record Segment(Path path, String name, LocalDateTime minTime, LocalDateTime maxTime, long rowCount,
+                           List<Block> blocks, BloomFilter transactionIds) {
+    }
+
+    private record BlockKey(String segment, int block) {
+    }
+}
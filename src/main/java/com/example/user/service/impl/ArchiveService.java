@@ -0,0 +1,225 @@
+package com.example.user.service.impl;
+
+import com.example.user.dto.response.ArchiveResponse;
+import com.example.user.entity.AccountArchiveTotal;
+import com.example.user.entity.TransactionHistory;
+import com.example.user.enums.PostingLeg;
+import com.example.user.exception.ConflictException;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.repository.TransactionHistoryBatchRepository;
+import com.example.user.service.IArchiveService;
+import com.example.user.utils.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Class triển khai việc chuyển các vế hạch toán cũ sang kho lưu trữ lạnh ({@link ArchiveSegmentStore}).
+ * <p>
+ * Mỗi vòng xử lý một lô {@code app.archive.segment-max-rows} vế có {@code time} trước mốc lưu trữ (Keyset theo {@code id}):
+ * <ol>
+ * <li>Bổ sung các vế còn lại của mọi giao dịch trong lô, để một giao dịch luôn nằm trọn ở DB hoặc trọn trong kho lưu trữ
+ * (đối soát kế toán kép không bao giờ thấy giao dịch thiếu vế).</li>
+ * <li>Ghi mỗi tháng của lô thành một Segment (file tạm, {@code fsync}, đổi tên nguyên tử).</li>
+ * <li>Trong MỘT transaction: xóa các vế khỏi {@code transaction_history} và cộng dồn tổng theo tài khoản vào
+ * {@code account_archive_total} (để rebuild số dư vẫn ra đúng số dư lũy kế). Nếu transaction thất bại, các Segment
+ * vừa ghi bị xóa.</li>
+ * </ol>
+ * Nếu ứng dụng dừng giữa bước 2 và 3, các vế có ở cả 2 nơi và được chuyển lại ở lần chạy sau; đường đọc loại trùng theo ID.
+ */
+@Slf4j
+@Service
+public class ArchiveService implements IArchiveService {
+    private static final String ARCHIVE_DISABLED = "Archive is disabled";
+    private static final String ARCHIVE_RUNNING = "Archive job is already running";
+    private static final String HISTORY_SHARDED = "Not supported while transaction history is sharded";
+    private static final int IN_CLAUSE_BATCH = 500;
+
+    private static final String SELECT_COLUMNS = "SELECT id, transaction_id, leg, account, account_hash, in_debt, have, time FROM "
+            + TransactionHistory.TABLE_NAME;
+    private static final String SELECT_CHUNK_SQL = SELECT_COLUMNS
+            + " WHERE time < ? AND id > ? AND account_hash IS NOT NULL ORDER BY id LIMIT ?";
+    private static final String SELECT_SIBLINGS_SQL = SELECT_COLUMNS
+            + " WHERE transaction_id IN (%s) AND id > ? AND time < ? AND account_hash IS NOT NULL";
+    private static final String DELETE_SQL = "DELETE FROM " + TransactionHistory.TABLE_NAME
+            + " WHERE id IN (%s) AND time < ?";
+    private static final String UPSERT_TOTAL_SQL = "INSERT INTO " + AccountArchiveTotal.TABLE_NAME
+            + " (account_hash, total_in_debt, total_have, posting_count, updated_at) VALUES (?, ?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE total_in_debt = total_in_debt + VALUES(total_in_debt),"
+            + " total_have = total_have + VALUES(total_have),"
+            + " posting_count = posting_count + VALUES(posting_count),"
+            + " updated_at = VALUES(updated_at)";
+
+    private static final RowMapper<TransactionHistoryBatchRepository.Row> ROW_MAPPER = (rs, rowNum) ->
+            new TransactionHistoryBatchRepository.Row(rs.getLong(1), rs.getString(2), PostingLeg.valueOf(rs.getString(3)),
+                    rs.getString(4), rs.getString(5), rs.getLong(6), rs.getLong(7), rs.getObject(8, LocalDateTime.class));
+
+    private final ArchiveSegmentStore segmentStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardedTransactionHistoryRepository historyShards;
+    private final TransactionTemplate writeTransaction;
+    private final int segmentMaxRows;
+    private final Counter archivedRows;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ArchiveService(ArchiveSegmentStore segmentStore,
+                          JdbcTemplate jdbcTemplate,
+                          ShardedTransactionHistoryRepository historyShards,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.archive.segment-max-rows:100000}") int segmentMaxRows) {
+        this.segmentStore = segmentStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.historyShards = historyShards;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.segmentMaxRows = segmentMaxRows;
+        this.archivedRows = Counter.builder("archive.rows.archived").register(meterRegistry);
+    }
+
+    /**
+     * @throws ConflictException Nếu kho lưu trữ bị tắt, một lần chạy khác đang diễn ra, hoặc {@code transaction_history}
+     *                           đang được phân mảnh.
+     */
+    @Override
+    public ArchiveResponse archive() {
+        if (!segmentStore.isEnabled()) {
+            throw new ConflictException(ARCHIVE_DISABLED);
+        }
+        if (historyShards.isSharded()) {
+            throw new ConflictException(HISTORY_SHARDED);
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new ConflictException(ARCHIVE_RUNNING);
+        }
+        long started = System.nanoTime();
+        LocalDateTime cutoff = segmentStore.cutoff();
+        int segmentsWritten = 0;
+        long rowsArchived = 0;
+        long bytesWritten = 0;
+        try {
+            long lastId = 0;
+            while (true) {
+                List<TransactionHistoryBatchRepository.Row> chunk =
+                        jdbcTemplate.query(SELECT_CHUNK_SQL, ROW_MAPPER, cutoff, lastId, segmentMaxRows);
+                if (chunk.isEmpty()) break;
+                lastId = chunk.get(chunk.size() - 1).id();
+                List<TransactionHistoryBatchRepository.Row> rows = withSiblings(chunk, lastId, cutoff);
+                for (ArchiveSegmentStore.WrittenSegment segment : archiveChunk(rows, cutoff)) {
+                    segmentsWritten++;
+                    bytesWritten += segment.bytes();
+                }
+                rowsArchived += rows.size();
+                archivedRows.increment(rows.size());
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            log.info("Archive finished: cutoff={}, segments={}, rows={}, bytes={} in {} ms",
+                    cutoff, segmentsWritten, rowsArchived, bytesWritten, elapsedMillis);
+            return ArchiveResponse.builder()
+                    .cutoff(cutoff)
+                    .segmentsWritten(segmentsWritten)
+                    .rowsArchived(rowsArchived)
+                    .bytesWritten(bytesWritten)
+                    .elapsedMillis(elapsedMillis)
+                    .build();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Thêm các vế cùng giao dịch nằm sau lô theo {@code id} (các vế có ID nhỏ hơn đã thuộc lô này hoặc lô trước).
+     * <p>
+     * Các vế của một giao dịch có cùng {@code time}, nên điều kiện {@code time < cutoff} không bỏ sót vế nào mà cho phép
+     * cắt bỏ các partition tháng sau mốc lưu trữ.
+     */
+    private List<TransactionHistoryBatchRepository.Row> withSiblings(List<TransactionHistoryBatchRepository.Row> chunk,
+                                                                     long lastId, LocalDateTime cutoff) {
+        List<TransactionHistoryBatchRepository.Row> rows = new ArrayList<>(chunk);
+        List<String> transactionIds = new ArrayList<>(chunk.stream()
+                .map(TransactionHistoryBatchRepository.Row::transactionId)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+        for (int from = 0; from < transactionIds.size(); from += IN_CLAUSE_BATCH) {
+            List<String> batch = transactionIds.subList(from, Math.min(transactionIds.size(), from + IN_CLAUSE_BATCH));
+            List<Object> arguments = new ArrayList<>(batch);
+            arguments.add(lastId);
+            arguments.add(cutoff);
+            rows.addAll(jdbcTemplate.query(SELECT_SIBLINGS_SQL.formatted(placeholders(batch.size())), ROW_MAPPER,
+                    arguments.toArray()));
+        }
+        return rows;
+    }
+
+    private List<ArchiveSegmentStore.WrittenSegment> archiveChunk(List<TransactionHistoryBatchRepository.Row> rows,
+                                                                  LocalDateTime cutoff) {
+        Map<YearMonth, List<TransactionHistoryBatchRepository.Row>> byMonth = rows.stream()
+                .collect(Collectors.groupingBy(row -> YearMonth.from(row.time()), TreeMap::new, Collectors.toList()));
+        List<ArchiveSegmentStore.WrittenSegment> written = new ArrayList<>(byMonth.size());
+        try {
+            for (Map.Entry<YearMonth, List<TransactionHistoryBatchRepository.Row>> month : byMonth.entrySet()) {
+                written.add(segmentStore.write(month.getKey(), month.getValue()));
+            }
+            writeTransaction.executeWithoutResult(status -> {
+                deleteRows(rows, cutoff);
+                addArchiveTotals(rows);
+            });
+            return written;
+        } catch (IOException e) {
+            written.forEach(segmentStore::discard);
+            throw new UncheckedIOException("Failed to write archive segment", e);
+        } catch (RuntimeException e) {
+            written.forEach(segmentStore::discard);
+            throw e;
+        }
+    }
+
+    private void deleteRows(List<TransactionHistoryBatchRepository.Row> rows, LocalDateTime cutoff) {
+        for (int from = 0; from < rows.size(); from += IN_CLAUSE_BATCH) {
+            List<TransactionHistoryBatchRepository.Row> batch = rows.subList(from, Math.min(rows.size(), from + IN_CLAUSE_BATCH));
+            List<Object> arguments = new ArrayList<>(batch.size() + 1);
+            batch.forEach(row -> arguments.add(row.id()));
+            arguments.add(cutoff);
+            jdbcTemplate.update(DELETE_SQL.formatted(placeholders(batch.size())), arguments.toArray());
+        }
+    }
+
+    /**
+     * Cộng dồn theo tài khoản, mỗi tài khoản một lệnh UPSERT, theo thứ tự khóa tăng dần (tránh Deadlock).
+     */
+    private void addArchiveTotals(List<TransactionHistoryBatchRepository.Row> rows) {
+        Map<String, long[]> totals = new TreeMap<>();
+        for (TransactionHistoryBatchRepository.Row row : rows) {
+            long[] total = totals.computeIfAbsent(row.accountHash(), hash -> new long[3]);
+            total[0] = Money.add(total[0], row.inDebt());
+            total[1] = Money.add(total[1], row.have());
+            total[2]++;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> arguments = new ArrayList<>(totals.size());
+        totals.forEach((hash, total) -> arguments.add(new Object[]{hash, total[0], total[1], total[2], now}));
+        jdbcTemplate.batchUpdate(UPSERT_TOTAL_SQL, arguments);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.user.service.impl;
+
+import com.example.user.repository.OutboxEvent;
+import com.example.user.service.IOutboxSink;
+import com.example.user.utils.Money;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Sink ghi sự kiện ra file JSON Lines cục bộ ({@code app.outbox.file.path}), mỗi dòng một sự kiện.
+ * <p>
+ * Cả lô được ghi bằng một lệnh {@code write} rồi {@code force} trước khi trả về, nên relay chỉ xóa Outbox khi
+ * sự kiện đã nằm trên đĩa.
+ */
+@Component
+public class FileOutboxSink implements IOutboxSink {
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final Path path;
+    private FileChannel channel;
+
+    public FileOutboxSink(@Value("${app.outbox.file.path:./data/outbox.jsonl}") String path) {
+        this.path = Path.of(path).toAbsolutePath();
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(events.size() * 256);
+        try (JsonGenerator generator = jsonFactory.createGenerator(buffer)) {
+            for (OutboxEvent event : events) {
+                generator.writeStartObject();
+                generator.writeNumberField("id", event.id());
+                generator.writeStringField("transactionId", event.transactionId());
+                generator.writeStringField("leg", event.leg().name());
+                generator.writeStringField("accountHash", event.accountHash());
+                generator.writeFieldName("inDebt");
+                generator.writeNumber(Money.toBigDecimal(event.inDebt()));
+                generator.writeFieldName("have");
+                generator.writeNumber(Money.toBigDecimal(event.have()));
+                generator.writeStringField("time", event.time().toString());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+        FileChannel file = channel();
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            file.write(bytes);
+        }
+        file.force(false);
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (Objects.nonNull(channel)) channel.close();
+    }
+
+    private FileChannel channel() throws IOException {
+        if (Objects.isNull(channel)) {
+            Files.createDirectories(path.getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+}
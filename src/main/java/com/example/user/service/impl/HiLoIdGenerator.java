@@ -0,0 +1,102 @@
+package com.example.user.service.impl;
+
+import com.example.user.service.IIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bộ sinh ID theo thuật toán Hi/Lo dựa trên bảng {@code id_block}.
+ * <p>
+ * Thay thế {@code GenerationType.IDENTITY} (vốn vô hiệu hóa JDBC Batching vì Hibernate phải
+ * INSERT ngay để lấy ID). Mỗi lần hết khối, bộ sinh chỉ cần 1 câu UPDATE để "giữ chỗ"
+ * {@value #BLOCK_SIZE} ID liên tiếp, sau đó cấp phát hoàn toàn trong bộ nhớ.
+ * <ul>
+ * <li>Khối ID được lấy trong một transaction RIÊNG ({@code REQUIRES_NEW}) để không bị rollback theo
+ * transaction nghiệp vụ (tránh cấp trùng ID).</li>
+ * <li>Lần đầu khởi tạo, giá trị {@code hi} được đặt cao hơn ID lớn nhất đang có trong bảng đích,
+ * để tương thích với dữ liệu cũ sinh bởi IDENTITY.</li>
+ * </ul>
+ * Là bộ sinh mặc định ({@code app.id.generator=hilo}); {@link Primary} vì {@link SnowflakeIdGenerator} luôn tồn tại
+ * (để cấp {@code transactionId} phía máy chủ).
+ */
+@Slf4j
+@Component
+@Primary
+@ConditionalOnProperty(name = "app.id.generator", havingValue = "hilo", matchIfMissing = true)
+public class HiLoIdGenerator implements IIdGenerator {
+    public static final long BLOCK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public HiLoIdGenerator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Cấp phát ID kế tiếp cho bảng {@code table}.
+     *
+     * @param table Tên bảng đích (dùng làm khóa trong {@code id_block} và để tính giá trị khởi tạo).
+     * @return ID duy nhất, tăng dần trong phạm vi một instance.
+     */
+    @Override
+    public long nextId(String table) {
+        return blocks.computeIfAbsent(table, Block::new).next();
+    }
+
+    private long reserveHi(String table) {
+        Long hi = requiresNew.execute(status -> {
+            int updated = jdbcTemplate.update("UPDATE id_block SET next_hi = next_hi + 1 WHERE name = ?", table);
+            if (updated == 0) {
+                initialize(table);
+                jdbcTemplate.update("UPDATE id_block SET next_hi = next_hi + 1 WHERE name = ?", table);
+            }
+            return jdbcTemplate.queryForObject("SELECT next_hi FROM id_block WHERE name = ?", Long.class, table);
+        });
+        return Objects.requireNonNull(hi, "Cannot reserve id block for " + table);
+    }
+
+    private void initialize(String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        long initialHi = Objects.isNull(maxId) ? 0 : maxId / BLOCK_SIZE;
+        try {
+            jdbcTemplate.update("INSERT INTO id_block (name, next_hi) VALUES (?, ?)", table, initialHi);
+            log.info("Initialized id block for [{}] at hi={}", table, initialHi);
+        } catch (DuplicateKeyException e) {
+            // Một instance khác đã khởi tạo trước, chỉ cần tăng giá trị hiện có
+        }
+    }
+
+    private final class Block {
+        private final String table;
+        private long next;
+        private long limit;
+
+        private Block(String table) {
+            this.table = table;
+        }
+
+        private synchronized long next() {
+            if (next >= limit) {
+                long hi = reserveHi(table);
+                next = hi * BLOCK_SIZE;
+                limit = next + BLOCK_SIZE;
+            }
+            return next++;
+        }
+    }
+}
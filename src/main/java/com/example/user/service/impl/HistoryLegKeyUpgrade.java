@@ -0,0 +1,102 @@
+package com.example.user.service.impl;
+
+import com.example.user.entity.TransactionHistory;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Đưa khóa chống trùng {@code uk_transaction_history_leg} của DB đã có sẵn về dạng hiện tại
+ * ({@code transaction_id}, {@code leg}, {@code leg_no}).
+ * <p>
+ * {@code ddl-auto=update} thêm được cột {@code leg}/{@code leg_no} nhưng điền cùng một giá trị cho mọi vế ghi trước khi
+ * có cột {@code leg} ({@code ''} với {@code VARCHAR}, giá trị enum đầu tiên {@code 'DEBIT'} nếu cột là {@code ENUM}): hai
+ * vế của cùng một giao dịch cũ trùng nhau trên khóa, nên Hibernate không tạo được khóa (chỉ ghi cảnh báo) và chống trùng
+ * mất đi mà không ai biết. Hibernate cũng không sửa một ràng buộc UNIQUE đã tồn tại cùng tên, nên khóa cũ
+ * ({@code transaction_id}, {@code leg}) vẫn chặn giao dịch có 2 vế cùng phía. Khi khởi động, nếu khóa chưa ở dạng hiện tại:
+ * <ol>
+ * <li>Đổi cột {@code leg} về {@code VARCHAR(6)} nếu đã bị tạo thành {@code ENUM}.</li>
+ * <li>Tính lại {@code leg} của mọi vế theo số tiền, bất kể giá trị hiện có (vế chỉ có {@code have} là Có, còn lại là
+ * Nợ); chỉ các dòng lệch được ghi lại.</li>
+ * <li>Từ chối khởi động nếu dữ liệu vẫn còn trùng trên khóa mới (không thể tạo khóa).</li>
+ * <li>Tạo khóa nếu chưa có, hoặc thay khóa cũ bằng MỘT lệnh {@code ALTER TABLE} (không có lúc nào bảng thiếu khóa),
+ * giữ cột {@code time} nếu bảng đã được phân vùng ({@link HistoryPartitionManager}).</li>
+ * </ol>
+ * Chạy khi khởi tạo Bean, sau khi Hibernate cập nhật schema ({@code entityManagerFactory}) và trước khi web server nhận
+ * request hay các thành phần khởi động khác ({@code ApplicationReadyEvent}) chạy; chỉ áp dụng cho MySQL. Khi khóa đã ở
+ * dạng hiện tại, không quét lại bảng.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class HistoryLegKeyUpgrade {
+    private static final String UNIQUE_KEY = TransactionHistory.UNIQUE_LEG_KEY;
+    private static final String PRIMARY_KEY = "PRIMARY";
+    private static final String LEG_NO_COLUMN = "leg_no";
+    private static final String TIME_COLUMN = "time";
+
+    private static final String KEY_COLUMNS_SQL = "SELECT COLUMN_NAME FROM information_schema.STATISTICS"
+            + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ? ORDER BY SEQ_IN_INDEX";
+    private static final String LEG_COLUMN_TYPE_SQL = "SELECT DATA_TYPE FROM information_schema.COLUMNS"
+            + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = 'leg'";
+    private static final String ENUM_TYPE = "enum";
+    private static final String MODIFY_LEG_SQL = "ALTER TABLE " + TransactionHistory.TABLE_NAME
+            + " MODIFY leg VARCHAR(6) NOT NULL";
+    private static final String LEG_FROM_AMOUNTS = "CASE WHEN in_debt = 0 AND have > 0 THEN 'CREDIT' ELSE 'DEBIT' END";
+    private static final String BACKFILL_LEG_SQL = "UPDATE " + TransactionHistory.TABLE_NAME
+            + " SET leg = " + LEG_FROM_AMOUNTS + " WHERE leg <> " + LEG_FROM_AMOUNTS;
+    private static final String COUNT_DUPLICATES_SQL = "SELECT COUNT(*) FROM (SELECT 1 FROM " + TransactionHistory.TABLE_NAME
+            + " GROUP BY transaction_id, leg, leg_no HAVING COUNT(*) > 1) duplicates";
+    private static final String ADD_KEY_SQL = "ALTER TABLE " + TransactionHistory.TABLE_NAME
+            + " ADD UNIQUE KEY " + UNIQUE_KEY + " (%s)";
+    private static final String REPLACE_KEY_SQL = "ALTER TABLE " + TransactionHistory.TABLE_NAME
+            + " DROP INDEX " + UNIQUE_KEY + ", ADD UNIQUE KEY " + UNIQUE_KEY + " (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void upgrade() {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equalsIgnoreCase(product)) return;
+        List<String> columns = keyColumns(UNIQUE_KEY);
+        if (columns.contains(LEG_NO_COLUMN)) return;
+
+        List<String> types = jdbcTemplate.queryForList(LEG_COLUMN_TYPE_SQL, String.class, TransactionHistory.TABLE_NAME);
+        if (!types.isEmpty() && ENUM_TYPE.equalsIgnoreCase(types.get(0))) {
+            jdbcTemplate.execute(MODIFY_LEG_SQL);
+            log.info("Changed {}.leg from ENUM to VARCHAR(6)", TransactionHistory.TABLE_NAME);
+        }
+        int backfilled = jdbcTemplate.update(BACKFILL_LEG_SQL);
+        if (backfilled > 0) {
+            log.info("Backfilled the posting leg of {} legacy {} rows", backfilled, TransactionHistory.TABLE_NAME);
+        }
+
+        Integer duplicates = jdbcTemplate.queryForObject(COUNT_DUPLICATES_SQL, Integer.class);
+        if (Objects.nonNull(duplicates) && duplicates > 0) {
+            throw new IllegalStateException(duplicates + " (transaction_id, leg, leg_no) groups in "
+                    + TransactionHistory.TABLE_NAME + " have more than one row: resolve them before " + UNIQUE_KEY
+                    + " can be created, idempotency is not enforced until then");
+        }
+        List<String> upgraded = new ArrayList<>(List.of("transaction_id", "leg", LEG_NO_COLUMN));
+        if (keyColumns(PRIMARY_KEY).contains(TIME_COLUMN)) {
+            upgraded.add(TIME_COLUMN);
+        }
+        String definition = String.join(", ", upgraded);
+        jdbcTemplate.execute((columns.isEmpty() ? ADD_KEY_SQL : REPLACE_KEY_SQL).formatted(definition));
+        log.info("{} is now ({}), was {}", UNIQUE_KEY, definition, columns.isEmpty() ? "missing" : columns);
+    }
+
+    private List<String> keyColumns(String indexName) {
+        return jdbcTemplate.queryForList(KEY_COLUMNS_SQL, String.class, TransactionHistory.TABLE_NAME, indexName);
+    }
+}
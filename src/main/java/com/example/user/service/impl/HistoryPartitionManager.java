@@ -0,0 +1,472 @@
+package com.example.user.service.impl;
+
+import com.example.user.dto.response.HistoryPartitionResponse;
+import com.example.user.entity.AccountArchiveTotal;
+import com.example.user.entity.HistoryPartitionPurge;
+import com.example.user.entity.TransactionHistory;
+import com.example.user.entity.TransactionRegistry;
+import com.example.user.exception.ConflictException;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.service.IHistoryPartitionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Phân vùng (Range Partitioning) {@code transaction_history} theo tháng trên MySQL (tùy chọn,
+ * {@code app.partitioning.enabled=true}).
+ * <p>
+ * Mỗi tháng là một partition {@code pYYYYMM} chứa các vế có {@code time} trong tháng đó, cộng partition {@code pmax}
+ * nhận phần còn lại. Các truy vấn có điều kiện trên {@code time} (sao kê, rollup, lưu trữ) chỉ chạm các partition
+ * giao với khoảng thời gian (Partition Pruning) thay vì quét cả bảng.
+ * <p>
+ * MySQL yêu cầu mọi khóa UNIQUE chứa cột phân vùng, nên khi chuyển đổi, khóa chính trở thành ({@code id}, {@code time})
+ * và khóa {@code uk_transaction_history_leg} trở thành ({@code transaction_id}, {@code leg}, {@code leg_no}, {@code time}):
+ * khóa này không còn chặn một lần gửi lại với {@code time} khác. Chống trùng theo {@code transactionId} do
+ * {@code transaction_registry} (không phân vùng, xem {@link TransactionRegistry}) đảm bảo; bước chuyển đổi đăng ký mọi
+ * giao dịch đã có trước khi đổi bảng.
+ * <p>
+ * Các bước do quản trị viên gọi ({@code /api/admin/history-partitions}):
+ * <ol>
+ * <li>{@link #convert()}: chuyển bảng sang dạng phân vùng (một lần, từ tháng của vế cũ nhất). Lệnh ALTER viết lại toàn
+ * bộ bảng, nên là một bước Migration chạy trong khung bảo trì.</li>
+ * <li>{@link #maintain()} (định kỳ, ví dụ hằng tháng): tạo trước partition cho {@code app.partitioning.months-ahead}
+ * tháng tới bằng cách tách {@code pmax} (partition rỗng nên không phải chép dữ liệu), và bỏ các partition hết hạn
+ * ({@code app.partitioning.retention-months}, 0 = giữ mãi) bằng {@code DROP PARTITION}: thao tác trên metadata, không
+ * phải lệnh DELETE từng dòng. Khi bật kho lưu trữ, chỉ bỏ partition đã được chuyển hết sang Segment (rỗng); ngược lại,
+ * tổng theo tài khoản của partition được cộng dồn vào {@code account_archive_total} cùng một dấu
+ * {@code history_partition_purge} trước khi DROP, để rebuild số dư vẫn đúng (xem {@link #dropExpired}).</li>
+ * </ol>
+ * Một luồng nền chỉ làm bước tạo trước partition, mỗi {@code app.partitioning.create-ahead-interval-ms} (0 = tắt), và
+ * chỉ khi {@code pmax} rỗng: tách một partition rỗng chỉ đổi metadata, nên an toàn khi bảng đang phục vụ. Việc bỏ
+ * partition và tạo lại khóa vẫn là bước của quản trị viên.
+ * Chỉ hỗ trợ MySQL và không hỗ trợ khi {@code transaction_history} đang được phân mảnh.
+ */
+@Slf4j
+@Component
+public class HistoryPartitionManager implements IHistoryPartitionService {
+    private static final String PARTITIONING_DISABLED = "History partitioning is disabled or the database is not MySQL";
+    private static final String PARTITIONING_RUNNING = "Another partitioning run is in progress";
+    private static final String NOT_PARTITIONED = "Transaction history is not partitioned yet, run the conversion first";
+    private static final String MAX_PARTITION = "pmax";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final DateTimeFormatter PARTITION_BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String UNIQUE_KEY = TransactionHistory.UNIQUE_LEG_KEY;
+
+    private static final String SELECT_PARTITIONS_SQL = "SELECT PARTITION_NAME FROM information_schema.PARTITIONS"
+            + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL"
+            + " ORDER BY PARTITION_ORDINAL_POSITION";
+    private static final String UNIQUE_KEY_EXISTS_SQL = "SELECT COUNT(*) FROM information_schema.STATISTICS"
+            + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?";
+    private static final String REGISTER_EXISTING_SQL = "INSERT IGNORE INTO " + TransactionRegistry.TABLE_NAME
+            + " (transaction_id) SELECT DISTINCT transaction_id FROM " + TransactionHistory.TABLE_NAME;
+    private static final String MIN_TIME_SQL = "SELECT MIN(time) FROM " + TransactionHistory.TABLE_NAME;
+    private static final String PARTITION_SQL = "ALTER TABLE " + TransactionHistory.TABLE_NAME
+            + " DROP PRIMARY KEY, ADD PRIMARY KEY (id, time),"
+            + " DROP INDEX " + UNIQUE_KEY + ", ADD UNIQUE KEY " + UNIQUE_KEY + " (transaction_id, leg, leg_no, time)"
+            + " PARTITION BY RANGE COLUMNS(time) (%s)";
+    private static final String ADD_UNIQUE_KEY_SQL = "ALTER TABLE " + TransactionHistory.TABLE_NAME
+            + " ADD UNIQUE KEY " + UNIQUE_KEY + " (transaction_id, leg, leg_no, time)";
+    private static final String REORGANIZE_MAX_SQL = "ALTER TABLE " + TransactionHistory.TABLE_NAME
+            + " REORGANIZE PARTITION " + MAX_PARTITION + " INTO (%s)";
+    private static final String LOCK_TABLES_SQL = "LOCK TABLES " + TransactionHistory.TABLE_NAME + " WRITE, "
+            + AccountArchiveTotal.TABLE_NAME + " WRITE, " + HistoryPartitionPurge.TABLE_NAME + " WRITE";
+    private static final String UNLOCK_TABLES_SQL = "UNLOCK TABLES";
+    private static final String DROP_PARTITION_SQL = "ALTER TABLE " + TransactionHistory.TABLE_NAME + " DROP PARTITION %s";
+    private static final String MAX_PARTITION_ROWS_SQL = "SELECT COUNT(*) FROM " + TransactionHistory.TABLE_NAME
+            + " PARTITION (" + MAX_PARTITION + ")";
+    private static final String PARTITION_ROWS_SQL = "SELECT COUNT(*) FROM " + TransactionHistory.TABLE_NAME
+            + " PARTITION (%s)";
+    private static final String PARTITION_HAS_UNINDEXED_SQL = "SELECT EXISTS (SELECT 1 FROM " + TransactionHistory.TABLE_NAME
+            + " PARTITION (%s) WHERE account_hash IS NULL)";
+    private static final String PURGE_MARKER_SQL = "SELECT posting_count FROM " + HistoryPartitionPurge.TABLE_NAME
+            + " WHERE partition_name = ?";
+    private static final String INSERT_PURGE_SQL = "INSERT INTO " + HistoryPartitionPurge.TABLE_NAME
+            + " (partition_name, purged_at, posting_count) VALUES (?, ?, ?)";
+    private static final String PARTITION_TOTALS_SQL = "SELECT account_hash, SUM(in_debt), SUM(have), COUNT(*) FROM "
+            + TransactionHistory.TABLE_NAME + " PARTITION (%s) GROUP BY account_hash ORDER BY account_hash";
+    private static final String ADD_PARTITION_TOTALS_SQL = "INSERT INTO " + AccountArchiveTotal.TABLE_NAME
+            + " (account_hash, total_in_debt, total_have, posting_count, updated_at) VALUES (?, ?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE total_in_debt = total_in_debt + VALUES(total_in_debt),"
+            + " total_have = total_have + VALUES(total_have),"
+            + " posting_count = posting_count + VALUES(posting_count),"
+            + " updated_at = VALUES(updated_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ArchiveSegmentStore archiveStore;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final long createAheadIntervalMillis;
+    private final Counter partitionsCreated;
+    private final Counter partitionsDropped;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile boolean active;
+    private volatile boolean creatingAhead;
+    private Thread creator;
+
+    public HistoryPartitionManager(JdbcTemplate jdbcTemplate,
+                                   ArchiveSegmentStore archiveStore,
+                                   ShardedTransactionHistoryRepository historyShards,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.partitioning.enabled:false}") boolean enabled,
+                                   @Value("${app.partitioning.months-ahead:3}") int monthsAhead,
+                                   @Value("${app.partitioning.retention-months:0}") int retentionMonths,
+                                   @Value("${app.partitioning.create-ahead-interval-ms:86400000}") long createAheadIntervalMillis) {
+        if (enabled && historyShards.isSharded()) {
+            throw new IllegalStateException("app.partitioning.enabled is not supported while transaction history is sharded");
+        }
+        if (monthsAhead < 1) {
+            throw new IllegalStateException("app.partitioning.months-ahead must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveStore = archiveStore;
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.createAheadIntervalMillis = createAheadIntervalMillis;
+        this.partitionsCreated = Counter.builder("history.partitions.created").register(meterRegistry);
+        this.partitionsDropped = Counter.builder("history.partitions.dropped").register(meterRegistry);
+    }
+
+    /**
+     * @return Ngày đầu tiên còn được giữ trong {@code transaction_history} khi các partition hết hạn bị bỏ,
+     * hoặc {@code null} nếu không bỏ partition nào.
+     */
+    public LocalDate retainedSince() {
+        if (!enabled || retentionMonths <= 0) return null;
+        return horizon().atDay(1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equalsIgnoreCase(product)) {
+            log.warn("History partitioning requires MySQL, found {}: disabled", product);
+            return;
+        }
+        active = true;
+        if (partitions().isEmpty()) {
+            log.warn("History partitioning is enabled but {} is not partitioned: run the conversion step",
+                    TransactionHistory.TABLE_NAME);
+        }
+        if (createAheadIntervalMillis <= 0) return;
+        creatingAhead = true;
+        creator = new Thread(this::runCreateAhead, "history-partition-creator");
+        creator.setDaemon(true);
+        creator.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (Objects.isNull(creator)) return;
+        creatingAhead = false;
+        LockSupport.unpark(creator);
+        try {
+            creator.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runCreateAhead() {
+        while (creatingAhead) {
+            try {
+                createAhead();
+            } catch (RuntimeException e) {
+                log.warn("Creating partitions ahead failed, retrying in {} ms", createAheadIntervalMillis, e);
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(createAheadIntervalMillis));
+        }
+    }
+
+    /**
+     * Bước tạo trước partition của {@link #maintain()}, chạy nền: bỏ qua nếu bảng chưa được chuyển đổi, một lần chạy
+     * khác đang diễn ra, hoặc {@code pmax} có dữ liệu (tách nó sẽ phải chép dòng, để quản trị viên chạy {@link #maintain()}).
+     */
+    private void createAhead() {
+        if (!running.compareAndSet(false, true)) return;
+        try {
+            List<String> partitions = partitions();
+            if (partitions.isEmpty()) return;
+            Long maxRows = jdbcTemplate.queryForObject(MAX_PARTITION_ROWS_SQL, Long.class);
+            if (Objects.nonNull(maxRows) && maxRows > 0) {
+                log.warn("Partition {} holds {} rows, not splitting it in the background: run maintain", MAX_PARTITION,
+                        maxRows);
+                return;
+            }
+            addFuturePartitions(partitions);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * @throws ConflictException Nếu phân vùng không được bật (hoặc DB không phải MySQL), hoặc một lần chạy khác đang diễn ra.
+     */
+    @Override
+    public HistoryPartitionResponse convert() {
+        return exclusively(started -> {
+            List<String> partitions = partitions();
+            int created = 0;
+            if (partitions.isEmpty()) {
+                int registered = jdbcTemplate.update(REGISTER_EXISTING_SQL);
+                log.info("Registered {} existing transaction ids before partitioning", registered);
+                created = partitionTable();
+                partitions = partitions();
+            }
+            ensureUniqueKey();
+            created += addFuturePartitions(partitions);
+            return response(created, 0, started);
+        });
+    }
+
+    /**
+     * Idempotent: lần chạy lặp lại không tạo hay bỏ thêm partition nào.
+     *
+     * @throws ConflictException Nếu phân vùng không được bật, bảng chưa được chuyển đổi, hoặc một lần chạy khác đang diễn ra.
+     */
+    @Override
+    public HistoryPartitionResponse maintain() {
+        return exclusively(started -> {
+            List<String> partitions = partitions();
+            if (partitions.isEmpty()) {
+                throw new ConflictException(NOT_PARTITIONED);
+            }
+            ensureUniqueKey();
+            int created = addFuturePartitions(partitions);
+            int dropped = dropExpiredPartitions(partitions);
+            return response(created, dropped, started);
+        });
+    }
+
+    private HistoryPartitionResponse exclusively(Function<Long, HistoryPartitionResponse> task) {
+        if (!active) {
+            throw new ConflictException(PARTITIONING_DISABLED);
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new ConflictException(PARTITIONING_RUNNING);
+        }
+        try {
+            return task.apply(System.nanoTime());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private HistoryPartitionResponse response(int created, int dropped, long started) {
+        return HistoryPartitionResponse.builder()
+                .partitions(partitions())
+                .partitionsCreated(created)
+                .partitionsDropped(dropped)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started))
+                .build();
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList(SELECT_PARTITIONS_SQL, String.class, TransactionHistory.TABLE_NAME);
+    }
+
+    private int partitionTable() {
+        LocalDateTime oldest = jdbcTemplate.queryForObject(MIN_TIME_SQL, LocalDateTime.class);
+        YearMonth first = Objects.isNull(oldest) ? YearMonth.now() : YearMonth.from(oldest);
+        List<String> definitions = new ArrayList<>();
+        for (YearMonth month = first; !month.isAfter(lastMonth()); month = month.plusMonths(1)) {
+            definitions.add(definition(month));
+        }
+        definitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+        long started = System.nanoTime();
+        jdbcTemplate.execute(PARTITION_SQL.formatted(String.join(", ", definitions)));
+        partitionsCreated.increment(definitions.size());
+        log.info("Partitioned {} into {} monthly partitions from {} in {} ms", TransactionHistory.TABLE_NAME,
+                definitions.size() - 1, first, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return definitions.size();
+    }
+
+    /**
+     * Hibernate ({@code ddl-auto=update}) có thể bỏ khóa chống trùng khi không tạo lại được theo định nghĩa của entity
+     * (thiếu cột {@code time}): tạo lại theo dạng tương thích với phân vùng.
+     */
+    private void ensureUniqueKey() {
+        Integer columns = jdbcTemplate.queryForObject(UNIQUE_KEY_EXISTS_SQL, Integer.class,
+                TransactionHistory.TABLE_NAME, UNIQUE_KEY);
+        if (Objects.isNull(columns) || columns == 0) {
+            log.warn("Unique key {} is missing, recreating it", UNIQUE_KEY);
+            jdbcTemplate.execute(ADD_UNIQUE_KEY_SQL);
+        }
+    }
+
+    private int addFuturePartitions(List<String> partitions) {
+        YearMonth last = partitions.stream()
+                .filter(name -> !MAX_PARTITION.equals(name))
+                .map(HistoryPartitionManager::monthOf)
+                .max(YearMonth::compareTo)
+                .orElseGet(() -> YearMonth.now().minusMonths(1));
+        if (!last.isBefore(lastMonth())) return 0;
+        List<String> definitions = new ArrayList<>();
+        for (YearMonth month = last.plusMonths(1); !month.isAfter(lastMonth()); month = month.plusMonths(1)) {
+            definitions.add(definition(month));
+        }
+        definitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+        jdbcTemplate.execute(REORGANIZE_MAX_SQL.formatted(String.join(", ", definitions)));
+        partitionsCreated.increment(definitions.size() - 1);
+        log.info("Added {} partitions up to {}", definitions.size() - 1, lastMonth());
+        return definitions.size() - 1;
+    }
+
+    private int dropExpiredPartitions(List<String> partitions) {
+        if (retentionMonths <= 0) return 0;
+        YearMonth horizon = horizon();
+        int dropped = 0;
+        for (String partition : partitions) {
+            if (MAX_PARTITION.equals(partition) || !monthOf(partition).isBefore(horizon)) continue;
+            if (dropExpired(partition)) {
+                partitionsDropped.increment();
+                dropped++;
+                log.info("Dropped expired partition {}", partition);
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Bỏ một partition hết hạn mà không làm sai số dư lũy kế.
+     * <p>
+     * Tổng theo tài khoản được tính NGOÀI khóa bảng ({@link #fold}, một câu lệnh GROUP BY nên đọc trên một snapshot nhất
+     * quán), rồi trên MỘT kết nối giữ {@code LOCK TABLES ... WRITE}: đếm lại số vế của partition và chỉ tiếp tục nếu vẫn
+     * bằng số vế đã tính (khi không bật kho lưu trữ, lịch sử chỉ được thêm; một vế có {@code time} cũ ghi muộn làm số vế
+     * khác đi và lần này bị bỏ qua, lần sau tính lại). Dấu {@code history_partition_purge} (kèm số vế) và tổng được
+     * commit trước lệnh DROP; nếu tiến trình dừng giữa hai bước, lần sau chỉ DROP khi partition vẫn còn đúng số vế đó.
+     * Khóa bảng chỉ được giữ trong lúc ghi tổng và DROP, không trong lúc quét partition.
+     *
+     * @return {@code true} nếu partition đã bị bỏ.
+     */
+    private boolean dropExpired(String partition) {
+        Fold fold = fold(partition);
+        if (Objects.isNull(fold)) return false;
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            JdbcTemplate locked = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                locked.execute(LOCK_TABLES_SQL);
+                try {
+                    long rows = Objects.requireNonNullElse(
+                            locked.queryForObject(PARTITION_ROWS_SQL.formatted(partition), Long.class), 0L);
+                    if (rows != fold.rows()) {
+                        log.info("Partition {} changed while its totals were computed ({} -> {} rows), retrying on the next run",
+                                partition, fold.rows(), rows);
+                        connection.rollback();
+                        return false;
+                    }
+                    if (fold.writeMarker()) {
+                        LocalDateTime now = LocalDateTime.now();
+                        locked.update(INSERT_PURGE_SQL, partition, now, rows);
+                        locked.batchUpdate(ADD_PARTITION_TOTALS_SQL, fold.totals(), 1000, (ps, total) -> {
+                            ps.setString(1, total.accountHash());
+                            ps.setLong(2, total.inDebt());
+                            ps.setLong(3, total.have());
+                            ps.setLong(4, total.postings());
+                            ps.setObject(5, now);
+                        });
+                    }
+                    connection.commit();
+                    locked.execute(DROP_PARTITION_SQL.formatted(partition));
+                    return true;
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    locked.execute(UNLOCK_TABLES_SQL);
+                }
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }));
+    }
+
+    /**
+     * Tổng theo tài khoản của một partition cần cộng dồn trước khi DROP.
+     *
+     * @param rows        Số vế partition phải còn đúng khi giữ khóa bảng.
+     * @param writeMarker {@code false} nếu partition đã có dấu (đã cộng dồn) hoặc rỗng: chỉ còn DROP.
+     */
+    private record Fold(long rows, List<AccountTotal> totals, boolean writeMarker) {
+    }
+
+    private record AccountTotal(String accountHash, long inDebt, long have, long postings) {
+    }
+
+    /**
+     * Chuẩn bị DROP một partition, không giữ khóa bảng.
+     *
+     * @return Phần cần cộng dồn, hoặc {@code null} nếu partition chưa thể DROP.
+     */
+    private Fold fold(String partition) {
+        long rows = Objects.requireNonNullElse(
+                jdbcTemplate.queryForObject(PARTITION_ROWS_SQL.formatted(partition), Long.class), 0L);
+        List<Long> marked = jdbcTemplate.queryForList(PURGE_MARKER_SQL, Long.class, partition);
+        if (!marked.isEmpty()) {
+            Long summed = marked.get(0);
+            if (Objects.isNull(summed)) return new Fold(rows, List.of(), false);
+            if (summed == rows) return new Fold(summed, List.of(), false);
+            log.error("Partition {} has {} rows but {} were folded into {}: resolve before it can be dropped",
+                    partition, rows, summed, AccountArchiveTotal.TABLE_NAME);
+            return null;
+        }
+        if (rows == 0) return new Fold(0, List.of(), false);
+        if (archiveStore.isEnabled()) {
+            log.info("Partition {} still has rows, waiting for the archive job", partition);
+            return null;
+        }
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(PARTITION_HAS_UNINDEXED_SQL.formatted(partition), Boolean.class))) {
+            log.warn("Partition {} has rows without account_hash, run the blind index backfill first", partition);
+            return null;
+        }
+        List<AccountTotal> totals = jdbcTemplate.query(PARTITION_TOTALS_SQL.formatted(partition), (rs, rowNum) ->
+                new AccountTotal(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)));
+        long folded = totals.stream().mapToLong(AccountTotal::postings).sum();
+        return new Fold(folded, totals, true);
+    }
+
+    private YearMonth lastMonth() {
+        return YearMonth.now().plusMonths(monthsAhead);
+    }
+
+    private YearMonth horizon() {
+        return YearMonth.now().minusMonths(retentionMonths);
+    }
+
+    private static String definition(YearMonth month) {
+        return "PARTITION " + PARTITION_NAME.format(month) + " VALUES LESS THAN ('"
+                + PARTITION_BOUND.format(month.plusMonths(1).atDay(1).atStartOfDay()) + "')";
+    }
+
+    private static YearMonth monthOf(String partition) {
+        return YearMonth.parse(partition, PARTITION_NAME);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.user.service.impl;
+
+import com.example.user.repository.OutboxEvent;
+import com.example.user.service.IOutboxSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sink đưa sự kiện vào một hàng đợi có giới hạn trong tiến trình (dùng cho test và consumer nội bộ).
+ * <p>
+ * Khi hàng đợi không đủ chỗ cho cả lô, {@link #publish} ném ngoại lệ và relay thử lại sau (Backpressure),
+ * thay vì nhận một phần lô.
+ */
+@Component
+public class InMemoryOutboxSink implements IOutboxSink {
+    private final BlockingQueue<OutboxEvent> queue;
+
+    public InMemoryOutboxSink(@Value("${app.outbox.memory.capacity:100000}") int capacity) {
+        this.queue = new LinkedBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public String name() {
+        return "memory";
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) {
+        if (queue.remainingCapacity() < events.size()) {
+            throw new IllegalStateException("In-memory outbox queue is full");
+        }
+        queue.addAll(events);
+    }
+
+    /**
+     * Lấy sự kiện kế tiếp, chờ tối đa {@code timeout}.
+     *
+     * @return Sự kiện, hoặc {@code null} nếu hết thời gian chờ.
+     */
+    public OutboxEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    /**
+     * Lấy ra tối đa {@code limit} sự kiện đang có, không chờ.
+     */
+    public int drainTo(List<OutboxEvent> target, int limit) {
+        return queue.drainTo(target, limit);
+    }
+
+    public int size() {
+        return queue.size();
+    }
+}
@@ -0,0 +1,423 @@
+package com.example.user.service.impl;
+
+import com.example.user.entity.AccountArchiveTotal;
+import com.example.user.entity.TransactionHistory;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.utils.LongColumnHashMap;
+import com.example.user.utils.Money;
+import com.example.user.utils.TailWatermark;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
+import java.util.zip.CRC32;
+
+/**
+ * Ledger Engine trong bộ nhớ (tùy chọn, {@code app.ledger.enabled=true}): giữ số dư của MỌI tài khoản trong RAM
+ * để đọc số dư với độ trễ dưới micro-giây.
+ * <p>
+ * <b>Kiến trúc (kiểu LMAX):</b>
+ * <ul>
+ * <li>MỘT luồng duy nhất đọc phần đuôi của {@code transaction_history} (vế của MỌI instance) và áp dụng sự kiện
+ * (Event Sourcing) vào {@link LongColumnHashMap}: khóa là 64 bit đầu của {@code account_hash}, giá trị là tổng Nợ,
+ * tổng Có (đơn vị nhỏ nhất, 2 chữ số thập phân) và số vế - không có đối tượng Boxing.</li>
+ * <li>Luồng đọc dùng {@link StampedLock#tryOptimisticRead()}: không khóa, không ghi bộ nhớ dùng chung.</li>
+ * <li>Định kỳ, chính luồng áp dụng ghi Snapshot trạng thái ra file Memory-mapped (kèm CRC32) rồi đổi tên nguyên tử.</li>
+ * </ul>
+ * <b>Áp dụng đúng một lần:</b> ID được cấp trước khi commit nên không thể đọc tiếp theo {@code id}. Phần đuôi được đọc
+ * theo ({@code recorded_at}, {@code id}) từ {@code watermark - app.ledger.tail-overlap-ms}, và các ID đã áp dụng trong
+ * khoảng chồng lấn được nhớ (cả trong Snapshot) để bỏ qua khi quét lại, xem {@link TailWatermark}. Ghi trên instance này
+ * chỉ đánh thức luồng áp dụng sau khi commit ({@link #notifyCommitted()}); nguồn dữ liệu duy nhất là DB.
+ * <p>
+ * <b>Khôi phục:</b> Khi khởi động, nạp Snapshot (số dư + các ID trong khoảng chồng lấn) rồi đọc phần đuôi kể từ mốc của
+ * Snapshot, thay vì quét lại toàn bộ bảng.
+ * <p>
+ * <b>Độ tươi:</b> số dư phản ánh DB tại lần đọc phần đuôi gần nhất. {@link #balanceOf(String)} chỉ trả kết quả khi lần đọc
+ * đó thành công trong vòng {@code app.ledger.max-staleness-ms}; quá hạn (DB lỗi, luồng áp dụng bị chặn) thì người gọi
+ * đọc {@code account_balance}.
+ */
+@Slf4j
+@Component
+public class LedgerEngine {
+    private static final int MAGIC = 0x4C444731; // "LDG1"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = Integer.BYTES * 4;
+    private static final int IN_DEBT = 0;
+    private static final int HAVE = 1;
+    private static final int POSTINGS = 2;
+    private static final int COLUMNS = 3;
+    private static final int TAIL_PAGE_SIZE = 10_000;
+    private static final String TAIL_SQL = "SELECT id, account_hash, in_debt, have, recorded_at FROM "
+            + TransactionHistory.TABLE_NAME + " WHERE recorded_at >= ? AND (recorded_at > ? OR id > ?)"
+            + " AND account_hash IS NOT NULL ORDER BY recorded_at, id LIMIT ?";
+    private static final String ARCHIVE_TOTALS_SQL = "SELECT account_hash, total_in_debt, total_have, posting_count FROM "
+            + AccountArchiveTotal.TABLE_NAME;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AccountBlindIndex accountBlindIndex;
+    private final boolean enabled;
+    private final Path snapshotPath;
+    private final long snapshotIntervalMillis;
+    private final long pollIntervalNanos;
+    private final long maxStalenessNanos;
+    private final StampedLock lock = new StampedLock();
+    private final LongColumnHashMap balances = new LongColumnHashMap(COLUMNS, 1 << 16);
+    private final TailWatermark tail;
+    private final Counter applied;
+    private final Counter failures;
+    private final Timer snapshotTimer;
+
+    private boolean dirty;
+    private Thread applier;
+    private volatile boolean running;
+    private volatile boolean ready;
+    private volatile long caughtUpAt;
+
+    public LedgerEngine(JdbcTemplate jdbcTemplate,
+                        AccountBlindIndex accountBlindIndex,
+                        ShardedTransactionHistoryRepository historyShards,
+                        MeterRegistry meterRegistry,
+                        @Value("${app.ledger.enabled:false}") boolean enabled,
+                        @Value("${app.ledger.snapshot-path:./data/ledger.snapshot}") String snapshotPath,
+                        @Value("${app.ledger.snapshot-interval-ms:60000}") long snapshotIntervalMillis,
+                        @Value("${app.ledger.poll-interval-ms:200}") long pollIntervalMillis,
+                        @Value("${app.ledger.tail-overlap-ms:10000}") long tailOverlapMillis,
+                        @Value("${app.ledger.max-staleness-ms:5000}") long maxStalenessMillis) {
+        if (enabled && historyShards.isSharded()) {
+            // Phần đuôi được đọc từ DB chính, không thấy các vế nằm trên shard phụ
+            throw new IllegalStateException("app.ledger.enabled is not supported while transaction history is sharded");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.accountBlindIndex = accountBlindIndex;
+        this.enabled = enabled;
+        this.snapshotPath = Path.of(snapshotPath).toAbsolutePath();
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+        this.pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(pollIntervalMillis);
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis);
+        this.tail = new TailWatermark(tailOverlapMillis);
+        this.applied = Counter.builder("ledger.events.applied").register(meterRegistry);
+        this.failures = Counter.builder("ledger.tail.failures")
+                .description("Failed reads of the transaction_history tail")
+                .register(meterRegistry);
+        this.snapshotTimer = Timer.builder("ledger.snapshot.duration").register(meterRegistry);
+        Gauge.builder("ledger.accounts", balances, LongColumnHashMap::size).register(meterRegistry);
+        Gauge.builder("ledger.tail.tracked", tail, TailWatermark::tracked).register(meterRegistry);
+    }
+
+    /**
+     * Một vế đọc từ phần đuôi. Số tiền tính theo đơn vị nhỏ nhất ({@link Money}).
+     */
+    private record TailRow(long id, String accountHash, long inDebtMinor, long haveMinor, LocalDateTime recordedAt) {
+    }
+
+    /**
+     * Số dư trong bộ nhớ của một tài khoản (đơn vị nhỏ nhất).
+     */
+    public record Balance(long inDebtMinor, long haveMinor, long postings) {
+        public Money totalInDebt() {
+            return Money.ofMinor(inDebtMinor);
+        }
+
+        public Money totalHave() {
+            return Money.ofMinor(haveMinor);
+        }
+
+        public Money balance() {
+            return Money.ofMinor(Money.subtract(haveMinor, inDebtMinor));
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Đánh thức luồng áp dụng để đọc phần đuôi ngay (trong transaction thì sau khi commit), thay vì chờ tới chu kỳ
+     * {@code app.ledger.poll-interval-ms}. Không bao giờ chặn luồng gọi.
+     */
+    public void notifyCommitted() {
+        if (!enabled) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+
+    /**
+     * Đọc số dư trong bộ nhớ.
+     *
+     * @return Số dư, hoặc rỗng nếu engine chưa sẵn sàng (đang khôi phục / bị tắt), lần đọc phần đuôi gần nhất đã quá
+     * {@code app.ledger.max-staleness-ms}, hoặc tài khoản chưa có vế nào.
+     */
+    public Optional<Balance> balanceOf(String account) {
+        if (!ready || System.nanoTime() - caughtUpAt > maxStalenessNanos) return Optional.empty();
+        long key = keyOf(accountBlindIndex.of(account));
+        long[] values = new long[COLUMNS];
+        long stamp = lock.tryOptimisticRead();
+        boolean found = balances.get(key, values);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = balances.get(key, values);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return found ? Optional.of(new Balance(values[IN_DEBT], values[HAVE], values[POSTINGS])) : Optional.empty();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        applier = new Thread(this::run, "ledger-applier");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (Objects.isNull(applier)) return;
+        running = false;
+        LockSupport.unpark(applier);
+        try {
+            applier.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void wakeUp() {
+        Thread thread = applier;
+        if (Objects.nonNull(thread)) LockSupport.unpark(thread);
+    }
+
+    /**
+     * Vòng lặp của luồng áp dụng duy nhất: khôi phục, đọc phần đuôi định kỳ (hoặc khi được đánh thức), Snapshot định kỳ.
+     */
+    private void run() {
+        try {
+            long started = System.nanoTime();
+            if (!loadSnapshot()) {
+                loadArchiveTotals();
+            }
+            catchUp();
+            ready = true;
+            log.info("Ledger engine ready: {} accounts, watermark={} in {} ms",
+                    balances.size(), tail.watermark(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (IOException | RuntimeException e) {
+            log.error("Ledger engine recovery failed, in-memory balances are disabled", e);
+            return;
+        }
+
+        long lastSnapshot = System.currentTimeMillis();
+        while (running) {
+            LockSupport.parkNanos(this, pollIntervalNanos);
+            try {
+                catchUp();
+            } catch (RuntimeException e) {
+                // Số dư không còn được phục vụ khi quá max-staleness, lần đọc sau tiếp tục từ cùng mốc
+                failures.increment();
+                log.warn("Ledger engine failed to read the transaction_history tail", e);
+            }
+            if (dirty && System.currentTimeMillis() - lastSnapshot >= snapshotIntervalMillis) {
+                writeSnapshotQuietly();
+                lastSnapshot = System.currentTimeMillis();
+            }
+        }
+        if (dirty) writeSnapshotQuietly();
+    }
+
+    /**
+     * Đọc phần đuôi của {@code transaction_history} theo Keyset ({@code recorded_at}, {@code id}), bắt đầu từ mốc quét lại
+     * của {@link TailWatermark}; dòng đã áp dụng bị bỏ qua.
+     */
+    private void catchUp() {
+        LocalDateTime cursorTime = tail.scanFrom();
+        long cursorId = Long.MIN_VALUE;
+        long replayed = 0;
+        List<TailRow> page;
+        do {
+            page = jdbcTemplate.query(TAIL_SQL, (rs, rowNum) -> new TailRow(rs.getLong(1), rs.getString(2),
+                    rs.getLong(3), rs.getLong(4), rs.getObject(5, LocalDateTime.class)),
+                    cursorTime, cursorTime, cursorId, TAIL_PAGE_SIZE);
+            if (page.isEmpty()) break;
+            replayed += applyAll(page);
+            TailRow last = page.get(page.size() - 1);
+            cursorTime = last.recordedAt();
+            cursorId = last.id();
+            // Con trỏ chỉ tiến nên ID ra khỏi khoảng chồng lấn không gặp lại, kể cả khi dựng lại từ đầu cả bảng
+            tail.evict();
+        } while (page.size() == TAIL_PAGE_SIZE);
+        caughtUpAt = System.nanoTime();
+        if (replayed > 0) {
+            log.debug("Ledger engine applied {} rows from the transaction_history tail", replayed);
+        }
+    }
+
+    private int applyAll(List<TailRow> rows) {
+        int count = 0;
+        long stamp = lock.writeLock();
+        try {
+            for (TailRow row : rows) {
+                if (apply(row)) count++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return count;
+    }
+
+    /**
+     * Áp dụng một vế đúng một lần (bỏ qua nếu ID đã được áp dụng trong khoảng chồng lấn). Chỉ gọi từ luồng áp dụng.
+     */
+    private boolean apply(TailRow row) {
+        if (!tail.accept(row.id(), row.recordedAt())) return false;
+        long key = keyOf(row.accountHash());
+        balances.add(key, IN_DEBT, row.inDebtMinor());
+        balances.add(key, HAVE, row.haveMinor());
+        balances.add(key, POSTINGS, 1);
+        dirty = true;
+        applied.increment();
+        return true;
+    }
+
+    /**
+     * Bố cục file: [magic, version, entryCount, trackedCount] [key, inDebt, have, postings]* [id, recordedMicros]* [crc32].
+     */
+    private void writeSnapshot() throws IOException {
+        long started = System.nanoTime();
+        Files.createDirectories(snapshotPath.getParent());
+        Path temporary = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        long size = HEADER_BYTES + (long) balances.size() * (COLUMNS + 1) * Long.BYTES
+                + (long) tail.tracked() * 2 * Long.BYTES + Long.BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Ledger snapshot exceeds 2 GB, increase partitioning before enabling snapshots");
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(balances.size()).putInt(tail.tracked());
+            balances.forEach((key, values, offset) -> {
+                buffer.putLong(key);
+                for (int column = 0; column < COLUMNS; column++) {
+                    buffer.putLong(values[offset + column]);
+                }
+            });
+            tail.forEach((id, recordedMicros) -> buffer.putLong(id).putLong(recordedMicros));
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, (int) size - Long.BYTES));
+            buffer.putLong(crc.getValue());
+            buffer.force();
+        }
+        Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+        snapshotTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    private void writeSnapshotQuietly() {
+        try {
+            writeSnapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write ledger snapshot to {}", snapshotPath, e);
+        }
+    }
+
+    /**
+     * @return {@code false} nếu không có Snapshot hợp lệ (trạng thái được dựng lại từ đầu).
+     */
+    private boolean loadSnapshot() throws IOException {
+        if (!Files.isRegularFile(snapshotPath)) {
+            log.info("No ledger snapshot at {}, rebuilding from transaction_history", snapshotPath);
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + Long.BYTES || size > Integer.MAX_VALUE) {
+                log.warn("Ledger snapshot {} has an invalid size, rebuilding from transaction_history", snapshotPath);
+                return false;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, (int) size - Long.BYTES));
+            if (buffer.getInt() != MAGIC || buffer.getLong((int) size - Long.BYTES) != crc.getValue()) {
+                log.warn("Ledger snapshot {} is corrupted, rebuilding from transaction_history", snapshotPath);
+                return false;
+            }
+            if (buffer.getInt() != VERSION) {
+                // Snapshot cũ (theo id) không có mốc recorded_at để đọc tiếp
+                log.warn("Ledger snapshot {} has an older format, rebuilding from transaction_history", snapshotPath);
+                return false;
+            }
+            int entries = buffer.getInt();
+            int tracked = buffer.getInt();
+            for (int i = 0; i < entries; i++) {
+                long key = buffer.getLong();
+                balances.put(key, IN_DEBT, buffer.getLong());
+                balances.put(key, HAVE, buffer.getLong());
+                balances.put(key, POSTINGS, buffer.getLong());
+            }
+            for (int i = 0; i < tracked; i++) {
+                tail.accept(buffer.getLong(), buffer.getLong());
+            }
+            log.info("Loaded ledger snapshot: {} accounts, watermark={}", entries, tail.watermark());
+            return true;
+        }
+    }
+
+    /**
+     * Khi dựng lại từ đầu, các vế đã chuyển sang kho lưu trữ không còn trong {@code transaction_history}:
+     * nạp tổng của chúng ({@code account_archive_total}) trước khi đọc lại bảng.
+     */
+    private void loadArchiveTotals() {
+        long stamp = lock.writeLock();
+        try {
+            jdbcTemplate.query(ARCHIVE_TOTALS_SQL, rs -> {
+                long key = keyOf(rs.getString(1));
+                balances.add(key, IN_DEBT, rs.getLong(2));
+                balances.add(key, HAVE, rs.getLong(3));
+                balances.add(key, POSTINGS, rs.getLong(4));
+            });
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 64 bit đầu của Blind Index (HMAC-SHA256) làm khóa nguyên thủy.
+     */
+    private static long keyOf(String accountHash) {
+        return HexFormat.fromHexDigitsToLong(accountHash, 0, 16);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.user.service.impl;
+
+import com.example.user.entity.AccountBalance;
+import com.example.user.entity.AccountDailyRollup;
+import com.example.user.entity.ReconciliationIssue;
+import com.example.user.entity.TransactionHistory;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Từ chối khởi động khi DB đã có sẵn vẫn lưu số tiền dạng {@code DECIMAL}.
+ * <p>
+ * Số tiền được đọc/ghi dạng {@code BIGINT} đơn vị nhỏ nhất ({@link com.example.user.utils.Money}), nhưng
+ * {@code ddl-auto=update} không đổi kiểu của cột đã tồn tại: cột {@code DECIMAL} cũ vẫn giữ giá trị theo đơn vị tiền
+ * (100.50) và ứng dụng sẽ hiểu nhầm thành 1.00 (100 đơn vị nhỏ nhất), đồng thời ghi giá trị mới lệch 100 lần cạnh
+ * giá trị cũ. Việc chuyển đổi (nhân 100 rồi đổi kiểu) không thể làm trong MỘT lệnh và chạy lại nửa chừng sẽ nhân hai
+ * lần, nên được để cho bước Migration có kiểm soát khi ứng dụng đã dừng; thông báo lỗi liệt kê các lệnh cần chạy.
+ * <p>
+ * Chạy khi khởi tạo Bean, trước khi ứng dụng nhận request; chỉ áp dụng cho MySQL.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MoneyColumnCheck {
+    private static final Map<String, List<String>> MONEY_COLUMNS = Map.of(
+            TransactionHistory.TABLE_NAME, List.of("in_debt", "have"),
+            AccountBalance.TABLE_NAME, List.of("total_in_debt", "total_have"),
+            AccountDailyRollup.TABLE_NAME, List.of("total_in_debt", "total_have"),
+            ReconciliationIssue.TABLE_NAME, List.of("total_in_debt", "total_have"));
+    private static final String COLUMN_TYPE_SQL = "SELECT DATA_TYPE FROM information_schema.COLUMNS"
+            + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+    private static final String DECIMAL_TYPE = "decimal";
+    private static final String MIGRATION_SQL = "UPDATE %1$s SET %2$s = %2$s * 100; ALTER TABLE %1$s MODIFY %2$s BIGINT NOT NULL;";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void check() {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equalsIgnoreCase(product)) return;
+        List<String> migrations = new ArrayList<>();
+        MONEY_COLUMNS.forEach((table, columns) -> {
+            for (String column : columns) {
+                List<String> types = jdbcTemplate.queryForList(COLUMN_TYPE_SQL, String.class, table, column);
+                if (!types.isEmpty() && DECIMAL_TYPE.equalsIgnoreCase(types.get(0))) {
+                    migrations.add(MIGRATION_SQL.formatted(table, column));
+                }
+            }
+        });
+        if (migrations.isEmpty()) return;
+        migrations.forEach(migration -> log.error("Amount column still DECIMAL, migrate with: {}", migration));
+        throw new IllegalStateException(migrations.size() + " amount columns are still DECIMAL but are read as BIGINT"
+                + " minor units: stop every instance and run, once per column, " + String.join(" ", migrations));
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.user.service.impl;
+
+import com.example.user.repository.OutboxEvent;
+import com.example.user.repository.TransactionOutboxRepository;
+import com.example.user.service.IOutboxSink;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Transactional Outbox: ghi sự kiện "vế hạch toán mới" cùng transaction với lịch sử, rồi phát hành theo lô
+ * (tùy chọn, {@code app.outbox.enabled=true}).
+ * <p>
+ * <b>Ghi:</b> {@link #write} được gọi bên trong transaction ghi {@code transaction_history} (cả {@code createTransaction}
+ * lẫn {@link TransactionBatchWriter}), nên sự kiện tồn tại khi và chỉ khi vế hạch toán đã commit.
+ * <p>
+ * <b>Phát hành:</b> MỘT luồng relay mỗi instance lặp lại, mỗi vòng trong một transaction:
+ * <ol>
+ * <li>Khóa tối đa {@code app.outbox.batch-size} dòng có ID nhỏ nhất chưa bị khóa ({@code FOR UPDATE SKIP LOCKED}:
+ * relay của nhiều instance chạy song song nhận các lô rời nhau).</li>
+ * <li>Gửi cả lô tới {@link IOutboxSink} được chọn bởi {@code app.outbox.sink}.</li>
+ * <li>Xóa cả lô bằng một lệnh {@code DELETE ... IN (...)} rồi commit.</li>
+ * </ol>
+ * Đảm bảo At-least-once: nếu sink lỗi hoặc tiến trình dừng sau bước 2, transaction rollback và lô được phát lại;
+ * bên nhận chống trùng theo {@code id}.
+ * Khi lô đầy, relay đọc tiếp ngay; khi không còn dòng, chờ {@code app.outbox.poll-interval-ms}.
+ * <p>
+ * <b>Thứ tự:</b> KHÔNG đảm bảo giữa các lô. Nhiều relay phát các lô rời nhau đồng thời, lô phát lại tới sau các lô mới
+ * hơn, và ID được cấp trước khi commit nên dòng ID nhỏ có thể commit (và được phát) muộn. Bên nhận phải coi mỗi sự kiện
+ * là độc lập: chống trùng theo {@code id}, không suy ra thứ tự từ {@code id} hay thứ tự nhận. Các vế của cùng một giao
+ * dịch commit cùng nhau nhưng có thể nằm ở hai lô kề nhau.
+ * <p>
+ * <b>Đo lường:</b> {@code outbox.publish.latency} (từ lúc ghi Outbox tới lúc phát hành, cho từng sự kiện),
+ * {@code outbox.lag} (tuổi của sự kiện cũ nhất ở lần đọc gần nhất), {@code outbox.batch.size}, {@code outbox.sink.duration}.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+    private static final long MAX_FAILURE_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final TransactionOutboxRepository outboxRepository;
+    private final IOutboxSink sink;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final Counter published;
+    private final Counter failures;
+    private final DistributionSummary batchSizes;
+    private final Timer publishLatency;
+    private final Timer sinkDuration;
+
+    private volatile long lagMillis;
+    private volatile boolean running;
+    private Thread relay;
+
+    public OutboxRelay(TransactionOutboxRepository outboxRepository,
+                       List<IOutboxSink> sinks,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.outbox.enabled:false}") boolean enabled,
+                       @Value("${app.outbox.sink:file}") String sinkName,
+                       @Value("${app.outbox.batch-size:1000}") int batchSize,
+                       @Value("${app.outbox.poll-interval-ms:200}") long pollIntervalMillis) {
+        this.outboxRepository = outboxRepository;
+        this.sink = sinks.stream()
+                .filter(candidate -> candidate.name().equals(sinkName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown outbox sink: " + sinkName));
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.published = Counter.builder("outbox.events.published").register(meterRegistry);
+        this.failures = Counter.builder("outbox.publish.failures").register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("outbox.batch.size").register(meterRegistry);
+        this.publishLatency = Timer.builder("outbox.publish.latency")
+                .description("Time from the outbox write to publication, per event")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.sinkDuration = Timer.builder("outbox.sink.duration").register(meterRegistry);
+        TimeGauge.builder("outbox.lag", this, TimeUnit.MILLISECONDS, relay -> relay.lagMillis)
+                .description("Age of the oldest pending event at the last poll")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ghi sự kiện vào Outbox. Phải được gọi trong transaction ghi các vế hạch toán tương ứng.
+     */
+    public void write(Collection<OutboxEvent> events) {
+        if (!enabled || events.isEmpty()) return;
+        outboxRepository.insertAll(events);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        relay = new Thread(this::run, "outbox-relay");
+        relay.setDaemon(true);
+        relay.start();
+        log.info("Outbox relay started: sink={}, batchSize={}", sink.name(), batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (Objects.isNull(relay)) return;
+        running = false;
+        LockSupport.unpark(relay);
+        try {
+            relay.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long failureBackoffMillis = pollIntervalMillis;
+        while (running) {
+            int relayed;
+            try {
+                relayed = relayBatch();
+                failureBackoffMillis = pollIntervalMillis;
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.warn("Outbox publication failed, retrying in {} ms", failureBackoffMillis, e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(failureBackoffMillis));
+                failureBackoffMillis = Math.min(failureBackoffMillis << 1, MAX_FAILURE_BACKOFF_MILLIS);
+                continue;
+            }
+            if (relayed < batchSize) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pollIntervalMillis));
+            }
+        }
+    }
+
+    /**
+     * Khóa - phát hành - xóa một lô trong MỘT transaction.
+     *
+     * @return Số sự kiện đã phát hành.
+     */
+    private int relayBatch() {
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> {
+            List<OutboxEvent> locked = outboxRepository.lockBatch(batchSize);
+            if (locked.isEmpty()) return locked;
+            long started = System.nanoTime();
+            try {
+                sink.publish(locked);
+            } catch (Exception e) {
+                throw new IllegalStateException("Outbox sink '" + sink.name() + "' failed", e);
+            }
+            sinkDuration.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            outboxRepository.deleteAll(locked);
+            return locked;
+        });
+        if (Objects.isNull(batch) || batch.isEmpty()) {
+            lagMillis = 0;
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime oldest = now;
+        for (OutboxEvent event : batch) {
+            publishLatency.record(Duration.between(event.createdAt(), now));
+            if (event.createdAt().isBefore(oldest)) oldest = event.createdAt();
+        }
+        lagMillis = Duration.between(oldest, now).toMillis();
+        batchSizes.record(batch.size());
+        published.increment(batch.size());
+        return batch.size();
+    }
+}
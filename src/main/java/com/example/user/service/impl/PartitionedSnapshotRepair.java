@@ -0,0 +1,236 @@
+package com.example.user.service.impl;
+
+import com.example.user.exception.ConflictException;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Đối soát và sửa lệch một bảng dẫn xuất (số dư, tổng hợp theo ngày) so với {@code transaction_history}.
+ * <p>
+ * Không gian {@code account_hash} (HEX) được chia thành 16 phân vùng theo ký tự đầu, mỗi phân vùng được xử lý song song:
+ * <ol>
+ * <li>Trong MỘT transaction {@code REPEATABLE_READ} (cùng một snapshot): đọc giá trị mong đợi (từ lịch sử) và giá trị
+ * hiện có của bảng dẫn xuất ({@link Target}). Snapshot được mở qua {@link AccountBalanceSequencer#quiesced(Runnable)}
+ * để không chứa vế nào đã commit lịch sử mà chưa được cộng vào bảng dẫn xuất.</li>
+ * <li>Sửa từng dòng thiếu/lệch/mồ côi bằng lệnh có điều kiện trên giá trị đã đọc (Compare-And-Set). Nếu khóa vừa có
+ * giao dịch mới sau snapshot, điều kiện không khớp và dòng đó được bỏ qua thay vì ghi đè bằng số liệu cũ.</li>
+ * </ol>
+ * Mỗi instance chỉ cho phép một lần chạy tại một thời điểm.
+ */
+final class PartitionedSnapshotRepair {
+    private static final String HISTORY_SHARDED = "Not supported while transaction history is sharded";
+    private static final String HEX_DIGITS = "0123456789abcdef";
+
+    private final String jobName;
+    private final String alreadyRunning;
+    /** Câu lệnh đầu tiên của transaction snapshot: MySQL chốt read view tại lần đọc nhất quán đầu tiên. */
+    private final String openSnapshotSql;
+    private final JdbcTemplate jdbcTemplate;
+    private final AccountBalanceSequencer balanceSequencer;
+    private final ShardedTransactionHistoryRepository historyShards;
+    private final TransactionTemplate snapshotTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final int parallelism;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * @param jobName        Tên job (tên luồng và thông báo lỗi).
+     * @param table          Bảng dẫn xuất được sửa (dùng để mở snapshot).
+     * @param alreadyRunning Thông báo khi một lần chạy khác chưa xong.
+     */
+    PartitionedSnapshotRepair(String jobName,
+                              String table,
+                              String alreadyRunning,
+                              JdbcTemplate jdbcTemplate,
+                              AccountBalanceSequencer balanceSequencer,
+                              ShardedTransactionHistoryRepository historyShards,
+                              PlatformTransactionManager transactionManager,
+                              int parallelism) {
+        this.jobName = jobName;
+        this.alreadyRunning = alreadyRunning;
+        this.openSnapshotSql = "SELECT 1 FROM " + table + " LIMIT 1";
+        this.jdbcTemplate = jdbcTemplate;
+        this.balanceSequencer = balanceSequencer;
+        this.historyShards = historyShards;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Các câu lệnh đọc/sửa của một bảng dẫn xuất trong phân vùng {@code account_hash ∈ [lower, upper)}.
+     *
+     * @param <K> Khóa của một dòng (bắt đầu bằng {@code account_hash}).
+     * @param <V> Giá trị của dòng, so sánh bằng {@code equals}.
+     */
+    interface Target<K, V> {
+        /**
+         * Giá trị mong đợi tính từ lịch sử (gọi trong transaction snapshot).
+         */
+        void readExpected(String lower, String upper, Map<K, V> expected);
+
+        /**
+         * Giá trị hiện có của bảng dẫn xuất (gọi trong cùng transaction snapshot).
+         */
+        void readActual(String lower, String upper, Map<K, V> actual);
+
+        /**
+         * Thêm dòng còn thiếu.
+         *
+         * @throws DuplicateKeyException Nếu dòng vừa được tạo bởi một giao dịch mới sau snapshot.
+         */
+        void insert(K key, V target, LocalDateTime now);
+
+        /**
+         * Sửa dòng lệch về {@code target} nếu dòng vẫn bằng {@code current}.
+         *
+         * @return Số dòng đã sửa.
+         */
+        int update(K key, V current, V target, LocalDateTime now);
+
+        /**
+         * Xóa dòng mồ côi nếu dòng vẫn bằng {@code current}.
+         *
+         * @return Số dòng đã xóa.
+         */
+        int delete(K key, V current);
+    }
+
+    /**
+     * Kết quả của một lần chạy, cộng dồn trên mọi phân vùng.
+     */
+    record Result(int partitions, long checked, long missing, long drifted, long orphaned, long repaired, long skipped,
+                  long elapsedMillis) {
+    }
+
+    /**
+     * @throws ConflictException Nếu một lần chạy khác đang diễn ra, hoặc {@code transaction_history} đang được phân mảnh
+     *                           (không có snapshot nhất quán chung giữa các shard).
+     */
+    <K, V> Result run(Target<K, V> target) {
+        if (historyShards.isSharded()) {
+            throw new ConflictException(HISTORY_SHARDED);
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new ConflictException(alreadyRunning);
+        }
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, jobName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Stats>> futures = new ArrayList<>(HEX_DIGITS.length());
+            for (int i = 0; i < HEX_DIGITS.length(); i++) {
+                String lower = String.valueOf(HEX_DIGITS.charAt(i));
+                // 'g' đứng ngay sau 'f' nên [f, g) bao trọn phân vùng cuối
+                String upper = i + 1 < HEX_DIGITS.length() ? String.valueOf(HEX_DIGITS.charAt(i + 1)) : "g";
+                futures.add(pool.submit(() -> repairPartition(target, lower, upper)));
+            }
+            Stats total = new Stats();
+            for (Future<Stats> future : futures) {
+                total.merge(future.get());
+            }
+            return new Result(futures.size(), total.checked, total.missing, total.drifted, total.orphaned,
+                    total.repaired, total.skipped, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(jobName + " interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(jobName + " failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+            running.set(false);
+        }
+    }
+
+    private static final class Stats {
+        private long checked;
+        private long missing;
+        private long drifted;
+        private long orphaned;
+        private long repaired;
+        private long skipped;
+
+        private void merge(Stats other) {
+            checked += other.checked;
+            missing += other.missing;
+            drifted += other.drifted;
+            orphaned += other.orphaned;
+            repaired += other.repaired;
+            skipped += other.skipped;
+        }
+
+        private void record(Boolean repairedRow) {
+            if (Boolean.TRUE.equals(repairedRow)) {
+                repaired++;
+            } else {
+                skipped++;
+            }
+        }
+    }
+
+    private <K, V> Stats repairPartition(Target<K, V> target, String lower, String upper) {
+        Map<K, V> expected = new HashMap<>();
+        Map<K, V> actual = new HashMap<>();
+        snapshotTransaction.executeWithoutResult(status -> {
+            // Mở snapshot khi không còn vế nào đã commit lịch sử mà Sequencer chưa ghi vào số dư/tổng hợp
+            balanceSequencer.quiesced(() -> jdbcTemplate.queryForList(openSnapshotSql, Integer.class));
+            target.readExpected(lower, upper, expected);
+            target.readActual(lower, upper, actual);
+        });
+
+        Stats stats = new Stats();
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<K, V> entry : expected.entrySet()) {
+            stats.checked++;
+            K key = entry.getKey();
+            V current = actual.remove(key);
+            V wanted = entry.getValue();
+            if (Objects.isNull(current)) {
+                stats.missing++;
+                stats.record(insertMissing(target, key, wanted, now));
+            } else if (!current.equals(wanted)) {
+                stats.drifted++;
+                stats.record(writeTransaction.execute(status -> target.update(key, current, wanted, now) == 1));
+            }
+        }
+        for (Map.Entry<K, V> orphan : actual.entrySet()) {
+            stats.checked++;
+            stats.orphaned++;
+            stats.record(writeTransaction.execute(status -> target.delete(orphan.getKey(), orphan.getValue()) == 1));
+        }
+        return stats;
+    }
+
+    private <K, V> boolean insertMissing(Target<K, V> target, K key, V wanted, LocalDateTime now) {
+        try {
+            writeTransaction.executeWithoutResult(status -> target.insert(key, wanted, now));
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Dòng vừa được tạo bởi một giao dịch mới sau snapshot
+            return false;
+        }
+    }
+}
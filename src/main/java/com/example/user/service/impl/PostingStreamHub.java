@@ -0,0 +1,285 @@
+package com.example.user.service.impl;
+
+import com.example.user.dto.response.TransactionResponse;
+import com.example.user.exception.ConflictException;
+import com.example.user.repository.TransactionHistoryBatchRepository;
+import com.example.user.utils.AesUtil;
+import com.example.user.utils.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Phát các vế hạch toán vừa commit tới client qua Server-Sent Events, thay cho việc poll
+ * {@code GET /api/transactions/{transactionId}} (tùy chọn, {@code app.stream.enabled=true}).
+ * <p>
+ * <b>Fan-out trong bộ nhớ:</b> subscriber đăng ký theo một tài khoản (khóa bằng Blind Index) hoặc theo tất cả tài khoản
+ * (luồng nội bộ, qua endpoint admin). {@link #publish} được gọi SAU khi commit (đăng ký {@code afterCommit} nếu đang
+ * trong transaction), nên client không bao giờ thấy vế bị rollback. Khi không có subscriber nào phù hợp, vế bị bỏ qua
+ * ngay mà không giải mã tài khoản hay tạo response.
+ * <p>
+ * <b>Cô lập client chậm:</b> mỗi subscriber có hàng đợi riêng giới hạn {@code app.stream.buffer-size} sự kiện và một
+ * Virtual Thread riêng ghi ra socket. Luồng phát hành chỉ {@code offer} không chặn; nếu hàng đợi đầy, subscriber đó bị
+ * loại (nhận sự kiện {@code evicted} rồi đóng kết nối), các subscriber khác và luồng ghi DB không bị ảnh hưởng.
+ * Luồng phát hành không bao giờ chạm vào {@link SseEmitter} (phương thức {@code send} của nó có khóa và có thể
+ * chặn theo socket).
+ * <p>
+ * Luồng không bền vững: client kết nối lại sẽ không nhận các vế phát sinh trong lúc mất kết nối (dùng Outbox cho
+ * trường hợp cần At-least-once).
+ */
+@Slf4j
+@Component
+public class PostingStreamHub {
+    private static final String EVENT_POSTING = "posting";
+    private static final String EVENT_EVICTED = "evicted";
+    private static final String STREAM_DISABLED = "Posting stream is disabled";
+    private static final String TOO_MANY_SUBSCRIBERS = "Too many posting stream subscribers";
+
+    private final AccountBlindIndex accountBlindIndex;
+    private final SecretKey secretKey;
+    private final boolean enabled;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final long heartbeatMillis;
+    private final int maxSubscribers;
+
+    private final Map<String, Set<Subscriber>> byAccount = new ConcurrentHashMap<>();
+    private final Set<Subscriber> allAccounts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final Counter sent;
+    private final Counter evicted;
+
+    public PostingStreamHub(AccountBlindIndex accountBlindIndex,
+                            SecretKey secretKey,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.stream.enabled:false}") boolean enabled,
+                            @Value("${app.stream.buffer-size:256}") int bufferSize,
+                            @Value("${app.stream.timeout-ms:1800000}") long timeoutMillis,
+                            @Value("${app.stream.heartbeat-ms:15000}") long heartbeatMillis,
+                            @Value("${app.stream.max-subscribers:1000}") int maxSubscribers) {
+        this.accountBlindIndex = accountBlindIndex;
+        this.secretKey = secretKey;
+        this.enabled = enabled;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        this.maxSubscribers = maxSubscribers;
+        this.sent = Counter.builder("stream.events.sent").register(meterRegistry);
+        this.evicted = Counter.builder("stream.subscribers.evicted")
+                .description("Subscribers dropped because their buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("stream.subscribers", subscriberCount, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Đăng ký nhận các vế hạch toán mới của một tài khoản.
+     *
+     * @throws ConflictException Nếu luồng bị tắt hoặc đã đủ {@code app.stream.max-subscribers} subscriber.
+     */
+    public SseEmitter subscribe(String account) {
+        return register(accountBlindIndex.of(account));
+    }
+
+    /**
+     * Đăng ký nhận các vế hạch toán mới của tất cả tài khoản (chỉ dành cho consumer nội bộ).
+     *
+     * @throws ConflictException Nếu luồng bị tắt hoặc đã đủ {@code app.stream.max-subscribers} subscriber.
+     */
+    public SseEmitter subscribeAll() {
+        return register(null);
+    }
+
+    /**
+     * Phát các vế vừa ghi bằng JDBC Batch. Tài khoản chỉ được giải mã cho các vế có subscriber.
+     */
+    public void publish(Collection<TransactionHistoryBatchRepository.Row> rows) {
+        if (!enabled || rows.isEmpty() || subscriberCount.get() == 0) return;
+        List<TransactionHistoryBatchRepository.Row> snapshot = List.copyOf(rows);
+        afterCommit(() -> {
+            for (TransactionHistoryBatchRepository.Row row : snapshot) {
+                Set<Subscriber> subscribers = byAccount.get(row.accountHash());
+                if ((Objects.isNull(subscribers) || subscribers.isEmpty()) && allAccounts.isEmpty()) continue;
+                TransactionResponse response = TransactionResponse.builder()
+                        .transactionId(row.transactionId())
+                        .account(AesUtil.decrypt(row.encryptedAccount(), secretKey))
+                        .inDebt(Money.toBigDecimal(row.inDebt()))
+                        .have(Money.toBigDecimal(row.have()))
+                        .time(row.time())
+                        .build();
+                dispatch(subscribers, response);
+            }
+        });
+    }
+
+    /**
+     * Phát một vế đã có sẵn response (luồng tạo giao dịch đồng bộ).
+     */
+    public void publish(String accountHash, TransactionResponse response) {
+        if (!enabled || subscriberCount.get() == 0) return;
+        afterCommit(() -> dispatch(byAccount.get(accountHash), response));
+    }
+
+    @PreDestroy
+    public void stop() {
+        byAccount.values().forEach(subscribers -> subscribers.forEach(Subscriber::close));
+        allAccounts.forEach(Subscriber::close);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void dispatch(Set<Subscriber> subscribers, TransactionResponse response) {
+        if (Objects.nonNull(subscribers)) {
+            subscribers.forEach(subscriber -> subscriber.offer(response));
+        }
+        allAccounts.forEach(subscriber -> subscriber.offer(response));
+    }
+
+    private SseEmitter register(String accountHash) {
+        if (!enabled) {
+            throw new ConflictException(STREAM_DISABLED);
+        }
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new ConflictException(TOO_MANY_SUBSCRIBERS);
+        }
+        SseEmitter emitter = newEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(subscriberIds.incrementAndGet(), accountHash, emitter);
+        if (Objects.isNull(accountHash)) {
+            allAccounts.add(subscriber);
+        } else {
+            // compute (khóa theo khóa map) để không thêm vào một Set vừa bị unregister gỡ khỏi map
+            byAccount.compute(accountHash, (hash, subscribers) -> {
+                Set<Subscriber> target = Objects.isNull(subscribers) ? ConcurrentHashMap.newKeySet() : subscribers;
+                target.add(subscriber);
+                return target;
+            });
+        }
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        subscriber.start();
+        return emitter;
+    }
+
+    /**
+     * Tạo kết nối SSE cho một subscriber mới (test thay bằng emitter ghi lại sự kiện hoặc giả lập client chậm).
+     */
+    protected SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void unregister(Subscriber subscriber) {
+        if (Objects.isNull(subscriber.accountHash)) {
+            if (allAccounts.remove(subscriber)) subscriberCount.decrementAndGet();
+            return;
+        }
+        byAccount.computeIfPresent(subscriber.accountHash, (hash, subscribers) -> {
+            if (subscribers.remove(subscriber)) subscriberCount.decrementAndGet();
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    /**
+     * Một kết nối SSE: hàng đợi giới hạn + Virtual Thread ghi ra socket. Chỉ luồng gửi được gọi {@link SseEmitter}.
+     */
+    private final class Subscriber {
+        private final long id;
+        private final String accountHash;
+        private final SseEmitter emitter;
+        private final BlockingQueue<TransactionResponse> buffer;
+        private volatile boolean closed;
+        private volatile boolean evictedSlow;
+        private Thread sender;
+
+        private Subscriber(long id, String accountHash, SseEmitter emitter) {
+            this.id = id;
+            this.accountHash = accountHash;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private void start() {
+            sender = Thread.ofVirtual().name("posting-stream-" + id).start(this::run);
+        }
+
+        /**
+         * Không bao giờ chặn: hàng đợi đầy nghĩa là client không theo kịp, subscriber bị loại.
+         */
+        private void offer(TransactionResponse response) {
+            if (closed || buffer.offer(response)) return;
+            evictedSlow = true;
+            evicted.increment();
+            log.warn("Evicting slow posting stream subscriber {} (buffer of {} events is full)", id, bufferSize);
+            close();
+        }
+
+        private void close() {
+            if (closed) return;
+            closed = true;
+            unregister(this);
+            if (Objects.nonNull(sender)) sender.interrupt();
+        }
+
+        private void run() {
+            try {
+                while (!closed) {
+                    TransactionResponse response = buffer.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                    if (Objects.isNull(response)) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                        continue;
+                    }
+                    emitter.send(SseEmitter.event().name(EVENT_POSTING).data(response, MediaType.APPLICATION_JSON));
+                    sent.increment();
+                }
+            } catch (InterruptedException e) {
+                // Bị đóng (client ngắt kết nối, timeout, bị loại hoặc ứng dụng dừng)
+            } catch (IOException | IllegalStateException e) {
+                // Client đã ngắt kết nối
+                close();
+                return;
+            }
+            try {
+                if (evictedSlow) {
+                    emitter.send(SseEmitter.event().name(EVENT_EVICTED).data("slow consumer"));
+                }
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // Kết nối đã đóng
+            }
+        }
+    }
+}
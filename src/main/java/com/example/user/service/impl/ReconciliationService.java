@@ -0,0 +1,343 @@
+package com.example.user.service.impl;
+
+import com.example.user.dto.response.ReconciliationResponse;
+import com.example.user.entity.ReconciliationCheckpoint;
+import com.example.user.entity.ReconciliationIssue;
+import com.example.user.entity.TransactionHistory;
+import com.example.user.exception.ConflictException;
+import com.example.user.repository.IReconciliationCheckpointRepository;
+import com.example.user.repository.IReconciliationIssueRepository;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.service.IReconciliationService;
+import com.example.user.utils.Money;
+import com.example.user.utils.TailWatermark;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class triển khai đối soát kế toán kép trên {@code transaction_history}.
+ * <p>
+ * Thay vì một truy vấn {@code GROUP BY transaction_id} trên toàn bảng (sắp xếp hàng trăm triệu dòng), bảng được đọc theo
+ * thứ tự ghi ({@code recorded_at}, {@code id}) thành các trang Keyset {@code app.reconciliation.chunk-size} dòng
+ * ({@code WHERE (recorded_at, id) > con trỏ ORDER BY recorded_at, id LIMIT ?}), không chia khoảng theo giá trị ID
+ * (ID Snowflake thưa, số khoảng không vừa {@code int}):
+ * <ol>
+ * <li>Mỗi trang được đọc dạng Streaming và cộng dồn Nợ/Có theo {@code transactionId} trong bộ nhớ của trang.</li>
+ * <li>Giao dịch không cân TRONG trang (thường là giao dịch có vế nằm ở trang kề bên) được kiểm tra lại trên toàn bảng
+ * qua index UNIQUE ({@code transaction_id}, {@code leg}), song song trên {@code app.reconciliation.parallelism} luồng.
+ * Chỉ giao dịch vẫn không cân mới được ghi vào {@code reconciliation_issue}.</li>
+ * <li>Khi một dãy trang liên tiếp từ đầu đã kiểm tra xong, Checkpoint được đẩy lên dòng cuối của dãy. Nếu job bị dừng
+ * giữa chừng, lần chạy sau tiếp tục từ Checkpoint.</li>
+ * </ol>
+ * ID được cấp trước khi commit, nên dòng commit muộn có thể nằm SAU con trỏ theo ID nhưng TRƯỚC theo thời gian nhìn thấy.
+ * Lần chạy sau vì vậy quét lại từ {@code recorded_at} của Checkpoint trừ {@code app.reconciliation.overlap-ms}
+ * (lớn hơn transaction ghi dài nhất). Quét lại một dòng không làm sai kết quả vì đối soát theo {@code transactionId}.
+ * <p>
+ * Mỗi lần chạy cũng kiểm tra lại các lỗi đã ghi nhận trước đó và xóa các lỗi đã được sửa.
+ */
+@Slf4j
+@Service
+public class ReconciliationService implements IReconciliationService {
+    private static final String JOB_NAME = "double-entry";
+    private static final String RECONCILIATION_RUNNING = "Reconciliation is already running";
+    private static final String HISTORY_SHARDED = "Not supported while transaction history is sharded";
+    private static final int VERIFY_BATCH_SIZE = 500;
+
+    private static final String SCAN_SQL = "SELECT id, recorded_at, transaction_id, in_debt, have FROM "
+            + TransactionHistory.TABLE_NAME + " WHERE recorded_at >= ? AND (recorded_at > ? OR id > ?)"
+            + " ORDER BY recorded_at, id LIMIT ?";
+    private static final String VERIFY_SQL = "SELECT transaction_id, SUM(in_debt), SUM(have), COUNT(*) FROM "
+            + TransactionHistory.TABLE_NAME + " WHERE transaction_id IN (%s) GROUP BY transaction_id";
+
+    private final JdbcTemplate streamingJdbc;
+    private final IReconciliationCheckpointRepository checkpointRepository;
+    private final IReconciliationIssueRepository issueRepository;
+    private final ShardedTransactionHistoryRepository historyShards;
+    private final TransactionTemplate writeTransaction;
+    private final int chunkSize;
+    private final int parallelism;
+    private final Duration overlap;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ReconciliationService(DataSource dataSource,
+                                 IReconciliationCheckpointRepository checkpointRepository,
+                                 IReconciliationIssueRepository issueRepository,
+                                 ShardedTransactionHistoryRepository historyShards,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.reconciliation.chunk-size:100000}") int chunkSize,
+                                 @Value("${app.reconciliation.parallelism:4}") int parallelism,
+                                 @Value("${app.reconciliation.fetch-size:5000}") int fetchSize,
+                                 @Value("${app.reconciliation.overlap-ms:60000}") long overlapMillis) {
+        // MySQL Connector/J chỉ Streaming theo fetchSize khi URL có useCursorFetch=true
+        this.streamingJdbc = new JdbcTemplate(dataSource);
+        this.streamingJdbc.setFetchSize(fetchSize);
+        this.checkpointRepository = checkpointRepository;
+        this.issueRepository = issueRepository;
+        this.historyShards = historyShards;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.overlap = Duration.ofMillis(overlapMillis);
+    }
+
+    /**
+     * @throws ConflictException Nếu một lần đối soát khác đang chạy, hoặc {@code transaction_history} đang được phân mảnh
+     *                           (không có snapshot nhất quán chung giữa các shard).
+     */
+    @Override
+    public ReconciliationResponse reconcile(boolean full) {
+        if (historyShards.isSharded()) {
+            throw new ConflictException(HISTORY_SHARDED);
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new ConflictException(RECONCILIATION_RUNNING);
+        }
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "reconciliation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            long resolved = recheckKnownIssues();
+            LocalDateTime scannedFrom = full ? TailWatermark.BEGINNING : checkpointRepository.findById(JOB_NAME)
+                    .map(ReconciliationCheckpoint::getLastRecordedAt)
+                    .map(lastRecordedAt -> lastRecordedAt.minus(overlap))
+                    .orElse(TailWatermark.BEGINNING);
+
+            CompletionService<ChunkResult> completion = new ExecutorCompletionService<>(pool);
+            List<Cursor> chunkEnds = new ArrayList<>();
+            List<Boolean> done = new ArrayList<>();
+            Progress progress = new Progress();
+            Cursor cursor = new Cursor(scannedFrom, Long.MIN_VALUE);
+            boolean more = true;
+            while (more) {
+                Page page = readPage(cursor);
+                if (page.rows() == 0) break;
+                more = page.rows() == chunkSize;
+                cursor = page.end();
+                int index = chunkEnds.size();
+                chunkEnds.add(cursor);
+                done.add(false);
+                completion.submit(() -> new ChunkResult(index, page.rows(), page.candidates().size(),
+                        verify(page.candidates())));
+                // Giới hạn số trang đang chờ kiểm tra để Checkpoint không tụt xa phía sau trang đang đọc
+                while (chunkEnds.size() - progress.completed >= parallelism * 2) {
+                    complete(completion.take().get(), chunkEnds, done, progress);
+                }
+            }
+            while (progress.completed < chunkEnds.size()) {
+                complete(completion.take().get(), chunkEnds, done, progress);
+            }
+
+            int chunks = chunkEnds.size();
+            LocalDateTime scannedTo = chunks == 0 ? null : chunkEnds.get(chunks - 1).recordedAt();
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            List<ReconciliationResponse.UnbalancedTransaction> unbalanced = issueRepository.findAll().stream()
+                    .sorted(Comparator.comparing(ReconciliationIssue::getTransactionId))
+                    .map(this::mapToResponse)
+                    .toList();
+            log.info("Reconciliation of recorded_at [{}, {}] finished: chunks={}, rows={}, candidates={}, unbalanced={}, resolved={} in {} ms",
+                    scannedFrom, scannedTo, chunks, progress.rows, progress.candidates, unbalanced.size(), resolved, elapsedMillis);
+            return ReconciliationResponse.builder()
+                    .scannedFrom(scannedFrom)
+                    .scannedTo(scannedTo)
+                    .chunks(chunks)
+                    .rowsScanned(progress.rows)
+                    .candidatesVerified(progress.candidates)
+                    .resolved(resolved)
+                    .unbalanced(unbalanced)
+                    .elapsedMillis(elapsedMillis)
+                    .build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconciliation interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException("Reconciliation failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+            running.set(false);
+        }
+    }
+
+    /**
+     * Vị trí trong thứ tự ghi ({@code recorded_at}, {@code id}).
+     */
+    private record Cursor(LocalDateTime recordedAt, long id) {
+    }
+
+    /**
+     * Một trang Keyset: số dòng, các giao dịch không cân trong trang và dòng cuối cùng của trang.
+     */
+    private record Page(long rows, List<String> candidates, Cursor end) {
+    }
+
+    private static final class Progress {
+        private int completed;
+        private int contiguous;
+        private long rows;
+        private long candidates;
+    }
+
+    private record ChunkResult(int index, long rows, long candidates, List<ReconciliationIssue> issues) {
+    }
+
+    private static final class Legs {
+        private long inDebt;
+        private long have;
+        private int count;
+
+        private boolean balanced() {
+            return count >= 2 && inDebt == have;
+        }
+    }
+
+    /**
+     * Đọc (Streaming) một trang sau {@code after} và trả về các giao dịch không cân trong phạm vi trang.
+     * <p>
+     * Các trang được đọc tuần tự trên MỘT luồng, có chủ ý. Chỉ bước {@link #verify(Collection)} chạy song song.
+     * <ul>
+     * <li>Quét theo index ({@code recorded_at}, {@code id}) là đọc tuần tự và rẻ. Phần tốn kém là tra cứu lại các giao
+     * dịch ứng viên theo {@code transaction_id}, và phần đó đã song song.</li>
+     * <li>Đọc đồng thời các khoảng ({@code recorded_at}, {@code id}) rời nhau cần biết trước ranh giới. Muốn vậy phải quét
+     * thêm một lượt, hoặc chia theo thời gian và bị lệch khi lưu lượng không đều.</li>
+     * <li>Mỗi luồng đọc giữ thêm một kết nối Streaming dài trên chính DB đang phục vụ giao dịch.</li>
+     * <li>Checkpoint vẫn chỉ đẩy được tới cuối dãy trang liên tiếp từ đầu.</li>
+     * </ul>
+     * Cần nhanh hơn thì tăng {@code app.reconciliation.parallelism} trước khi tính tới chia luồng đọc.
+     */
+    private Page readPage(Cursor after) {
+        Map<String, Legs> legs = new HashMap<>();
+        long[] rows = new long[1];
+        Cursor[] end = {after};
+        streamingJdbc.query(SCAN_SQL, rs -> {
+            end[0] = new Cursor(rs.getObject(2, LocalDateTime.class), rs.getLong(1));
+            Legs sum = legs.computeIfAbsent(rs.getString(3), id -> new Legs());
+            sum.inDebt = Money.add(sum.inDebt, rs.getLong(4));
+            sum.have = Money.add(sum.have, rs.getLong(5));
+            sum.count++;
+            rows[0]++;
+        }, after.recordedAt(), after.recordedAt(), after.id(), chunkSize);
+
+        List<String> candidates = legs.entrySet().stream()
+                .filter(entry -> !entry.getValue().balanced())
+                .map(Map.Entry::getKey)
+                .toList();
+        return new Page(rows[0], candidates, end[0]);
+    }
+
+    /**
+     * Ghi lỗi của một trang đã kiểm tra xong; đẩy Checkpoint lên dòng cuối của dãy trang liên tiếp từ đầu đã xong.
+     */
+    private void complete(ChunkResult result, List<Cursor> chunkEnds, List<Boolean> done, Progress progress) {
+        progress.completed++;
+        progress.rows += result.rows();
+        progress.candidates += result.candidates();
+        if (!result.issues().isEmpty()) {
+            writeTransaction.executeWithoutResult(status -> issueRepository.saveAll(result.issues()));
+        }
+        done.set(result.index(), true);
+        int before = progress.contiguous;
+        while (progress.contiguous < done.size() && done.get(progress.contiguous)) progress.contiguous++;
+        if (progress.contiguous > before) {
+            saveCheckpoint(chunkEnds.get(progress.contiguous - 1));
+        }
+    }
+
+    /**
+     * Tính lại tổng Nợ/Có của các giao dịch trên toàn bảng.
+     *
+     * @return Các giao dịch vẫn không cân (giao dịch không còn dòng nào thì bỏ qua).
+     */
+    private List<ReconciliationIssue> verify(Collection<String> transactionIds) {
+        List<ReconciliationIssue> issues = new ArrayList<>();
+        List<String> ids = List.copyOf(transactionIds);
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < ids.size(); from += VERIFY_BATCH_SIZE) {
+            List<String> batch = ids.subList(from, Math.min(from + VERIFY_BATCH_SIZE, ids.size()));
+            Map<String, Legs> totals = new HashMap<>();
+            streamingJdbc.query(String.format(VERIFY_SQL, String.join(",", Collections.nCopies(batch.size(), "?"))), rs -> {
+                Legs sum = new Legs();
+                sum.inDebt = rs.getLong(2);
+                sum.have = rs.getLong(3);
+                sum.count = rs.getInt(4);
+                totals.put(rs.getString(1), sum);
+            }, batch.toArray());
+            for (String transactionId : batch) {
+                Legs sum = totals.get(transactionId);
+                if (Objects.nonNull(sum) && !sum.balanced()) {
+                    issues.add(ReconciliationIssue.builder()
+                            .transactionId(transactionId)
+                            .totalInDebt(Money.ofMinor(sum.inDebt))
+                            .totalHave(Money.ofMinor(sum.have))
+                            .legCount(sum.count)
+                            .detectedAt(now)
+                            .build());
+                }
+            }
+        }
+        return issues;
+    }
+
+    /**
+     * Kiểm tra lại các lỗi đã ghi nhận, xóa các giao dịch nay đã cân.
+     *
+     * @return Số lỗi đã được sửa.
+     */
+    private long recheckKnownIssues() {
+        List<String> known = issueRepository.findAll().stream().map(ReconciliationIssue::getTransactionId).toList();
+        if (known.isEmpty()) return 0;
+        Set<String> stillUnbalanced = new HashSet<>();
+        verify(known).forEach(issue -> stillUnbalanced.add(issue.getTransactionId()));
+        List<String> resolved = known.stream().filter(id -> !stillUnbalanced.contains(id)).toList();
+        if (!resolved.isEmpty()) {
+            writeTransaction.executeWithoutResult(status -> issueRepository.deleteAllById(resolved));
+        }
+        return resolved.size();
+    }
+
+    private void saveCheckpoint(Cursor last) {
+        writeTransaction.executeWithoutResult(status -> checkpointRepository.save(ReconciliationCheckpoint.builder()
+                .jobName(JOB_NAME)
+                .lastId(last.id())
+                .lastRecordedAt(last.recordedAt())
+                .updatedAt(LocalDateTime.now())
+                .build()));
+    }
+
+    private ReconciliationResponse.UnbalancedTransaction mapToResponse(ReconciliationIssue issue) {
+        return ReconciliationResponse.UnbalancedTransaction.builder()
+                .transactionId(issue.getTransactionId())
+                .totalInDebt(issue.getTotalInDebt().toBigDecimal())
+                .totalHave(issue.getTotalHave().toBigDecimal())
+                .legCount(issue.getLegCount())
+                .detectedAt(issue.getDetectedAt())
+                .build();
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.user.service.impl;
+
+import com.example.user.dto.response.DailyRollupResponse;
+import com.example.user.dto.response.RollupBackfillResponse;
+import com.example.user.entity.AccountDailyRollup;
+import com.example.user.entity.TransactionHistory;
+import com.example.user.exception.BadRequestException;
+import com.example.user.exception.ConflictException;
+import com.example.user.repository.IAccountDailyRollupRepository;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.service.IRollupService;
+import com.example.user.utils.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Class triển khai nghiệp vụ tổng hợp theo ngày ({@code account_daily_rollup}).
+ * <p>
+ * Bảng tổng hợp được cộng dồn cùng lệnh UPSERT số dư (xem {@code AccountBalanceBatchRepository}), nên truy vấn
+ * theo khoảng ngày chỉ đọc bảng này.
+ * <p>
+ * <b>Backfill:</b> dùng chung {@link PartitionedSnapshotRepair} với rebuild số dư - mỗi phân vùng {@code account_hash}
+ * cộng dồn lịch sử theo (tài khoản, ngày) và đọc các dòng tổng hợp trong CÙNG một snapshot, rồi sửa từng dòng lệch bằng
+ * lệnh có điều kiện trên giá trị đã đọc (Compare-And-Set), để không ghi đè các giao dịch mới phát sinh trong lúc chạy. Khi bật kho lưu trữ hoặc bỏ partition hết hạn, backfill chỉ
+ * xét các ngày còn nằm trong {@code transaction_history} (các ngày cũ hơn giữ nguyên dòng tổng hợp đã có).
+ */
+@Slf4j
+@Service
+public class RollupService implements IRollupService {
+    private static final String BACKFILL_RUNNING = "Rollup backfill is already running";
+    private static final String INVALID_DATE_RANGE = "'from' must not be after 'to'";
+    private static final String RANGE_TOO_LONG = "Date range exceeds the maximum number of days";
+    /** Ngày nhỏ nhất của kiểu DATE trong MySQL: backfill toàn bộ khi lịch sử còn nguyên vẹn. */
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1000, 1, 1);
+
+    private static final String SUM_HISTORY_SQL = "SELECT account_hash, CAST(time AS DATE), SUM(in_debt), SUM(have),"
+            + " SUM(CASE WHEN leg = 'DEBIT' THEN 1 ELSE 0 END), SUM(CASE WHEN leg = 'CREDIT' THEN 1 ELSE 0 END) FROM "
+            + TransactionHistory.TABLE_NAME + " WHERE account_hash >= ? AND account_hash < ? AND time >= ?"
+            + " GROUP BY account_hash, CAST(time AS DATE)";
+    private static final String SELECT_ROLLUP_SQL = "SELECT account_hash, rollup_date, total_in_debt, total_have, debit_count, credit_count FROM "
+            + AccountDailyRollup.TABLE_NAME + " WHERE account_hash >= ? AND account_hash < ? AND rollup_date >= ?";
+    private static final String REPAIR_SQL = "UPDATE " + AccountDailyRollup.TABLE_NAME
+            + " SET total_in_debt = ?, total_have = ?, debit_count = ?, credit_count = ?, updated_at = ?"
+            + " WHERE account_hash = ? AND rollup_date = ? AND total_in_debt = ? AND total_have = ? AND debit_count = ? AND credit_count = ?";
+    private static final String INSERT_SQL = "INSERT INTO " + AccountDailyRollup.TABLE_NAME
+            + " (account_hash, rollup_date, total_in_debt, total_have, debit_count, credit_count, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_ORPHAN_SQL = "DELETE FROM " + AccountDailyRollup.TABLE_NAME
+            + " WHERE account_hash = ? AND rollup_date = ? AND total_in_debt = ? AND total_have = ? AND debit_count = ? AND credit_count = ?";
+
+    private final IAccountDailyRollupRepository rollupRepository;
+    private final AccountBlindIndex accountBlindIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final ArchiveSegmentStore archiveStore;
+    private final HistoryPartitionManager partitionManager;
+    private final PartitionedSnapshotRepair repair;
+    private final int maxDays;
+
+    public RollupService(IAccountDailyRollupRepository rollupRepository,
+                         AccountBlindIndex accountBlindIndex,
+                         JdbcTemplate jdbcTemplate,
+                         AccountBalanceSequencer balanceSequencer,
+                         ShardedTransactionHistoryRepository historyShards,
+                         ArchiveSegmentStore archiveStore,
+                         HistoryPartitionManager partitionManager,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.rollup.backfill.parallelism:4}") int parallelism,
+                         @Value("${app.rollup.max-days:366}") int maxDays) {
+        this.rollupRepository = rollupRepository;
+        this.accountBlindIndex = accountBlindIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveStore = archiveStore;
+        this.partitionManager = partitionManager;
+        this.repair = new PartitionedSnapshotRepair("rollup-backfill", AccountDailyRollup.TABLE_NAME, BACKFILL_RUNNING,
+                jdbcTemplate, balanceSequencer, historyShards, transactionManager, parallelism);
+        this.maxDays = maxDays;
+    }
+
+    /**
+     * @throws BadRequestException Nếu khoảng ngày không hợp lệ hoặc dài hơn {@code app.rollup.max-days}.
+     */
+    @Override
+    public DailyRollupResponse getDailyRollups(String account, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new BadRequestException(INVALID_DATE_RANGE);
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new BadRequestException(RANGE_TOO_LONG);
+        }
+        List<AccountDailyRollup> rollups = rollupRepository
+                .findByAccountHashAndRollupDateBetweenOrderByRollupDate(accountBlindIndex.of(account), from, to);
+        long totalInDebt = 0;
+        long totalHave = 0;
+        List<DailyRollupResponse.Day> days = new ArrayList<>(rollups.size());
+        for (AccountDailyRollup rollup : rollups) {
+            totalInDebt = Money.add(totalInDebt, rollup.getTotalInDebt().minorUnits());
+            totalHave = Money.add(totalHave, rollup.getTotalHave().minorUnits());
+            days.add(DailyRollupResponse.Day.builder()
+                    .date(rollup.getRollupDate())
+                    .totalInDebt(rollup.getTotalInDebt().toBigDecimal())
+                    .totalHave(rollup.getTotalHave().toBigDecimal())
+                    .debitCount(rollup.getDebitCount())
+                    .creditCount(rollup.getCreditCount())
+                    .build());
+        }
+        return DailyRollupResponse.builder()
+                .days(days)
+                .totalInDebt(Money.toBigDecimal(totalInDebt))
+                .totalHave(Money.toBigDecimal(totalHave))
+                .build();
+    }
+
+    /**
+     * @throws ConflictException Nếu một lần backfill khác đang chạy, hoặc {@code transaction_history} đang được phân mảnh
+     *                           (không có snapshot nhất quán chung giữa các shard).
+     */
+    @Override
+    public RollupBackfillResponse backfill() {
+        PartitionedSnapshotRepair.Result result = repair.run(new RollupTarget(retainedSince()));
+        log.info("Rollup backfill finished: rollups={}, missing={}, drifted={}, orphaned={}, repaired={}, skipped={} in {} ms",
+                result.checked(), result.missing(), result.drifted(), result.orphaned(), result.repaired(),
+                result.skipped(), result.elapsedMillis());
+        return RollupBackfillResponse.builder()
+                .partitions(result.partitions())
+                .rollupsChecked(result.checked())
+                .missing(result.missing())
+                .drifted(result.drifted())
+                .orphaned(result.orphaned())
+                .repaired(result.repaired())
+                .skippedConcurrent(result.skipped())
+                .elapsedMillis(result.elapsedMillis())
+                .build();
+    }
+
+    /**
+     * Các ngày trước mốc lưu trữ hoặc trước partition cũ nhất còn giữ có thể đã rời {@code transaction_history}:
+     * không được coi dòng tổng hợp của chúng là lệch.
+     */
+    private LocalDate retainedSince() {
+        LocalDate since = EARLIEST_DATE;
+        if (archiveStore.isEnabled()) {
+            since = archiveStore.cutoff().toLocalDate();
+        }
+        LocalDate partitionHorizon = partitionManager.retainedSince();
+        if (Objects.nonNull(partitionHorizon) && partitionHorizon.isAfter(since)) {
+            since = partitionHorizon;
+        }
+        return since;
+    }
+
+    private record Key(String accountHash, LocalDate day) {
+    }
+
+    private record Totals(long inDebt, long have, long debits, long credits) {
+    }
+
+    /**
+     * Bảng {@code account_daily_rollup}: khóa là (tài khoản, ngày), chỉ xét các ngày từ {@code since}.
+     */
+    private final class RollupTarget implements PartitionedSnapshotRepair.Target<Key, Totals> {
+        private final LocalDate since;
+
+        private RollupTarget(LocalDate since) {
+            this.since = since;
+        }
+
+        @Override
+        public void readExpected(String lower, String upper, Map<Key, Totals> expected) {
+            jdbcTemplate.query(SUM_HISTORY_SQL, rs -> {
+                expected.put(new Key(rs.getString(1), rs.getObject(2, LocalDate.class)),
+                        new Totals(rs.getLong(3), rs.getLong(4), rs.getLong(5), rs.getLong(6)));
+            }, lower, upper, since.atStartOfDay());
+        }
+
+        @Override
+        public void readActual(String lower, String upper, Map<Key, Totals> actual) {
+            jdbcTemplate.query(SELECT_ROLLUP_SQL, rs -> {
+                actual.put(new Key(rs.getString(1), rs.getObject(2, LocalDate.class)),
+                        new Totals(rs.getLong(3), rs.getLong(4), rs.getLong(5), rs.getLong(6)));
+            }, lower, upper, since);
+        }
+
+        @Override
+        public void insert(Key key, Totals target, LocalDateTime now) {
+            jdbcTemplate.update(INSERT_SQL,
+                    key.accountHash(), key.day(), target.inDebt(), target.have(), target.debits(), target.credits(), now);
+        }
+
+        @Override
+        public int update(Key key, Totals current, Totals target, LocalDateTime now) {
+            return jdbcTemplate.update(REPAIR_SQL,
+                    target.inDebt(), target.have(), target.debits(), target.credits(), now,
+                    key.accountHash(), key.day(), current.inDebt(), current.have(), current.debits(), current.credits());
+        }
+
+        @Override
+        public int delete(Key key, Totals current) {
+            return jdbcTemplate.update(DELETE_ORPHAN_SQL,
+                    key.accountHash(), key.day(), current.inDebt(), current.have(), current.debits(), current.credits());
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package com.example.user.service.impl;
+
+import com.example.user.constant.TransactionRules;
+import com.example.user.dto.response.SettlementLoadResponse;
+import com.example.user.entity.TransactionHistory;
+import com.example.user.enums.BulkFormat;
+import com.example.user.enums.PostingLeg;
+import com.example.user.exception.BadRequestException;
+import com.example.user.exception.NotFoundException;
+import com.example.user.repository.TransactionHistoryBatchRepository;
+import com.example.user.service.IIdGenerator;
+import com.example.user.service.ISettlementLoaderService;
+import com.example.user.utils.AesUtil;
+import com.example.user.utils.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bộ nạp file quyết toán dung lượng lớn bằng Memory-mapped I/O.
+ * <p>
+ * Cách hoạt động:
+ * <ol>
+ * <li>Chia file thành các segment (tối đa 1GB, căn theo ranh giới dòng {@code \n}).</li>
+ * <li>Mỗi worker map segment của mình bằng {@link FileChannel#map} và parse trực tiếp trên byte:
+ * không tạo {@code String} cho từng dòng, không {@code split}; chỉ transactionId được chuyển thành String.</li>
+ * <li>Validate theo {@link TransactionRules} (cùng bộ luật với {@code TransactionRequest}),
+ * mã hóa Account trực tiếp từ byte bằng {@link AesUtil#encrypt(byte[], int, int, SecretKey)}
+ * (cùng định dạng với {@code AccountEncryptConverter}).</li>
+ * <li>Ghi theo lô qua {@link TransactionBatchWriter} (JDBC Batch, chống trùng như API).</li>
+ * </ol>
+ */
+@Slf4j
+@Service
+public class SettlementFileLoader implements ISettlementLoaderService {
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final int SEGMENTS_PER_WORKER = 4;
+    private static final int MAX_ERRORS = 20;
+    private static final int FIELD_COUNT = 5;
+    private static final int MAX_FIELD_LENGTH = 255;
+    private static final int MAX_AMOUNT_DIGITS = 18;
+    private static final long MIN_AMOUNT_MINOR_UNITS = TransactionRules.MIN_AMOUNT * Money.MINOR_UNITS_PER_UNIT;
+    private static final byte[] HEADER = BulkFormat.CSV_HEADER_PREFIX.getBytes(StandardCharsets.US_ASCII);
+
+    private final SecretKey secretKey;
+    private final AccountBlindIndex accountBlindIndex;
+    private final IIdGenerator idGenerator;
+    private final TransactionIdGuard transactionIdGuard;
+    private final TransactionBatchWriter batchWriter;
+    private final Path baseDir;
+    private final int workers;
+    private final int batchTransactions;
+
+    public SettlementFileLoader(SecretKey secretKey,
+                                AccountBlindIndex accountBlindIndex,
+                                IIdGenerator idGenerator,
+                                TransactionIdGuard transactionIdGuard,
+                                TransactionBatchWriter batchWriter,
+                                @Value("${app.settlement.base-dir:./settlements}") String baseDir,
+                                @Value("${app.settlement.workers:0}") int workers,
+                                @Value("${app.settlement.batch-transactions:2500}") int batchTransactions) {
+        this.secretKey = secretKey;
+        this.accountBlindIndex = accountBlindIndex;
+        this.idGenerator = idGenerator;
+        this.transactionIdGuard = transactionIdGuard;
+        this.batchWriter = batchWriter;
+        this.baseDir = Path.of(baseDir).toAbsolutePath().normalize();
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.batchTransactions = batchTransactions;
+    }
+
+    @Override
+    public SettlementLoadResponse load(String relativePath) {
+        Path file = resolve(relativePath);
+        long started = System.nanoTime();
+        SegmentStats total = new SegmentStats();
+        int segmentCount;
+        long size;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            List<long[]> segments = split(channel, size);
+            segmentCount = segments.size();
+            ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+                Thread thread = new Thread(runnable, "settlement-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<SegmentStats>> futures = new ArrayList<>(segmentCount);
+                for (long[] segment : segments) {
+                    futures.add(pool.submit(() -> new SegmentParser(channel, segment[0], segment[1]).run()));
+                }
+                for (Future<SegmentStats> future : futures) {
+                    total.merge(future.get());
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        } catch (IOException e) {
+            throw new BadRequestException("Cannot read settlement file", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Settlement load interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException("Settlement load failed", e.getCause());
+        }
+
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        long rowsPerSecond = total.rowsWritten * 1000 / elapsedMillis;
+        log.info("Settlement file loaded: bytes={}, segments={}, records={}, accepted={}, duplicates={}, rejected={}, rows/s={}",
+                size, segmentCount, total.records, total.accepted, total.duplicates, total.rejected, rowsPerSecond);
+        return SettlementLoadResponse.builder()
+                .file(baseDir.relativize(file).toString())
+                .bytes(size)
+                .segments(segmentCount)
+                .records(total.records)
+                .accepted(total.accepted)
+                .duplicates(total.duplicates)
+                .rejected(total.rejected)
+                .rowsWritten(total.rowsWritten)
+                .elapsedMillis(elapsedMillis)
+                .rowsPerSecond(rowsPerSecond)
+                .errors(total.errors)
+                .build();
+    }
+
+    /**
+     * Chỉ cho phép đọc file nằm trong {@code baseDir} (chặn Path Traversal như "../../etc/passwd").
+     */
+    private Path resolve(String relativePath) {
+        Path file = baseDir.resolve(relativePath).normalize();
+        if (!file.startsWith(baseDir)) {
+            throw new BadRequestException("Settlement file must be inside the configured base directory");
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new NotFoundException("Settlement file not found");
+        }
+        return file;
+    }
+
+    /**
+     * Chia file thành các đoạn [start, end) có kích thước gần bằng nhau, mỗi đoạn kết thúc ngay sau một ký tự xuống dòng.
+     */
+    private List<long[]> split(FileChannel channel, long size) throws IOException {
+        long target = Math.min(MAX_SEGMENT_BYTES, Math.max(1, size / ((long) workers * SEGMENTS_PER_WORKER)));
+        List<long[]> segments = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = alignToNextLine(channel, Math.min(size, start + target), size);
+            segments.add(new long[]{start, end});
+            start = end;
+        }
+        return segments;
+    }
+
+    private long alignToNextLine(FileChannel channel, long position, long size) throws IOException {
+        if (position >= size) return size;
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long offset = position - 1;
+        while (offset < size) {
+            probe.clear();
+            int read = channel.read(probe, offset);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') return offset + i + 1;
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    private static final class SegmentStats {
+        private long records;
+        private long accepted;
+        private long duplicates;
+        private long rejected;
+        private long rowsWritten;
+        private final List<String> errors = new ArrayList<>();
+
+        private void reject(long offset, String reason) {
+            rejected++;
+            records++;
+            if (errors.size() < MAX_ERRORS) errors.add("offset " + offset + ": " + reason);
+        }
+
+        private void merge(SegmentStats other) {
+            records += other.records;
+            accepted += other.accepted;
+            duplicates += other.duplicates;
+            rejected += other.rejected;
+            rowsWritten += other.rowsWritten;
+            for (String error : other.errors) {
+                if (errors.size() >= MAX_ERRORS) break;
+                errors.add(error);
+            }
+        }
+    }
+
+    /**
+     * Parser cho một segment, chạy trên đúng một luồng worker (không chia sẻ trạng thái).
+     */
+    private final class SegmentParser {
+        private final MappedByteBuffer data;
+        private final long baseOffset;
+        private final int limit;
+        private final int[] fieldStart = new int[FIELD_COUNT];
+        private final int[] fieldEnd = new int[FIELD_COUNT];
+        private final byte[] scratch = new byte[MAX_FIELD_LENGTH];
+        private final SegmentStats stats = new SegmentStats();
+        private List<TransactionBatchWriter.PendingTransaction> batch = new ArrayList<>(batchTransactions);
+
+        private SegmentParser(FileChannel channel, long start, long end) throws IOException {
+            this.data = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            this.baseOffset = start;
+            this.limit = (int) (end - start);
+        }
+
+        private SegmentStats run() {
+            int position = 0;
+            if (baseOffset == 0 && startsWithHeader()) {
+                position = nextLine(0);
+            }
+            while (position < limit) {
+                int lineEnd = indexOfNewline(position);
+                int end = lineEnd;
+                if (end > position && data.get(end - 1) == '\r') end--;
+                if (end > position) {
+                    parseRecord(position, end);
+                }
+                position = lineEnd + 1;
+            }
+            flush();
+            return stats;
+        }
+
+        private void parseRecord(int start, int end) {
+            long offset = baseOffset + start;
+            if (!splitFields(start, end)) {
+                stats.reject(offset, "malformed CSV record");
+                return;
+            }
+            int idLength = fieldEnd[0] - fieldStart[0];
+            if (idLength == 0 || idLength > MAX_FIELD_LENGTH) {
+                stats.reject(offset, "transactionId is blank or too long");
+                return;
+            }
+            if (!isValidAccount(1) || !isValidAccount(2)) {
+                stats.reject(offset, "account must be between " + TransactionRules.ACCOUNT_MIN_LENGTH
+                        + " and " + TransactionRules.ACCOUNT_MAX_LENGTH + " digits");
+                return;
+            }
+            long amount = parseAmount(fieldStart[3], fieldEnd[3]);
+            if (amount < MIN_AMOUNT_MINOR_UNITS) {
+                stats.reject(offset, "amount is invalid or below " + TransactionRules.MIN_AMOUNT);
+                return;
+            }
+            LocalDateTime time = parseTime(fieldStart[4], fieldEnd[4]);
+            if (time == null) {
+                stats.reject(offset, "time must be yyyy-MM-ddTHH:mm:ss[.fraction]");
+                return;
+            }
+
+            stats.records++;
+            String transactionId = ascii(fieldStart[0], fieldEnd[0]);
+            if (transactionIdGuard.exists(transactionId)) {
+                stats.duplicates++;
+                return;
+            }
+            batch.add(new TransactionBatchWriter.PendingTransaction(transactionId, List.of(
+                    row(transactionId, PostingLeg.DEBIT, 1, amount, 0, time),
+                    row(transactionId, PostingLeg.CREDIT, 2, 0, amount, time))));
+            if (batch.size() >= batchTransactions) {
+                flush();
+            }
+        }
+
+        private TransactionHistoryBatchRepository.Row row(String transactionId, PostingLeg leg, int accountField,
+                                                          long inDebt, long have, LocalDateTime time) {
+            int length = copyToScratch(accountField);
+            return new TransactionHistoryBatchRepository.Row(
+                    idGenerator.nextId(TransactionHistory.TABLE_NAME),
+                    transactionId,
+                    leg,
+                    AesUtil.encrypt(scratch, 0, length, secretKey),
+                    accountBlindIndex.of(scratch, 0, length),
+                    inDebt,
+                    have,
+                    time);
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) return;
+            int submitted = batch.size();
+            int written = batchWriter.writeAll(batch).size();
+            stats.accepted += written;
+            stats.duplicates += submitted - written;
+            stats.rowsWritten += written * 2L;
+            batch = new ArrayList<>(batchTransactions);
+        }
+
+        /**
+         * Xác định vị trí 5 trường trong dòng (bỏ khoảng trắng hai đầu mỗi trường).
+         */
+        private boolean splitFields(int start, int end) {
+            int field = 0;
+            int fieldBegin = start;
+            for (int i = start; i <= end; i++) {
+                if (i < end && data.get(i) != ',') continue;
+                if (field == FIELD_COUNT) return false;
+                int s = fieldBegin;
+                int e = i;
+                while (s < e && data.get(s) == ' ') s++;
+                while (e > s && data.get(e - 1) == ' ') e--;
+                fieldStart[field] = s;
+                fieldEnd[field] = e;
+                field++;
+                fieldBegin = i + 1;
+            }
+            return field == FIELD_COUNT;
+        }
+
+        private boolean isValidAccount(int field) {
+            int length = fieldEnd[field] - fieldStart[field];
+            if (length < TransactionRules.ACCOUNT_MIN_LENGTH || length > TransactionRules.ACCOUNT_MAX_LENGTH) {
+                return false;
+            }
+            for (int i = fieldStart[field]; i < fieldEnd[field]; i++) {
+                byte b = data.get(i);
+                if (b < '0' || b > '9') return false;
+            }
+            return true;
+        }
+
+        /**
+         * Parse số tiền dạng "123456" hoặc "123456.78" thẳng sang đơn vị nhỏ nhất ({@link Money}, không qua String).
+         *
+         * @return Số đơn vị nhỏ nhất, hoặc -1 nếu sai định dạng, quá {@value Money#SCALE} chữ số thập phân
+         * hoặc quá {@value #MAX_AMOUNT_DIGITS} chữ số.
+         */
+        private long parseAmount(int start, int end) {
+            long minorUnits = 0;
+            int scale = -1;
+            int digits = 0;
+            for (int i = start; i < end; i++) {
+                byte b = data.get(i);
+                if (b == '.' && scale < 0) {
+                    scale = 0;
+                    continue;
+                }
+                if (b < '0' || b > '9' || ++digits > MAX_AMOUNT_DIGITS) return -1;
+                if (scale >= 0 && ++scale > Money.SCALE) return -1;
+                minorUnits = minorUnits * 10 + (b - '0');
+            }
+            if (digits == 0) return -1;
+            for (int i = Math.max(scale, 0); i < Money.SCALE; i++) {
+                if (++digits > MAX_AMOUNT_DIGITS) return -1;
+                minorUnits *= 10;
+            }
+            return minorUnits;
+        }
+
+        /**
+         * Parse thời gian ISO-8601 cục bộ "yyyy-MM-ddTHH:mm:ss[.fraction]" trực tiếp từ byte.
+         */
+        private LocalDateTime parseTime(int start, int end) {
+            int length = end - start;
+            if (length < 19 || data.get(start + 4) != '-' || data.get(start + 7) != '-'
+                    || data.get(start + 10) != 'T' || data.get(start + 13) != ':' || data.get(start + 16) != ':') {
+                return null;
+            }
+            int year = digits(start, 4);
+            int month = digits(start + 5, 2);
+            int day = digits(start + 8, 2);
+            int hour = digits(start + 11, 2);
+            int minute = digits(start + 14, 2);
+            int second = digits(start + 17, 2);
+            int nanos = 0;
+            if (length > 19) {
+                int fractionDigits = length - 20;
+                if (data.get(start + 19) != '.' || fractionDigits < 1 || fractionDigits > 9) return null;
+                nanos = digits(start + 20, fractionDigits);
+                for (int i = fractionDigits; i < 9 && nanos >= 0; i++) nanos *= 10;
+            }
+            if ((year | month | day | hour | minute | second | nanos) < 0) return null;
+            try {
+                return LocalDateTime.of(year, month, day, hour, minute, second, nanos);
+            } catch (DateTimeException e) {
+                return null;
+            }
+        }
+
+        /**
+         * @return Giá trị số của {@code count} chữ số bắt đầu tại {@code start}, hoặc -1 nếu có ký tự không phải số.
+         */
+        private int digits(int start, int count) {
+            int value = 0;
+            for (int i = start; i < start + count; i++) {
+                byte b = data.get(i);
+                if (b < '0' || b > '9') return -1;
+                value = value * 10 + (b - '0');
+            }
+            return value;
+        }
+
+        private int copyToScratch(int field) {
+            int length = fieldEnd[field] - fieldStart[field];
+            data.get(fieldStart[field], scratch, 0, length);
+            return length;
+        }
+
+        private String ascii(int start, int end) {
+            int length = end - start;
+            data.get(start, scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.US_ASCII);
+        }
+
+        private boolean startsWithHeader() {
+            if (limit < HEADER.length) return false;
+            for (int i = 0; i < HEADER.length; i++) {
+                if (data.get(i) != HEADER[i]) return false;
+            }
+            return true;
+        }
+
+        private int nextLine(int position) {
+            return indexOfNewline(position) + 1;
+        }
+
+        private int indexOfNewline(int position) {
+            for (int i = position; i < limit; i++) {
+                if (data.get(i) == '\n') return i;
+            }
+            return limit;
+        }
+    }
+}
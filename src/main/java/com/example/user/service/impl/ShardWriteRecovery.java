@@ -0,0 +1,150 @@
+package com.example.user.service.impl;
+
+import com.example.user.entity.ShardWriteIntent;
+import com.example.user.repository.ShardWriteIntentRepository;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.repository.TransactionHistoryBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Khôi phục các lần ghi lên shard phụ bị dừng giữa commit trên shard và commit trạng thái dẫn xuất trên DB chính
+ * (xem {@link TransactionBatchWriter}).
+ * <p>
+ * Mỗi vòng, trong MỘT transaction trên DB chính: khóa tối đa {@code app.sharding.recovery.batch-size} ý định
+ * ({@link ShardWriteIntent}) cũ hơn {@code app.sharding.recovery.grace-ms} ({@code FOR UPDATE SKIP LOCKED}), đọc các vế
+ * của chúng trên shard, ghi trạng thái dẫn xuất cho các vế tìm thấy rồi xóa ý định. Ý định không còn vế nào trên shard
+ * (dừng trước khi ghi shard, hoặc đã bù trừ) chỉ bị xóa.
+ * <p>
+ * Bộ ghi khóa cùng các dòng ý định trước khi ghi trạng thái dẫn xuất, nên mỗi giao dịch chỉ được ghi trạng thái dẫn xuất
+ * một lần dù job và bộ ghi chạy đồng thời. {@code grace-ms} phải lớn hơn thời gian một lần ghi lên shard: ý định trẻ hơn
+ * có thể thuộc một lần ghi đang chạy mà các vế chưa commit.
+ * <p>
+ * Chỉ chạy khi {@code transaction_history} được phân mảnh, mỗi {@code app.sharding.recovery.interval-ms}
+ * (0 = không chạy luồng nền, {@link #recover()} do bên ngoài gọi).
+ */
+@Slf4j
+@Component
+public class ShardWriteRecovery {
+    private final ShardWriteIntentRepository intentRepository;
+    private final ShardedTransactionHistoryRepository historyShards;
+    private final TransactionBatchWriter batchWriter;
+    private final TransactionIdGuard transactionIdGuard;
+    private final TransactionTemplate transactionTemplate;
+    private final long intervalMillis;
+    private final long graceMillis;
+    private final int batchSize;
+    private final Counter recovered;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public ShardWriteRecovery(ShardWriteIntentRepository intentRepository,
+                              ShardedTransactionHistoryRepository historyShards,
+                              TransactionBatchWriter batchWriter,
+                              TransactionIdGuard transactionIdGuard,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.sharding.recovery.interval-ms:30000}") long intervalMillis,
+                              @Value("${app.sharding.recovery.grace-ms:60000}") long graceMillis,
+                              @Value("${app.sharding.recovery.batch-size:100}") int batchSize) {
+        this.intentRepository = intentRepository;
+        this.historyShards = historyShards;
+        this.batchWriter = batchWriter;
+        this.transactionIdGuard = transactionIdGuard;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.intervalMillis = intervalMillis;
+        this.graceMillis = graceMillis;
+        this.batchSize = batchSize;
+        this.recovered = Counter.builder("sharding.writes.recovered")
+                .description("Shard writes whose derived state was completed by the recovery job")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!historyShards.isSharded() || intervalMillis <= 0) return;
+        running = true;
+        worker = new Thread(this::run, "shard-write-recovery");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (Objects.isNull(worker)) return;
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                recover();
+            } catch (RuntimeException e) {
+                log.warn("Shard write recovery failed, retrying in {} ms", intervalMillis, e);
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(intervalMillis));
+        }
+    }
+
+    /**
+     * Xử lý mọi ý định đã quá hạn, theo lô.
+     *
+     * @return Số ý định đã xử lý (kể cả ý định không còn vế nào trên shard).
+     */
+    public int recover() {
+        int total = 0;
+        int resolved;
+        do {
+            resolved = recoverBatch(LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(graceMillis)));
+            total += resolved;
+        } while (resolved == batchSize);
+        return total;
+    }
+
+    private int recoverBatch(LocalDateTime cutoff) {
+        List<String> applied = new ArrayList<>();
+        Integer resolved = transactionTemplate.execute(status -> {
+            List<String> transactionIds = intentRepository.lockExpired(cutoff, batchSize);
+            if (transactionIds.isEmpty()) return 0;
+            List<TransactionHistoryBatchRepository.Row> rows = new ArrayList<>();
+            for (String transactionId : transactionIds) {
+                List<TransactionHistoryBatchRepository.Row> legs = historyShards.findByTransactionId(transactionId);
+                if (legs.isEmpty()) continue;
+                rows.addAll(legs);
+                applied.add(transactionId);
+            }
+            if (!rows.isEmpty()) batchWriter.applyDerived(rows);
+            intentRepository.delete(transactionIds);
+            return transactionIds.size();
+        });
+        if (!applied.isEmpty()) {
+            applied.forEach(transactionIdGuard::record);
+            recovered.increment(applied.size());
+            log.warn("Recovered derived state for {} transactions interrupted between shard and primary commits",
+                    applied.size());
+        }
+        return Objects.isNull(resolved) ? 0 : resolved;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.user.service.impl;
+
+import com.example.user.service.IIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Bộ sinh ID 64-bit kiểu Snowflake, sắp theo thời gian, hoàn toàn trong bộ nhớ và không khóa.
+ * <p>
+ * Bố cục: 1 bit dấu (luôn 0) | {@value #TIMESTAMP_BITS} bit mili giây tính từ {@link #EPOCH} | {@value #NODE_BITS} bit
+ * {@code app.id.snowflake.node-id} | {@value #SEQUENCE_BITS} bit số thứ tự trong cùng mili giây. Mỗi instance phải có
+ * {@code node-id} riêng; trong một instance, ID tăng ngặt.
+ * <p>
+ * <b>Không khóa:</b> (mili giây, số thứ tự) cuối cùng được gói trong MỘT {@link AtomicLong}; mỗi lần cấp phát đọc trạng
+ * thái, tính trạng thái kế tiếp rồi {@code compareAndSet}, thử lại nếu một luồng khác vừa thắng.
+ * <p>
+ * <b>Lệch đồng hồ:</b> nếu đồng hồ hệ thống lùi lại (NTP) hoặc đã dùng hết {@value #SEQUENCE_BITS} bit số thứ tự trong
+ * một mili giây, bộ sinh tiếp tục trên đồng hồ logic (mượn các mili giây kế tiếp) thay vì chờ. Khi đồng hồ logic vượt
+ * đồng hồ hệ thống quá {@code app.id.snowflake.max-clock-skew-ms}, bộ sinh từ chối cấp phát
+ * ({@link IllegalStateException}) thay vì có nguy cơ cấp trùng ID sau khi khởi động lại.
+ * <p>
+ * Dùng làm bộ sinh ID entity khi {@code app.id.generator=snowflake} (ID lớn hơn mọi ID Hi/Lo đã có, nên vẫn tăng dần),
+ * và luôn dùng để cấp {@code transactionId} phía máy chủ ({@link #nextTransactionId()}).
+ * <p>
+ * <b>node-id bắt buộc:</b> {@code app.id.snowflake.node-id} không có giá trị mặc định và ứng dụng từ chối khởi động khi
+ * thiếu, kể cả khi {@code app.id.generator=hilo}: {@code transactionId} phía máy chủ luôn được cấp từ đây, nên hai
+ * instance cùng dùng một giá trị mặc định sẽ cấp trùng {@code transactionId} mà không hề báo lỗi khi khởi động.
+ */
+@Slf4j
+@Component
+public class SnowflakeIdGenerator implements IIdGenerator {
+    /** 2024-01-01T00:00:00Z: 41 bit mili giây đủ dùng tới năm 2093. */
+    public static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    public static final int TIMESTAMP_BITS = 41;
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long MAX_TIMESTAMP = (1L << TIMESTAMP_BITS) - 1;
+
+    private final LongSupplier clock;
+    private final long nodeBits;
+    private final long maxClockSkewMillis;
+    /** (mili giây logic << SEQUENCE_BITS) | số thứ tự của ID cấp gần nhất. */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * @throws IllegalStateException Nếu {@code app.id.snowflake.node-id} chưa được cấu hình.
+     */
+    @Autowired
+    public SnowflakeIdGenerator(@Value("${app.id.snowflake.node-id:#{null}}") Long nodeId,
+                                @Value("${app.id.snowflake.max-clock-skew-ms:1000}") long maxClockSkewMillis) {
+        this(requireNodeId(nodeId), maxClockSkewMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock Nguồn thời gian (mili giây Unix), thay được trong test.
+     */
+    public SnowflakeIdGenerator(long nodeId, long maxClockSkewMillis, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalStateException("app.id.snowflake.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.clock = clock;
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+        this.maxClockSkewMillis = maxClockSkewMillis;
+    }
+
+    private static long requireNodeId(Long nodeId) {
+        if (Objects.isNull(nodeId)) {
+            throw new IllegalStateException("app.id.snowflake.node-id must be set to a value unique per instance (0.."
+                    + MAX_NODE_ID + "): it is used for server-issued transaction ids whatever app.id.generator is");
+        }
+        return nodeId;
+    }
+
+    /**
+     * ID duy nhất toàn cục (mọi bảng, mọi instance có {@code node-id} khác nhau), nên {@code table} không được dùng.
+     */
+    @Override
+    public long nextId(String table) {
+        return nextId();
+    }
+
+    /**
+     * @throws IllegalStateException Nếu đồng hồ hệ thống lùi quá {@code app.id.snowflake.max-clock-skew-ms}.
+     */
+    public long nextId() {
+        while (true) {
+            long current = state.get();
+            long lastMillis = current >>> SEQUENCE_BITS;
+            long now = clock.getAsLong() - EPOCH;
+            long next;
+            if (now > lastMillis) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                if (lastMillis - now > maxClockSkewMillis) {
+                    log.warn("Clock is {} ms behind the last issued id, refusing to generate ids", lastMillis - now);
+                    throw new IllegalStateException("System clock moved backwards by " + (lastMillis - now) + " ms");
+                }
+                // Cùng mili giây, hoặc đồng hồ lùi: tiếp tục trên đồng hồ logic, sang mili giây kế khi hết số thứ tự
+                next = (current & SEQUENCE_MASK) == SEQUENCE_MASK ? (lastMillis + 1) << SEQUENCE_BITS : current + 1;
+            }
+            if ((next >>> SEQUENCE_BITS) > MAX_TIMESTAMP) {
+                throw new IllegalStateException("Snowflake timestamp overflow");
+            }
+            if (state.compareAndSet(current, next)) {
+                return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * {@code transactionId} do máy chủ cấp, cho client không tự sinh được mã duy nhất.
+     */
+    public String nextTransactionId() {
+        return Long.toString(nextId());
+    }
+}
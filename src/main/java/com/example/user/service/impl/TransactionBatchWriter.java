@@ -0,0 +1,223 @@
+package com.example.user.service.impl;
+
+import com.example.user.entity.ShardWriteIntent;
+import com.example.user.enums.PostingLeg;
+import com.example.user.repository.AccountBalanceBatchRepository;
+import com.example.user.repository.OutboxEvent;
+import com.example.user.repository.ShardWriteIntentRepository;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.repository.TransactionHistoryBatchRepository;
+import com.example.user.utils.DuplicateKeyUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bộ ghi dùng chung cho các luồng nạp giao dịch số lượng lớn (Bulk Ingestion, Settlement Loader).
+ * <p>
+ * Ghi tất cả các vế của nhiều giao dịch trong MỘT transaction bằng JDBC Batch. Nếu có giao dịch bị trùng
+ * (vi phạm khóa chống trùng {@code transactionId}, xem {@link DuplicateKeyUtil}), cả lô được ghi lại theo từng giao dịch
+ * để chỉ loại bỏ đúng các giao dịch trùng. Mọi vi phạm ràng buộc khác được ném lại cho bên gọi. Giao dịch ghi thành công được đưa vào {@link TransactionIdGuard}.
+ * <p>
+ * Số dư ({@code account_balance}) được cập nhật qua {@link AccountBalanceSequencer}, gộp theo tài khoản: một lô nhiều
+ * giao dịch chạm cùng tài khoản chỉ sinh ra một lệnh UPSERT cho tài khoản đó. Các vế cũng được đưa vào
+ * {@link LedgerEngine} và {@link PostingStreamHub} sau khi commit, và ghi vào Outbox ({@link OutboxRelay}) trong cùng transaction.
+ * <p>
+ * <b>Khi phân mảnh</b> ({@link ShardedTransactionHistoryRepository}): các giao dịch được nhóm theo shard. Giao dịch thuộc
+ * shard 0 (DB chính) ghi như trên trong một transaction. Với shard phụ:
+ * <ol>
+ * <li>Ghi và commit ý định ({@link ShardWriteIntent}) của các giao dịch trên DB chính.</li>
+ * <li>Ghi và commit các vế trên shard.</li>
+ * <li>Trong MỘT transaction trên DB chính: khóa các ý định, ghi trạng thái dẫn xuất (Outbox, số dư, rollup) cho các
+ * giao dịch còn ý định, rồi xóa ý định.</li>
+ * </ol>
+ * Nếu bước 3 thất bại, các giao dịch vừa ghi bị xóa khỏi shard (Compensation) và lỗi được ném lại cho bên gọi thử lại.
+ * Nếu tiến trình dừng giữa bước 2 và 3 (hoặc việc bù trừ thất bại), ý định còn lại trên DB chính và
+ * {@link ShardWriteRecovery} ghi nốt trạng thái dẫn xuất từ các vế trên shard, nên không có vế mồ côi trên shard.
+ */
+@Slf4j
+@Component
+public class TransactionBatchWriter {
+    private final TransactionHistoryBatchRepository batchRepository;
+    private final ShardedTransactionHistoryRepository historyShards;
+    private final AccountBalanceSequencer balanceSequencer;
+    private final LedgerEngine ledgerEngine;
+    private final OutboxRelay outboxRelay;
+    private final PostingStreamHub postingStream;
+    private final TransactionIdGuard transactionIdGuard;
+    private final ShardWriteIntentRepository intentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int jdbcBatchSize;
+
+    public TransactionBatchWriter(TransactionHistoryBatchRepository batchRepository,
+                                  ShardedTransactionHistoryRepository historyShards,
+                                  AccountBalanceSequencer balanceSequencer,
+                                  LedgerEngine ledgerEngine,
+                                  OutboxRelay outboxRelay,
+                                  PostingStreamHub postingStream,
+                                  TransactionIdGuard transactionIdGuard,
+                                  ShardWriteIntentRepository intentRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.ingestion.jdbc-batch-size:1000}") int jdbcBatchSize) {
+        this.batchRepository = batchRepository;
+        this.historyShards = historyShards;
+        this.balanceSequencer = balanceSequencer;
+        this.ledgerEngine = ledgerEngine;
+        this.outboxRelay = outboxRelay;
+        this.postingStream = postingStream;
+        this.transactionIdGuard = transactionIdGuard;
+        this.intentRepository = intentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+    /**
+     * Một giao dịch đã sẵn sàng ghi, gồm tất cả các vế (Nợ/Có) của nó.
+     */
+    public record PendingTransaction(String transactionId, List<TransactionHistoryBatchRepository.Row> rows) {
+    }
+
+    /**
+     * Ghi danh sách giao dịch.
+     *
+     * @return Danh sách giao dịch đã ghi thành công (các giao dịch còn lại bị trùng).
+     */
+    public List<PendingTransaction> writeAll(List<PendingTransaction> transactions) {
+        if (transactions.isEmpty()) return transactions;
+        if (!historyShards.isSharded()) return writePrimary(transactions);
+
+        Map<ShardedTransactionHistoryRepository.Shard, List<PendingTransaction>> byShard = new LinkedHashMap<>();
+        for (PendingTransaction transaction : transactions) {
+            byShard.computeIfAbsent(historyShards.shardOf(transaction.transactionId()), shard -> new ArrayList<>())
+                    .add(transaction);
+        }
+        List<PendingTransaction> written = new ArrayList<>(transactions.size());
+        byShard.forEach((shard, group) -> written.addAll(shard.isPrimary() ? writePrimary(group) : writeShard(shard, group)));
+        return written;
+    }
+
+    private List<PendingTransaction> writePrimary(List<PendingTransaction> transactions) {
+        List<TransactionHistoryBatchRepository.Row> rows = new ArrayList<>(transactions.size() * 2);
+        transactions.forEach(transaction -> rows.addAll(transaction.rows()));
+
+        List<PendingTransaction> written = transactions;
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(rows));
+        } catch (DataIntegrityViolationException e) {
+            if (!DuplicateKeyUtil.isDuplicateTransaction(e)) throw e;
+            log.warn("Batch of {} transactions hit a concurrent duplicate, retrying one by one", transactions.size());
+            written = new ArrayList<>(transactions.size());
+            for (PendingTransaction transaction : transactions) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(transaction.rows()));
+                    written.add(transaction);
+                } catch (DataIntegrityViolationException violation) {
+                    // Giao dịch đã tồn tại thì bỏ qua
+                    if (!DuplicateKeyUtil.isDuplicateTransaction(violation)) throw violation;
+                }
+            }
+        }
+        written.forEach(transaction -> transactionIdGuard.record(transaction.transactionId()));
+        return written;
+    }
+
+    /**
+     * Ghi lên shard phụ: commit ý định trên DB chính, commit các vế trên shard, rồi ghi trạng thái dẫn xuất và xóa ý định
+     * trên DB chính (bù trừ nếu thất bại).
+     */
+    private List<PendingTransaction> writeShard(ShardedTransactionHistoryRepository.Shard shard,
+                                                List<PendingTransaction> transactions) {
+        List<TransactionHistoryBatchRepository.Row> rows = new ArrayList<>(transactions.size() * 2);
+        transactions.forEach(transaction -> rows.addAll(transaction.rows()));
+        List<String> batchIds = transactions.stream().map(PendingTransaction::transactionId).toList();
+        Set<String> freshIntents = transactionTemplate.execute(status -> intentRepository.record(batchIds, LocalDateTime.now()));
+
+        List<PendingTransaction> written = transactions;
+        try {
+            shard.transactionTemplate().executeWithoutResult(status -> historyShards.insertAll(shard, rows, jdbcBatchSize));
+        } catch (DataIntegrityViolationException e) {
+            if (!DuplicateKeyUtil.isDuplicateTransaction(e)) throw e;
+            log.warn("Batch of {} transactions hit a duplicate on shard {}, retrying one by one",
+                    transactions.size(), shard.index());
+            written = new ArrayList<>(transactions.size());
+            rows.clear();
+            for (PendingTransaction transaction : transactions) {
+                try {
+                    shard.transactionTemplate().executeWithoutResult(status ->
+                            historyShards.insertAll(shard, transaction.rows(), jdbcBatchSize));
+                    written.add(transaction);
+                    rows.addAll(transaction.rows());
+                } catch (DataIntegrityViolationException violation) {
+                    // Giao dịch đã tồn tại thì bỏ qua; lỗi khác: gỡ các giao dịch vừa ghi (chưa có trạng thái dẫn xuất)
+                    if (DuplicateKeyUtil.isDuplicateTransaction(violation)) continue;
+                    historyShards.deleteTransactions(shard, written.stream().map(PendingTransaction::transactionId).toList());
+                    throw violation;
+                }
+            }
+        }
+        Set<String> transactionIds = written.stream().map(PendingTransaction::transactionId).collect(Collectors.toSet());
+        // Giao dịch trùng mà ý định do lần ghi này tạo ra đã có trạng thái dẫn xuất từ trước: bỏ ý định đó.
+        // Ý định đã có từ trước (lần ghi trước dừng giữa chừng) được giữ cho ShardWriteRecovery.
+        List<String> duplicateIntents = batchIds.stream()
+                .filter(id -> freshIntents.contains(id) && !transactionIds.contains(id))
+                .toList();
+        if (transactionIds.isEmpty() && duplicateIntents.isEmpty()) return written;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<String> claimed = intentRepository.lock(transactionIds);
+                if (claimed.size() < transactionIds.size()) {
+                    // Chỉ xảy ra khi lần ghi kéo dài quá app.sharding.recovery.grace-ms
+                    log.warn("{} transactions on shard {} were already recovered", transactionIds.size() - claimed.size(),
+                            shard.index());
+                }
+                List<TransactionHistoryBatchRepository.Row> claimedRows = rows.stream()
+                        .filter(row -> claimed.contains(row.transactionId()))
+                        .toList();
+                if (!claimedRows.isEmpty()) applyDerived(claimedRows);
+                intentRepository.delete(claimed);
+                intentRepository.delete(duplicateIntents);
+            });
+        } catch (RuntimeException e) {
+            if (transactionIds.isEmpty()) throw e;
+            log.warn("Derived state for {} transactions on shard {} failed, compensating", transactionIds.size(), shard.index());
+            historyShards.deleteTransactions(shard, transactionIds);
+            throw e;
+        }
+        written.forEach(transaction -> transactionIdGuard.record(transaction.transactionId()));
+        return written;
+    }
+
+    private void insert(List<TransactionHistoryBatchRepository.Row> rows) {
+        batchRepository.insertAll(rows, jdbcBatchSize);
+        applyDerived(rows);
+    }
+
+    /**
+     * Outbox, số dư, Ledger và luồng SSE của các vế vừa ghi. Phải được gọi trong transaction trên DB chính.
+     */
+    void applyDerived(List<TransactionHistoryBatchRepository.Row> rows) {
+        LocalDateTime now = LocalDateTime.now();
+        outboxRelay.write(rows.stream()
+                .map(row -> new OutboxEvent(row.id(), row.transactionId(), row.leg(), row.accountHash(),
+                        row.inDebt(), row.have(), row.time(), now))
+                .toList());
+        balanceSequencer.apply(rows.stream()
+                .map(row -> AccountBalanceBatchRepository.Delta.of(row.accountHash(), row.time(), row.inDebt(), row.have(),
+                        row.leg() == PostingLeg.DEBIT))
+                .toList());
+        ledgerEngine.notifyCommitted();
+        postingStream.publish(rows);
+    }
+}
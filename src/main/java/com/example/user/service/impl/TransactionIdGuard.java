@@ -0,0 +1,157 @@
+package com.example.user.service.impl;
+
+import com.example.user.repository.ITransactionHistoryRepository;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.utils.ScalableBloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.Stream;
+
+/**
+ * Bộ chặn trùng lặp (Idempotency Guard) cho {@code transactionId}, dựa trên {@link ScalableBloomFilter}.
+ * <p>
+ * Luồng kiểm tra:
+ * <ul>
+ * <li>Bloom Filter trả lời "chắc chắn mới" -&gt; không cần chạm tới DB.</li>
+ * <li>Bloom Filter báo "có thể đã tồn tại" -&gt; xác nhận lại bằng truy vấn EXISTS trên index.</li>
+ * </ul>
+ * Filter được nạp (seed) từ bảng {@code transaction_history} trên một luồng nền sau khi ứng dụng khởi động.
+ * Trong lúc nạp chưa xong, mọi truy vấn đều đi thẳng xuống DB để đảm bảo đúng đắn.
+ * Kiểm tra rồi mới ghi (Check-then-act) nên hai request đồng thời có thể cùng vượt qua guard: ràng buộc UNIQUE của
+ * {@code transaction_registry}, ghi cùng transaction với các vế, là chốt chặn cuối cùng; guard chỉ giúp loại bỏ sớm các
+ * request trùng.
+ * Khi {@code transaction_history} được phân mảnh, truy vấn EXISTS đi tới đúng shard chứa giao dịch và filter được nạp
+ * từ mọi shard.
+ * <p>
+ * Giao dịch đã chuyển sang kho lưu trữ ({@link ArchiveSegmentStore}) không còn vế trong DB: filter cũng được nạp từ kho
+ * lưu trữ và bước xác nhận tra cả kho lưu trữ (đăng ký trong {@code transaction_registry} vẫn được giữ).
+ */
+@Slf4j
+@Component
+public class TransactionIdGuard {
+    private final ITransactionHistoryRepository repository;
+    private final ShardedTransactionHistoryRepository historyShards;
+    private final ArchiveSegmentStore archiveStore;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long minimumCapacity;
+    private final double falsePositiveRate;
+    private final Counter definitelyNew;
+    private final Counter possibleHit;
+    private final Counter falsePositive;
+
+    private volatile ScalableBloomFilter filter;
+    private volatile boolean ready;
+
+    public TransactionIdGuard(ITransactionHistoryRepository repository,
+                              ShardedTransactionHistoryRepository historyShards,
+                              ArchiveSegmentStore archiveStore,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.idempotency.bloom.expected-insertions:1000000}") long minimumCapacity,
+                              @Value("${app.idempotency.bloom.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.repository = repository;
+        this.historyShards = historyShards;
+        this.archiveStore = archiveStore;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.minimumCapacity = minimumCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new ScalableBloomFilter(minimumCapacity, falsePositiveRate);
+
+        this.definitelyNew = Counter.builder("transaction.idempotency.bloom.checks")
+                .tag("result", "definitely_new").register(meterRegistry);
+        this.possibleHit = Counter.builder("transaction.idempotency.bloom.checks")
+                .tag("result", "possible_hit").register(meterRegistry);
+        this.falsePositive = Counter.builder("transaction.idempotency.bloom.checks")
+                .tag("result", "false_positive").register(meterRegistry);
+        Gauge.builder("transaction.idempotency.bloom.entries", this, guard -> guard.filter.approximateCount())
+                .register(meterRegistry);
+        Gauge.builder("transaction.idempotency.bloom.capacity", this, guard -> guard.filter.capacity())
+                .register(meterRegistry);
+        Gauge.builder("transaction.idempotency.bloom.size.bits", this, guard -> guard.filter.bitSize())
+                .register(meterRegistry);
+        Gauge.builder("transaction.idempotency.bloom.slices", this, guard -> guard.filter.sliceCount())
+                .register(meterRegistry);
+        Gauge.builder("transaction.idempotency.bloom.fpp.estimated", this,
+                        guard -> guard.filter.estimatedFalsePositiveRate())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Kiểm tra {@code transactionId} đã tồn tại hay chưa.
+     *
+     * @param transactionId Mã giao dịch cần kiểm tra.
+     * @return {@code true} nếu giao dịch đã tồn tại trong DB hoặc trong kho lưu trữ.
+     */
+    public boolean exists(String transactionId) {
+        if (ready && !filter.mightContain(transactionId)) {
+            definitelyNew.increment();
+            return false;
+        }
+        possibleHit.increment();
+        boolean exists = (historyShards.isSharded()
+                ? historyShards.existsByTransactionId(transactionId)
+                : repository.existsByTransactionId(transactionId))
+                || !archiveStore.findByTransactionId(transactionId).isEmpty();
+        if (!exists && ready) {
+            falsePositive.increment();
+        }
+        return exists;
+    }
+
+    /**
+     * Ghi nhận một {@code transactionId} vừa được lưu thành công.
+     */
+    public void record(String transactionId) {
+        filter.put(transactionId);
+    }
+
+    /**
+     * Nạp toàn bộ transactionId hiện có vào filter trên một luồng nền.
+     * Kích thước filter được tính từ số giao dịch hiện có (x2) để còn dư địa tăng trưởng.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedAsync() {
+        Thread seeder = new Thread(this::seed, "transaction-id-bloom-seed");
+        seeder.setDaemon(true);
+        seeder.start();
+    }
+
+    private void seed() {
+        try {
+            long started = System.nanoTime();
+            long existing = historyShards.isSharded()
+                    ? historyShards.countDistinctTransactionIds()
+                    : repository.countDistinctTransactionIds();
+            ScalableBloomFilter seeded = new ScalableBloomFilter(Math.max(minimumCapacity, existing * 2), falsePositiveRate);
+            // Thay filter trước khi duyệt bảng để các id được record() trong lúc nạp cũng nằm trong filter mới.
+            // Nếu vẫn sót id (transaction chưa commit lúc đọc), ràng buộc UNIQUE trong DB sẽ phát hiện trùng.
+            filter = seeded;
+            if (historyShards.isSharded()) {
+                historyShards.forEachTransactionId(seeded::put);
+            } else {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    try (Stream<String> ids = repository.streamAllTransactionIds()) {
+                        ids.forEach(seeded::put);
+                    }
+                });
+            }
+            archiveStore.forEachTransactionId(seeded::put);
+            ready = true;
+            log.info("Transaction ID bloom filter seeded with {} ids in {} ms (bits={}, est. fpp={})",
+                    seeded.approximateCount(), (System.nanoTime() - started) / 1_000_000,
+                    seeded.bitSize(), seeded.estimatedFalsePositiveRate());
+        } catch (RuntimeException e) {
+            log.error("Failed to seed transaction ID bloom filter, falling back to DB checks", e);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.user.service.impl;
+
+import com.example.user.dto.request.TransactionRequest;
+import com.example.user.dto.response.BulkIngestionResponse;
+import com.example.user.entity.TransactionHistory;
+import com.example.user.enums.BulkFormat;
+import com.example.user.enums.PostingLeg;
+import com.example.user.exception.BadRequestException;
+import com.example.user.repository.TransactionHistoryBatchRepository;
+import com.example.user.service.IIdGenerator;
+import com.example.user.service.ITransactionIngestionService;
+import com.example.user.utils.AesUtil;
+import com.example.user.utils.Money;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Class triển khai nạp giao dịch hàng loạt theo mô hình Pipeline 3 tầng.
+ * <p>
+ * <ol>
+ * <li><b>Đọc (Read):</b> Luồng request đọc từng dòng và gom thành chunk {@code chunkSize} dòng.</li>
+ * <li><b>Chuẩn bị (Prepare):</b> Parse, validate (cùng rule với {@link TransactionRequest}), kiểm tra trùng qua
+ * {@link TransactionIdGuard}, cấp ID và mã hóa AES Account. Chạy song song trên ForkJoinPool riêng.</li>
+ * <li><b>Ghi (Write):</b> Ghi 2 vế Nợ/Có của cả chunk trong một transaction bằng JDBC Batch lớn
+ * ({@link TransactionBatchWriter}), chạy trên executor riêng, gối đầu với bước Prepare của chunk kế tiếp.</li>
+ * </ol>
+ * Tại mỗi thời điểm chỉ có tối đa 1 chunk đang Prepare và 1 chunk đang Write cho mỗi request,
+ * nên bộ nhớ sử dụng bị chặn theo {@code chunkSize} bất kể kích thước file.
+ */
+@Slf4j
+@Service
+public class TransactionIngestionService implements ITransactionIngestionService {
+    private static final int MAX_ERRORS_PER_CHUNK = 10;
+    private static final int CSV_COLUMNS = 5;
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final SecretKey secretKey;
+    private final AccountBlindIndex accountBlindIndex;
+    private final IIdGenerator idGenerator;
+    private final TransactionIdGuard transactionIdGuard;
+    private final TransactionBatchWriter batchWriter;
+    private final int chunkSize;
+    private final ForkJoinPool preparePool;
+    private final ExecutorService writerExecutor;
+
+    public TransactionIngestionService(ObjectMapper objectMapper,
+                                       Validator validator,
+                                       SecretKey secretKey,
+                                       AccountBlindIndex accountBlindIndex,
+                                       IIdGenerator idGenerator,
+                                       TransactionIdGuard transactionIdGuard,
+                                       TransactionBatchWriter batchWriter,
+                                       @Value("${app.ingestion.chunk-size:5000}") int chunkSize,
+                                       @Value("${app.ingestion.parallelism:0}") int parallelism,
+                                       @Value("${app.ingestion.writer-threads:2}") int writerThreads) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.secretKey = secretKey;
+        this.accountBlindIndex = accountBlindIndex;
+        this.idGenerator = idGenerator;
+        this.transactionIdGuard = transactionIdGuard;
+        this.batchWriter = batchWriter;
+        this.chunkSize = chunkSize;
+        this.preparePool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.writerExecutor = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-ingest-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        preparePool.shutdown();
+        writerExecutor.shutdown();
+    }
+
+    @Override
+    public BulkIngestionResponse ingest(InputStream body, BulkFormat format) {
+        List<BulkIngestionResponse.ChunkResult> results = new ArrayList<>();
+        CompletableFuture<BulkIngestionResponse.ChunkResult> pendingWrite = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            List<String> lines = new ArrayList<>(chunkSize);
+            long lineNumber = 0;
+            long firstLineOfChunk = 1;
+            int chunkIndex = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (lineNumber == 1 && format == BulkFormat.CSV
+                        && line.startsWith(BulkFormat.CSV_HEADER_PREFIX))) {
+                    lines.add(null);
+                } else {
+                    lines.add(line);
+                }
+                if (lines.size() == chunkSize) {
+                    pendingWrite = pipeline(chunkIndex++, firstLineOfChunk, lines, format, pendingWrite, results);
+                    firstLineOfChunk = lineNumber + 1;
+                    lines = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!lines.isEmpty()) {
+                pendingWrite = pipeline(chunkIndex, firstLineOfChunk, lines, format, pendingWrite, results);
+            }
+            if (Objects.nonNull(pendingWrite)) {
+                results.add(await(pendingWrite));
+            }
+        } catch (IOException e) {
+            throw new BadRequestException("Cannot read bulk payload", e);
+        }
+        BulkIngestionResponse response = BulkIngestionResponse.from(results);
+        log.info("Bulk ingestion finished: received={}, accepted={}, duplicates={}, rejected={}",
+                response.getReceived(), response.getAccepted(), response.getDuplicates(), response.getRejected());
+        return response;
+    }
+
+    /**
+     * Chuẩn bị chunk hiện tại (song song), sau đó chờ chunk trước ghi xong rồi mới đẩy chunk này sang bước ghi.
+     */
+    private CompletableFuture<BulkIngestionResponse.ChunkResult> pipeline(
+            int chunkIndex, long firstLine, List<String> lines, BulkFormat format,
+            CompletableFuture<BulkIngestionResponse.ChunkResult> previousWrite,
+            List<BulkIngestionResponse.ChunkResult> results) {
+        PreparedChunk prepared = prepare(chunkIndex, firstLine, lines, format);
+        if (Objects.nonNull(previousWrite)) {
+            results.add(await(previousWrite));
+        }
+        return CompletableFuture.supplyAsync(() -> write(prepared), writerExecutor);
+    }
+
+    private PreparedChunk prepare(int chunkIndex, long firstLine, List<String> lines, BulkFormat format) {
+        List<Outcome> outcomes = preparePool.submit(() -> IntStream.range(0, lines.size())
+                .parallel()
+                .mapToObj(i -> prepareLine(firstLine + i, lines.get(i), format))
+                .toList()).join();
+
+        PreparedChunk chunk = new PreparedChunk(chunkIndex);
+        Set<String> seenInChunk = new HashSet<>();
+        for (Outcome outcome : outcomes) {
+            if (Objects.isNull(outcome)) continue;
+            chunk.received++;
+            if (Objects.nonNull(outcome.error())) {
+                chunk.reject(outcome.error());
+            } else if (outcome.duplicate() || !seenInChunk.add(outcome.transactionId())) {
+                chunk.duplicates++;
+            } else {
+                chunk.transactions.add(outcome.transaction());
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Parse + validate + kiểm tra trùng + mã hóa cho một dòng. Chạy song song, không dùng trạng thái chung.
+     */
+    private Outcome prepareLine(long lineNumber, String line, BulkFormat format) {
+        if (Objects.isNull(line)) return null;
+        TransactionRequest request;
+        try {
+            request = format == BulkFormat.CSV ? parseCsv(line) : objectMapper.readValue(line, TransactionRequest.class);
+        } catch (JsonProcessingException | IllegalArgumentException | DateTimeParseException e) {
+            return Outcome.rejected("line " + lineNumber + ": malformed " + format.name() + " record");
+        }
+        Set<ConstraintViolation<TransactionRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<TransactionRequest> violation = violations.iterator().next();
+            return Outcome.rejected("line " + lineNumber + ": " + violation.getPropertyPath() + " " + violation.getMessage());
+        }
+        if (transactionIdGuard.exists(request.getTransactionId())) {
+            return Outcome.duplicateOf(request.getTransactionId());
+        }
+        return Outcome.accepted(new TransactionBatchWriter.PendingTransaction(request.getTransactionId(), List.of(
+                toRow(request, PostingLeg.DEBIT),
+                toRow(request, PostingLeg.CREDIT))));
+    }
+
+    private TransactionRequest parseCsv(String line) {
+        String[] columns = line.split(",", -1);
+        if (columns.length != CSV_COLUMNS) {
+            throw new IllegalArgumentException("Expected " + CSV_COLUMNS + " columns");
+        }
+        return TransactionRequest.builder()
+                .transactionId(columns[0].trim())
+                .sourceAccount(columns[1].trim())
+                .destAccount(columns[2].trim())
+                .amount(new BigDecimal(columns[3].trim()))
+                .time(LocalDateTime.parse(columns[4].trim()))
+                .build();
+    }
+
+    private TransactionHistoryBatchRepository.Row toRow(TransactionRequest request, PostingLeg leg) {
+        boolean debit = leg == PostingLeg.DEBIT;
+        String account = debit ? request.getSourceAccount() : request.getDestAccount();
+        long amount = Money.toMinorUnits(request.getAmount());
+        return new TransactionHistoryBatchRepository.Row(
+                idGenerator.nextId(TransactionHistory.TABLE_NAME),
+                request.getTransactionId(),
+                leg,
+                AesUtil.encrypt(account, secretKey),
+                accountBlindIndex.of(account),
+                debit ? amount : 0,
+                debit ? 0 : amount,
+                request.getTime());
+    }
+
+    /**
+     * Ghi cả chunk qua {@link TransactionBatchWriter}; giao dịch bị trùng do request song song được tính vào duplicates.
+     */
+    private BulkIngestionResponse.ChunkResult write(PreparedChunk chunk) {
+        int accepted = batchWriter.writeAll(chunk.transactions).size();
+        return BulkIngestionResponse.ChunkResult.builder()
+                .chunk(chunk.index)
+                .received(chunk.received)
+                .accepted(accepted)
+                .duplicates(chunk.duplicates + chunk.transactions.size() - accepted)
+                .rejected(chunk.rejected)
+                .errors(chunk.errors)
+                .build();
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    private record Outcome(String transactionId, TransactionBatchWriter.PendingTransaction transaction,
+                           boolean duplicate, String error) {
+        static Outcome accepted(TransactionBatchWriter.PendingTransaction transaction) {
+            return new Outcome(transaction.transactionId(), transaction, false, null);
+        }
+
+        static Outcome duplicateOf(String transactionId) {
+            return new Outcome(transactionId, null, true, null);
+        }
+
+        static Outcome rejected(String error) {
+            return new Outcome(null, null, false, error);
+        }
+    }
+
+    private static final class PreparedChunk {
+        private final int index;
+        private final List<TransactionBatchWriter.PendingTransaction> transactions = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private int received;
+        private int duplicates;
+        private int rejected;
+
+        private PreparedChunk(int index) {
+            this.index = index;
+        }
+
+        private void reject(String error) {
+            rejected++;
+            if (errors.size() < MAX_ERRORS_PER_CHUNK) errors.add(error);
+        }
+    }
+}
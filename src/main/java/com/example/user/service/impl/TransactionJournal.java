@@ -0,0 +1,631 @@
+package com.example.user.service.impl;
+
+import com.example.user.enums.PostingLeg;
+import com.example.user.exception.ServiceUnavailableException;
+import com.example.user.repository.TransactionHistoryBatchRepository;
+import com.example.user.utils.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Nhật ký ghi trước (Write-Ahead Journal) cho việc tạo giao dịch, tùy chọn qua {@code app.journal.enabled=true}.
+ * <p>
+ * Thay vì chờ INSERT + COMMIT của MySQL, request chỉ chờ bản ghi được ghi xuống file Journal cục bộ:
+ * <ul>
+ * <li><b>Ghi:</b> Bản ghi ({@code [length][crc32][payload]}) được chép vào Segment Memory-mapped hiện tại.
+ * Segment đầy thì mở Segment mới, tên file là số thứ tự Segment.</li>
+ * <li><b>Group Commit:</b> MỘT luồng fsync ({@link MappedByteBuffer#force()}) cho tất cả bản ghi đã chép tới thời điểm đó;
+ * trong lúc fsync, các request mới tiếp tục dồn vào và được fsync chung ở lượt sau. Request được xác nhận
+ * ngay sau khi bản ghi của nó bền vững trên đĩa.</li>
+ * <li><b>Write-Behind:</b> Luồng Flusher gom các giao dịch đã ghi Journal thành lô lớn và ghi vào
+ * {@code transaction_history} qua {@link TransactionBatchWriter}, rồi lưu vị trí Checkpoint và xóa các Segment đã ghi hết.</li>
+ * <li><b>Khôi phục:</b> Khi khởi động, các bản ghi sau Checkpoint được đọc lại (dừng ở bản ghi hỏng/ghi dở) và ghi vào DB
+ * trước khi nhận request. Ràng buộc UNIQUE của {@code transaction_registry} loại bỏ các giao dịch đã được ghi
+ * trước khi sự cố xảy ra, nên mỗi giao dịch được ghi đúng một lần.</li>
+ * <li><b>Áp lực ngược:</b> mỗi giao dịch giữ trước một chỗ trong hàng đợi Flush (ngoài khóa ghi). Nếu Flusher bị tụt lại
+ * quá {@code app.journal.enqueue-timeout-ms}, request bị từ chối với {@link ServiceUnavailableException} (503)
+ * trước khi ghi vào Journal.</li>
+ * <li><b>Poison Record:</b> lỗi tạm thời của DB (mất kết nối, timeout, Sequencer tạm dừng) được thử lại cả lô. Lỗi còn
+ * lại do dữ liệu của một giao dịch: lô được ghi lại từng giao dịch, giao dịch vẫn lỗi được chuyển sang file cách ly
+ * {@code quarantine.rejected} (cùng định dạng bản ghi, đổi tên thành Segment để ghi lại sau khi sửa) thay vì chặn mọi
+ * giao dịch phía sau.</li>
+ * </ul>
+ * Giao dịch đã xác nhận nhưng chưa Flush chưa xuất hiện trong các API đọc (nhất quán sau - Eventual Consistency).
+ * Journal là cục bộ của từng instance: mỗi instance cần thư mục {@code app.journal.dir} riêng trên ổ đĩa bền vững.
+ */
+@Slf4j
+@Component
+public class TransactionJournal {
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String QUARANTINE_FILE = "quarantine.rejected";
+    private static final String BACKLOG_FULL = "Transaction journal backlog is full, retry later";
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long RETRY_BACKOFF_MILLIS = 1_000;
+    private static final PostingLeg[] LEGS = PostingLeg.values();
+
+    private final TransactionBatchWriter batchWriter;
+    private final TransactionIdGuard transactionIdGuard;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final int flushBatch;
+    private final long flushIntervalNanos;
+    private final long enqueueTimeoutNanos;
+    private final MpscRingBuffer<Entry> pending;
+    private final Semaphore pendingSlots;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition durable = appendLock.newCondition();
+    private final Counter appended;
+    private final Counter flushed;
+    private final Counter quarantined;
+    private final DistributionSummary syncBatch;
+    private final DistributionSummary flushBatchSize;
+
+    // Các trường dưới đây được bảo vệ bởi appendLock
+    private long segmentIndex;
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+    private int segmentOffset;
+    private long writtenRecords;
+    private long syncedRecords;
+
+    private Thread syncer;
+    private Thread flusher;
+    private volatile boolean running;
+
+    public TransactionJournal(TransactionBatchWriter batchWriter,
+                              TransactionIdGuard transactionIdGuard,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.journal.enabled:false}") boolean enabled,
+                              @Value("${app.journal.dir:./data/journal}") String directory,
+                              @Value("${app.journal.segment-bytes:67108864}") int segmentBytes,
+                              @Value("${app.journal.flush-batch:5000}") int flushBatch,
+                              @Value("${app.journal.flush-interval-ms:50}") long flushIntervalMillis,
+                              @Value("${app.journal.queue-capacity:65536}") int queueCapacity,
+                              @Value("${app.journal.enqueue-timeout-ms:1000}") long enqueueTimeoutMillis) {
+        this.batchWriter = batchWriter;
+        this.transactionIdGuard = transactionIdGuard;
+        this.enabled = enabled;
+        this.directory = Path.of(directory).toAbsolutePath();
+        this.segmentBytes = segmentBytes;
+        this.flushBatch = flushBatch;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.enqueueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(enqueueTimeoutMillis);
+        this.pending = new MpscRingBuffer<>(queueCapacity);
+        this.pendingSlots = new Semaphore(pending.capacity());
+        this.appended = Counter.builder("journal.records.appended").register(meterRegistry);
+        this.flushed = Counter.builder("journal.records.flushed").register(meterRegistry);
+        this.quarantined = Counter.builder("journal.records.quarantined")
+                .description("Journaled transactions moved aside because they cannot be written to the database")
+                .register(meterRegistry);
+        this.syncBatch = DistributionSummary.builder("journal.fsync.batch.size")
+                .description("Records made durable by one fsync (group commit)")
+                .register(meterRegistry);
+        this.flushBatchSize = DistributionSummary.builder("journal.flush.batch.size")
+                .description("Transactions written to the database by one write-behind flush")
+                .register(meterRegistry);
+        Gauge.builder("journal.pending", pending, MpscRingBuffer::size)
+                .description("Acknowledged transactions not yet written to the database")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ghi giao dịch vào Journal và chờ tới khi bản ghi đã được fsync.
+     *
+     * @return {@code false} nếu {@code transactionId} đã tồn tại (trong DB hoặc đang chờ Flush).
+     * @throws ServiceUnavailableException Nếu hàng đợi Flush vẫn đầy sau {@code app.journal.enqueue-timeout-ms}.
+     */
+    public boolean append(TransactionBatchWriter.PendingTransaction transaction) {
+        if (!running) {
+            throw new IllegalStateException("Transaction journal is not running");
+        }
+        String transactionId = transaction.transactionId();
+        // Giữ chỗ trước rồi mới kiểm tra DB: giao dịch chỉ rời inFlight SAU KHI đã commit vào DB
+        if (!inFlight.add(transactionId)) return false;
+        long recordNumber;
+        try {
+            if (transactionIdGuard.exists(transactionId)) {
+                inFlight.remove(transactionId);
+                return false;
+            }
+            reservePendingSlot();
+            try {
+                recordNumber = write(encode(transaction), transaction);
+            } catch (RuntimeException e) {
+                pendingSlots.release();
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            inFlight.remove(transactionId);
+            throw e;
+        }
+        LockSupport.unpark(syncer);
+        awaitDurable(recordNumber);
+        appended.increment();
+        return true;
+    }
+
+    /**
+     * Khôi phục các giao dịch chưa Flush rồi khởi động luồng fsync và luồng Flusher.
+     * Chạy đồng bộ khi khởi tạo bean để ứng dụng chỉ nhận request sau khi Journal đã được đọc lại.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) return;
+        Files.createDirectories(directory);
+        long nextSegment = recover();
+        appendLock.lock();
+        try {
+            openSegment(nextSegment);
+        } finally {
+            appendLock.unlock();
+        }
+        running = true;
+        syncer = new Thread(this::runSyncer, "journal-fsync");
+        syncer.setDaemon(true);
+        syncer.start();
+        flusher = new Thread(this::runFlusher, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(syncer);
+        LockSupport.unpark(flusher);
+        try {
+            syncer.join(TimeUnit.SECONDS.toMillis(10));
+            flusher.join(TimeUnit.SECONDS.toMillis(60));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeSegment();
+    }
+
+    private record Entry(TransactionBatchWriter.PendingTransaction transaction, long segmentIndex) {
+    }
+
+    /**
+     * Giữ trước một chỗ trong hàng đợi Flush, chờ có giới hạn và NGOÀI khóa ghi: request đang chờ không chặn các request
+     * khác chép vào Segment hay luồng fsync.
+     */
+    private void reservePendingSlot() {
+        try {
+            if (!pendingSlots.tryAcquire(enqueueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new ServiceUnavailableException(BACKLOG_FULL);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException(BACKLOG_FULL, e);
+        }
+    }
+
+    /**
+     * Chép bản ghi vào Segment hiện tại và đưa giao dịch vào hàng đợi Flush (cùng thứ tự với Journal).
+     * Người gọi đã giữ chỗ trong hàng đợi ({@link #reservePendingSlot()}).
+     *
+     * @return Số thứ tự của bản ghi, dùng để chờ fsync.
+     */
+    private long write(byte[] record, TransactionBatchWriter.PendingTransaction transaction) {
+        int size = RECORD_HEADER_BYTES + record.length;
+        if (size > segmentBytes) {
+            throw new IllegalArgumentException("Journal record of " + size + " bytes exceeds the segment size");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        appendLock.lock();
+        try {
+            if (segmentOffset + size > segmentBytes) {
+                // Phần còn lại của Segment cũ toàn số 0 (length = 0 là dấu kết thúc Segment)
+                segment.force();
+                syncedRecords = writtenRecords;
+                durable.signalAll();
+                closeSegment();
+                openSegment(segmentIndex + 1);
+            }
+            segment.putInt(segmentOffset + Integer.BYTES, (int) crc.getValue());
+            segment.put(segmentOffset + RECORD_HEADER_BYTES, record);
+            // Ghi length sau cùng: bản ghi chỉ "tồn tại" khi header đầy đủ
+            segment.putInt(segmentOffset, record.length);
+            segmentOffset += size;
+            if (!pending.offer(new Entry(transaction, segmentIndex))) {
+                throw new IllegalStateException("Journal queue is full despite a reserved slot");
+            }
+            return ++writtenRecords;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void awaitDurable(long recordNumber) {
+        appendLock.lock();
+        try {
+            while (syncedRecords < recordNumber) {
+                if (!syncer.isAlive()) {
+                    throw new IllegalStateException("Transaction journal stopped before the record was synced");
+                }
+                durable.awaitNanos(MAX_IDLE_PARK_NANOS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the journal fsync", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Group Commit: mỗi lượt fsync toàn bộ bản ghi đã chép, rồi đánh thức các request đang chờ.
+     * Khi dừng, luồng chỉ thoát sau khi đã fsync mọi bản ghi.
+     */
+    private void runSyncer() {
+        long idleParkNanos = 1;
+        while (true) {
+            MappedByteBuffer target;
+            long records;
+            long synced;
+            appendLock.lock();
+            try {
+                target = segment;
+                records = writtenRecords;
+                synced = syncedRecords;
+            } finally {
+                appendLock.unlock();
+            }
+            if (records == synced) {
+                if (!running) break;
+                LockSupport.parkNanos(idleParkNanos);
+                idleParkNanos = Math.min(idleParkNanos << 1, MAX_IDLE_PARK_NANOS);
+                continue;
+            }
+            idleParkNanos = 1;
+            // fsync ngoài khóa: các request khác vẫn chép tiếp vào phần sau của Segment
+            target.force();
+            appendLock.lock();
+            try {
+                if (records > syncedRecords) {
+                    syncBatch.record(records - syncedRecords);
+                    syncedRecords = records;
+                }
+                durable.signalAll();
+            } finally {
+                appendLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Write-Behind: gom tối đa {@code flush-batch} giao dịch (hoặc chờ tối đa {@code flush-interval-ms}) rồi ghi một lô.
+     */
+    private void runFlusher() {
+        List<Entry> batch = new ArrayList<>(flushBatch);
+        long batchStarted = 0;
+        while (running || !pending.isEmpty() || !batch.isEmpty()) {
+            if (batch.isEmpty()) batchStarted = System.nanoTime();
+            int drained = pending.drain(batch::add, flushBatch - batch.size());
+            if (drained > 0) pendingSlots.release(drained);
+            boolean full = batch.size() >= flushBatch;
+            boolean due = System.nanoTime() - batchStarted >= flushIntervalNanos || !running;
+            if (batch.isEmpty() || (!full && !due)) {
+                LockSupport.parkNanos(MAX_IDLE_PARK_NANOS);
+                continue;
+            }
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<Entry> batch) {
+        List<TransactionBatchWriter.PendingTransaction> transactions = new ArrayList<>(batch.size());
+        batch.forEach(entry -> transactions.add(entry.transaction()));
+        while (true) {
+            try {
+                writeOrQuarantine(transactions, true);
+                break;
+            } catch (UncheckedIOException e) {
+                // Không ghi được file cách ly: giữ lại cả lô, giao dịch đã ghi sẽ bị bỏ qua như giao dịch trùng
+                log.error("Failed to quarantine a journaled transaction, retrying the flush", e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(RETRY_BACKOFF_MILLIS));
+            }
+        }
+        transactions.forEach(transaction -> inFlight.remove(transaction.transactionId()));
+        flushed.increment(transactions.size());
+        flushBatchSize.record(transactions.size());
+        checkpoint(batch.get(batch.size() - 1).segmentIndex());
+    }
+
+    /**
+     * Ghi một lô vào DB; giao dịch trùng (đã được ghi trước khi khởi động lại) bị {@link TransactionBatchWriter} bỏ qua.
+     * Nếu lô gặp lỗi không tạm thời, ghi lại từng giao dịch và cách ly giao dịch vẫn lỗi.
+     *
+     * @param retryTransient {@code true}: thử lại lỗi tạm thời tới khi thành công; {@code false}: ném lỗi ra.
+     * @return Số giao dịch đã ghi mới.
+     */
+    private int writeOrQuarantine(List<TransactionBatchWriter.PendingTransaction> transactions, boolean retryTransient) {
+        try {
+            return writeRetrying(transactions, retryTransient);
+        } catch (RuntimeException e) {
+            if (isTransient(e)) throw e;
+            log.warn("Write-behind flush of {} journaled transactions failed, writing one by one to isolate poison records",
+                    transactions.size(), e);
+        }
+        int written = 0;
+        for (TransactionBatchWriter.PendingTransaction transaction : transactions) {
+            try {
+                written += writeRetrying(List.of(transaction), retryTransient);
+            } catch (RuntimeException e) {
+                if (isTransient(e)) throw e;
+                quarantine(transaction, e);
+            }
+        }
+        return written;
+    }
+
+    private int writeRetrying(List<TransactionBatchWriter.PendingTransaction> transactions, boolean retryTransient) {
+        while (true) {
+            try {
+                return batchWriter.writeAll(transactions).size();
+            } catch (RuntimeException e) {
+                if (!retryTransient || !isTransient(e)) throw e;
+                log.warn("Write-behind flush of {} journaled transactions failed, retrying", transactions.size(), e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(RETRY_BACKOFF_MILLIS));
+            }
+        }
+    }
+
+    /**
+     * Lỗi do DB tạm thời không phục vụ được (thử lại có thể thành công), khác với lỗi do dữ liệu của giao dịch.
+     */
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransactionException
+                || e instanceof ServiceUnavailableException;
+    }
+
+    /**
+     * Nối bản ghi của giao dịch vào file cách ly (fsync) để không bị mất khi Checkpoint xóa Segment của nó.
+     */
+    private void quarantine(TransactionBatchWriter.PendingTransaction transaction, RuntimeException cause) {
+        byte[] record = encode(transaction);
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + record.length)
+                .putInt(record.length)
+                .putInt((int) crc.getValue())
+                .put(record)
+                .flip();
+        Path file = directory.resolve(QUARANTINE_FILE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + file, e);
+        }
+        quarantined.increment();
+        log.error("Journaled transaction with {} legs cannot be written to the database, moved to {}",
+                transaction.rows().size(), file, cause);
+    }
+
+    /**
+     * Mọi Segment trước Segment chứa giao dịch cuối cùng đã Flush đều đã nằm trong DB và có thể xóa.
+     * Checkpoint không cần fsync: nếu bị mất, khôi phục chỉ đọc lại nhiều hơn và UNIQUE loại bỏ phần trùng.
+     */
+    private void checkpoint(long flushedSegment) {
+        try {
+            Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            Files.write(temporary, ByteBuffer.allocate(Long.BYTES).putLong(flushedSegment).array());
+            Files.move(temporary, directory.resolve(CHECKPOINT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (Path file : segmentFiles()) {
+                if (segmentIndexOf(file) < flushedSegment) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write the journal checkpoint, older segments will be replayed on restart", e);
+        }
+    }
+
+    /**
+     * Đọc lại các Segment từ Checkpoint và ghi vào DB theo lô.
+     *
+     * @return Số thứ tự Segment tiếp theo để ghi.
+     */
+    private long recover() throws IOException {
+        Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        long fromSegment = Files.isRegularFile(checkpointFile)
+                ? ByteBuffer.wrap(Files.readAllBytes(checkpointFile)).getLong()
+                : 0;
+        List<Path> files = segmentFiles();
+        long nextSegment = fromSegment;
+        long replayed = 0;
+        long written = 0;
+        List<TransactionBatchWriter.PendingTransaction> batch = new ArrayList<>(flushBatch);
+        for (Path file : files) {
+            long index = segmentIndexOf(file);
+            nextSegment = Math.max(nextSegment, index + 1);
+            if (index < fromSegment) continue;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int offset = 0;
+                while (offset + RECORD_HEADER_BYTES <= buffer.limit()) {
+                    int length = buffer.getInt(offset);
+                    if (length <= 0 || offset + RECORD_HEADER_BYTES + length > buffer.limit()) break;
+                    byte[] record = new byte[length];
+                    buffer.get(offset + RECORD_HEADER_BYTES, record);
+                    CRC32 crc = new CRC32();
+                    crc.update(record);
+                    if ((int) crc.getValue() != buffer.getInt(offset + Integer.BYTES)) {
+                        log.warn("Torn journal record in {} at offset {}, ignoring the rest of the segment", file, offset);
+                        break;
+                    }
+                    batch.add(decode(record));
+                    replayed++;
+                    if (batch.size() == flushBatch) {
+                        written += writeOrQuarantine(batch, false);
+                        batch = new ArrayList<>(flushBatch);
+                    }
+                    offset += RECORD_HEADER_BYTES + length;
+                }
+            }
+        }
+        written += writeOrQuarantine(batch, false);
+        // Toàn bộ Journal cũ đã nằm trong DB: bắt đầu lại từ một Segment mới
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+        checkpoint(nextSegment);
+        if (replayed > 0) {
+            log.info("Journal recovery replayed {} transactions: {} written, {} already in the database or quarantined",
+                    replayed, written, replayed - written);
+        }
+        return nextSegment;
+    }
+
+    private void openSegment(long index) {
+        try {
+            Path file = directory.resolve(String.format("%020d%s", index, SEGMENT_SUFFIX));
+            segmentChannel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            segmentIndex = index;
+            segmentOffset = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open journal segment " + index, e);
+        }
+    }
+
+    private void closeSegment() {
+        if (Objects.isNull(segmentChannel)) return;
+        try {
+            segment.force();
+            segmentChannel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close journal segment {}", segmentIndex, e);
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static long segmentIndexOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Payload: transactionId, số vế, rồi mỗi vế: id, leg, account (đã mã hóa), account_hash, in_debt, have
+     * (đơn vị nhỏ nhất, {@code long}), time.
+     */
+    private static byte[] encode(TransactionBatchWriter.PendingTransaction transaction) {
+        List<TransactionHistoryBatchRepository.Row> rows = transaction.rows();
+        List<byte[]> parts = new ArrayList<>(1 + rows.size() * 2);
+        parts.add(transaction.transactionId().getBytes(StandardCharsets.UTF_8));
+        int size = Short.BYTES + parts.get(0).length + Byte.BYTES;
+        for (TransactionHistoryBatchRepository.Row row : rows) {
+            byte[] account = row.encryptedAccount().getBytes(StandardCharsets.UTF_8);
+            byte[] accountHash = row.accountHash().getBytes(StandardCharsets.UTF_8);
+            parts.add(account);
+            parts.add(accountHash);
+            size += Long.BYTES + Byte.BYTES + Short.BYTES * 2 + account.length + accountHash.length
+                    + Long.BYTES * 2 + Long.BYTES + Integer.BYTES;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        putBytes(buffer, parts.get(0));
+        buffer.put((byte) rows.size());
+        int part = 1;
+        for (TransactionHistoryBatchRepository.Row row : rows) {
+            buffer.putLong(row.id());
+            buffer.put((byte) row.leg().ordinal());
+            putBytes(buffer, parts.get(part++));
+            putBytes(buffer, parts.get(part++));
+            buffer.putLong(row.inDebt());
+            buffer.putLong(row.have());
+            buffer.putLong(row.time().toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(row.time().getNano());
+        }
+        return buffer.array();
+    }
+
+    private static TransactionBatchWriter.PendingTransaction decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        String transactionId = new String(getBytes(buffer), StandardCharsets.UTF_8);
+        int legs = buffer.get();
+        List<TransactionHistoryBatchRepository.Row> rows = new ArrayList<>(legs);
+        for (int i = 0; i < legs; i++) {
+            long id = buffer.getLong();
+            PostingLeg leg = LEGS[buffer.get()];
+            String account = new String(getBytes(buffer), StandardCharsets.UTF_8);
+            String accountHash = new String(getBytes(buffer), StandardCharsets.UTF_8);
+            long inDebt = buffer.getLong();
+            long have = buffer.getLong();
+            LocalDateTime time = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+            rows.add(new TransactionHistoryBatchRepository.Row(id, transactionId, leg, account, accountHash, inDebt, have, time));
+        }
+        return new TransactionBatchWriter.PendingTransaction(transactionId, rows);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
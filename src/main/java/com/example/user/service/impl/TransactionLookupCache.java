@@ -0,0 +1,93 @@
+package com.example.user.service.impl;
+
+import com.example.user.dto.response.TransactionResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Cache các giao dịch đã giải mã theo {@code transactionId}.
+ * <p>
+ * Vế hạch toán không bao giờ thay đổi sau khi ghi (Immutable), nên cache không cần cơ chế vô hiệu hóa (Invalidation):
+ * <ul>
+ * <li>Nạp khi đọc (Read-through) và khi ghi thành công qua {@code createTransaction}.</li>
+ * <li>Giới hạn theo dung lượng ước tính ({@code app.transaction-cache.max-bytes}), loại bỏ theo W-TinyLFU (Caffeine):
+ * giao dịch chỉ đọc một lần (ví dụ ngay sau khi ghi) không đẩy được giao dịch "nóng" ra khỏi cache.</li>
+ * <li>Nhiều request cùng trượt một khóa chỉ tạo MỘT truy vấn DB + giải mã (các request còn lại chờ kết quả).</li>
+ * </ul>
+ * Lưu ý: cache giữ số tài khoản ở dạng rõ (đã giải mã) trong Heap, giống dữ liệu trả về của API.
+ */
+@Component
+public class TransactionLookupCache {
+    /** Node của Caffeine + List + khóa, ước lượng thô. */
+    private static final int ENTRY_OVERHEAD_BYTES = 112;
+    /** TransactionResponse + 2 BigDecimal + LocalDateTime, ước lượng thô. */
+    private static final int RESPONSE_OVERHEAD_BYTES = 160;
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
+    private final Cache<String, List<TransactionResponse>> cache;
+
+    public TransactionLookupCache(MeterRegistry meterRegistry,
+                                  @Value("${app.transaction-cache.enabled:true}") boolean enabled,
+                                  @Value("${app.transaction-cache.max-bytes:67108864}") long maxBytes) {
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(TransactionLookupCache::estimateBytes)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "transactions");
+        Gauge.builder("transaction.cache.hit.ratio", cache, c -> c.stats().hitRate()).register(meterRegistry);
+        Gauge.builder("transaction.cache.estimated.bytes", cache,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("Estimated heap used by cached transactions")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Đọc từ cache, nếu trượt thì gọi {@code loader} và lưu kết quả.
+     *
+     * @param loader Trả về {@code null} nếu giao dịch không tồn tại (kết quả rỗng không được cache).
+     * @return Danh sách vế (không sửa được), hoặc {@code null} nếu không tồn tại.
+     */
+    public List<TransactionResponse> get(String transactionId,
+                                         Function<String, List<TransactionResponse>> loader) {
+        if (Objects.isNull(cache)) return loader.apply(transactionId);
+        return cache.get(transactionId, id -> {
+            List<TransactionResponse> loaded = loader.apply(id);
+            return Objects.isNull(loaded) ? null : List.copyOf(loaded);
+        });
+    }
+
+    /**
+     * Nạp sẵn giao dịch vừa ghi thành công.
+     */
+    public void put(String transactionId, List<TransactionResponse> responses) {
+        if (Objects.isNull(cache)) return;
+        cache.put(transactionId, List.copyOf(responses));
+    }
+
+    private static int estimateBytes(String transactionId, List<TransactionResponse> responses) {
+        int bytes = ENTRY_OVERHEAD_BYTES + stringBytes(transactionId);
+        for (TransactionResponse response : responses) {
+            bytes += RESPONSE_OVERHEAD_BYTES + stringBytes(response.getTransactionId()) + stringBytes(response.getAccount());
+        }
+        return bytes;
+    }
+
+    private static int stringBytes(String value) {
+        return Objects.isNull(value) ? 0 : STRING_OVERHEAD_BYTES + value.length();
+    }
+}
@@ -1,23 +1,49 @@
 package com.example.user.service.impl;
 
+import com.example.user.constant.TransactionRules;
 import com.example.user.dto.request.InternalTransactionRequest;
+import com.example.user.dto.request.MultiLegTransactionRequest;
 import com.example.user.dto.request.TransactionRequest;
+import com.example.user.dto.response.StatementResponse;
+import com.example.user.dto.response.TransactionIdResponse;
 import com.example.user.dto.response.TransactionResponse;
 import com.example.user.dto.response.UserResponse;
 import com.example.user.entity.TransactionHistory;
 import com.example.user.entity.User;
 import com.example.user.entity.UserProfile;
+import com.example.user.enums.PostingLeg;
+import com.example.user.exception.BadRequestException;
 import com.example.user.exception.ConflictException;
 import com.example.user.exception.NotFoundException;
+import com.example.user.exception.NotImplementedException;
 import com.example.user.mapper.TransactionMapper;
+import com.example.user.repository.AccountBalanceBatchRepository;
 import com.example.user.repository.ITransactionHistoryRepository;
+import com.example.user.repository.OutboxEvent;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.repository.StatementRow;
+import com.example.user.repository.TransactionHistoryBatchRepository;
+import com.example.user.repository.TransactionRegistryRepository;
+import com.example.user.service.IIdGenerator;
 import com.example.user.service.ITransactionService;
-import jakarta.transaction.Transactional;
+import com.example.user.utils.AesUtil;
+import com.example.user.utils.DuplicateKeyUtil;
+import com.example.user.utils.Money;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.crypto.SecretKey;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Objects;
 
@@ -27,7 +53,7 @@ import java.util.Objects;
  * Class này chịu trách nhiệm:
  * <ul>
  * <li>Quản lý luồng tạo giao dịch theo nguyên lý kế toán kép (Double Entry).</li>
- * <li>Đảm bảo tính nhất quán dữ liệu (Atomicity) bằng @Transactional.</li>
+ * <li>Đảm bảo tính nhất quán dữ liệu (Atomicity) bằng transaction, hoặc ghi qua {@link TransactionJournal} khi bật.</li>
  * <li>Truy vấn lịch sử và chuyển đổi dữ liệu mã hóa cho các internal services.</li>
  * </ul>
  */
@@ -36,62 +62,229 @@ import java.util.Objects;
 @RequiredArgsConstructor
 public class TransactionService implements ITransactionService {
     private final ITransactionHistoryRepository repository;
+    private final ShardedTransactionHistoryRepository historyShards;
+    private final TransactionRegistryRepository transactionRegistry;
+    private final TransactionBatchWriter batchWriter;
+    private final AccountBalanceSequencer balanceSequencer;
+    private final LedgerEngine ledgerEngine;
+    private final OutboxRelay outboxRelay;
+    private final PostingStreamHub postingStream;
+    private final ArchiveSegmentStore archiveStore;
+    private final TransactionJournal transactionJournal;
+    private final TransactionLookupCache transactionCache;
+    private final TransactionTemplate transactionTemplate;
+    private final SecretKey secretKey;
     private final TransactionMapper transactionMapper;
+    private final IIdGenerator idGenerator;
+    private final SnowflakeIdGenerator snowflakeIdGenerator;
+    private final TransactionIdGuard transactionIdGuard;
+    private final AccountBlindIndex accountBlindIndex;
+    private static final String TRANSACTION_EXISTS = "Transaction ID already exists";
+    private static final String TRANSACTION_NOT_FOUND = "Not found transaction ID";
+    private static final String INVALID_TIME_RANGE = "'from' must be before 'to'";
+    private static final String INVALID_CURSOR = "Invalid statement cursor";
+    private static final String LEGS_ONE_SIDED = "A transaction needs at least one debit and one credit leg";
+    private static final String LEGS_UNBALANCED = "Total debit must equal total credit";
+    private static final String LEGS_TOO_LARGE = "Total amount is too large";
+    private static final String AMOUNT_TOO_SMALL = "Total amount is below the minimum transaction amount";
+    private static final String MULTI_LEG_UNSUPPORTED = "Multi-leg transactions are not supported while the journal is enabled"
+            + " or for transactions routed to a secondary history shard";
+    private static final long MIN_AMOUNT_MINOR = Money.toMinorUnits(BigDecimal.valueOf(TransactionRules.MIN_AMOUNT));
+    private static final char CURSOR_SEPARATOR = '|';
 
     /**
      * Tạo và lưu trữ một giao dịch mới vào cơ sở dữ liệu.
      * <p>
      * Logic nghiệp vụ:
-     * 1. Kiểm tra tính duy nhất của {@code transactionId} để tránh trùng lặp (Idempotency).
+     * 1. Loại bỏ sớm giao dịch trùng qua {@link TransactionIdGuard} (Bloom Filter, chỉ chạm DB khi nghi trùng).
      * 2. Tạo bản ghi <b>DEBIT</b> (Ghi Nợ): Account nguồn bị trừ tiền (InDebt = Amount).
      * 3. Tạo bản ghi <b>CREDIT</b> (Ghi Có): Account đích được cộng tiền (Have = Amount).
-     * 4. Dữ liệu Account sẽ được tự động mã hóa AES bởi JPA Converter trước khi lưu.
+     * 4. Ghi cả 2 bản ghi trong <b>một JDBC Batch</b> (ID cấp phát sẵn bởi {@link IIdGenerator}).
+     * 5. Tính duy nhất của {@code transactionId} (Idempotency) được đảm bảo cuối cùng bởi ràng buộc UNIQUE của
+     * {@code transaction_registry}, ghi trong cùng transaction với các vế (không phụ thuộc {@code time}).
+     * 6. Dữ liệu Account sẽ được tự động mã hóa AES bởi JPA Converter trước khi lưu.
+     * 7. Ghi 2 sự kiện vào Outbox ({@link OutboxRelay}, nếu bật) trong cùng transaction.
+     * 8. Cập nhật {@code account_balance} của cả 2 tài khoản qua {@link AccountBalanceSequencer}
+     * và đưa 2 vế vào {@link LedgerEngine} (nếu bật) sau khi commit.
      * </p>
+     * Khi bật {@link TransactionJournal} ({@code app.journal.enabled=true}), 2 vế chỉ được ghi vào Journal cục bộ
+     * (fsync theo nhóm) và request được xác nhận ngay; việc ghi DB (bước 4-8) do luồng Write-Behind thực hiện theo lô lớn.
+     * Khi {@code transaction_history} được phân mảnh và giao dịch thuộc một shard phụ, 2 vế được ghi qua
+     * {@link TransactionBatchWriter} (ghi trên shard rồi ghi trạng thái dẫn xuất trên DB chính, có bù trừ).
      *
      * @param request Đối tượng chứa thông tin giao dịch đầu vào.
      * @throws ConflictException Nếu {@code transactionId} đã tồn tại trong hệ thống.
      */
     @Override
-    @Transactional
     public void createTransaction(TransactionRequest request) {
-        List<TransactionHistory> transactionHistories = repository.findByTransactionId(request.getTransactionId());
-        if (!transactionHistories.isEmpty()) {
-            throw new ConflictException("Transaction ID already exists");
+        if (transactionJournal.isEnabled()) {
+            journalTransaction(request);
+            return;
         }
-        TransactionHistory debit = TransactionHistory.builder()
-                .transactionId(request.getTransactionId())
-                .account(request.getSourceAccount())
-                .inDebt(request.getAmount())
-                .have(BigDecimal.ZERO)
-                .time(request.getTime())
-                .build();
+        if (transactionIdGuard.exists(request.getTransactionId())) {
+            throw new ConflictException(TRANSACTION_EXISTS);
+        }
+        if (historyShards.isSharded() && !historyShards.shardOf(request.getTransactionId()).isPrimary()) {
+            writeToShard(request);
+            return;
+        }
+        saveLegs(request.getTransactionId(), List.of(buildLeg(request, PostingLeg.DEBIT), buildLeg(request, PostingLeg.CREDIT)));
+    }
 
-        TransactionHistory credit = TransactionHistory.builder()
-                .transactionId(request.getTransactionId())
-                .account(request.getDestAccount())
-                .inDebt(BigDecimal.ZERO)
-                .have(request.getAmount())
-                .time(request.getTime())
+    /**
+     * Tạo giao dịch nhiều vế (N vế Nợ và M vế Có).
+     * <p>
+     * Một lượt duyệt các vế vừa cộng dồn tổng Nợ/tổng Có (có kiểm tra tràn số) vừa đánh số {@code leg_no} riêng cho mỗi
+     * phía; giao dịch bị từ chối nếu thiếu một phía, lệch tổng, hoặc tổng nhỏ hơn {@link TransactionRules#MIN_AMOUNT}.
+     * Các vế được ghi như giao dịch 2 vế: MỘT JDBC Batch trong MỘT transaction, cùng Outbox, số dư và Ledger.
+     * Chống trùng giống hệt {@link #createTransaction}: kiểm tra qua {@link TransactionIdGuard}, và ràng buộc UNIQUE của
+     * {@code transaction_registry} trong DB.
+     *
+     * @throws BadRequestException     Nếu các vế không cân đối.
+     * @throws ConflictException       Nếu {@code transactionId} đã tồn tại.
+     * @throws NotImplementedException Nếu đang bật Journal hoặc giao dịch thuộc shard phụ.
+     */
+    @Override
+    public void createMultiLegTransaction(MultiLegTransactionRequest request) {
+        if (transactionJournal.isEnabled()
+                || (historyShards.isSharded() && !historyShards.shardOf(request.getTransactionId()).isPrimary())) {
+            throw new NotImplementedException(MULTI_LEG_UNSUPPORTED);
+        }
+        List<TransactionHistory> legs = buildLegs(request);
+        if (transactionIdGuard.exists(request.getTransactionId())) {
+            throw new ConflictException(TRANSACTION_EXISTS);
+        }
+        saveLegs(request.getTransactionId(), legs);
+    }
+
+    @Override
+    public TransactionIdResponse nextTransactionId() {
+        return TransactionIdResponse.builder()
+                .transactionId(snowflakeIdGenerator.nextTransactionId())
                 .build();
+    }
+
+    /**
+     * Đăng ký {@code transactionId} và ghi các vế của giao dịch trong MỘT transaction (MỘT JDBC Batch), rồi cập nhật
+     * Bloom Filter, cache và luồng SSE.
+     */
+    private void saveLegs(String transactionId, List<TransactionHistory> legs) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                transactionRegistry.register(List.of(transactionId));
+                repository.saveAllAndFlush(legs);
+                LocalDateTime now = LocalDateTime.now();
+                outboxRelay.write(legs.stream().map(leg -> toOutboxEvent(leg, now)).toList());
+                balanceSequencer.apply(legs.stream().map(this::toDelta).toList());
+                ledgerEngine.notifyCommitted();
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (!DuplicateKeyUtil.isDuplicateTransaction(e)) throw e;
+            throw new ConflictException(TRANSACTION_EXISTS, e);
+        }
+        transactionIdGuard.record(transactionId);
+        List<TransactionResponse> responses = legs.stream().map(this::mapToResponse).toList();
+        transactionCache.put(transactionId, responses);
+        for (int i = 0; i < legs.size(); i++) {
+            postingStream.publish(legs.get(i).getAccountHash(), responses.get(i));
+        }
+    }
 
-        repository.save(debit);
-        repository.save(credit);
+    /**
+     * Ghi giao dịch thuộc một shard phụ (xem {@link ShardedTransactionHistoryRepository}).
+     */
+    private void writeToShard(TransactionRequest request) {
+        TransactionBatchWriter.PendingTransaction transaction = new TransactionBatchWriter.PendingTransaction(
+                request.getTransactionId(), List.of(buildRow(request, PostingLeg.DEBIT), buildRow(request, PostingLeg.CREDIT)));
+        if (batchWriter.writeAll(List.of(transaction)).isEmpty()) {
+            throw new ConflictException(TRANSACTION_EXISTS);
+        }
+        transactionCache.put(request.getTransactionId(), List.of(
+                toResponse(request, PostingLeg.DEBIT), toResponse(request, PostingLeg.CREDIT)));
     }
 
     /**
-     * Lấy chi tiết giao dịch dựa trên Transaction ID.
+     * Ghi giao dịch qua Write-Ahead Journal (không mở transaction DB trên luồng request).
+     */
+    private void journalTransaction(TransactionRequest request) {
+        TransactionBatchWriter.PendingTransaction transaction = new TransactionBatchWriter.PendingTransaction(
+                request.getTransactionId(), List.of(buildRow(request, PostingLeg.DEBIT), buildRow(request, PostingLeg.CREDIT)));
+        if (!transactionJournal.append(transaction)) {
+            throw new ConflictException(TRANSACTION_EXISTS);
+        }
+        transactionCache.put(request.getTransactionId(), List.of(
+                toResponse(request, PostingLeg.DEBIT), toResponse(request, PostingLeg.CREDIT)));
+    }
+
+    /**
+     * Lấy chi tiết giao dịch dựa trên Transaction ID, qua {@link TransactionLookupCache}.
+     * Khi cache trượt, truy vấn chạy trong transaction chỉ đọc (định tuyến tới Replica nếu cấu hình);
+     * giao dịch không còn trong DB được tìm tiếp trong kho lưu trữ ({@link ArchiveSegmentStore}).
      *
      * @param transactionId Mã giao dịch cần tìm.
      * @return Danh sách {@link TransactionResponse} (bao gồm cả dòng Nợ và dòng Có).
      * @throws NotFoundException Nếu không tìm thấy giao dịch nào với ID cung cấp.
      */
     @Override
+    @Transactional(readOnly = true)
     public List<TransactionResponse> getTransactionByTransactionId(String transactionId) {
-        List<TransactionHistory> transactionHistories = repository.findByTransactionId(transactionId);
-        if (transactionHistories.isEmpty()) {
-            throw new NotFoundException("Not found transaction ID");
+        List<TransactionResponse> responses = transactionCache.get(transactionId, id -> {
+            if (historyShards.isSharded()) {
+                List<TransactionHistoryBatchRepository.Row> rows = historyShards.findByTransactionId(id);
+                if (!rows.isEmpty()) return rows.stream().map(this::mapToResponse).toList();
+            } else {
+                List<TransactionHistory> transactionHistories = repository.findByTransactionId(id);
+                if (!transactionHistories.isEmpty()) return transactionHistories.stream().map(this::mapToResponse).toList();
+            }
+            List<TransactionHistoryBatchRepository.Row> archived = archiveStore.findByTransactionId(id);
+            return archived.isEmpty() ? null : archived.stream().map(this::mapToResponse).toList();
+        });
+        if (Objects.isNull(responses)) {
+            throw new NotFoundException(TRANSACTION_NOT_FOUND);
         }
-        return transactionHistories.stream().map(this::mapToResponse).toList();
+        return responses;
+    }
+
+    /**
+     * Sao kê tài khoản theo phân trang Keyset.
+     * <p>
+     * Đọc {@code size + 1} dòng để biết còn trang sau hay không (không cần COUNT).
+     * Con trỏ là ({@code time}, {@code id}) của dòng cuối trang, mã hóa Base64 URL-safe.
+     * Khi {@code transaction_history} được phân mảnh, mỗi trang được đọc song song trên mọi shard rồi gộp (Scatter-Gather).
+     * Các vế đã chuyển sang kho lưu trữ được gộp vào trang theo cùng điều kiện Keyset ({@link ArchiveSegmentStore}).
+     *
+     * @throws BadRequestException Nếu khoảng thời gian hoặc con trỏ không hợp lệ.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public StatementResponse getStatement(String account, LocalDateTime from, LocalDateTime to, String cursor, int size) {
+        if (!from.isBefore(to)) {
+            throw new BadRequestException(INVALID_TIME_RANGE);
+        }
+        String accountHash = accountBlindIndex.of(account);
+        Limit limit = Limit.of(size + 1);
+        StatementRow position = Objects.isNull(cursor) || cursor.isBlank() ? null : decodeCursor(cursor);
+        List<StatementRow> rows;
+        if (historyShards.isSharded()) {
+            rows = Objects.isNull(position)
+                    ? historyShards.findStatementPage(accountHash, from, to, null, null, size + 1)
+                    : historyShards.findStatementPage(accountHash, from, to, position.time(), position.id(), size + 1);
+        } else if (Objects.isNull(position)) {
+            rows = repository.findStatementFirstPage(accountHash, from, to, limit);
+        } else {
+            rows = repository.findStatementPageAfter(accountHash, from, to, position.time(), position.id(), limit);
+        }
+        rows = Objects.isNull(position)
+                ? archiveStore.mergeStatementPage(rows, accountHash, from, to, null, null, size + 1)
+                : archiveStore.mergeStatementPage(rows, accountHash, from, to, position.time(), position.id(), size + 1);
+
+        boolean hasNext = rows.size() > size;
+        List<StatementRow> page = hasNext ? rows.subList(0, size) : rows;
+        return StatementResponse.builder()
+                .entries(page.stream().map(this::mapToStatementEntry).toList())
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? encodeCursor(page.get(page.size() - 1)) : null)
+                .build();
     }
 
     /**
@@ -111,27 +304,164 @@ public class TransactionService implements ITransactionService {
                 request.getTransactionId(),
                 request.getSourceAccount(),
                 request.getTime().toString(),
-                request.getAmount(),
-                BigDecimal.ZERO
+                Money.of(request.getAmount()),
+                Money.ZERO
         );
 
         InternalTransactionRequest creditRequest = transactionMapper.toEncryptedRequest(
                 request.getTransactionId(),
                 request.getDestAccount(),
                 request.getTime().toString(),
-                BigDecimal.ZERO,
-                request.getAmount()
+                Money.ZERO,
+                Money.of(request.getAmount())
         );
 
         return List.of(debitRequest, creditRequest);
     }
 
+    /**
+     * Validate các vế trong MỘT lượt duyệt và dựng entity cho từng vế.
+     *
+     * @throws BadRequestException Nếu thiếu một phía, tổng Nợ khác tổng Có, tổng quá lớn hoặc nhỏ hơn mức tối thiểu.
+     */
+    private List<TransactionHistory> buildLegs(MultiLegTransactionRequest request) {
+        List<TransactionHistory> legs = new ArrayList<>(request.getLegs().size());
+        long totalInDebt = 0;
+        long totalHave = 0;
+        int debits = 0;
+        int credits = 0;
+        try {
+            for (MultiLegTransactionRequest.Leg leg : request.getLegs()) {
+                boolean debit = leg.getLeg() == PostingLeg.DEBIT;
+                Money amount = Money.of(leg.getAmount());
+                if (debit) {
+                    totalInDebt = Money.add(totalInDebt, amount.minorUnits());
+                } else {
+                    totalHave = Money.add(totalHave, amount.minorUnits());
+                }
+                legs.add(TransactionHistory.builder()
+                        .id(idGenerator.nextId(TransactionHistory.TABLE_NAME))
+                        .transactionId(request.getTransactionId())
+                        .leg(leg.getLeg())
+                        .legNo(debit ? debits++ : credits++)
+                        .account(leg.getAccount())
+                        .accountHash(accountBlindIndex.of(leg.getAccount()))
+                        .inDebt(debit ? amount : Money.ZERO)
+                        .have(debit ? Money.ZERO : amount)
+                        .time(request.getTime())
+                        .build());
+            }
+        } catch (ArithmeticException e) {
+            throw new BadRequestException(LEGS_TOO_LARGE, e);
+        }
+        if (debits == 0 || credits == 0) {
+            throw new BadRequestException(LEGS_ONE_SIDED);
+        }
+        if (totalInDebt != totalHave) {
+            throw new BadRequestException(LEGS_UNBALANCED);
+        }
+        if (totalInDebt < MIN_AMOUNT_MINOR) {
+            throw new BadRequestException(AMOUNT_TOO_SMALL);
+        }
+        return legs;
+    }
+
+    private TransactionHistory buildLeg(TransactionRequest request, PostingLeg leg) {
+        boolean debit = leg == PostingLeg.DEBIT;
+        Money amount = Money.of(request.getAmount());
+        return TransactionHistory.builder()
+                .id(idGenerator.nextId(TransactionHistory.TABLE_NAME))
+                .transactionId(request.getTransactionId())
+                .leg(leg)
+                .account(debit ? request.getSourceAccount() : request.getDestAccount())
+                .accountHash(accountBlindIndex.of(debit ? request.getSourceAccount() : request.getDestAccount()))
+                .inDebt(debit ? amount : Money.ZERO)
+                .have(debit ? Money.ZERO : amount)
+                .time(request.getTime())
+                .build();
+    }
+
+    private TransactionHistoryBatchRepository.Row buildRow(TransactionRequest request, PostingLeg leg) {
+        boolean debit = leg == PostingLeg.DEBIT;
+        String account = debit ? request.getSourceAccount() : request.getDestAccount();
+        long amount = Money.toMinorUnits(request.getAmount());
+        return new TransactionHistoryBatchRepository.Row(
+                idGenerator.nextId(TransactionHistory.TABLE_NAME),
+                request.getTransactionId(),
+                leg,
+                AesUtil.encrypt(account, secretKey),
+                accountBlindIndex.of(account),
+                debit ? amount : 0,
+                debit ? 0 : amount,
+                request.getTime());
+    }
+
+    private AccountBalanceBatchRepository.Delta toDelta(TransactionHistory leg) {
+        return AccountBalanceBatchRepository.Delta.of(leg.getAccountHash(), leg.getTime(), leg.getInDebt().minorUnits(),
+                leg.getHave().minorUnits(), leg.getLeg() == PostingLeg.DEBIT);
+    }
+
+    private OutboxEvent toOutboxEvent(TransactionHistory leg, LocalDateTime now) {
+        return new OutboxEvent(leg.getId(), leg.getTransactionId(), leg.getLeg(), leg.getAccountHash(),
+                leg.getInDebt().minorUnits(), leg.getHave().minorUnits(), leg.getTime(), now);
+    }
+
+    private StatementResponse.Entry mapToStatementEntry(StatementRow row) {
+        return StatementResponse.Entry.builder()
+                .transactionId(row.transactionId())
+                .leg(row.leg())
+                .inDebt(row.inDebt().toBigDecimal())
+                .have(row.have().toBigDecimal())
+                .time(row.time())
+                .build();
+    }
+
+    private String encodeCursor(StatementRow last) {
+        String position = last.time().toString() + CURSOR_SEPARATOR + last.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private StatementRow decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf(CURSOR_SEPARATOR);
+            if (separator < 0) throw new BadRequestException(INVALID_CURSOR);
+            return new StatementRow(Long.parseLong(position.substring(separator + 1)), null, null, null, null,
+                    LocalDateTime.parse(position.substring(0, separator)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException(INVALID_CURSOR, e);
+        }
+    }
+
+    private TransactionResponse toResponse(TransactionRequest request, PostingLeg leg) {
+        boolean debit = leg == PostingLeg.DEBIT;
+        // Cùng scale với dữ liệu đọc từ DB, để response từ cache và từ DB giống hệt nhau
+        Money amount = Money.of(request.getAmount());
+        return TransactionResponse.builder()
+                .transactionId(request.getTransactionId())
+                .account(debit ? request.getSourceAccount() : request.getDestAccount())
+                .inDebt((debit ? amount : Money.ZERO).toBigDecimal())
+                .have((debit ? Money.ZERO : amount).toBigDecimal())
+                .time(request.getTime())
+                .build();
+    }
+
+    private TransactionResponse mapToResponse(TransactionHistoryBatchRepository.Row row) {
+        return TransactionResponse.builder()
+                .transactionId(row.transactionId())
+                .account(AesUtil.decrypt(row.encryptedAccount(), secretKey))
+                .inDebt(Money.toBigDecimal(row.inDebt()))
+                .have(Money.toBigDecimal(row.have()))
+                .time(row.time())
+                .build();
+    }
+
     private TransactionResponse mapToResponse(TransactionHistory transactionHistory) {
         return TransactionResponse.builder()
                 .transactionId(transactionHistory.getTransactionId())
                 .account(transactionHistory.getAccount())
-                .inDebt(transactionHistory.getInDebt())
-                .have(transactionHistory.getHave())
+                .inDebt(transactionHistory.getInDebt().toBigDecimal())
+                .have(transactionHistory.getHave().toBigDecimal())
                 .time(transactionHistory.getTime())
                 .build();
     }
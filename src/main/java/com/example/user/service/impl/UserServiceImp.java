@@ -13,12 +13,12 @@ import com.example.user.exception.ConflictException;
 import com.example.user.exception.NotFoundException;
 import com.example.user.repository.IUserRepository;
 import com.example.user.service.IUserService;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDate;
@@ -36,12 +36,13 @@ public class UserServiceImp implements IUserService {
 
     /**
      * Lấy danh sách người dùng có phân trang.
-     * Chỉ lấy những user có trạng thái ACTIVE.
+     * Chỉ lấy những user có trạng thái ACTIVE. Transaction chỉ đọc nên được định tuyến tới Replica (nếu cấu hình).
      *
      * @param pageable Đối tượng chứa thông tin phân trang (page, size, sort).
      * @return Page<UserResponse> Trang chứa danh sách user đã map sang DTO.
      */
     @Override
+    @Transactional(readOnly = true)
     public Page<UserResponse> getAllUsers(Pageable pageable) {
         if (Objects.isNull(pageable)) {
             pageable = Pageable.unpaged();
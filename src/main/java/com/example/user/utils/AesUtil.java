@@ -65,7 +65,23 @@ public final class AesUtil {
      */
     public static String encrypt(String plainText, SecretKey key) {
         if (plainText == null) return null;
+        byte[] plainBytes = plainText.getBytes(StandardCharsets.UTF_8);
+        return encrypt(plainBytes, 0, plainBytes.length, key);
+    }
 
+    /**
+     * Mã hóa trực tiếp một đoạn byte (UTF-8) mà không cần tạo {@code String} trung gian.
+     * <p>
+     * Dùng cho các bộ parse cấp byte (ví dụ: Settlement Loader đọc file memory-mapped).
+     * Kết quả và các ngoại lệ giống hệt {@link #encrypt(String, SecretKey)}.
+     *
+     * @param plainBytes Mảng byte chứa dữ liệu gốc.
+     * @param offset     Vị trí bắt đầu trong mảng.
+     * @param length     Số byte cần mã hóa.
+     * @param key        Khóa bí mật AES.
+     * @return Chuỗi Base64 chứa [IV + CipherText].
+     */
+    public static String encrypt(byte[] plainBytes, int offset, int length, SecretKey key) {
         try {
             byte[] iv = new byte[GCM_IV_LENGTH];
             new SecureRandom().nextBytes(iv);
@@ -74,7 +90,7 @@ public final class AesUtil {
             GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
             cipher.init(Cipher.ENCRYPT_MODE, key, spec);
 
-            byte[] cipherText = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
+            byte[] cipherText = cipher.doFinal(plainBytes, offset, length);
 
             byte[] encrypted = new byte[iv.length + cipherText.length];
             System.arraycopy(iv, 0, encrypted, 0, iv.length);
@@ -0,0 +1,77 @@
+package com.example.user.utils;
+
+import com.example.user.exception.SecurityConfigException;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Class tiện ích tạo <b>Blind Index</b> (HMAC-SHA256) cho dữ liệu đã mã hóa.
+ * <p>
+ * Cột Account được mã hóa AES/GCM với IV ngẫu nhiên nên cùng một số tài khoản cho ra các Cipher Text khác nhau,
+ * không thể dùng trong mệnh đề WHERE. Blind Index là giá trị HMAC <b>xác định</b> (deterministic) của số tài khoản:
+ * cho phép tìm kiếm chính xác và đánh index, nhưng không thể đảo ngược nếu không có khóa.
+ */
+public final class BlindIndexUtil {
+    private static final String HMAC_SHA256 = "HmacSHA256";
+    private static final HexFormat HEX = HexFormat.of();
+    private static final ThreadLocal<Mac> MACS = ThreadLocal.withInitial(BlindIndexUtil::newMac);
+
+    private BlindIndexUtil() {}
+
+    /**
+     * Dẫn xuất một khóa HMAC riêng cho từng mục đích từ khóa gốc (không dùng trực tiếp khóa AES để HMAC dữ liệu).
+     *
+     * @param masterKey Khóa gốc (ví dụ: AES Key của hệ thống).
+     * @param purpose   Nhãn mục đích, ví dụ {@code "blind-index:account"}.
+     * @return Khóa HMAC-SHA256.
+     */
+    public static SecretKey deriveKey(SecretKey masterKey, String purpose) {
+        byte[] purposeBytes = purpose.getBytes(StandardCharsets.UTF_8);
+        return new SecretKeySpec(hmac(purposeBytes, 0, purposeBytes.length, masterKey), HMAC_SHA256);
+    }
+
+    /**
+     * Tính Blind Index của một chuỗi.
+     *
+     * @return Chuỗi HEX 64 ký tự, hoặc {@code null} nếu đầu vào là null.
+     */
+    public static String hash(String value, SecretKey indexKey) {
+        if (value == null) return null;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return hash(bytes, 0, bytes.length, indexKey);
+    }
+
+    /**
+     * Tính Blind Index trực tiếp từ một đoạn byte (UTF-8), dùng cho các bộ parse cấp byte.
+     *
+     * @return Chuỗi HEX 64 ký tự.
+     */
+    public static String hash(byte[] bytes, int offset, int length, SecretKey indexKey) {
+        return HEX.formatHex(hmac(bytes, offset, length, indexKey));
+    }
+
+    private static byte[] hmac(byte[] bytes, int offset, int length, SecretKey key) {
+        Mac mac = MACS.get();
+        try {
+            mac.init(key);
+        } catch (InvalidKeyException e) {
+            throw new SecurityConfigException("Configuration Error: Blind index key is null or invalid", e);
+        }
+        mac.update(bytes, offset, length);
+        return mac.doFinal();
+    }
+
+    private static Mac newMac() {
+        try {
+            return Mac.getInstance(HMAC_SHA256);
+        } catch (NoSuchAlgorithmException e) {
+            throw new SecurityConfigException("System Error: HmacSHA256 algorithm not available", e);
+        }
+    }
+}
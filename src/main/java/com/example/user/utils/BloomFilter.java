@@ -0,0 +1,174 @@
+package com.example.user.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom Filter kích thước cố định, an toàn đa luồng và không dùng khóa (CAS trên {@link AtomicLongArray}).
+ * <p>
+ * Trả lời câu hỏi "phần tử đã từng được thêm chưa?" với 2 kết quả:
+ * <ul>
+ * <li>{@code false}: CHẮC CHẮN chưa từng thêm.</li>
+ * <li>{@code true}: CÓ THỂ đã thêm (sai số dương tính giả theo {@code falsePositiveRate}).</li>
+ * </ul>
+ * Dùng kỹ thuật Double Hashing (h1 + i*h2) trên 2 giá trị hash 64-bit tính trực tiếp từ các ký tự,
+ * không cấp phát mảng byte trung gian.
+ */
+public final class BloomFilter {
+    private static final double LN2 = Math.log(2);
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long SEED_1 = 0xcbf29ce484222325L;
+    private static final long SEED_2 = 0x84222325cbf29ce4L;
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashCount;
+    private final long capacity;
+    private final double falsePositiveRate;
+    private final LongAdder insertions = new LongAdder();
+
+    /**
+     * @param capacity          Số phần tử dự kiến.
+     * @param falsePositiveRate Tỷ lệ dương tính giả mong muốn khi đạt {@code capacity} (0 &lt; p &lt; 1).
+     */
+    public BloomFilter(long capacity, double falsePositiveRate) {
+        if (capacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Bloom filter requires capacity > 0 and 0 < fpp < 1");
+        }
+        long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN2 * LN2));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+        this.words = new AtomicLongArray(wordCount);
+        this.bitSize = (long) wordCount * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / capacity * LN2));
+        this.capacity = capacity;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    private BloomFilter(long capacity, double falsePositiveRate, int hashCount, AtomicLongArray words, long insertions) {
+        this.words = words;
+        this.bitSize = (long) words.length() * 64;
+        this.hashCount = hashCount;
+        this.capacity = capacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.insertions.add(insertions);
+    }
+
+    /**
+     * Ghi filter ra dạng nhị phân: [capacity, fpp, hashCount, insertions, wordCount, words*].
+     * Chỉ nên gọi khi không còn luồng nào {@link #put} (ví dụ filter của một file đã ghi xong).
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(capacity);
+        out.writeDouble(falsePositiveRate);
+        out.writeInt(hashCount);
+        out.writeLong(insertions.sum());
+        out.writeInt(words.length());
+        for (int i = 0; i < words.length(); i++) {
+            out.writeLong(words.get(i));
+        }
+    }
+
+    /**
+     * Đọc filter đã ghi bằng {@link #writeTo}.
+     */
+    public static BloomFilter readFrom(DataInput in) throws IOException {
+        long capacity = in.readLong();
+        double falsePositiveRate = in.readDouble();
+        int hashCount = in.readInt();
+        long insertions = in.readLong();
+        int wordCount = in.readInt();
+        if (capacity <= 0 || hashCount <= 0 || wordCount <= 0) {
+            throw new IOException("Corrupted bloom filter header");
+        }
+        AtomicLongArray words = new AtomicLongArray(wordCount);
+        for (int i = 0; i < wordCount; i++) {
+            words.set(i, in.readLong());
+        }
+        return new BloomFilter(capacity, falsePositiveRate, hashCount, words, insertions);
+    }
+
+    public void put(CharSequence value) {
+        long h1 = hash(value, SEED_1);
+        long h2 = hash(value, SEED_2) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            setBit(index(h1 + i * h2));
+        }
+        insertions.increment();
+    }
+
+    public boolean mightContain(CharSequence value) {
+        long h1 = hash(value, SEED_1);
+        long h2 = hash(value, SEED_2) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Tỷ lệ dương tính giả ước lượng với số phần tử hiện tại: (1 - e^(-k*n/m))^k.
+     */
+    public double estimatedFalsePositiveRate() {
+        double n = insertions.sum();
+        return Math.pow(1 - Math.exp(-hashCount * n / bitSize), hashCount);
+    }
+
+    public long approximateCount() {
+        return insertions.sum();
+    }
+
+    public boolean isSaturated() {
+        return insertions.sum() >= capacity;
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public double falsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    private long index(long combinedHash) {
+        return (combinedHash & Long.MAX_VALUE) % bitSize;
+    }
+
+    private void setBit(long bit) {
+        int wordIndex = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = words.get(wordIndex);
+            if ((current & mask) != 0) return;
+        } while (!words.compareAndSet(wordIndex, current, current | mask));
+    }
+
+    /**
+     * FNV-1a 64-bit trên từng ký tự, sau đó trộn bit (fmix64 của MurmurHash3) để phân bố đều.
+     */
+    private static long hash(CharSequence value, long seed) {
+        long h = seed;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= FNV_PRIME;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
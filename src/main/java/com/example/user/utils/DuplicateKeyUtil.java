@@ -0,0 +1,47 @@
+package com.example.user.utils;
+
+import com.example.user.entity.TransactionHistory;
+import com.example.user.entity.TransactionRegistry;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Class tiện ích nhận diện vi phạm ràng buộc UNIQUE theo TÊN ràng buộc.
+ * <p>
+ * {@code DataIntegrityViolationException} bao gồm cả trùng khóa chính (ID), NOT NULL, độ dài cột... Chỉ vi phạm trên
+ * khóa chống trùng {@code transactionId} mới có nghĩa "giao dịch đã tồn tại"; mọi lỗi khác phải được ném lại thay vì
+ * bị coi là trùng và bỏ qua. MySQL và H2 đều ghi tên ràng buộc (hoặc index của nó) trong message của
+ * {@link java.sql.SQLException}, nên chuỗi cause được quét theo tên, không phân biệt hoa thường.
+ */
+public final class DuplicateKeyUtil {
+    private static final int MAX_CAUSE_DEPTH = 8;
+    private static final String[] TRANSACTION_ID_KEYS = {TransactionRegistry.UNIQUE_KEY, TransactionHistory.UNIQUE_LEG_KEY};
+
+    private DuplicateKeyUtil() {}
+
+    /**
+     * @return {@code true} nếu {@code error} là vi phạm một khóa chống trùng {@code transactionId}.
+     */
+    public static boolean isDuplicateTransaction(Throwable error) {
+        return isViolationOf(error, TRANSACTION_ID_KEYS);
+    }
+
+    /**
+     * @return {@code true} nếu {@code error} (hoặc một cause của nó) là vi phạm một trong các ràng buộc {@code constraintNames}.
+     */
+    public static boolean isViolationOf(Throwable error, String... constraintNames) {
+        Throwable cause = error;
+        for (int depth = 0; Objects.nonNull(cause) && depth < MAX_CAUSE_DEPTH; depth++) {
+            String message = cause.getMessage();
+            if (Objects.nonNull(message)) {
+                String normalized = message.toLowerCase(Locale.ROOT);
+                for (String constraintName : constraintNames) {
+                    if (normalized.contains(constraintName.toLowerCase(Locale.ROOT))) return true;
+                }
+            }
+            cause = cause.getCause() == cause ? null : cause.getCause();
+        }
+        return false;
+    }
+}
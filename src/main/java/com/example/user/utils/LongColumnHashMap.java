@@ -0,0 +1,259 @@
+package com.example.user.utils;
+
+import java.util.Arrays;
+
+/**
+ * Bảng băm khóa {@code long} -&gt; một số cột giá trị {@code long} cố định, lưu hoàn toàn bằng mảng nguyên thủy.
+ * <p>
+ * Khác với {@code HashMap<Long, long[]>}, không có đối tượng Boxing hay Entry cho từng phần tử:
+ * một triệu khóa với 3 cột chỉ tốn khoảng (1 + 3) x 8 byte / 0.6 cho mỗi khóa, và truy cập không tạo rác cho GC.
+ * <ul>
+ * <li>Địa chỉ mở (Open Addressing), dò tuyến tính (Linear Probing), xóa bằng dịch lùi (Backward Shift).</li>
+ * <li>Khóa {@code 0} được lưu ở một ô riêng vì {@code 0} là giá trị đánh dấu ô trống.</li>
+ * </ul>
+ * <b>Không an toàn luồng</b> khi ghi. Tuy nhiên các phương thức đọc không bao giờ ném ngoại lệ và luôn kết thúc
+ * kể cả khi bị ghi đồng thời (bảng được đọc qua một tham chiếu duy nhất, số bước dò có giới hạn), nên có thể dùng
+ * với {@link java.util.concurrent.locks.StampedLock#tryOptimisticRead()}: đọc lạc quan rồi {@code validate}.
+ */
+public final class LongColumnHashMap {
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final int MIN_CAPACITY = 16;
+
+    private final int columns;
+    private volatile Table table;
+    private int size;
+
+    /**
+     * Một thế hệ của bảng. Khi mở rộng, cả cặp mảng khóa/giá trị được thay bằng một {@code Table} mới.
+     */
+    private static final class Table {
+        private final long[] keys;
+        /** {@code values[slot * columns + column]}; ô {@code capacity} dành cho khóa 0. */
+        private final long[] values;
+        private final int mask;
+        private boolean zeroKeyPresent;
+
+        private Table(int capacity, int columns) {
+            this.keys = new long[capacity];
+            this.values = new long[(capacity + 1) * columns];
+            this.mask = capacity - 1;
+        }
+    }
+
+    /**
+     * @param columns          Số cột giá trị của mỗi khóa (có thể bằng 0 để dùng như một Set).
+     * @param expectedElements Số phần tử dự kiến (để tránh mở rộng bảng nhiều lần).
+     */
+    public LongColumnHashMap(int columns, int expectedElements) {
+        if (columns < 0) throw new IllegalArgumentException("Columns must not be negative");
+        this.columns = columns;
+        this.table = new Table(capacityFor(expectedElements), columns);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public boolean containsKey(long key) {
+        return slotOf(table, key) >= 0;
+    }
+
+    /**
+     * Đọc một cột của khóa.
+     *
+     * @return Giá trị cột, hoặc {@code defaultValue} nếu không có khóa.
+     */
+    public long get(long key, int column, long defaultValue) {
+        Table t = table;
+        int slot = slotOf(t, key);
+        if (slot < 0) return defaultValue;
+        int index = slot * columns + column;
+        return index < t.values.length ? t.values[index] : defaultValue;
+    }
+
+    /**
+     * Sao chép tất cả các cột của khóa vào {@code out} (từ cùng một thế hệ bảng).
+     *
+     * @return {@code true} nếu có khóa.
+     */
+    public boolean get(long key, long[] out) {
+        Table t = table;
+        int slot = slotOf(t, key);
+        if (slot < 0) return false;
+        int offset = slot * columns;
+        if (offset + columns > t.values.length) return false;
+        System.arraycopy(t.values, offset, out, 0, columns);
+        return true;
+    }
+
+    /**
+     * Cộng {@code delta} vào một cột, tạo khóa (các cột bằng 0) nếu chưa có.
+     */
+    public void add(long key, int column, long delta) {
+        int slot = slotForInsert(table, key);
+        // Đọc lại 'table' vì slotForInsert có thể vừa mở rộng bảng
+        table.values[slot * columns + column] += delta;
+    }
+
+    /**
+     * Gán giá trị cho một cột, tạo khóa nếu chưa có.
+     */
+    public void put(long key, int column, long value) {
+        int slot = slotForInsert(table, key);
+        // Đọc lại 'table' vì slotForInsert có thể vừa mở rộng bảng
+        table.values[slot * columns + column] = value;
+    }
+
+    /**
+     * Thêm khóa (các cột bằng 0) nếu chưa có.
+     *
+     * @return {@code true} nếu khóa vừa được thêm.
+     */
+    public boolean insert(long key) {
+        int before = size;
+        slotForInsert(table, key);
+        return size != before;
+    }
+
+    /**
+     * Xóa khóa bằng kỹ thuật dịch lùi (không để lại "bia mộ" - Tombstone).
+     *
+     * @return {@code true} nếu khóa tồn tại.
+     */
+    public boolean remove(long key) {
+        Table t = table;
+        if (key == 0) {
+            if (!t.zeroKeyPresent) return false;
+            t.zeroKeyPresent = false;
+            Arrays.fill(t.values, (t.mask + 1) * columns, (t.mask + 2) * columns, 0L);
+            size--;
+            return true;
+        }
+        int slot = slotOf(t, key);
+        if (slot < 0) return false;
+        int gap = slot;
+        int next = (gap + 1) & t.mask;
+        while (t.keys[next] != 0) {
+            int home = (int) mix(t.keys[next]) & t.mask;
+            // Phần tử ở 'next' được dời về 'gap' nếu 'gap' nằm trên đường dò từ 'home' tới 'next'
+            if (((next - home) & t.mask) >= ((next - gap) & t.mask)) {
+                t.keys[gap] = t.keys[next];
+                System.arraycopy(t.values, next * columns, t.values, gap * columns, columns);
+                gap = next;
+            }
+            next = (next + 1) & t.mask;
+        }
+        t.keys[gap] = 0;
+        Arrays.fill(t.values, gap * columns, gap * columns + columns, 0L);
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        table = new Table(MIN_CAPACITY, columns);
+        size = 0;
+    }
+
+    /**
+     * Duyệt toàn bộ phần tử. {@code values[offset .. offset + columns)} là các cột của khóa.
+     */
+    public void forEach(Visitor visitor) {
+        Table t = table;
+        if (t.zeroKeyPresent) {
+            visitor.visit(0L, t.values, (t.mask + 1) * columns);
+        }
+        for (int slot = 0; slot <= t.mask; slot++) {
+            if (t.keys[slot] != 0) {
+                visitor.visit(t.keys[slot], t.values, slot * columns);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(long key, long[] values, int offset);
+    }
+
+    /**
+     * @return Vị trí ô của khóa, hoặc -1 nếu không có. Số bước dò tối đa bằng sức chứa của bảng.
+     */
+    private int slotOf(Table t, long key) {
+        if (key == 0) return t.zeroKeyPresent ? t.mask + 1 : -1;
+        long[] keys = t.keys;
+        int mask = t.mask;
+        int slot = (int) mix(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            long current = keys[slot];
+            if (current == key) return slot;
+            if (current == 0) return -1;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slotForInsert(Table t, long key) {
+        if (key == 0) {
+            if (!t.zeroKeyPresent) {
+                t.zeroKeyPresent = true;
+                size++;
+            }
+            return t.mask + 1;
+        }
+        int slot = (int) mix(key) & t.mask;
+        while (true) {
+            long current = t.keys[slot];
+            if (current == key) return slot;
+            if (current == 0) break;
+            slot = (slot + 1) & t.mask;
+        }
+        if (size + 1 > (t.mask + 1) * LOAD_FACTOR) {
+            Table grown = grow(t);
+            return slotForInsert(grown, key);
+        }
+        t.keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    private Table grow(Table old) {
+        Table grown = new Table((old.mask + 1) << 1, columns);
+        for (int slot = 0; slot <= old.mask; slot++) {
+            long key = old.keys[slot];
+            if (key == 0) continue;
+            int target = (int) mix(key) & grown.mask;
+            while (grown.keys[target] != 0) {
+                target = (target + 1) & grown.mask;
+            }
+            grown.keys[target] = key;
+            System.arraycopy(old.values, slot * columns, grown.values, target * columns, columns);
+        }
+        if (old.zeroKeyPresent) {
+            grown.zeroKeyPresent = true;
+            System.arraycopy(old.values, (old.mask + 1) * columns, grown.values, (grown.mask + 1) * columns, columns);
+        }
+        // Công bố bảng mới sau khi đã sao chép xong (ghi volatile)
+        table = grown;
+        return grown;
+    }
+
+    private static int capacityFor(int expectedElements) {
+        int required = (int) Math.ceil(Math.max(expectedElements, 1) / LOAD_FACTOR);
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit(required - 1) << 1);
+    }
+
+    /**
+     * Hàm trộn bit MurmurHash3 (fmix64) để các khóa tuần tự (ví dụ ID) không dồn cụm.
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb93e53ca8ebeL;
+        key ^= key >>> 33;
+        return key;
+    }
+}
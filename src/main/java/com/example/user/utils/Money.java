@@ -0,0 +1,140 @@
+package com.example.user.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Số tiền dạng điểm cố định (Fixed-point): một {@code long} đơn vị nhỏ nhất (Minor Units) với {@value #SCALE} chữ số thập phân.
+ * <p>
+ * Thay cho {@link BigDecimal} trên các luồng nóng (nạp dữ liệu, cộng dồn số dư, tổng hợp): cộng trừ chỉ là phép toán
+ * trên {@code long}, không cấp phát đối tượng trung gian. Có thể dùng trực tiếp các hàm tĩnh trên {@code long}
+ * ({@link #add(long, long)}, {@link #toMinorUnits(BigDecimal)}) để không cấp phát cả đối tượng {@code Money}.
+ * <p>
+ * <b>Quy tắc chính xác:</b>
+ * <ul>
+ * <li>Không bao giờ làm tròn: giá trị có nhiều hơn {@value #SCALE} chữ số thập phân (khác 0) bị từ chối.</li>
+ * <li>Tràn số (vượt {@code Long.MAX_VALUE} đơn vị nhỏ nhất) ném {@link ArithmeticException}, không quay vòng.</li>
+ * </ul>
+ * Lưu xuống DB dạng {@code BIGINT} qua {@code MoneyConverter}; chỉ chuyển sang {@link BigDecimal} ở biên API.
+ */
+public record Money(long minorUnits) implements Comparable<Money> {
+    /** Số chữ số thập phân. */
+    public static final int SCALE = 2;
+
+    /** Số đơn vị nhỏ nhất trong một đơn vị tiền. */
+    public static final long MINOR_UNITS_PER_UNIT = 100;
+
+    public static final Money ZERO = new Money(0);
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * @throws ArithmeticException Nếu {@code amount} có nhiều hơn {@value #SCALE} chữ số thập phân hoặc bị tràn số.
+     */
+    public static Money of(BigDecimal amount) {
+        return ofMinor(toMinorUnits(amount));
+    }
+
+    /**
+     * Chuyển số tiền sang đơn vị nhỏ nhất, không làm tròn.
+     *
+     * @throws ArithmeticException Nếu {@code amount} có nhiều hơn {@value #SCALE} chữ số thập phân hoặc bị tràn số.
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    /**
+     * Parse số tiền dạng "123", "-123.4" hoặc "123.45" trong {@code text[start, end)} thẳng sang đơn vị nhỏ nhất
+     * (không tạo String hay BigDecimal trung gian).
+     *
+     * @throws NumberFormatException Nếu sai định dạng hoặc có nhiều hơn {@value #SCALE} chữ số thập phân.
+     * @throws ArithmeticException   Nếu bị tràn số.
+     */
+    public static long parseMinorUnits(CharSequence text, int start, int end) {
+        boolean negative = start < end && text.charAt(start) == '-';
+        int position = negative ? start + 1 : start;
+        long minorUnits = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; position < end; position++) {
+            char c = text.charAt(position);
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Invalid amount: " + text.subSequence(start, end));
+            }
+            if (fractionDigits >= 0 && ++fractionDigits > SCALE) {
+                throw new NumberFormatException("Amount has more than " + SCALE + " decimal places");
+            }
+            // Tích lũy theo chiều âm để biểu diễn được cả Long.MIN_VALUE
+            minorUnits = Math.subtractExact(Math.multiplyExact(minorUnits, 10), c - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Invalid amount: " + text.subSequence(start, end));
+        }
+        for (int i = Math.max(fractionDigits, 0); i < SCALE; i++) {
+            minorUnits = Math.multiplyExact(minorUnits, 10);
+        }
+        return negative ? minorUnits : Math.negateExact(minorUnits);
+    }
+
+    public static Money parse(CharSequence text) {
+        return ofMinor(parseMinorUnits(text, 0, text.length()));
+    }
+
+    /**
+     * @throws ArithmeticException Nếu bị tràn số.
+     */
+    public static long add(long left, long right) {
+        return Math.addExact(left, right);
+    }
+
+    /**
+     * @throws ArithmeticException Nếu bị tràn số.
+     */
+    public static long subtract(long left, long right) {
+        return Math.subtractExact(left, right);
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(add(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(subtract(minorUnits, other.minorUnits));
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return toBigDecimal(minorUnits);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    /**
+     * Dạng thập phân đầy đủ {@value #SCALE} chữ số, ví dụ "-1234.50".
+     */
+    @Override
+    public String toString() {
+        long units = minorUnits / MINOR_UNITS_PER_UNIT;
+        long fraction = Math.abs(minorUnits % MINOR_UNITS_PER_UNIT);
+        String sign = minorUnits < 0 && units == 0 ? "-" : "";
+        return sign + units + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
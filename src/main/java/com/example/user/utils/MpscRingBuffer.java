@@ -0,0 +1,121 @@
+package com.example.user.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Hàng đợi vòng (Ring Buffer) có giới hạn, không dùng khóa (Lock-free),
+ * cho mô hình <b>nhiều Producer - một Consumer</b> (MPSC).
+ * <p>
+ * Mỗi ô (slot) có một số thứ tự (sequence) riêng:
+ * <ul>
+ * <li><b>Producer:</b> Giành vị trí ghi bằng CAS trên con trỏ {@code tail}, ghi phần tử rồi công bố bằng cách tăng sequence của ô.</li>
+ * <li><b>Consumer:</b> Chỉ có MỘT luồng đọc nên con trỏ {@code head} không cần CAS.</li>
+ * </ul>
+ * Khi đầy, {@link #offer(Object)} trả về {@code false} ngay lập tức thay vì chặn luồng gọi,
+ * để phía sử dụng tự quyết định chính sách tràn (bỏ qua, chờ...).
+ *
+ * @param <E> Kiểu phần tử trong hàng đợi.
+ */
+public final class MpscRingBuffer<E> {
+    private final int capacity;
+    private final int mask;
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * @param requestedCapacity Sức chứa mong muốn, được làm tròn lên lũy thừa của 2.
+     */
+    public MpscRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2 || requestedCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("Ring buffer capacity must be between 2 and 2^30");
+        }
+        this.capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.slots = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Thêm phần tử vào hàng đợi (an toàn khi gọi từ nhiều luồng).
+     *
+     * @param element Phần tử cần thêm (không được null).
+     * @return {@code true} nếu thêm thành công, {@code false} nếu hàng đợi đã đầy.
+     */
+    public boolean offer(E element) {
+        if (element == null) throw new NullPointerException("Ring buffer does not accept null elements");
+        long position = tail.get();
+        for (;;) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = element;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Lấy phần tử kế tiếp. <b>Chỉ được gọi từ luồng Consumer duy nhất.</b>
+     *
+     * @return Phần tử đầu hàng đợi, hoặc {@code null} nếu hàng đợi rỗng.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = (E) slots[index];
+        slots[index] = null;
+        sequences.set(index, position + capacity);
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * Lấy tối đa {@code limit} phần tử và chuyển cho {@code consumer}. <b>Chỉ dùng cho luồng Consumer.</b>
+     *
+     * @return Số phần tử đã xử lý.
+     */
+    public int drain(Consumer<? super E> consumer, int limit) {
+        int drained = 0;
+        E element;
+        while (drained < limit && (element = poll()) != null) {
+            consumer.accept(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Số phần tử hiện có (giá trị xấp xỉ khi có nhiều luồng ghi đồng thời).
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(capacity, size));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
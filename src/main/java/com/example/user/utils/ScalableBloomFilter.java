@@ -0,0 +1,81 @@
+package com.example.user.utils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Scalable Bloom Filter: tự mở rộng khi số phần tử vượt quá sức chứa ban đầu.
+ * <p>
+ * Gồm nhiều {@link BloomFilter} con (slice). Khi slice cuối đầy, một slice mới được thêm vào với
+ * sức chứa nhân {@value #GROWTH_FACTOR} và tỷ lệ sai số thu hẹp theo hệ số {@value #TIGHTENING_RATIO},
+ * để tổng tỷ lệ dương tính giả vẫn bị chặn trên bởi {@code p0 / (1 - r)}.
+ * Phần tử chỉ được thêm vào slice mới nhất; truy vấn kiểm tra lần lượt mọi slice.
+ */
+public final class ScalableBloomFilter {
+    private static final int GROWTH_FACTOR = 2;
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final List<BloomFilter> slices = new CopyOnWriteArrayList<>();
+
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        slices.add(new BloomFilter(initialCapacity, falsePositiveRate * (1 - TIGHTENING_RATIO)));
+    }
+
+    public void put(CharSequence value) {
+        BloomFilter current = slices.get(slices.size() - 1);
+        if (current.isSaturated()) {
+            current = grow(current);
+        }
+        current.put(value);
+    }
+
+    public boolean mightContain(CharSequence value) {
+        for (BloomFilter slice : slices) {
+            if (slice.mightContain(value)) return true;
+        }
+        return false;
+    }
+
+    private synchronized BloomFilter grow(BloomFilter saturated) {
+        BloomFilter last = slices.get(slices.size() - 1);
+        if (last != saturated) return last;
+        BloomFilter next = new BloomFilter(
+                saturated.capacity() * GROWTH_FACTOR,
+                saturated.falsePositiveRate() * TIGHTENING_RATIO);
+        slices.add(next);
+        return next;
+    }
+
+    /**
+     * Tỷ lệ dương tính giả tổng hợp ước lượng: 1 - Π(1 - p_i).
+     */
+    public double estimatedFalsePositiveRate() {
+        double notFalsePositive = 1;
+        for (BloomFilter slice : slices) {
+            notFalsePositive *= 1 - slice.estimatedFalsePositiveRate();
+        }
+        return 1 - notFalsePositive;
+    }
+
+    public long approximateCount() {
+        long count = 0;
+        for (BloomFilter slice : slices) count += slice.approximateCount();
+        return count;
+    }
+
+    public long bitSize() {
+        long bits = 0;
+        for (BloomFilter slice : slices) bits += slice.bitSize();
+        return bits;
+    }
+
+    public long capacity() {
+        long capacity = 0;
+        for (BloomFilter slice : slices) capacity += slice.capacity();
+        return capacity;
+    }
+
+    public int sliceCount() {
+        return slices.size();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.user.utils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Mốc đọc phần đuôi (Tail) của {@code transaction_history} theo thứ tự ghi, không bỏ sót dòng commit muộn.
+ * <p>
+ * ID (Hi/Lo, Snowflake) được cấp TRƯỚC khi transaction commit, nên một dòng có ID nhỏ hơn có thể trở nên nhìn thấy SAU
+ * một dòng ID lớn hơn, ngay trên cùng một instance. Đọc tiếp theo {@code id > lastId} vì vậy bỏ sót dòng đó mãi mãi.
+ * Thay vào đó, mỗi dòng mang {@code recorded_at} (giờ của DB lúc INSERT, luôn sớm hơn lúc commit) và người đọc:
+ * <ol>
+ * <li>Quét lại từ {@code watermark - overlap}, trong đó {@code watermark} là {@code recorded_at} lớn nhất đã nhận.
+ * Một dòng chưa nhìn thấy ở lần quét trước thuộc về transaction chưa commit, nên miễn là không transaction ghi nào
+ * kéo dài quá {@code overlap}, dòng đó vẫn nằm trong khoảng quét lại.</li>
+ * <li>Bỏ qua các ID đã nhận trong khoảng chồng lấn ({@link #accept}); ID cũ hơn {@code watermark - overlap} không thể
+ * xuất hiện lại trong lần quét nên được loại khỏi bộ nhớ ({@link #evict}).</li>
+ * </ol>
+ * Thời gian chỉ dùng để so sánh, đổi sang micro-giây theo UTC; đồng hồ của ứng dụng không tham gia.
+ * <p>
+ * <b>Không an toàn luồng</b>: dùng bởi một luồng đọc duy nhất.
+ */
+public final class TailWatermark {
+    /** Mốc quét khi chưa nhận dòng nào: nhỏ hơn mọi giá trị hợp lệ của DATETIME. */
+    public static final LocalDateTime BEGINNING = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final int RECORDED = 0;
+
+    private final long overlapMicros;
+    private final LongColumnHashMap seen = new LongColumnHashMap(1, 1024);
+    private long watermark = Long.MIN_VALUE;
+
+    /**
+     * @param overlapMillis Khoảng quét lại; phải lớn hơn thời gian dài nhất của một transaction ghi lịch sử.
+     */
+    public TailWatermark(long overlapMillis) {
+        if (overlapMillis < 0) throw new IllegalArgumentException("Overlap must not be negative");
+        this.overlapMicros = overlapMillis * 1_000;
+    }
+
+    /**
+     * @return {@code recorded_at} nhỏ nhất cần quét lại ở lần đọc tiếp theo.
+     */
+    public LocalDateTime scanFrom() {
+        return watermark == Long.MIN_VALUE ? BEGINNING : fromMicros(watermark - overlapMicros);
+    }
+
+    /**
+     * Ghi nhận một dòng vừa đọc.
+     *
+     * @return {@code true} nếu dòng chưa từng được nhận (cần áp dụng), {@code false} nếu là dòng quét lại.
+     */
+    public boolean accept(long id, LocalDateTime recordedAt) {
+        return accept(id, toMicros(recordedAt));
+    }
+
+    /**
+     * Như {@link #accept(long, LocalDateTime)}, với thời gian đã đổi sang micro-giây (dùng khi nạp lại từ Snapshot).
+     */
+    public boolean accept(long id, long recordedMicros) {
+        if (seen.containsKey(id)) return false;
+        seen.put(id, RECORDED, recordedMicros);
+        watermark = Math.max(watermark, recordedMicros);
+        return true;
+    }
+
+    /**
+     * Loại các ID không còn nằm trong khoảng quét lại. Gọi sau mỗi lần đọc xong phần đuôi.
+     *
+     * @return Số ID đã loại.
+     */
+    public int evict() {
+        if (watermark == Long.MIN_VALUE) return 0;
+        long horizon = watermark - overlapMicros;
+        long[] expired = new long[seen.size()];
+        int[] count = new int[1];
+        seen.forEach((id, values, offset) -> {
+            if (values[offset + RECORDED] < horizon) {
+                expired[count[0]++] = id;
+            }
+        });
+        for (int i = 0; i < count[0]; i++) {
+            seen.remove(expired[i]);
+        }
+        return count[0];
+    }
+
+    /**
+     * Duyệt các ID đang được nhớ (để ghi Snapshot).
+     */
+    public void forEach(Visitor visitor) {
+        seen.forEach((id, values, offset) -> visitor.visit(id, values[offset + RECORDED]));
+    }
+
+    /**
+     * @return Số ID đang được nhớ trong khoảng quét lại.
+     */
+    public int tracked() {
+        return seen.size();
+    }
+
+    /**
+     * @return {@code recorded_at} lớn nhất đã nhận, hoặc {@code null} nếu chưa nhận dòng nào.
+     */
+    public LocalDateTime watermark() {
+        return watermark == Long.MIN_VALUE ? null : fromMicros(watermark);
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(long id, long recordedMicros);
+    }
+
+    /**
+     * @return Micro-giây từ Epoch, coi {@code time} là giờ UTC.
+     */
+    public static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.user;
+
+import com.example.user.dto.request.TransactionRequest;
+import com.example.user.dto.response.BalanceRebuildResponse;
+import com.example.user.dto.response.BalanceResponse;
+import com.example.user.entity.AccountBalance;
+import com.example.user.repository.IAccountBalanceRepository;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.service.IAccountBalanceService;
+import com.example.user.service.ITransactionService;
+import com.example.user.service.impl.AccountBalanceSequencer;
+import com.example.user.service.impl.AccountBalanceService;
+import com.example.user.service.impl.AccountBlindIndex;
+import com.example.user.service.impl.LedgerEngine;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rebuild số dư: dòng lệch, dòng thiếu và dòng mồ côi trong {@code account_balance} được sửa về đúng tổng lịch sử,
+ * và lệnh sửa Compare-And-Set bỏ qua tài khoản vừa có giao dịch mới sau snapshot thay vì ghi đè bằng số liệu cũ.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:balancerebuildtest;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class AccountBalanceRebuildTest {
+    private static final String CORRUPT_SQL = "UPDATE " + AccountBalance.TABLE_NAME
+            + " SET total_have = total_have + ?, posting_count = posting_count + ? WHERE account_hash = ?";
+    private static final String DELETE_SQL = "DELETE FROM " + AccountBalance.TABLE_NAME + " WHERE account_hash = ?";
+    private static final String INSERT_SQL = "INSERT INTO " + AccountBalance.TABLE_NAME
+            + " (account_hash, total_in_debt, total_have, posting_count, updated_at) VALUES (?, 0, ?, 1, ?)";
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM " + AccountBalance.TABLE_NAME + " WHERE account_hash = ?";
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 7, 1, 9, 0);
+
+    @Autowired
+    private ITransactionService transactionService;
+
+    @Autowired
+    private IAccountBalanceService accountBalanceService;
+
+    @Autowired
+    private IAccountBalanceRepository balanceRepository;
+
+    @Autowired
+    private AccountBlindIndex accountBlindIndex;
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private AccountBalanceSequencer sequencer;
+
+    @Autowired
+    private ShardedTransactionHistoryRepository historyShards;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Dòng lệch, thiếu và mồ côi được sửa về đúng tổng lịch sử; lần chạy sau không còn gì để sửa")
+    void repairsDriftedMissingAndOrphanedRows() {
+        String drifted = "8300000001";
+        String missing = "8300000002";
+        String orphan = "8300000099";
+        post("REBUILD-1", drifted, missing);
+        post("REBUILD-2", drifted, missing);
+        post("REBUILD-3", missing, "8300000003");
+        assertClean(accountBalanceService.rebuild());
+
+        jdbcTemplate.update(CORRUPT_SQL, 12_345, 5, accountBlindIndex.of(drifted));
+        jdbcTemplate.update(DELETE_SQL, accountBlindIndex.of(missing));
+        jdbcTemplate.update(INSERT_SQL, accountBlindIndex.of(orphan), 777, TIME);
+
+        BalanceRebuildResponse rebuild = accountBalanceService.rebuild();
+
+        Assertions.assertEquals(16, rebuild.getPartitions());
+        Assertions.assertEquals(1, rebuild.getDrifted());
+        Assertions.assertEquals(1, rebuild.getMissing());
+        Assertions.assertEquals(1, rebuild.getOrphaned());
+        Assertions.assertEquals(3, rebuild.getRepaired());
+        Assertions.assertEquals(0, rebuild.getSkippedConcurrent());
+        assertBalance(drifted, "20000.00", "0.00", 2);
+        assertBalance(missing, "10000.00", "20000.00", 3);
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject(COUNT_SQL, Integer.class, accountBlindIndex.of(orphan)));
+        assertClean(accountBalanceService.rebuild());
+    }
+
+    @Test
+    @DisplayName("Giao dịch mới rơi vào sau snapshot: lệnh sửa CAS bị bỏ qua, lần rebuild sau mới sửa")
+    void skipsRepairWhenPostingLandsAfterSnapshot() {
+        String account = "8400000001";
+        String counterparty = "8400000002";
+        post("REBUILD-CAS-1", account, counterparty);
+        assertClean(accountBalanceService.rebuild());
+        jdbcTemplate.update(CORRUPT_SQL, 500, 0, accountBlindIndex.of(account));
+
+        // Lần ghi đầu tiên của rebuild là lệnh sửa tài khoản bị lệch: cho một giao dịch mới commit ngay trước nó
+        AtomicBoolean raced = new AtomicBoolean();
+        PlatformTransactionManager racing = new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                if (!definition.isReadOnly() && raced.compareAndSet(false, true)) {
+                    post("REBUILD-CAS-2", account, counterparty);
+                }
+                return transactionManager.getTransaction(definition);
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+                transactionManager.commit(status);
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+                transactionManager.rollback(status);
+            }
+        };
+        AccountBalanceService racingService = new AccountBalanceService(balanceRepository, accountBlindIndex,
+                ledgerEngine, jdbcTemplate, sequencer, historyShards, racing, 1);
+
+        BalanceRebuildResponse rebuild = racingService.rebuild();
+
+        Assertions.assertTrue(raced.get());
+        Assertions.assertEquals(1, rebuild.getDrifted());
+        Assertions.assertEquals(0, rebuild.getRepaired());
+        Assertions.assertEquals(1, rebuild.getSkippedConcurrent());
+        // Giữ nguyên biến động của giao dịch mới, không ghi đè bằng tổng lịch sử của snapshot
+        assertBalance(account, "20000.00", "5.00", 2);
+
+        BalanceRebuildResponse retry = accountBalanceService.rebuild();
+        Assertions.assertEquals(1, retry.getDrifted());
+        Assertions.assertEquals(1, retry.getRepaired());
+        assertBalance(account, "20000.00", "0.00", 2);
+        assertBalance(counterparty, "0.00", "20000.00", 2);
+    }
+
+    private void post(String transactionId, String source, String dest) {
+        transactionService.createTransaction(TransactionRequest.builder()
+                .transactionId(transactionId)
+                .sourceAccount(source)
+                .destAccount(dest)
+                .amount(new BigDecimal("10000.00"))
+                .time(TIME)
+                .build());
+    }
+
+    private void assertBalance(String account, String totalInDebt, String totalHave, long postings) {
+        BalanceResponse balance = accountBalanceService.getBalance(account);
+        Assertions.assertEquals(0, new BigDecimal(totalInDebt).compareTo(balance.getTotalInDebt()), "inDebt of " + account);
+        Assertions.assertEquals(0, new BigDecimal(totalHave).compareTo(balance.getTotalHave()), "have of " + account);
+        Assertions.assertEquals(postings, balance.getPostingCount(), "postings of " + account);
+    }
+
+    private static void assertClean(BalanceRebuildResponse rebuild) {
+        Assertions.assertEquals(0, rebuild.getDrifted());
+        Assertions.assertEquals(0, rebuild.getMissing());
+        Assertions.assertEquals(0, rebuild.getOrphaned());
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.user;
+
+import com.example.user.dto.request.TransactionRequest;
+import com.example.user.dto.response.BalanceRebuildResponse;
+import com.example.user.entity.AccountBalance;
+import com.example.user.exception.ServiceUnavailableException;
+import com.example.user.repository.AccountBalanceBatchRepository;
+import com.example.user.repository.IAccountBalanceRepository;
+import com.example.user.service.IAccountBalanceService;
+import com.example.user.service.ITransactionService;
+import com.example.user.service.impl.AccountBalanceSequencer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tính đúng của {@link AccountBalanceSequencer}: rebuild chạy song song với giao dịch không cộng trùng biến động,
+ * commit lịch sử bị chặn trong lúc chốt snapshot, lane ghi lỗi không làm hỏng giao dịch đã commit,
+ * và không nhận biến động sau khi tắt.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sequencertest;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+        "app.balance.sequencer.enabled=true",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class AccountBalanceSequencerTest {
+    private static final String MERCHANT = "8800000001";
+    private static final String FENCED_SOURCE = "8800000002";
+    private static final String FENCED_DEST = "8800000003";
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @Autowired
+    private ITransactionService transactionService;
+
+    @Autowired
+    private IAccountBalanceService accountBalanceService;
+
+    @Autowired
+    private AccountBalanceSequencer sequencer;
+
+    @Autowired
+    private AccountBalanceBatchRepository balanceRepository;
+
+    @Autowired
+    private IAccountBalanceRepository accountBalanceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Rebuild chạy song song với giao dịch trên tài khoản nóng: số dư cuối cùng khớp lịch sử, không cộng trùng")
+    void rebuildDuringPostingsDoesNotDoubleCount() throws Exception {
+        int writers = 4;
+        int perWriter = 40;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        transactionService.createTransaction(request("SEQ-" + writer + "-" + i,
+                                String.valueOf(8_900_000_000L + writer * 1_000L + i), MERCHANT));
+                    }
+                    return null;
+                }));
+            }
+            Future<Integer> rebuilds = executor.submit(() -> {
+                int runs = 0;
+                while (writing.get()) {
+                    accountBalanceService.rebuild();
+                    runs++;
+                }
+                return runs;
+            });
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            Assertions.assertTrue(rebuilds.get(60, TimeUnit.SECONDS) > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Lần rebuild cuối không được thấy lệch: lệch nghĩa là một lần repair trước đó đã cộng trùng biến động dở dang
+        BalanceRebuildResponse rebuild = accountBalanceService.rebuild();
+        Assertions.assertEquals(0, rebuild.getDrifted());
+        Assertions.assertEquals(0, rebuild.getMissing());
+        Assertions.assertEquals(0, rebuild.getOrphaned());
+        Assertions.assertEquals(writers * perWriter, accountBalanceService.getBalance(MERCHANT).getPostingCount());
+        Assertions.assertEquals(0, new BigDecimal("10000.00").multiply(BigDecimal.valueOf(writers * perWriter))
+                .compareTo(accountBalanceService.getBalance(MERCHANT).getTotalHave()));
+    }
+
+    @Test
+    @DisplayName("Trong lúc chốt snapshot, giao dịch mới chờ tới khi mở lại rồi mới commit")
+    void quiescedHoldsCommitsUntilReleased() throws Exception {
+        CountDownLatch fenced = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> snapshot = executor.submit(() -> sequencer.quiesced(() -> {
+                fenced.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            Assertions.assertTrue(fenced.await(10, TimeUnit.SECONDS));
+
+            CompletableFuture<Void> posting = CompletableFuture.runAsync(() ->
+                    transactionService.createTransaction(request("SEQ-FENCED", FENCED_SOURCE, FENCED_DEST)), executor);
+            Thread.sleep(300);
+            Assertions.assertFalse(posting.isDone(), "commit must wait while the snapshot is being opened");
+
+            release.countDown();
+            snapshot.get(10, TimeUnit.SECONDS);
+            posting.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(1, accountBalanceService.getBalance(FENCED_DEST).getPostingCount());
+    }
+
+    @Test
+    @DisplayName("Lane ghi lỗi sau commit: giao dịch không bị báo lỗi, biến động được thử lại và chỉ cộng một lần")
+    void failedLaneDoesNotFailCommittedTransaction() throws Exception {
+        AtomicInteger failuresLeft = new AtomicInteger(2);
+        AccountBalanceSequencer retrying = new AccountBalanceSequencer(flaky(failuresLeft), transactionManager,
+                new SimpleMeterRegistry(), true, 1, 16, 8, 100, 250, 5, 100);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try {
+            // Thời gian chờ xác nhận (100 ms) ngắn hơn hai lần thử lại: luồng gọi trả về trước khi lane ghi được
+            Assertions.assertDoesNotThrow(() -> transaction.executeWithoutResult(status -> retrying.apply(List.of(
+                    AccountBalanceBatchRepository.Delta.of("flaky-lane", TIME, 0, 2_500, false)))));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            Optional<AccountBalance> balance = accountBalanceRepository.findById("flaky-lane");
+            while (balance.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+                balance = accountBalanceRepository.findById("flaky-lane");
+            }
+            Assertions.assertTrue(balance.isPresent(), "the lane must retry the failed batch");
+            Assertions.assertEquals(1, balance.get().getPostingCount());
+            Assertions.assertEquals(0, new BigDecimal("25.00").compareTo(balance.get().getTotalHave().toBigDecimal()));
+            // Hai lần lỗi rồi một lần ghi thành công
+            Assertions.assertEquals(-1, failuresLeft.get());
+        } finally {
+            retrying.shutdown();
+        }
+
+        // Hết lượt thử: vẫn không báo lỗi, và biến động không còn bị tính là dở dang (rebuild mở được snapshot)
+        AccountBalanceSequencer failing = new AccountBalanceSequencer(flaky(new AtomicInteger(Integer.MAX_VALUE)),
+                transactionManager, new SimpleMeterRegistry(), true, 1, 16, 8, 1_000, 250, 1, 10);
+        try {
+            Assertions.assertDoesNotThrow(() -> transaction.executeWithoutResult(status -> failing.apply(List.of(
+                    AccountBalanceBatchRepository.Delta.of("failed-lane", TIME, 0, 2_500, false)))));
+            Assertions.assertDoesNotThrow(() -> failing.quiesced(() -> {
+            }));
+            Assertions.assertTrue(accountBalanceRepository.findById("failed-lane").isEmpty());
+        } finally {
+            failing.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Sau khi tắt, Sequencer từ chối biến động mới thay vì để chúng nằm lại trong lane")
+    void rejectsPostingsAfterShutdown() {
+        AccountBalanceSequencer stopped = new AccountBalanceSequencer(balanceRepository, transactionManager,
+                new SimpleMeterRegistry(), true, 2, 16, 8, 1_000, 250, 0, 0);
+        stopped.shutdown();
+
+        Assertions.assertThrows(ServiceUnavailableException.class, () -> stopped.submit(List.of(
+                AccountBalanceBatchRepository.Delta.of("ab", TIME, 100, 0, true))));
+    }
+
+    /**
+     * Repository ném lỗi ở {@code failuresLeft} lần ghi đầu tiên.
+     */
+    private AccountBalanceBatchRepository flaky(AtomicInteger failuresLeft) {
+        return new AccountBalanceBatchRepository(jdbcTemplate) {
+            @Override
+            public void applyDeltas(Collection<Delta> deltas) {
+                if (failuresLeft.getAndDecrement() > 0) {
+                    throw new DataAccessResourceFailureException("Simulated lane write failure");
+                }
+                super.applyDeltas(deltas);
+            }
+        };
+    }
+
+    private static TransactionRequest request(String transactionId, String source, String dest) {
+        return TransactionRequest.builder()
+                .transactionId(transactionId)
+                .sourceAccount(source)
+                .destAccount(dest)
+                .amount(new BigDecimal("10000.00"))
+                .time(TIME)
+                .build();
+    }
+}
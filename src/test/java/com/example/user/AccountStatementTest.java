@@ -0,0 +1,157 @@
+package com.example.user;
+
+import com.example.user.dto.request.TransactionRequest;
+import com.example.user.dto.response.StatementResponse;
+import com.example.user.enums.PostingLeg;
+import com.example.user.exception.BadRequestException;
+import com.example.user.service.ITransactionService;
+import com.example.user.service.impl.AccountBlindIndex;
+import com.example.user.service.impl.AccountHashBackfill;
+import com.example.user.utils.AesUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.crypto.SecretKey;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sao kê tài khoản phân trang Keyset: con trỏ đi hết các trang không lặp/sót dòng (kể cả các vế cùng {@code time},
+ * phân định bằng {@code id}), tôn trọng biên [from, to), tính bổ sung {@code account_hash} cho dòng cũ, và endpoint
+ * sao kê cần JWT trong khi tra cứu giao dịch theo ID vẫn public.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statementtest;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+        // Lô nhỏ để backfill phải đi qua nhiều lô Keyset
+        "app.statement.backfill-batch-size=2",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class AccountStatementTest {
+    private static final String INSERT_LEGACY_SQL = "INSERT INTO transaction_history"
+            + " (id, transaction_id, leg, leg_no, account, account_hash, in_debt, have, time) VALUES (?, ?, ?, 0, ?, NULL, ?, ?, ?)";
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 4, 1, 0, 0);
+    private static final LocalDateTime TO = FROM.plusHours(3);
+
+    @Autowired
+    private ITransactionService transactionService;
+
+    @Autowired
+    private AccountHashBackfill accountHashBackfill;
+
+    @Autowired
+    private AccountBlindIndex accountBlindIndex;
+
+    @Autowired
+    private SecretKey secretKey;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("Đi hết các trang bằng con trỏ: mới nhất trước, vế cùng time xếp theo id, đúng biên [from, to)")
+    void pagesThroughTiesAndBounds() {
+        String account = "8100000001";
+        post("STMT-BEFORE", account, FROM.minusNanos(1_000));
+        post("STMT-0", account, FROM);
+        for (int i = 1; i <= 4; i++) {
+            post("STMT-" + i, account, FROM.plusHours(1));
+        }
+        post("STMT-5", account, FROM.plusHours(2));
+        post("STMT-AT-TO", account, TO);
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            StatementResponse page = transactionService.getStatement(account, FROM, TO, cursor, 2);
+            pages++;
+            page.getEntries().forEach(entry -> {
+                Assertions.assertEquals(PostingLeg.DEBIT, entry.getLeg());
+                seen.add(entry.getTransactionId());
+            });
+            Assertions.assertEquals(page.isHasNext(), page.getNextCursor() != null);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        // Cùng time: vế ghi sau có id lớn hơn nên đứng trước
+        Assertions.assertEquals(List.of("STMT-5", "STMT-4", "STMT-3", "STMT-2", "STMT-1", "STMT-0"), seen);
+        Assertions.assertEquals(3, pages);
+        Assertions.assertThrows(BadRequestException.class,
+                () -> transactionService.getStatement(account, FROM, TO, "not-a-cursor", 2));
+        Assertions.assertThrows(BadRequestException.class,
+                () -> transactionService.getStatement(account, TO, FROM, null, 2));
+    }
+
+    @Test
+    @DisplayName("Dòng ghi trước khi có Blind Index được tính account_hash và xuất hiện trong sao kê")
+    void backfillsLegacyRowsIntoStatements() {
+        String account = "8200000002";
+        for (int i = 0; i < 5; i++) {
+            jdbcTemplate.update(INSERT_LEGACY_SQL, 9_100_000_000L + i, "STMT-LEGACY-" + i, PostingLeg.CREDIT.name(),
+                    AesUtil.encrypt(account, secretKey), 0, 1_000_000 + i, FROM.plusMinutes(i));
+        }
+        Assertions.assertTrue(transactionService.getStatement(account, FROM, TO, null, 10).getEntries().isEmpty());
+
+        Assertions.assertEquals(5, accountHashBackfill.backfill());
+        Assertions.assertEquals(0, accountHashBackfill.backfill());
+
+        StatementResponse statement = transactionService.getStatement(account, FROM, TO, null, 10);
+        Assertions.assertEquals(5, statement.getEntries().size());
+        Assertions.assertEquals("STMT-LEGACY-4", statement.getEntries().get(0).getTransactionId());
+        Assertions.assertEquals(0, new BigDecimal("10000.04").compareTo(statement.getEntries().get(0).getHave()));
+        Assertions.assertEquals(5, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transaction_history WHERE account_hash = ?", Integer.class, accountBlindIndex.of(account)));
+    }
+
+    @Test
+    @DisplayName("Sao kê cần JWT; tra cứu giao dịch theo ID vẫn public như trước")
+    void protectsStatementButKeepsLookupPublic() throws Exception {
+        mockMvc.perform(get("/api/transactions/statement")
+                        .param("account", "8100000001")
+                        .param("from", FROM.toString())
+                        .param("to", TO.toString()))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/transactions/balance").param("account", "8100000001"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/transactions/STMT-NOT-FOUND"))
+                .andExpect(status().isNotFound());
+    }
+
+    private void post(String transactionId, String account, LocalDateTime time) {
+        transactionService.createTransaction(TransactionRequest.builder()
+                .transactionId(transactionId)
+                .sourceAccount(account)
+                .destAccount("8900000009")
+                .amount(new BigDecimal("10000.00"))
+                .time(time)
+                .build());
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.user;
+
+import com.example.user.dto.response.DailyTotalsResponse;
+import com.example.user.dto.response.TopAccountsResponse;
+import com.example.user.entity.TransactionHistory;
+import com.example.user.enums.PostingLeg;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.service.impl.AccountBlindIndex;
+import com.example.user.service.impl.AnalyticsColumnStore;
+import com.example.user.service.impl.AnalyticsService;
+import com.example.user.service.impl.ArchiveSegmentStore;
+import com.example.user.utils.AesUtil;
+import com.example.user.utils.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.crypto.SecretKey;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Kho phân tích dạng cột: mã từ điển của tài khoản, nạp phần đuôi theo mốc {@code recorded_at} (bắt dòng commit muộn
+ * đúng một lần), loại Segment đã lưu trữ, và tổng theo ngày/top tài khoản khớp với truy vấn SQL tổng hợp tương đương.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:analyticstest;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class AnalyticsColumnStoreTest {
+    private static final String INSERT_SQL = "INSERT INTO " + TransactionHistory.TABLE_NAME
+            + " (id, transaction_id, leg, leg_no, account, account_hash, in_debt, have, time, recorded_at)"
+            + " VALUES (?, ?, ?, 0, ?, ?, ?, ?, ?, ?)";
+    private static final String DAILY_SQL = "SELECT CAST(time AS DATE), SUM(in_debt), SUM(have), COUNT(*) FROM "
+            + TransactionHistory.TABLE_NAME + " WHERE account_hash = ? AND time >= ? AND time < ?"
+            + " GROUP BY CAST(time AS DATE) ORDER BY 1";
+    private static final String TOP_SQL = "SELECT account_hash, SUM(in_debt), SUM(have), COUNT(*) FROM "
+            + TransactionHistory.TABLE_NAME + " WHERE time >= ? AND time < ? GROUP BY account_hash"
+            + " ORDER BY SUM(in_debt) + SUM(have) DESC LIMIT ?";
+    private static final AtomicLong IDS = new AtomicLong(9_300_000_000L);
+
+    @TempDir
+    static Path archiveDir;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShardedTransactionHistoryRepository historyShards;
+
+    @Autowired
+    private ArchiveSegmentStore archive;
+
+    @Autowired
+    private AccountBlindIndex accountBlindIndex;
+
+    @Autowired
+    private SecretKey aesSecretKey;
+
+    @Test
+    @DisplayName("Mã từ điển ổn định theo tài khoản; tổng theo ngày và top tài khoản khớp với GROUP BY trên SQL")
+    void aggregatesMatchSql() throws Exception {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 0, 0);
+        List<String> accounts = List.of("7100000001", "7100000002", "7100000003");
+        LocalDateTime now = LocalDateTime.now();
+        for (int n = 0; n < 45; n++) {
+            int account = n % accounts.size();
+            LocalDateTime time = base.plusDays((n / 3) % 3).plusMinutes(n);
+            insert(accounts.get(account), n % 2 == 0 ? PostingLeg.DEBIT : PostingLeg.CREDIT,
+                    1_000 + n * 37L + account * 100_000L, time, now);
+        }
+        // Ngoài khoảng truy vấn [from, to)
+        insert(accounts.get(0), PostingLeg.DEBIT, 50_000, base.minusMinutes(1), now);
+        insert(accounts.get(0), PostingLeg.DEBIT, 50_000, base.plusDays(3), now);
+
+        AnalyticsColumnStore store = start(archive, 7);
+        AnalyticsService service = new AnalyticsService(store, accountBlindIndex, aesSecretKey, 2, 366);
+        try {
+            await(() -> store.isReady() && store.snapshot().rows() >= 47);
+
+            AnalyticsColumnStore.Snapshot snapshot = store.snapshot();
+            Set<Integer> ids = new HashSet<>();
+            for (String account : accounts) {
+                int id = store.accountIdOf(accountBlindIndex.of(account));
+                Assertions.assertTrue(id >= 0 && id < snapshot.accounts());
+                Assertions.assertEquals(accountBlindIndex.of(account), snapshot.accountHashes()[id]);
+                Assertions.assertEquals(account, AesUtil.decrypt(snapshot.encryptedAccounts()[id], aesSecretKey));
+                ids.add(id);
+            }
+            Assertions.assertEquals(accounts.size(), ids.size());
+            Assertions.assertEquals(-1, store.accountIdOf(accountBlindIndex.of("7199999999")));
+
+            LocalDateTime from = base;
+            LocalDateTime to = base.plusDays(3);
+            for (String account : accounts) {
+                List<DailyTotalsResponse.Day> expected = new ArrayList<>();
+                jdbcTemplate.query(DAILY_SQL, rs -> {
+                    expected.add(DailyTotalsResponse.Day.builder()
+                            .date(rs.getObject(1, LocalDate.class))
+                            .totalInDebt(Money.toBigDecimal(rs.getLong(2)))
+                            .totalHave(Money.toBigDecimal(rs.getLong(3)))
+                            .postingCount(rs.getLong(4))
+                            .build());
+                }, accountBlindIndex.of(account), from, to);
+                Assertions.assertEquals(3, expected.size());
+                Assertions.assertEquals(expected, service.dailyTotals(account, from, to).getDays(), account);
+            }
+
+            List<TopAccountsResponse.Entry> expectedTop = new ArrayList<>();
+            jdbcTemplate.query(TOP_SQL, rs -> {
+                long inDebt = rs.getLong(2);
+                long have = rs.getLong(3);
+                expectedTop.add(TopAccountsResponse.Entry.builder()
+                        .account(AesUtil.decrypt(snapshot.encryptedAccounts()[store.accountIdOf(rs.getString(1))], aesSecretKey))
+                        .volume(Money.toBigDecimal(inDebt + have))
+                        .totalInDebt(Money.toBigDecimal(inDebt))
+                        .totalHave(Money.toBigDecimal(have))
+                        .postingCount(rs.getLong(4))
+                        .build());
+            }, from, to, 2);
+            Assertions.assertEquals(List.of(accounts.get(2), accounts.get(1)),
+                    expectedTop.stream().map(TopAccountsResponse.Entry::getAccount).toList());
+            Assertions.assertEquals(expectedTop, service.topAccounts(from, to, 2).getAccounts());
+        } finally {
+            service.shutdown();
+            store.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Nạp phần đuôi từ mốc recorded_at: dòng commit muộn trong khoảng chồng lấn được nạp đúng một lần")
+    void refreshesTailFromRecordedAtWatermark() throws Exception {
+        String account = "7200000001";
+        LocalDateTime day = LocalDateTime.of(2025, 4, 1, 0, 0);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 3; i++) {
+            insert(account, PostingLeg.CREDIT, 1_000, day.plusHours(i), now.plusNanos(i * 1_000L));
+        }
+
+        AnalyticsColumnStore store = start(archive, 2);
+        AnalyticsService service = new AnalyticsService(store, accountBlindIndex, aesSecretKey, 1, 366);
+        try {
+            await(() -> store.isReady() && postings(service, account, day) == 3);
+
+            // recorded_at trước mốc đã nạp nhưng trong khoảng chồng lấn 10s: transaction commit muộn
+            insert(account, PostingLeg.CREDIT, 2_000, day.plusHours(5), now.minusSeconds(5));
+            insert(account, PostingLeg.DEBIT, 3_000, day.plusHours(6), now.plusSeconds(1));
+            await(() -> postings(service, account, day) == 5);
+            int rows = store.snapshot().rows();
+
+            // Các lần quét lại sau đó không nạp trùng
+            TimeUnit.MILLISECONDS.sleep(300);
+            Assertions.assertEquals(rows, store.snapshot().rows());
+            DailyTotalsResponse.Day totals = service.dailyTotals(account, day, day.plusDays(1)).getDays().get(0);
+            Assertions.assertEquals(5, totals.getPostingCount());
+            Assertions.assertEquals(0, new BigDecimal("50.00").compareTo(totals.getTotalHave()));
+            Assertions.assertEquals(0, new BigDecimal("30.00").compareTo(totals.getTotalInDebt()));
+        } finally {
+            service.shutdown();
+            store.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Mốc lưu trữ tiến lên: Segment chỉ chứa vế đã lưu trữ được giải phóng, truy vấn không còn tính các vế đó")
+    void evictsArchivedSegments() throws Exception {
+        String oldAccount = "7300000001";
+        String recentAccount = "7300000002";
+        LocalDateTime oldTime = LocalDateTime.of(2020, 1, 1, 0, 0);
+        LocalDateTime recentTime = LocalDateTime.of(2025, 5, 1, 12, 0);
+        // recorded_at cũ nhất bảng: đúng một Segment đầy chỉ gồm vế cũ
+        String oldHash = accountBlindIndex.of(oldAccount);
+        String oldEncrypted = AesUtil.encrypt(oldAccount, aesSecretKey);
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < AnalyticsColumnStore.SEGMENT_SIZE; i++) {
+            LocalDateTime recordedAt = LocalDateTime.of(2001, 1, 1, 0, 0).plusNanos(i * 1_000L);
+            batch.add(new Object[]{IDS.getAndIncrement(), "AN-OLD-" + i, PostingLeg.DEBIT.name(), oldEncrypted, oldHash,
+                    100, 0, oldTime, recordedAt});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+        insert(recentAccount, PostingLeg.CREDIT, 4_000, recentTime, LocalDateTime.now());
+
+        AtomicReference<LocalDateTime> cutoff = new AtomicReference<>(LocalDateTime.of(2000, 1, 1, 0, 0));
+        ArchiveSegmentStore archiving = new ArchiveSegmentStore(aesSecretKey, new SimpleMeterRegistry(), false,
+                archiveDir.toString(), 365, 512, 1 << 20) {
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+
+            @Override
+            public LocalDateTime cutoff() {
+                return cutoff.get();
+            }
+        };
+        AnalyticsColumnStore store = start(archiving, 10_000);
+        AnalyticsService service = new AnalyticsService(store, accountBlindIndex, aesSecretKey, 2, 366);
+        try {
+            LocalDateTime oldDay = oldTime.toLocalDate().atStartOfDay();
+            await(() -> store.isReady() && postings(service, recentAccount, recentTime.toLocalDate().atStartOfDay()) == 1);
+            Assertions.assertEquals(AnalyticsColumnStore.SEGMENT_SIZE, postings(service, oldAccount, oldDay));
+            Assertions.assertNotNull(store.snapshot().segments()[0]);
+
+            cutoff.set(LocalDateTime.of(2021, 1, 1, 0, 0));
+            await(() -> store.snapshot().archivedBefore() == cutoff.get().toEpochSecond(ZoneOffset.UTC));
+
+            AnalyticsColumnStore.Snapshot snapshot = store.snapshot();
+            Assertions.assertNull(snapshot.segments()[0]);
+            Assertions.assertTrue(snapshot.rows() > AnalyticsColumnStore.SEGMENT_SIZE);
+            Assertions.assertEquals(0, postings(service, oldAccount, oldDay));
+            Assertions.assertEquals(1, postings(service, recentAccount, recentTime.toLocalDate().atStartOfDay()));
+            Assertions.assertTrue(service.topAccounts(oldDay, oldDay.plusDays(1), 10).getAccounts().isEmpty());
+        } finally {
+            service.shutdown();
+            store.stop();
+        }
+    }
+
+    private AnalyticsColumnStore start(ArchiveSegmentStore archiveStore, int pageSize) {
+        AnalyticsColumnStore store = new AnalyticsColumnStore(jdbcTemplate, historyShards, archiveStore,
+                new SimpleMeterRegistry(), true, 20, 10_000, pageSize);
+        store.start();
+        return store;
+    }
+
+    private void insert(String account, PostingLeg leg, long amount, LocalDateTime time, LocalDateTime recordedAt) {
+        boolean debit = leg == PostingLeg.DEBIT;
+        long id = IDS.getAndIncrement();
+        jdbcTemplate.update(INSERT_SQL, id, "AN-" + id, leg.name(), AesUtil.encrypt(account, aesSecretKey),
+                accountBlindIndex.of(account), debit ? amount : 0, debit ? 0 : amount, time, recordedAt);
+    }
+
+    private static long postings(AnalyticsService service, String account, LocalDateTime day) {
+        return service.dailyTotals(account, day, day.plusDays(1)).getDays().stream()
+                .mapToLong(DailyTotalsResponse.Day::getPostingCount)
+                .sum();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.user;
+
+import com.example.user.dto.request.TransactionRequest;
+import com.example.user.dto.response.ArchiveResponse;
+import com.example.user.dto.response.BalanceRebuildResponse;
+import com.example.user.dto.response.StatementResponse;
+import com.example.user.dto.response.TransactionResponse;
+import com.example.user.exception.ConflictException;
+import com.example.user.service.IAccountBalanceService;
+import com.example.user.service.IArchiveService;
+import com.example.user.service.ITransactionService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Kiểm tra kho lưu trữ lạnh: các vế cũ rời {@code transaction_history} sang file Segment (nhiều lô, nhiều Block,
+ * 2 tháng) mà tra cứu, sao kê, chống trùng và rebuild số dư vẫn cho kết quả như trước.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:archivetest;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+        "app.transaction-cache.enabled=false",
+
+        "app.archive.enabled=true",
+        "app.archive.segment-max-rows=16",
+        "app.archive.block-rows=4",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class ArchiveTest {
+    private static final String SOURCE = "1000000001";
+    private static final String DEST = "2000000002";
+    private static final BigDecimal AMOUNT = new BigDecimal("250.75");
+    /** Trải qua ranh giới tháng 01/2020 - 02/2020. */
+    private static final LocalDateTime OLD_TIME = LocalDateTime.of(2020, 1, 31, 20, 0);
+    private static final int OLD_TRANSACTIONS = 30;
+    private static final int RECENT_TRANSACTIONS = 5;
+
+    @TempDir
+    static Path archiveDir;
+
+    @Autowired
+    private ITransactionService transactionService;
+
+    @Autowired
+    private IArchiveService archiveService;
+
+    @Autowired
+    private IAccountBalanceService accountBalanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("app.archive.path", () -> archiveDir.toString());
+    }
+
+    @Test
+    @DisplayName("Vế cũ được chuyển sang Segment, tra cứu và sao kê đọc xuyên suốt DB và kho lưu trữ")
+    void archivesOldPostingsTransparently() throws IOException {
+        LocalDateTime recentTime = LocalDateTime.now().minusDays(1).withNano(0);
+        for (int i = 0; i < OLD_TRANSACTIONS; i++) {
+            transactionService.createTransaction(request("archive-old-" + i, OLD_TIME.plusHours(i)));
+        }
+        for (int i = 0; i < RECENT_TRANSACTIONS; i++) {
+            transactionService.createTransaction(request("archive-new-" + i, recentTime.minusMinutes(i)));
+        }
+
+        ArchiveResponse result = archiveService.archive();
+        Assertions.assertEquals(OLD_TRANSACTIONS * 2, result.getRowsArchived());
+        Assertions.assertTrue(result.getSegmentsWritten() >= 4, "16 rows per chunk over 2 months");
+        Assertions.assertEquals(RECENT_TRANSACTIONS * 2,
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_history", Integer.class));
+        Assertions.assertTrue(Files.isDirectory(archiveDir.resolve("2020-01")));
+        Assertions.assertTrue(Files.isDirectory(archiveDir.resolve("2020-02")));
+        try (Stream<Path> files = Files.walk(archiveDir)) {
+            Assertions.assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")));
+        }
+
+        for (int i = 0; i < OLD_TRANSACTIONS; i++) {
+            List<TransactionResponse> responses = transactionService.getTransactionByTransactionId("archive-old-" + i);
+            Assertions.assertEquals(2, responses.size());
+            Assertions.assertTrue(responses.stream().anyMatch(response -> SOURCE.equals(response.getAccount())));
+            Assertions.assertTrue(responses.stream().anyMatch(response -> DEST.equals(response.getAccount())));
+            Assertions.assertEquals(OLD_TIME.plusHours(i), responses.get(0).getTime());
+        }
+        Assertions.assertThrows(ConflictException.class,
+                () -> transactionService.createTransaction(request("archive-old-7", OLD_TIME)));
+
+        List<StatementResponse.Entry> entries = new ArrayList<>();
+        String cursor = null;
+        do {
+            StatementResponse page = transactionService.getStatement(SOURCE, OLD_TIME.minusDays(1),
+                    recentTime.plusDays(1), cursor, 7);
+            entries.addAll(page.getEntries());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        Assertions.assertEquals(OLD_TRANSACTIONS + RECENT_TRANSACTIONS, entries.size());
+        Assertions.assertEquals(entries.size(),
+                new HashSet<>(entries.stream().map(StatementResponse.Entry::getTransactionId).toList()).size());
+        for (int i = 1; i < entries.size(); i++) {
+            Assertions.assertFalse(entries.get(i).getTime().isAfter(entries.get(i - 1).getTime()));
+        }
+        Assertions.assertEquals(OLD_TIME, entries.get(entries.size() - 1).getTime());
+
+        BalanceRebuildResponse rebuild = accountBalanceService.rebuild();
+        Assertions.assertEquals(0, rebuild.getDrifted());
+        Assertions.assertEquals(0, rebuild.getOrphaned());
+        Assertions.assertEquals(OLD_TRANSACTIONS + RECENT_TRANSACTIONS,
+                accountBalanceService.getBalance(SOURCE).getPostingCount());
+
+        Assertions.assertEquals(0, archiveService.archive().getRowsArchived(), "Nothing left before the cutoff");
+    }
+
+    private TransactionRequest request(String transactionId, LocalDateTime time) {
+        return TransactionRequest.builder()
+                .transactionId(transactionId)
+                .sourceAccount(SOURCE)
+                .destAccount(DEST)
+                .amount(AMOUNT)
+                .time(time)
+                .build();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.user;
+
+import com.example.user.utils.BloomFilter;
+import com.example.user.utils.ScalableBloomFilter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bảo đảm không có âm tính giả (False Negative) của {@link BloomFilter} và {@link ScalableBloomFilter},
+ * kể cả khi ghi đồng thời và khi filter tự mở rộng (không cần Spring context).
+ */
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("Mọi phần tử đã thêm đều được nhận ra, tỷ lệ dương tính giả gần mức cấu hình")
+    void noFalseNegativesAndBoundedFalsePositives() {
+        int capacity = 100_000;
+        BloomFilter filter = new BloomFilter(capacity, 0.01);
+        for (int i = 0; i < capacity; i++) {
+            filter.put("TX-" + i);
+        }
+        for (int i = 0; i < capacity; i++) {
+            Assertions.assertTrue(filter.mightContain("TX-" + i), "false negative for TX-" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < capacity; i++) {
+            if (filter.mightContain("OTHER-" + i)) falsePositives++;
+        }
+        // 1% cấu hình, cho phép sai lệch thống kê
+        Assertions.assertTrue(falsePositives < capacity * 0.02, "false positives: " + falsePositives);
+    }
+
+    @Test
+    @DisplayName("Nhiều luồng thêm đồng thời qua nhiều lần mở rộng: không mất phần tử nào")
+    void noFalseNegativesUnderConcurrentGrowth() throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.001);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        filter.put(thread + "-" + i);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertTrue(filter.sliceCount() > 1, "filter should have grown");
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                Assertions.assertTrue(filter.mightContain(t + "-" + i), "false negative for " + t + "-" + i);
+            }
+        }
+        Assertions.assertEquals((long) threads * perThread, filter.approximateCount());
+    }
+
+    @Test
+    @DisplayName("Ghi ra rồi đọc lại giữ nguyên các phần tử đã thêm")
+    void survivesSerialization() throws IOException {
+        BloomFilter filter = new BloomFilter(10_000, 0.001);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("SEG-" + i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+        BloomFilter restored = BloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        Assertions.assertEquals(filter.bitSize(), restored.bitSize());
+        Assertions.assertEquals(filter.hashCount(), restored.hashCount());
+        Assertions.assertEquals(filter.approximateCount(), restored.approximateCount());
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertTrue(restored.mightContain("SEG-" + i));
+        }
+    }
+}
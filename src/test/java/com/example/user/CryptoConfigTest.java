@@ -27,6 +27,7 @@ import java.util.Base64;
         // Quan trọng: Bắt Hibernate nói chuyện kiểu H2 để không bị lỗi cú pháp SQL
         "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
         "spring.jpa.hibernate.ddl-auto=create-drop", // Tạo bảng khi chạy, xóa khi tắt
+        "app.id.snowflake.node-id=0",
 
         // --- 2. CONFIG CRYPTO (Giá trị giả định) ---
         // Key AES giả (Base64 của chuỗi 32 ký tự '12345678901234567890123456789012')
@@ -0,0 +1,50 @@
+package com.example.user;
+
+import com.example.user.utils.DuplicateKeyUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+
+/**
+ * Chỉ vi phạm khóa chống trùng {@code transactionId} mới được coi là giao dịch trùng (không cần Spring context).
+ */
+class DuplicateKeyUtilTest {
+
+    @Test
+    @DisplayName("Vi phạm uk_transaction_history_leg (MySQL, H2) là giao dịch trùng")
+    void recognizesTransactionKey() {
+        Assertions.assertTrue(DuplicateKeyUtil.isDuplicateTransaction(new DuplicateKeyException("batch failed",
+                new SQLIntegrityConstraintViolationException(
+                        "Duplicate entry 'TX-1-DEBIT-0' for key 'transaction_history.uk_transaction_history_leg'"))));
+        Assertions.assertTrue(DuplicateKeyUtil.isDuplicateTransaction(new DataIntegrityViolationException("could not execute batch",
+                new SQLIntegrityConstraintViolationException("Unique index or primary key violation: "
+                        + "\"PUBLIC.UK_TRANSACTION_HISTORY_LEG_INDEX_A ON PUBLIC.TRANSACTION_HISTORY(TRANSACTION_ID, LEG, LEG_NO)\""))));
+    }
+
+    @Test
+    @DisplayName("Vi phạm uk_transaction_registry_transaction (MySQL, H2) là giao dịch trùng")
+    void recognizesRegistryKey() {
+        Assertions.assertTrue(DuplicateKeyUtil.isDuplicateTransaction(new DuplicateKeyException("batch failed",
+                new SQLIntegrityConstraintViolationException(
+                        "Duplicate entry 'TX-1' for key 'transaction_registry.uk_transaction_registry_transaction'"))));
+        Assertions.assertTrue(DuplicateKeyUtil.isDuplicateTransaction(new DataIntegrityViolationException("could not execute batch",
+                new SQLIntegrityConstraintViolationException("Unique index or primary key violation: "
+                        + "\"PUBLIC.UK_TRANSACTION_REGISTRY_TRANSACTION_INDEX_B ON PUBLIC.TRANSACTION_REGISTRY(TRANSACTION_ID)\""))));
+        Assertions.assertFalse(DuplicateKeyUtil.isDuplicateTransaction(new DuplicateKeyException("batch failed",
+                new SQLIntegrityConstraintViolationException("Duplicate entry '7' for key 'transaction_registry.PRIMARY'"))));
+    }
+
+    @Test
+    @DisplayName("Trùng khóa chính, NOT NULL hay lỗi khác không phải giao dịch trùng")
+    void rejectsOtherViolations() {
+        Assertions.assertFalse(DuplicateKeyUtil.isDuplicateTransaction(new DuplicateKeyException("batch failed",
+                new SQLIntegrityConstraintViolationException("Duplicate entry '42' for key 'transaction_history.PRIMARY'"))));
+        Assertions.assertFalse(DuplicateKeyUtil.isDuplicateTransaction(new DataIntegrityViolationException("insert failed",
+                new SQLIntegrityConstraintViolationException("Column 'account_hash' cannot be null"))));
+        Assertions.assertFalse(DuplicateKeyUtil.isDuplicateTransaction(new DataIntegrityViolationException("no cause")));
+    }
+}
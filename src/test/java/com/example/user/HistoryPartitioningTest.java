@@ -0,0 +1,179 @@
+package com.example.user;
+
+import com.example.user.dto.request.TransactionRequest;
+import com.example.user.dto.response.BalanceRebuildResponse;
+import com.example.user.dto.response.StatementResponse;
+import com.example.user.enums.PostingLeg;
+import com.example.user.repository.TransactionHistoryBatchRepository;
+import com.example.user.service.IAccountBalanceService;
+import com.example.user.service.ITransactionService;
+import com.example.user.service.impl.AccountBlindIndex;
+import com.example.user.service.impl.HistoryPartitionManager;
+import com.example.user.service.impl.TransactionBatchWriter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kiểm tra phân vùng theo tháng trên MySQL thật: kế hoạch truy vấn ({@code EXPLAIN}) của sao kê chỉ chạm các partition
+ * giao với khoảng thời gian, partition hết hạn bị bỏ mà số dư lũy kế vẫn đúng, và gửi lại một giao dịch với {@code time}
+ * khác vẫn bị DB từ chối sau khi phân vùng.
+ * <p>
+ * Chạy riêng: {@code ./gradlew mysqlTest -Dmysql.url=jdbc:mysql://localhost:3306/partition_test -Dmysql.username=root -Dmysql.password=...}
+ */
+@Tag("mysql")
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+        "app.transaction-cache.enabled=false",
+
+        "app.partitioning.enabled=true",
+        "app.partitioning.months-ahead=2",
+        "app.partitioning.retention-months=12",
+        // Luồng tạo trước chạy song song có thể giữ cờ chạy khi test gọi maintain()
+        "app.partitioning.create-ahead-interval-ms=0",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class HistoryPartitioningTest {
+    private static final String SOURCE = "1000000001";
+    private static final String DEST = "2000000002";
+    private static final BigDecimal AMOUNT = new BigDecimal("99.10");
+    private static final int TRANSACTIONS_PER_MONTH = 3;
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final String SELECT_PARTITIONS_SQL = "SELECT PARTITION_NAME FROM information_schema.PARTITIONS"
+            + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'transaction_history' ORDER BY PARTITION_ORDINAL_POSITION";
+    private static final String EXPLAIN_FIRST_PAGE_SQL = "EXPLAIN SELECT id, transaction_id, leg, in_debt, have, time"
+            + " FROM transaction_history WHERE account_hash = ? AND time >= ? AND time < ?"
+            + " ORDER BY time DESC, id DESC LIMIT 20";
+    private static final String EXPLAIN_PAGE_AFTER_SQL = "EXPLAIN SELECT id, transaction_id, leg, in_debt, have, time"
+            + " FROM transaction_history WHERE account_hash = ? AND time >= ? AND time < ?"
+            + " AND time <= ? AND (time < ? OR (time = ? AND id < ?)) ORDER BY time DESC, id DESC LIMIT 20";
+    private static final String EXPLAIN_BY_TRANSACTION_ID_SQL = "EXPLAIN SELECT id FROM transaction_history WHERE transaction_id = ?";
+
+    @Autowired
+    private HistoryPartitionManager partitionManager;
+
+    @Autowired
+    private ITransactionService transactionService;
+
+    @Autowired
+    private TransactionBatchWriter batchWriter;
+
+    @Autowired
+    private IAccountBalanceService accountBalanceService;
+
+    @Autowired
+    private AccountBlindIndex accountBlindIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void mysqlProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("mysql.url",
+                "jdbc:mysql://localhost:3306/partition_test?createDatabaseIfNotExist=true&useSSL=false"));
+        registry.add("spring.datasource.username", () -> System.getProperty("mysql.username", "root"));
+        registry.add("spring.datasource.password", () -> System.getProperty("mysql.password", ""));
+    }
+
+    @Test
+    @DisplayName("Sao kê chỉ chạm partition của khoảng thời gian, partition hết hạn bị bỏ mà số dư vẫn đúng, giao dịch gửi lại bị từ chối")
+    void prunesPartitionsAndDropsExpiredOnes() {
+        YearMonth current = YearMonth.now();
+        YearMonth expired = current.minusMonths(24);
+        YearMonth older = current.minusMonths(2);
+        YearMonth recent = current.minusMonths(1);
+        for (YearMonth month : List.of(expired, older, recent, current)) {
+            for (int i = 0; i < TRANSACTIONS_PER_MONTH; i++) {
+                transactionService.createTransaction(request("partition-" + month + "-" + i, month.atDay(1).atTime(10, i)));
+            }
+        }
+
+        partitionManager.convert();
+        partitionManager.maintain();
+
+        List<String> partitions = jdbcTemplate.queryForList(SELECT_PARTITIONS_SQL, String.class);
+        Assertions.assertFalse(partitions.contains(name(expired)), "Expired partition must be dropped");
+        Assertions.assertTrue(partitions.containsAll(List.of(name(older), name(recent), name(current),
+                name(current.plusMonths(2)), "pmax")));
+        Assertions.assertEquals(TRANSACTIONS_PER_MONTH * 3 * 2,
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_history", Integer.class));
+
+        String accountHash = accountBlindIndex.of(SOURCE);
+        Assertions.assertEquals(name(older), explainPartitions(EXPLAIN_FIRST_PAGE_SQL,
+                accountHash, older.atDay(1).atStartOfDay(), recent.atDay(1).atStartOfDay()));
+        LocalDateTime cursorTime = recent.atDay(1).atTime(10, 1);
+        Assertions.assertEquals(String.join(",", name(older), name(recent)), explainPartitions(EXPLAIN_PAGE_AFTER_SQL,
+                accountHash, older.atDay(1).atStartOfDay(), current.plusMonths(1).atDay(1).atStartOfDay(),
+                cursorTime, cursorTime, cursorTime, Long.MAX_VALUE));
+        Assertions.assertEquals(String.join(",", partitions),
+                explainPartitions(EXPLAIN_BY_TRANSACTION_ID_SQL, "partition-" + older + "-0"),
+                "Without a time predicate every partition is read");
+
+        StatementResponse statement = transactionService.getStatement(SOURCE, older.atDay(1).atStartOfDay(),
+                recent.atDay(1).atStartOfDay(), null, 20);
+        Assertions.assertEquals(TRANSACTIONS_PER_MONTH, statement.getEntries().size());
+
+        Assertions.assertEquals(TRANSACTIONS_PER_MONTH, jdbcTemplate.queryForObject(
+                "SELECT posting_count FROM account_archive_total WHERE account_hash = ?", Long.class, accountHash));
+        BalanceRebuildResponse rebuild = accountBalanceService.rebuild();
+        Assertions.assertEquals(0, rebuild.getDrifted());
+        Assertions.assertEquals(0, rebuild.getOrphaned());
+        Assertions.assertEquals(TRANSACTIONS_PER_MONTH * 4, accountBalanceService.getBalance(SOURCE).getPostingCount());
+
+        partitionManager.maintain();
+        Assertions.assertEquals(partitions, jdbcTemplate.queryForList(SELECT_PARTITIONS_SQL, String.class));
+
+        // Gửi lại một giao dịch đã có với time khác, ghi thẳng qua TransactionBatchWriter để bỏ qua TransactionIdGuard:
+        // khóa của bảng phân vùng chứa time nên chỉ transaction_registry chặn được trùng
+        String replayId = "partition-" + recent + "-0";
+        LocalDateTime otherTime = current.atDay(1).atTime(11, 0);
+        TransactionBatchWriter.PendingTransaction replay = new TransactionBatchWriter.PendingTransaction(replayId, List.of(
+                new TransactionHistoryBatchRepository.Row(Long.MAX_VALUE - 2, replayId, PostingLeg.DEBIT, "encrypted",
+                        accountHash, 9_910, 0, otherTime),
+                new TransactionHistoryBatchRepository.Row(Long.MAX_VALUE - 1, replayId, PostingLeg.CREDIT, "encrypted",
+                        accountBlindIndex.of(DEST), 0, 9_910, otherTime)));
+        Assertions.assertTrue(batchWriter.writeAll(List.of(replay)).isEmpty());
+        Assertions.assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transaction_history WHERE transaction_id = ?", Integer.class, replayId));
+    }
+
+    private String explainPartitions(String sql, Object... arguments) {
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList(sql, arguments);
+        return (String) plan.get(0).get("partitions");
+    }
+
+    private static String name(YearMonth month) {
+        return PARTITION_NAME.format(month);
+    }
+
+    private TransactionRequest request(String transactionId, LocalDateTime time) {
+        return TransactionRequest.builder()
+                .transactionId(transactionId)
+                .sourceAccount(SOURCE)
+                .destAccount(DEST)
+                .amount(AMOUNT)
+                .time(time)
+                .build();
+    }
+}
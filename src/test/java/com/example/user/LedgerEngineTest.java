@@ -0,0 +1,205 @@
+package com.example.user;
+
+import com.example.user.entity.TransactionHistory;
+import com.example.user.enums.PostingLeg;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.service.impl.AccountBlindIndex;
+import com.example.user.service.impl.LedgerEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tính đúng của {@link LedgerEngine}: vế commit muộn với ID nhỏ hơn vẫn được áp dụng đúng một lần, khởi động lại từ
+ * Snapshot (hoặc dựng lại khi Snapshot hỏng) không cộng trùng, và số dư quá hạn không được phục vụ.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledgertest;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+        "app.ledger.enabled=true",
+        "app.ledger.poll-interval-ms=50",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class LedgerEngineTest {
+    private static final String INSERT_SQL = "INSERT INTO " + TransactionHistory.TABLE_NAME
+            + " (id, transaction_id, leg, leg_no, account, account_hash, in_debt, have, time) VALUES (?, ?, ?, 0, ?, ?, ?, ?, ?)";
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @TempDir
+    static Path ledgerDir;
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AccountBlindIndex accountBlindIndex;
+
+    @Autowired
+    private ShardedTransactionHistoryRepository historyShards;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void ledgerProperties(DynamicPropertyRegistry registry) {
+        registry.add("app.ledger.snapshot-path", () -> ledgerDir.resolve("context.snapshot").toString());
+    }
+
+    @Test
+    @DisplayName("Vế có ID nhỏ commit SAU vế có ID lớn vẫn được áp dụng, và chỉ một lần")
+    void appliesLateCommitOfLowerIdExactlyOnce() throws Exception {
+        String late = "7700000001";
+        String early = "7700000002";
+        awaitTrue(ledgerEngine::isReady);
+
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // T1 giữ ID nhỏ nhưng commit sau cùng
+            Future<?> slow = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                insert(1_000L, "LATE-1", late, 0, 50_000);
+                inserted.countDown();
+                try {
+                    commit.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            Assertions.assertTrue(inserted.await(10, TimeUnit.SECONDS));
+            insert(2_000_000L, "EARLY-1", early, 0, 70_000);
+            awaitTrue(() -> postings(early) == 1);
+            Assertions.assertEquals(0, postings(late), "uncommitted row must not be visible");
+
+            commit.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+        } finally {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+
+        awaitTrue(() -> postings(late) == 1);
+        // Các lần đọc sau vẫn quét lại khoảng chồng lấn, nhưng không áp dụng lại
+        Thread.sleep(300);
+        Assertions.assertEquals(1, postings(late));
+        Assertions.assertEquals(50_000, ledgerEngine.balanceOf(late).orElseThrow().haveMinor());
+        Assertions.assertEquals(1, postings(early));
+    }
+
+    @Test
+    @DisplayName("Khởi động lại từ Snapshot, hoặc dựng lại khi Snapshot hỏng, cho cùng số dư và không cộng trùng")
+    void recoversFromSnapshotWithoutDoubleCounting() throws Exception {
+        String account = "7700000003";
+        for (int i = 0; i < 5; i++) {
+            insert(3_000_000L + i, "SNAP-" + i, account, 10_000, 0);
+        }
+        Path snapshot = ledgerDir.resolve("recovery.snapshot");
+
+        LedgerEngine first = newEngine(snapshot);
+        first.start();
+        awaitTrue(() -> first.balanceOf(account).map(LedgerEngine.Balance::postings).orElse(0L) == 5);
+        first.stop();
+        Assertions.assertTrue(Files.isRegularFile(snapshot));
+
+        // Dòng ghi khi engine đang tắt được đọc từ phần đuôi; dòng đã có trong Snapshot bị bỏ qua khi quét lại
+        insert(3_000_100L, "SNAP-OFFLINE", account, 10_000, 0);
+        LedgerEngine restarted = newEngine(snapshot);
+        restarted.start();
+        try {
+            awaitTrue(restarted::isReady);
+            Thread.sleep(300);
+            LedgerEngine.Balance balance = restarted.balanceOf(account).orElseThrow();
+            Assertions.assertEquals(6, balance.postings());
+            Assertions.assertEquals(60_000, balance.inDebtMinor());
+        } finally {
+            restarted.stop();
+        }
+
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(snapshot, bytes, StandardOpenOption.TRUNCATE_EXISTING);
+        LedgerEngine rebuilt = newEngine(snapshot);
+        rebuilt.start();
+        try {
+            awaitTrue(rebuilt::isReady);
+            LedgerEngine.Balance balance = rebuilt.balanceOf(account).orElseThrow();
+            Assertions.assertEquals(6, balance.postings());
+            Assertions.assertEquals(60_000, balance.inDebtMinor());
+        } finally {
+            rebuilt.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Khi luồng áp dụng dừng đọc phần đuôi quá max-staleness, số dư trong bộ nhớ không còn được phục vụ")
+    void stopsServingStaleBalances() throws Exception {
+        String account = "7700000004";
+        insert(4_000_000L, "STALE-1", account, 0, 10_000);
+        LedgerEngine engine = newEngine(ledgerDir.resolve("stale.snapshot"));
+        engine.start();
+        awaitTrue(() -> engine.balanceOf(account).isPresent());
+        engine.stop();
+
+        Thread.sleep(400);
+        Assertions.assertTrue(engine.isReady());
+        Assertions.assertEquals(Optional.empty(), engine.balanceOf(account));
+    }
+
+    private LedgerEngine newEngine(Path snapshot) {
+        return new LedgerEngine(jdbcTemplate, accountBlindIndex, historyShards, new SimpleMeterRegistry(), true,
+                snapshot.toString(), 60_000, 50, 10_000, 200);
+    }
+
+    private void insert(long id, String transactionId, String account, long inDebt, long have) {
+        jdbcTemplate.update(INSERT_SQL, id, transactionId, (inDebt > 0 ? PostingLeg.DEBIT : PostingLeg.CREDIT).name(),
+                account, accountBlindIndex.of(account), inDebt, have, TIME);
+    }
+
+    private long postings(String account) {
+        return ledgerEngine.balanceOf(account).map(LedgerEngine.Balance::postings).orElse(0L);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "condition not met within 10 s");
+            Thread.sleep(20);
+        }
+    }
+}
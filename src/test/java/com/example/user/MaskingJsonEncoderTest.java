@@ -0,0 +1,80 @@
+package com.example.user;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.example.user.logging.MaskingJsonEncoder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.KeyValuePair;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Che dữ liệu nhạy cảm của {@link MaskingJsonEncoder}: theo key với field có cấu trúc, không chạy Regex trên message
+ * và bỏ message của exception (không cần Spring context).
+ */
+class MaskingJsonEncoderTest {
+    private final Logger logger = (Logger) LoggerFactory.getLogger(MaskingJsonEncoderTest.class);
+    private final MaskingJsonEncoder encoder = new MaskingJsonEncoder();
+
+    MaskingJsonEncoderTest() {
+        encoder.setIncludeMdc(false);
+    }
+
+    @Test
+    @DisplayName("Message được ghép giống SLF4J (kể cả mảng) và ghi nguyên văn, không chạy Regex")
+    void writesFormattedMessageVerbatim() {
+        String json = encode(event("Loaded {} rows of {} into account=x", new Object[]{12, new int[]{1, 2}}, null));
+
+        Assertions.assertTrue(json.contains("\"message\":\"Loaded 12 rows of [1, 2] into account=x\""), json);
+    }
+
+    @Test
+    @DisplayName("Exception chỉ gồm class và stack trace của chuỗi cause; message chỉ ghi khi được bật")
+    void omitsExceptionMessagesByDefault() {
+        RuntimeException failure = new RuntimeException("wrapper for TX-12345",
+                new IllegalStateException("Duplicate entry 'TX-12345' for key"));
+        String json = encode(event("Unhandled", null, failure));
+
+        Assertions.assertTrue(json.contains("\"exception\":\"java.lang.RuntimeException\\n\\tat "), json);
+        Assertions.assertTrue(json.contains("Caused by: java.lang.IllegalStateException\\n\\tat "), json);
+        Assertions.assertFalse(json.contains("TX-12345"), json);
+
+        encoder.setIncludeExceptionMessages(true);
+        String verbose = encode(event("Unhandled", null, failure));
+        Assertions.assertTrue(verbose.contains("Caused by: java.lang.IllegalStateException: Duplicate entry 'TX-12345' for key"),
+                verbose);
+    }
+
+    @Test
+    @DisplayName("Field có cấu trúc bị che theo tên key, field khác giữ nguyên kiểu")
+    void masksStructuredFieldsByKey() {
+        LoggingEvent event = event("Transaction created", null, null);
+        event.addKeyValuePair(new KeyValuePair("transactionId", "TX-777"));
+        event.addKeyValuePair(new KeyValuePair("sourceAccount", "0123456789"));
+        event.addKeyValuePair(new KeyValuePair("legs", 2));
+        String json = encode(event);
+
+        Assertions.assertTrue(json.contains("\"fields\":{\"transactionId\":\"?\",\"sourceAccount\":\"?\",\"legs\":2}"), json);
+        Assertions.assertTrue(json.contains("\"message\":\"Transaction created\""), json);
+    }
+
+    @Test
+    @DisplayName("Placeholder bị escape giữ nguyên, ký tự đặc biệt được escape JSON")
+    void keepsEscapedPlaceholderAndEscapesJson() {
+        String json = encode(event("literal \\{} then \"{}\"", new Object[]{"x"}, null));
+
+        Assertions.assertTrue(json.contains("\"message\":\"literal {} then \\\"x\\\"\""), json);
+    }
+
+    private LoggingEvent event(String message, Object[] arguments, Throwable throwable) {
+        return new LoggingEvent(Logger.class.getName(), logger, Level.INFO, message, throwable, arguments);
+    }
+
+    private String encode(LoggingEvent event) {
+        return new String(encoder.encode(event), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.user;
+
+import com.example.user.converter.MoneyConverter;
+import com.example.user.utils.Money;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+/**
+ * Quy tắc chính xác và tràn số của {@link Money} (không cần Spring context).
+ */
+class MoneyTest {
+
+    @Test
+    @DisplayName("BigDecimal <-> đơn vị nhỏ nhất không mất chính xác")
+    void convertsExactly() {
+        Assertions.assertEquals(1_234_550, Money.toMinorUnits(new BigDecimal("12345.5")));
+        Assertions.assertEquals(1_000_000, Money.toMinorUnits(new BigDecimal("10000")));
+        Assertions.assertEquals(1_000_000, Money.toMinorUnits(new BigDecimal("1E+4")));
+        Assertions.assertEquals(-5, Money.toMinorUnits(new BigDecimal("-0.05")));
+        // Số 0 thừa sau SCALE không phải là mất chính xác
+        Assertions.assertEquals(1, Money.toMinorUnits(new BigDecimal("0.0100")));
+        Assertions.assertEquals(new BigDecimal("12345.50"), Money.of(new BigDecimal("12345.5")).toBigDecimal());
+    }
+
+    @Test
+    @DisplayName("Từ chối nhiều hơn 2 chữ số thập phân thay vì làm tròn")
+    void rejectsExtraPrecision() {
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.toMinorUnits(new BigDecimal("0.001")));
+        Assertions.assertThrows(NumberFormatException.class, () -> Money.parse("10.005"));
+    }
+
+    @Test
+    @DisplayName("Parse chuỗi thẳng sang đơn vị nhỏ nhất")
+    void parsesText() {
+        Assertions.assertEquals(Money.ofMinor(1_234_500), Money.parse("12345"));
+        Assertions.assertEquals(Money.ofMinor(1_234_550), Money.parse("12345.5"));
+        Assertions.assertEquals(Money.ofMinor(1_234_555), Money.parse("12345.55"));
+        Assertions.assertEquals(Money.ofMinor(-50), Money.parse("-0.5"));
+        Assertions.assertEquals(Money.ofMinor(500), Money.parse("5."));
+        Assertions.assertEquals(Money.ofMinor(Long.MAX_VALUE), Money.parse("92233720368547758.07"));
+        Assertions.assertEquals(Money.ofMinor(Long.MIN_VALUE), Money.parse("-92233720368547758.08"));
+        Assertions.assertEquals(4200, Money.parseMinorUnits("id,42,x", 3, 5));
+        for (String invalid : new String[]{"", "-", ".", "1.2.3", "12a", " 1", "+1"}) {
+            Assertions.assertThrows(NumberFormatException.class, () -> Money.parse(invalid), invalid);
+        }
+    }
+
+    @Test
+    @DisplayName("Tràn số ném ArithmeticException, không quay vòng")
+    void detectsOverflow() {
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.parse("92233720368547758.08"));
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.parse("100000000000000000"));
+        Assertions.assertThrows(ArithmeticException.class,
+                () -> Money.toMinorUnits(new BigDecimal("92233720368547758.08")));
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+        Assertions.assertThrows(ArithmeticException.class,
+                () -> Money.ofMinor(Long.MAX_VALUE).plus(Money.ofMinor(1)));
+    }
+
+    @Test
+    @DisplayName("Cộng dồn nhiều số lẻ khớp với BigDecimal")
+    void sumsMatchBigDecimal() {
+        BigDecimal expected = BigDecimal.ZERO;
+        long minorUnits = 0;
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(i * 7L + 1, 2);
+            expected = expected.add(amount);
+            minorUnits = Money.add(minorUnits, Money.toMinorUnits(amount));
+        }
+        Assertions.assertEquals(0, expected.compareTo(Money.toBigDecimal(minorUnits)));
+    }
+
+    @Test
+    @DisplayName("toString luôn có đủ 2 chữ số thập phân")
+    void formatsWithScale() {
+        Assertions.assertEquals("0.00", Money.ZERO.toString());
+        Assertions.assertEquals("10000.05", Money.ofMinor(1_000_005).toString());
+        Assertions.assertEquals("-0.50", Money.ofMinor(-50).toString());
+        Assertions.assertEquals("-12.34", Money.ofMinor(-1234).toString());
+        Assertions.assertEquals(Money.ofMinor(-1234), Money.parse(Money.ofMinor(-1234).toString()));
+    }
+
+    @Test
+    @DisplayName("Converter lưu BIGINT và đọc lại đúng giá trị")
+    void converterRoundTrips() {
+        MoneyConverter converter = new MoneyConverter();
+        Assertions.assertEquals(1_234_550L, converter.convertToDatabaseColumn(Money.ofMinor(1_234_550)));
+        Assertions.assertEquals(Money.ofMinor(1_234_550), converter.convertToEntityAttribute(1_234_550L));
+        Assertions.assertNull(converter.convertToDatabaseColumn(null));
+        Assertions.assertNull(converter.convertToEntityAttribute(null));
+    }
+}
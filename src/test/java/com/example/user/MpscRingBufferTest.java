@@ -0,0 +1,123 @@
+package com.example.user;
+
+import com.example.user.utils.MpscRingBuffer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tính đúng của {@link MpscRingBuffer}: nhiều Producer không mất/trùng phần tử, quay vòng và xử lý khi đầy
+ * (không cần Spring context).
+ */
+class MpscRingBufferTest {
+
+    @Test
+    @DisplayName("Nhiều Producer ghi đồng thời qua buffer nhỏ: Consumer nhận đủ mỗi phần tử đúng một lần, đúng thứ tự từng Producer")
+    void deliversEveryElementExactlyOnce() throws Exception {
+        int producers = 4;
+        int perProducer = 250_000;
+        // Buffer nhỏ để buộc quay vòng và đầy liên tục
+        MpscRingBuffer<Long> buffer = new MpscRingBuffer<>(64);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                long producer = p;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int rejected = 0;
+                    for (int i = 0; i < perProducer; i++) {
+                        Long element = (producer << 32) | i;
+                        while (!buffer.offer(element)) {
+                            rejected++;
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return rejected;
+                }));
+            }
+            start.countDown();
+
+            int[] nextExpected = new int[producers];
+            long received = 0;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (received < (long) producers * perProducer) {
+                Long element = buffer.poll();
+                if (element == null) {
+                    Assertions.assertTrue(System.nanoTime() < deadline, "consumer timed out, elements were lost");
+                    LockSupport.parkNanos(1_000);
+                    continue;
+                }
+                int producer = (int) (element >>> 32);
+                int sequence = (int) (long) element;
+                // Mỗi Producer ghi tuần tự nên thứ tự của nó phải được giữ: lệch => mất hoặc trùng phần tử
+                Assertions.assertEquals(nextExpected[producer], sequence, "lost or duplicated element of producer " + producer);
+                nextExpected[producer]++;
+                received++;
+            }
+            for (Future<Integer> future : futures) {
+                future.get();
+            }
+            Assertions.assertNull(buffer.poll());
+            Assertions.assertTrue(buffer.isEmpty());
+            for (int count : nextExpected) {
+                Assertions.assertEquals(perProducer, count);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Đầy thì offer trả về false ngay, ghi tiếp được sau khi Consumer lấy bớt")
+    void rejectsWhenFullAndRecovers() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(3);
+        Assertions.assertEquals(4, buffer.capacity());
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(buffer.offer(i));
+        }
+        Assertions.assertFalse(buffer.offer(4));
+        Assertions.assertEquals(4, buffer.size());
+
+        Assertions.assertEquals(0, buffer.poll());
+        Assertions.assertTrue(buffer.offer(4));
+        Assertions.assertFalse(buffer.offer(5));
+
+        List<Integer> drained = new ArrayList<>();
+        Assertions.assertEquals(4, buffer.drain(drained::add, 10));
+        Assertions.assertEquals(List.of(1, 2, 3, 4), drained);
+        Assertions.assertNull(buffer.poll());
+    }
+
+    @Test
+    @DisplayName("Quay vòng nhiều lần qua cùng các ô vẫn giữ đúng thứ tự FIFO")
+    void wrapsAround() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(2);
+        int next = 0;
+        for (int round = 0; round < 1_000; round++) {
+            Assertions.assertTrue(buffer.offer(round * 2));
+            Assertions.assertTrue(buffer.offer(round * 2 + 1));
+            Assertions.assertFalse(buffer.offer(-1));
+            Assertions.assertEquals(next++, buffer.poll());
+            Assertions.assertEquals(next++, buffer.poll());
+            Assertions.assertNull(buffer.poll());
+        }
+    }
+
+    @Test
+    @DisplayName("Từ chối phần tử null và sức chứa ngoài khoảng cho phép")
+    void rejectsInvalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<>(1));
+        Assertions.assertThrows(NullPointerException.class, () -> new MpscRingBuffer<Integer>(2).offer(null));
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.user;
+
+import com.example.user.dto.request.MultiLegTransactionRequest;
+import com.example.user.dto.request.TransactionRequest;
+import com.example.user.dto.response.TransactionResponse;
+import com.example.user.enums.PostingLeg;
+import com.example.user.exception.BadRequestException;
+import com.example.user.exception.ConflictException;
+import com.example.user.service.IAccountBalanceService;
+import com.example.user.service.ITransactionService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Kiểm tra giao dịch nhiều vế: tách phí (1 Nợ, 2 Có), nhiều vế cùng phía, chống trùng với cả giao dịch 2 vế,
+ * và từ chối các vế không cân đối mà không ghi dòng nào.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:multilegtest;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class MultiLegTransactionTest {
+    private static final String PAYER = "1000000001";
+    private static final String MERCHANT = "2000000002";
+    private static final String FEE = "3000000003";
+    private static final String SECOND_PAYER = "4000000004";
+    /** Chỉ dùng trong kiểm tra số dư, để không phụ thuộc thứ tự chạy của các test khác. */
+    private static final String SPLIT_PAYER = "5000000005";
+    private static final String SPLIT_MERCHANT = "6000000006";
+    private static final String SPLIT_FEE = "7000000007";
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 3, 14, 9, 30);
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM transaction_history WHERE transaction_id = ?";
+
+    @Autowired
+    private ITransactionService transactionService;
+
+    @Autowired
+    private IAccountBalanceService accountBalanceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Giao dịch tách phí ghi đủ các vế trong một transaction và cập nhật số dư của từng tài khoản")
+    void createsBalancedMultiLegTransaction() {
+        transactionService.createMultiLegTransaction(request("multi-fee-1",
+                leg(PostingLeg.DEBIT, SPLIT_PAYER, "10100.00"),
+                leg(PostingLeg.CREDIT, SPLIT_MERCHANT, "10000.00"),
+                leg(PostingLeg.CREDIT, SPLIT_FEE, "100.00")));
+
+        List<TransactionResponse> responses = transactionService.getTransactionByTransactionId("multi-fee-1");
+        Assertions.assertEquals(3, responses.size());
+        Assertions.assertEquals(0, new BigDecimal("10100.00").compareTo(accountBalanceService.getBalance(SPLIT_PAYER).getTotalInDebt()));
+        Assertions.assertEquals(0, new BigDecimal("10000.00").compareTo(accountBalanceService.getBalance(SPLIT_MERCHANT).getTotalHave()));
+        Assertions.assertEquals(0, new BigDecimal("100.00").compareTo(accountBalanceService.getBalance(SPLIT_FEE).getTotalHave()));
+        Assertions.assertEquals(1, accountBalanceService.getBalance(SPLIT_FEE).getPostingCount());
+
+        transactionService.createMultiLegTransaction(request("multi-split-1",
+                leg(PostingLeg.DEBIT, PAYER, "6000.00"),
+                leg(PostingLeg.DEBIT, SECOND_PAYER, "5000.00"),
+                leg(PostingLeg.CREDIT, MERCHANT, "10900.00"),
+                leg(PostingLeg.CREDIT, FEE, "100.00")));
+        Assertions.assertEquals(4, jdbcTemplate.queryForObject(COUNT_SQL, Integer.class, "multi-split-1"));
+    }
+
+    @Test
+    @DisplayName("Trùng transactionId bị từ chối với cả giao dịch nhiều vế và giao dịch 2 vế")
+    void rejectsDuplicateTransactionId() {
+        transactionService.createMultiLegTransaction(request("multi-dup-1",
+                leg(PostingLeg.DEBIT, PAYER, "20000.00"),
+                leg(PostingLeg.CREDIT, MERCHANT, "20000.00")));
+
+        Assertions.assertThrows(ConflictException.class, () -> transactionService.createMultiLegTransaction(
+                request("multi-dup-1", leg(PostingLeg.DEBIT, FEE, "15000.00"), leg(PostingLeg.CREDIT, MERCHANT, "15000.00"))));
+        Assertions.assertThrows(ConflictException.class, () -> transactionService.createTransaction(TransactionRequest.builder()
+                .transactionId("multi-dup-1")
+                .sourceAccount(PAYER)
+                .destAccount(MERCHANT)
+                .amount(new BigDecimal("20000.00"))
+                .time(TIME)
+                .build()));
+
+        transactionService.createTransaction(TransactionRequest.builder()
+                .transactionId("classic-dup-1")
+                .sourceAccount(PAYER)
+                .destAccount(MERCHANT)
+                .amount(new BigDecimal("20000.00"))
+                .time(TIME)
+                .build());
+        Assertions.assertThrows(ConflictException.class, () -> transactionService.createMultiLegTransaction(
+                request("classic-dup-1", leg(PostingLeg.DEBIT, PAYER, "15000.00"), leg(PostingLeg.CREDIT, FEE, "15000.00"))));
+        Assertions.assertEquals(2, jdbcTemplate.queryForObject(COUNT_SQL, Integer.class, "multi-dup-1"));
+        Assertions.assertEquals(2, jdbcTemplate.queryForObject(COUNT_SQL, Integer.class, "classic-dup-1"));
+    }
+
+    @Test
+    @DisplayName("Các vế lệch tổng, thiếu một phía hoặc dưới mức tối thiểu bị từ chối mà không ghi dòng nào")
+    void rejectsUnbalancedLegs() {
+        Assertions.assertThrows(BadRequestException.class, () -> transactionService.createMultiLegTransaction(
+                request("multi-bad-1", leg(PostingLeg.DEBIT, PAYER, "10100.00"), leg(PostingLeg.CREDIT, MERCHANT, "10000.00"))));
+        Assertions.assertThrows(BadRequestException.class, () -> transactionService.createMultiLegTransaction(
+                request("multi-bad-2", leg(PostingLeg.DEBIT, PAYER, "10000.00"), leg(PostingLeg.DEBIT, FEE, "10000.00"))));
+        Assertions.assertThrows(BadRequestException.class, () -> transactionService.createMultiLegTransaction(
+                request("multi-bad-3", leg(PostingLeg.DEBIT, PAYER, "50.00"), leg(PostingLeg.CREDIT, FEE, "50.00"))));
+        for (String transactionId : List.of("multi-bad-1", "multi-bad-2", "multi-bad-3")) {
+            Assertions.assertEquals(0, jdbcTemplate.queryForObject(COUNT_SQL, Integer.class, transactionId));
+        }
+    }
+
+    private static MultiLegTransactionRequest request(String transactionId, MultiLegTransactionRequest.Leg... legs) {
+        return MultiLegTransactionRequest.builder()
+                .transactionId(transactionId)
+                .time(TIME)
+                .legs(List.of(legs))
+                .build();
+    }
+
+    private static MultiLegTransactionRequest.Leg leg(PostingLeg side, String account, String amount) {
+        return MultiLegTransactionRequest.Leg.builder()
+                .leg(side)
+                .account(account)
+                .amount(new BigDecimal(amount))
+                .build();
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.user;
+
+import com.example.user.entity.TransactionOutbox;
+import com.example.user.enums.PostingLeg;
+import com.example.user.repository.OutboxEvent;
+import com.example.user.repository.TransactionOutboxRepository;
+import com.example.user.service.IOutboxSink;
+import com.example.user.service.impl.OutboxRelay;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Outbox Relay: sự kiện chỉ tồn tại khi transaction ghi commit, được phát theo lô rồi xóa bằng một lệnh,
+ * và được phát lại (At-least-once) khi sink lỗi, kể cả khi sink đã nhận lô trước khi lỗi.
+ * <p>
+ * Relay của context bị tắt ({@code app.outbox.enabled} mặc định {@code false}); mỗi test tự tạo relay với sink riêng.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outboxrelaytest;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class OutboxRelayTest {
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM " + TransactionOutbox.TABLE_NAME;
+    private static final AtomicLong IDS = new AtomicLong(9_300_000_000L);
+
+    @Autowired
+    private TransactionOutboxRepository outboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Sự kiện được phát theo lô không quá batch-size, rồi bị xóa khỏi Outbox; transaction rollback thì không có sự kiện")
+    void publishesInBatchesAndDeletes() throws InterruptedException {
+        RecordingSink sink = new RecordingSink(0);
+        OutboxRelay relay = relay(sink, 3);
+        List<OutboxEvent> events = events("OUTBOX-PUB", 7);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> relay.write(events));
+        transaction.executeWithoutResult(status -> {
+            relay.write(events("OUTBOX-ROLLBACK", 2));
+            status.setRollbackOnly();
+        });
+        Assertions.assertEquals(7, count());
+
+        relay.start();
+        try {
+            await(() -> count() == 0);
+        } finally {
+            relay.stop();
+        }
+
+        Assertions.assertEquals(ids(events), ids(sink.delivered));
+        Assertions.assertEquals(7, sink.delivered.size());
+        Assertions.assertEquals(List.of(3, 3, 1), sink.batchSizes);
+        for (List<Long> batch : sink.batchIds) {
+            Assertions.assertEquals(batch.stream().sorted().toList(), batch, "a batch keeps id order");
+        }
+    }
+
+    @Test
+    @DisplayName("Khóa lô theo giới hạn và xóa cả lô bằng MỘT lệnh, phần còn lại được giữ cho lô sau")
+    void deletesWholeBatch() {
+        List<OutboxEvent> events = events("OUTBOX-DEL", 5);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> outboxRepository.insertAll(events));
+
+        int deleted = transaction.execute(status -> outboxRepository.deleteAll(outboxRepository.lockBatch(4)));
+
+        Assertions.assertEquals(4, deleted);
+        Assertions.assertEquals(1, count());
+        Assertions.assertEquals(0, outboxRepository.deleteAll(List.of()));
+        transaction.executeWithoutResult(status -> outboxRepository.deleteAll(outboxRepository.lockBatch(10)));
+        Assertions.assertEquals(0, count());
+    }
+
+    @Test
+    @DisplayName("Sink lỗi (kể cả sau khi đã nhận lô): lô được giữ lại và phát lại, mọi sự kiện tới đích ít nhất một lần")
+    void redeliversWhenSinkFails() throws InterruptedException {
+        // Hai lần đầu sink nhận lô rồi mới lỗi (như mất ack): relay rollback, không xóa, phát lại
+        RecordingSink sink = new RecordingSink(2);
+        OutboxRelay relay = relay(sink, 4);
+        List<OutboxEvent> events = events("OUTBOX-RETRY", 6);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> relay.write(events));
+
+        relay.start();
+        try {
+            await(() -> count() == 0);
+        } finally {
+            relay.stop();
+        }
+
+        Assertions.assertTrue(sink.failuresLeft.get() < 0, "both failures consumed, then published");
+        Assertions.assertTrue(sink.delivered.size() > events.size(), "failed batches are delivered again");
+        // Bên nhận chống trùng theo id: tập id nhận được đúng bằng tập đã ghi
+        Assertions.assertEquals(ids(events), ids(sink.delivered));
+    }
+
+    private OutboxRelay relay(IOutboxSink sink, int batchSize) {
+        return new OutboxRelay(outboxRepository, List.of(sink), transactionManager, new SimpleMeterRegistry(),
+                true, sink.name(), batchSize, 10);
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject(COUNT_SQL, Integer.class);
+    }
+
+    private static List<OutboxEvent> events(String transactionPrefix, int count) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean debit = i % 2 == 0;
+            events.add(new OutboxEvent(IDS.getAndIncrement(), transactionPrefix + "-" + i / 2,
+                    debit ? PostingLeg.DEBIT : PostingLeg.CREDIT, "hash-" + i,
+                    debit ? 10_000 : 0, debit ? 0 : 10_000, now, now));
+        }
+        return events;
+    }
+
+    private static Set<Long> ids(List<OutboxEvent> events) {
+        return events.stream().map(OutboxEvent::id).collect(Collectors.toSet());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "condition not met within 10 s");
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+    }
+
+    /**
+     * Sink ghi lại mọi lô nhận được; {@code failures} lần đầu ném lỗi SAU khi đã ghi nhận lô.
+     */
+    private static final class RecordingSink implements IOutboxSink {
+        private final List<OutboxEvent> delivered = new CopyOnWriteArrayList<>();
+        private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        private final List<List<Long>> batchIds = new CopyOnWriteArrayList<>();
+        private final AtomicInteger failuresLeft;
+
+        private RecordingSink(int failures) {
+            this.failuresLeft = new AtomicInteger(failures);
+        }
+
+        @Override
+        public String name() {
+            return "recording";
+        }
+
+        @Override
+        public void publish(List<OutboxEvent> events) {
+            delivered.addAll(events);
+            batchSizes.add(events.size());
+            batchIds.add(events.stream().map(OutboxEvent::id).toList());
+            if (failuresLeft.getAndDecrement() > 0) {
+                throw new IllegalStateException("sink unavailable");
+            }
+        }
+    }
+}
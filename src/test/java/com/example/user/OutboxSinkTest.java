@@ -0,0 +1,94 @@
+package com.example.user;
+
+import com.example.user.enums.PostingLeg;
+import com.example.user.repository.OutboxEvent;
+import com.example.user.service.impl.FileOutboxSink;
+import com.example.user.service.impl.InMemoryOutboxSink;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Các sink của Outbox: file JSON Lines nối thêm đúng một dòng cho mỗi sự kiện (cả khi mở lại file),
+ * hàng đợi trong tiến trình nhận cả lô hoặc từ chối cả lô khi không đủ chỗ.
+ */
+class OutboxSinkTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 3, 1, 9, 30);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("File sink: mỗi sự kiện một dòng JSON, các lô được nối thêm theo thứ tự, mở lại file không ghi đè")
+    void fileSinkAppendsJsonLines() throws Exception {
+        Path path = directory.resolve("nested").resolve("outbox.jsonl");
+        FileOutboxSink sink = new FileOutboxSink(path.toString());
+        try {
+            sink.publish(List.of(event(1, PostingLeg.DEBIT, 12_345), event(2, PostingLeg.CREDIT, 12_345)));
+            sink.publish(List.of(event(3, PostingLeg.DEBIT, 5)));
+        } finally {
+            sink.close();
+        }
+        FileOutboxSink reopened = new FileOutboxSink(path.toString());
+        try {
+            reopened.publish(List.of(event(4, PostingLeg.CREDIT, 5)));
+        } finally {
+            reopened.close();
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        List<String> lines = Files.readAllLines(path);
+        Assertions.assertEquals(4, lines.size());
+        List<Long> ids = new ArrayList<>();
+        for (String line : lines) {
+            ids.add(mapper.readTree(line).get("id").asLong());
+        }
+        Assertions.assertEquals(List.of(1L, 2L, 3L, 4L), ids);
+
+        JsonNode debit = mapper.readTree(lines.get(0));
+        Assertions.assertEquals("OUTBOX-SINK-1", debit.get("transactionId").asText());
+        Assertions.assertEquals("DEBIT", debit.get("leg").asText());
+        Assertions.assertEquals("hash-1", debit.get("accountHash").asText());
+        Assertions.assertEquals(0, new BigDecimal("123.45").compareTo(debit.get("inDebt").decimalValue()));
+        Assertions.assertEquals(0, BigDecimal.ZERO.compareTo(debit.get("have").decimalValue()));
+        Assertions.assertEquals(TIME.toString(), debit.get("time").asText());
+        Assertions.assertEquals(0, new BigDecimal("0.05").compareTo(mapper.readTree(lines.get(3)).get("have").decimalValue()));
+    }
+
+    @Test
+    @DisplayName("Memory sink: nhận cả lô theo thứ tự; lô không vừa chỗ còn trống bị từ chối toàn bộ")
+    void memorySinkAcceptsWholeBatchesOnly() throws InterruptedException {
+        InMemoryOutboxSink sink = new InMemoryOutboxSink(3);
+        sink.publish(List.of(event(1, PostingLeg.DEBIT, 100), event(2, PostingLeg.CREDIT, 100)));
+
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> sink.publish(List.of(event(3, PostingLeg.DEBIT, 100), event(4, PostingLeg.CREDIT, 100))));
+        Assertions.assertEquals(2, sink.size(), "a rejected batch must not be partially enqueued");
+
+        Assertions.assertEquals(1, sink.poll(1, TimeUnit.SECONDS).id());
+        sink.publish(List.of(event(3, PostingLeg.DEBIT, 100), event(4, PostingLeg.CREDIT, 100)));
+        List<OutboxEvent> drained = new ArrayList<>();
+        Assertions.assertEquals(2, sink.drainTo(drained, 2));
+        Assertions.assertEquals(List.of(2L, 3L), drained.stream().map(OutboxEvent::id).toList());
+        Assertions.assertEquals(1, sink.size());
+        Assertions.assertEquals(4, sink.poll(1, TimeUnit.SECONDS).id());
+        Assertions.assertNull(sink.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    private static OutboxEvent event(long id, PostingLeg leg, long amount) {
+        boolean debit = leg == PostingLeg.DEBIT;
+        return new OutboxEvent(id, "OUTBOX-SINK-" + id, leg, "hash-" + id,
+                debit ? amount : 0, debit ? 0 : amount, TIME, TIME);
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.user;
+
+import com.example.user.dto.response.TransactionResponse;
+import com.example.user.enums.PostingLeg;
+import com.example.user.exception.ConflictException;
+import com.example.user.repository.TransactionHistoryBatchRepository;
+import com.example.user.service.impl.AccountBlindIndex;
+import com.example.user.service.impl.PostingStreamHub;
+import com.example.user.utils.AesUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Luồng SSE các vế hạch toán: chỉ phát sau commit (không bao giờ phát vế bị rollback), lọc theo tài khoản hoặc nhận tất
+ * cả, và subscriber chậm bị loại ({@code evicted}) mà không làm chậm các subscriber khác.
+ * <p>
+ * Emitter được thay bằng bản ghi lại sự kiện (không cần kết nối HTTP thật); bản "client chậm" chặn lần gửi đầu tiên
+ * như một socket không còn được đọc.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:postingstreamtest;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class PostingStreamHubTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 4, 1, 8, 0);
+
+    @Autowired
+    private AccountBlindIndex accountBlindIndex;
+
+    @Autowired
+    private SecretKey aesSecretKey;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Vế chỉ được phát sau khi commit; vế của transaction rollback không bao giờ tới client")
+    void deliversOnlyAfterCommit() throws InterruptedException {
+        String account = "8700000001";
+        String hash = accountBlindIndex.of(account);
+        TestHub hub = hub(16, 10);
+        try {
+            RecordingEmitter emitter = hub.attach(account, new RecordingEmitter());
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+            transaction.executeWithoutResult(status -> {
+                hub.publish(hash, response("STREAM-TX", account));
+                // Luồng khác (không có transaction) phát ngay: tới client trong khi vế của transaction vẫn chờ commit
+                CompletableFuture.runAsync(() -> hub.publish(hash, response("STREAM-MARK-1", account))).join();
+                awaitUnchecked(() -> emitter.received().contains("STREAM-MARK-1"));
+                Assertions.assertFalse(emitter.received().contains("STREAM-TX"), "published before commit");
+            });
+            await(() -> emitter.received().contains("STREAM-TX"));
+
+            transaction.executeWithoutResult(status -> {
+                hub.publish(hash, response("STREAM-ROLLBACK", account));
+                status.setRollbackOnly();
+            });
+            // Hàng đợi của subscriber là FIFO: vế rollback nếu được phát thì đã tới trước mốc này
+            hub.publish(hash, response("STREAM-MARK-2", account));
+            await(() -> emitter.received().contains("STREAM-MARK-2"));
+
+            Assertions.assertEquals(List.of("STREAM-MARK-1", "STREAM-TX", "STREAM-MARK-2"), emitter.received());
+        } finally {
+            hub.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Subscriber theo tài khoản chỉ nhận vế của tài khoản đó (tài khoản đã giải mã), subscriber tất cả nhận mọi vế")
+    void filtersByAccount() throws InterruptedException {
+        String first = "8700000011";
+        String second = "8700000012";
+        String unwatched = "8700000013";
+        TestHub hub = hub(16, 10);
+        try {
+            RecordingEmitter firstOnly = hub.attach(first, new RecordingEmitter());
+            RecordingEmitter secondOnly = hub.attach(second, new RecordingEmitter());
+            RecordingEmitter all = hub.attachAll(new RecordingEmitter());
+
+            hub.publish(List.of(row(1, "STREAM-F-1", first), row(2, "STREAM-F-1", second), row(3, "STREAM-F-2", unwatched),
+                    row(4, "STREAM-F-3", first)));
+            hub.publish(accountBlindIndex.of(unwatched), response("STREAM-F-4", unwatched));
+            await(() -> all.postings.size() == 5);
+
+            Assertions.assertEquals(List.of("STREAM-F-1", "STREAM-F-1", "STREAM-F-2", "STREAM-F-3", "STREAM-F-4"),
+                    all.received());
+            Assertions.assertEquals(List.of("STREAM-F-1", "STREAM-F-3"), firstOnly.received());
+            Assertions.assertTrue(firstOnly.postings.stream().allMatch(posting -> first.equals(posting.getAccount())));
+            Assertions.assertEquals(0, new BigDecimal("100.00").compareTo(firstOnly.postings.get(0).getInDebt()));
+            Assertions.assertEquals(List.of("STREAM-F-1"), secondOnly.received());
+            Assertions.assertEquals(second, secondOnly.postings.get(0).getAccount());
+            Assertions.assertEquals(0, new BigDecimal("100.00").compareTo(secondOnly.postings.get(0).getHave()));
+        } finally {
+            hub.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Subscriber chậm bị loại bằng sự kiện evicted khi đầy hàng đợi, các subscriber khác vẫn nhận đủ ngay")
+    void evictsSlowSubscriberWithoutStallingOthers() throws InterruptedException {
+        String account = "8700000021";
+        String hash = accountBlindIndex.of(account);
+        TestHub hub = hub(2, 10);
+        SlowEmitter slow = new SlowEmitter();
+        try {
+            hub.attach(account, slow);
+            RecordingEmitter fast = hub.attach(account, new RecordingEmitter());
+            RecordingEmitter all = hub.attachAll(new RecordingEmitter());
+            Assertions.assertEquals(3, hub.meterRegistry.get("stream.subscribers").gauge().value());
+
+            // Luồng gửi của client chậm nhận vế đầu tiên rồi kẹt; hai vế kế lấp đầy hàng đợi, vế thứ tư làm tràn
+            hub.publish(hash, response("STREAM-S-1", account));
+            Assertions.assertTrue(slow.sending.await(10, TimeUnit.SECONDS));
+            // Subscriber nhanh nhận từng vế ngay, trong khi client chậm vẫn kẹt (hàng đợi 2 chỗ của nó không bị vượt)
+            for (int i = 2; i <= 5; i++) {
+                int expected = i;
+                hub.publish(hash, response("STREAM-S-" + i, account));
+                await(() -> fast.postings.size() == expected && all.postings.size() == expected);
+            }
+
+            Assertions.assertEquals(1, hub.meterRegistry.get("stream.subscribers.evicted").counter().count());
+            Assertions.assertEquals(2, hub.meterRegistry.get("stream.subscribers").gauge().value());
+            Assertions.assertTrue(slow.postings.isEmpty(), "the slow client is still stuck on its first send");
+
+            slow.release.countDown();
+            await(() -> slow.completed);
+            Assertions.assertEquals(List.of("STREAM-S-1"), slow.received());
+            Assertions.assertTrue(slow.eventNames.contains("evicted"));
+
+            hub.publish(hash, response("STREAM-S-6", account));
+            await(() -> fast.received().contains("STREAM-S-6"));
+            Assertions.assertEquals(List.of("STREAM-S-1"), slow.received(), "an evicted subscriber gets nothing more");
+        } finally {
+            slow.release.countDown();
+            hub.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Luồng bị tắt hoặc đã đủ số subscriber tối đa: đăng ký bị từ chối")
+    void rejectsWhenDisabledOrFull() {
+        PostingStreamHub disabled = new PostingStreamHub(accountBlindIndex, aesSecretKey, new SimpleMeterRegistry(),
+                false, 16, 60_000, 60_000, 10);
+        Assertions.assertThrows(ConflictException.class, () -> disabled.subscribe("8700000031"));
+
+        TestHub hub = hub(16, 1);
+        try {
+            hub.attach("8700000031", new RecordingEmitter());
+            Assertions.assertThrows(ConflictException.class, () -> hub.attachAll(new RecordingEmitter()));
+        } finally {
+            hub.stop();
+        }
+    }
+
+    private TestHub hub(int bufferSize, int maxSubscribers) {
+        return new TestHub(accountBlindIndex, aesSecretKey, new SimpleMeterRegistry(), bufferSize, maxSubscribers);
+    }
+
+    private TransactionHistoryBatchRepository.Row row(long id, String transactionId, String account) {
+        boolean debit = id % 2 == 1;
+        return new TransactionHistoryBatchRepository.Row(id, transactionId, debit ? PostingLeg.DEBIT : PostingLeg.CREDIT,
+                AesUtil.encrypt(account, aesSecretKey), accountBlindIndex.of(account),
+                debit ? 10_000 : 0, debit ? 0 : 10_000, TIME);
+    }
+
+    private static TransactionResponse response(String transactionId, String account) {
+        return TransactionResponse.builder()
+                .transactionId(transactionId)
+                .account(account)
+                .inDebt(new BigDecimal("100.00"))
+                .have(BigDecimal.ZERO)
+                .time(TIME)
+                .build();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "condition not met within 10 s");
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+    }
+
+    private static void awaitUnchecked(BooleanSupplier condition) {
+        try {
+            await(condition);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Hub cấp các emitter do test chuẩn bị, theo thứ tự đăng ký. Heartbeat đủ dài để không xen vào sự kiện.
+     */
+    private static final class TestHub extends PostingStreamHub {
+        private final Queue<RecordingEmitter> emitters = new ConcurrentLinkedQueue<>();
+        private final MeterRegistry meterRegistry;
+
+        private TestHub(AccountBlindIndex accountBlindIndex, SecretKey secretKey, MeterRegistry meterRegistry,
+                        int bufferSize, int maxSubscribers) {
+            super(accountBlindIndex, secretKey, meterRegistry, true, bufferSize, 60_000, 60_000, maxSubscribers);
+            this.meterRegistry = meterRegistry;
+        }
+
+        private <E extends RecordingEmitter> E attach(String account, E emitter) {
+            emitters.add(emitter);
+            subscribe(account);
+            return emitter;
+        }
+
+        private <E extends RecordingEmitter> E attachAll(E emitter) {
+            emitters.add(emitter);
+            subscribeAll();
+            return emitter;
+        }
+
+        @Override
+        protected SseEmitter newEmitter(long timeoutMillis) {
+            return emitters.remove();
+        }
+    }
+
+    /**
+     * Emitter ghi lại các vế và tên sự kiện đã gửi thay vì ghi ra socket.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        protected final List<TransactionResponse> postings = new CopyOnWriteArrayList<>();
+        protected final List<String> eventNames = new CopyOnWriteArrayList<>();
+        protected volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            StringBuilder text = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof TransactionResponse posting) {
+                    postings.add(posting);
+                } else {
+                    text.append(part.getData());
+                }
+            }
+            text.toString().lines()
+                    .filter(line -> line.startsWith("event:"))
+                    .forEach(line -> eventNames.add(line.substring("event:".length())));
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        protected List<String> received() {
+            return postings.stream().map(TransactionResponse::getTransactionId).toList();
+        }
+    }
+
+    /**
+     * Client không đọc socket: lần gửi đầu tiên bị chặn tới khi test nhả ra (kể cả khi luồng gửi bị interrupt).
+     */
+    private static final class SlowEmitter extends RecordingEmitter {
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            boolean interrupted = false;
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            super.send(builder);
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.user;
+
+import com.example.user.datasource.ReadWriteRoutingDataSource;
+import com.example.user.datasource.ReadYourWritesContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Kiểm tra định tuyến đọc/ghi với 2 DB H2 đóng vai Primary và Replica: mỗi DB có một dòng {@code rw_probe}
+ * khác nhau nên giá trị đọc được cho biết kết nối đã đi tới pool nào.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=" + ReadWriteRoutingTest.PRIMARY_URL,
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+
+        "app.datasource.replica.url=" + ReadWriteRoutingTest.REPLICA_URL,
+        "app.datasource.replica.username=sa",
+        "app.datasource.replica.password=",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class ReadWriteRoutingTest {
+    static final String PRIMARY_URL = "jdbc:h2:mem:rwprimary;DB_CLOSE_DELAY=-1;MODE=MySQL";
+    static final String REPLICA_URL = "jdbc:h2:mem:rwreplica;DB_CLOSE_DELAY=-1;MODE=MySQL";
+    private static final String SELECT_PROBE = "SELECT MAX(name) FROM rw_probe";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        createProbe(PRIMARY_URL, ReadWriteRoutingDataSource.PRIMARY);
+        createProbe(REPLICA_URL, ReadWriteRoutingDataSource.REPLICA);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWritesContext.end();
+    }
+
+    @Test
+    @DisplayName("Transaction chỉ đọc đi Replica, transaction ghi và truy vấn ngoài transaction đi Primary")
+    void routesByTransactionReadOnlyFlag() {
+        double replicaBefore = connections(ReadWriteRoutingDataSource.REPLICA);
+
+        Assertions.assertEquals(ReadWriteRoutingDataSource.REPLICA,
+                readOnly.execute(status -> jdbcTemplate.queryForObject(SELECT_PROBE, String.class)));
+        Assertions.assertEquals(ReadWriteRoutingDataSource.PRIMARY,
+                readWrite.execute(status -> jdbcTemplate.queryForObject(SELECT_PROBE, String.class)));
+        Assertions.assertEquals(ReadWriteRoutingDataSource.PRIMARY, jdbcTemplate.queryForObject(SELECT_PROBE, String.class));
+
+        Assertions.assertTrue(connections(ReadWriteRoutingDataSource.REPLICA) > replicaBefore);
+        Assertions.assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", ReadWriteRoutingDataSource.REPLICA).gauge());
+        Assertions.assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", ReadWriteRoutingDataSource.PRIMARY).gauge());
+    }
+
+    @Test
+    @DisplayName("Sau khi request ghi, các lần đọc tiếp theo trong request đi Primary (Read-Your-Writes)")
+    void readYourWritesPinsRequestToPrimary() {
+        ReadYourWritesContext.begin(false);
+        Assertions.assertEquals(ReadWriteRoutingDataSource.REPLICA,
+                readOnly.execute(status -> jdbcTemplate.queryForObject(SELECT_PROBE, String.class)));
+
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("INSERT INTO rw_probe (name) VALUES ('written')"));
+
+        Assertions.assertEquals("written",
+                readOnly.execute(status -> jdbcTemplate.queryForObject(SELECT_PROBE, String.class)));
+        ReadYourWritesContext.end();
+
+        ReadYourWritesContext.begin(true);
+        Assertions.assertEquals("written",
+                readOnly.execute(status -> jdbcTemplate.queryForObject(SELECT_PROBE, String.class)));
+    }
+
+    private double connections(String pool) {
+        return meterRegistry.get("datasource.routing.connections").tag("pool", pool).counter().count();
+    }
+
+    private static void createProbe(String url, String name) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS rw_probe");
+            statement.execute("CREATE TABLE rw_probe (name VARCHAR(32))");
+            statement.execute("INSERT INTO rw_probe (name) VALUES ('" + name + "')");
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.user;
+
+import com.example.user.dto.response.ReconciliationResponse;
+import com.example.user.entity.ReconciliationCheckpoint;
+import com.example.user.entity.TransactionHistory;
+import com.example.user.enums.PostingLeg;
+import com.example.user.repository.IReconciliationCheckpointRepository;
+import com.example.user.service.IReconciliationService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Đối soát kế toán kép: phát hiện giao dịch không cân (kể cả khi các vế nằm ở các trang khác nhau), xóa lỗi đã được sửa,
+ * tiếp tục từ Checkpoint và quét lại khoảng chồng lấn để bắt dòng commit muộn.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reconciliationtest;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+        // Trang 3 dòng: các vế của một giao dịch thường rơi vào hai trang kề nhau
+        "app.reconciliation.chunk-size=3",
+        "app.reconciliation.parallelism=2",
+        "app.reconciliation.overlap-ms=60000",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class ReconciliationTest {
+    private static final String INSERT_LEG_SQL = "INSERT INTO " + TransactionHistory.TABLE_NAME
+            + " (id, transaction_id, leg, leg_no, account, in_debt, have, time, recorded_at) VALUES (?, ?, ?, 0, ?, ?, ?, ?, ?)";
+    private static final AtomicLong IDS = new AtomicLong(9_200_000_000L);
+
+    @Autowired
+    private IReconciliationService reconciliationService;
+
+    @Autowired
+    private IReconciliationCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Giao dịch không cân được ghi nhận, giao dịch cân có vế ở trang kề bên thì không, lỗi đã sửa được xóa")
+    void detectsUnbalancedTransactions() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 8, 0);
+        // Vế Nợ của bốn giao dịch cân trước, vế Có sau: trang 3 dòng nào cũng cắt ngang giao dịch
+        for (int i = 0; i < 4; i++) {
+            leg("REC-OK-" + i, PostingLeg.DEBIT, 5_000, base.plusSeconds(i));
+        }
+        for (int i = 0; i < 4; i++) {
+            leg("REC-OK-" + i, PostingLeg.CREDIT, 5_000, base.plusSeconds(10 + i));
+        }
+        leg("REC-ONE-LEG", PostingLeg.DEBIT, 7_000, base.plusSeconds(20));
+        leg("REC-AMOUNT", PostingLeg.DEBIT, 10_000, base.plusSeconds(21));
+        leg("REC-AMOUNT", PostingLeg.CREDIT, 9_000, base.plusSeconds(22));
+
+        ReconciliationResponse response = reconciliationService.reconcile(true);
+
+        Assertions.assertTrue(response.getCandidatesVerified() >= 4, "split pairs must be re-verified on the whole table");
+        Map<String, ReconciliationResponse.UnbalancedTransaction> unbalanced = byId(response);
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertFalse(unbalanced.containsKey("REC-OK-" + i));
+        }
+        Assertions.assertEquals(1, unbalanced.get("REC-ONE-LEG").getLegCount());
+        ReconciliationResponse.UnbalancedTransaction amount = unbalanced.get("REC-AMOUNT");
+        Assertions.assertEquals(2, amount.getLegCount());
+        Assertions.assertEquals(0, new BigDecimal("100.00").compareTo(amount.getTotalInDebt()));
+        Assertions.assertEquals(0, new BigDecimal("90.00").compareTo(amount.getTotalHave()));
+
+        // Bổ sung vế còn thiếu: lần chạy sau xóa lỗi đó, lỗi chưa sửa vẫn còn
+        leg("REC-ONE-LEG", PostingLeg.CREDIT, 7_000, base.plusSeconds(23));
+        ReconciliationResponse rerun = reconciliationService.reconcile(true);
+        Assertions.assertTrue(rerun.getResolved() >= 1);
+        Assertions.assertFalse(byId(rerun).containsKey("REC-ONE-LEG"));
+        Assertions.assertTrue(byId(rerun).containsKey("REC-AMOUNT"));
+    }
+
+    @Test
+    @DisplayName("Chạy tiếp từ Checkpoint trừ khoảng chồng lấn: bắt được dòng commit muộn, bỏ qua dòng cũ hơn khoảng đó")
+    void resumesFromCheckpointWithOverlap() {
+        LocalDateTime base = LocalDateTime.of(2025, 6, 1, 10, 0);
+        leg("REC-CP-0", PostingLeg.DEBIT, 1_000, base.minusHours(1));
+        leg("REC-CP-0", PostingLeg.CREDIT, 1_000, base);
+
+        ReconciliationResponse full = reconciliationService.reconcile(true);
+        LocalDateTime checkpoint = full.getScannedTo();
+        Assertions.assertEquals(checkpoint, checkpointRepository.findById("double-entry")
+                .map(ReconciliationCheckpoint::getLastRecordedAt).orElseThrow());
+
+        ReconciliationResponse idle = reconciliationService.reconcile(false);
+        Assertions.assertEquals(checkpoint.minusSeconds(60), idle.getScannedFrom());
+        Assertions.assertTrue(idle.getRowsScanned() < full.getRowsScanned());
+
+        // Dòng commit muộn mang recorded_at trước Checkpoint nhưng vẫn trong khoảng chồng lấn
+        leg("REC-CP-LATE", PostingLeg.DEBIT, 2_000, checkpoint.minusSeconds(10));
+        leg("REC-CP-NEW", PostingLeg.CREDIT, 3_000, checkpoint.plusSeconds(1));
+        leg("REC-CP-OLD", PostingLeg.DEBIT, 4_000, checkpoint.minusHours(1));
+
+        ReconciliationResponse incremental = reconciliationService.reconcile(false);
+        Assertions.assertEquals(checkpoint.minusSeconds(60), incremental.getScannedFrom());
+        Assertions.assertEquals(checkpoint.plusSeconds(1), incremental.getScannedTo());
+        Assertions.assertTrue(byId(incremental).containsKey("REC-CP-LATE"));
+        Assertions.assertTrue(byId(incremental).containsKey("REC-CP-NEW"));
+        Assertions.assertFalse(byId(incremental).containsKey("REC-CP-OLD"));
+        Assertions.assertEquals(checkpoint.plusSeconds(1), checkpointRepository.findById("double-entry")
+                .map(ReconciliationCheckpoint::getLastRecordedAt).orElseThrow());
+
+        Assertions.assertTrue(byId(reconciliationService.reconcile(true)).containsKey("REC-CP-OLD"));
+    }
+
+    private void leg(String transactionId, PostingLeg leg, long amount, LocalDateTime recordedAt) {
+        boolean debit = leg == PostingLeg.DEBIT;
+        jdbcTemplate.update(INSERT_LEG_SQL, IDS.getAndIncrement(), transactionId, leg.name(), "reconciliation-test",
+                debit ? amount : 0, debit ? 0 : amount, recordedAt, recordedAt);
+    }
+
+    private static Map<String, ReconciliationResponse.UnbalancedTransaction> byId(ReconciliationResponse response) {
+        List<ReconciliationResponse.UnbalancedTransaction> unbalanced = response.getUnbalanced();
+        return unbalanced.stream().collect(Collectors.toMap(
+                ReconciliationResponse.UnbalancedTransaction::getTransactionId, Function.identity()));
+    }
+}
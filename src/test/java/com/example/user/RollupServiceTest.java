@@ -0,0 +1,152 @@
+package com.example.user;
+
+import com.example.user.dto.request.TransactionRequest;
+import com.example.user.dto.response.DailyRollupResponse;
+import com.example.user.dto.response.RollupBackfillResponse;
+import com.example.user.entity.AccountDailyRollup;
+import com.example.user.exception.BadRequestException;
+import com.example.user.service.IRollupService;
+import com.example.user.service.ITransactionService;
+import com.example.user.service.impl.AccountBlindIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Tổng hợp theo ngày: truy vấn theo khoảng ngày [from, to] đọc đúng các ngày có phát sinh, và backfill sửa dòng lệch,
+ * thiếu, mồ côi trong {@code account_daily_rollup} về đúng tổng lịch sử.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rolluptest;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+        "app.rollup.max-days=31",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class RollupServiceTest {
+    private static final String CORRUPT_SQL = "UPDATE " + AccountDailyRollup.TABLE_NAME
+            + " SET total_have = total_have + ?, credit_count = credit_count + ? WHERE account_hash = ? AND rollup_date = ?";
+    private static final String DELETE_SQL = "DELETE FROM " + AccountDailyRollup.TABLE_NAME
+            + " WHERE account_hash = ? AND rollup_date = ?";
+    private static final String INSERT_SQL = "INSERT INTO " + AccountDailyRollup.TABLE_NAME
+            + " (account_hash, rollup_date, total_in_debt, total_have, debit_count, credit_count, updated_at)"
+            + " VALUES (?, ?, 0, ?, 0, 1, ?)";
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM " + AccountDailyRollup.TABLE_NAME + " WHERE account_hash = ?";
+
+    @Autowired
+    private ITransactionService transactionService;
+
+    @Autowired
+    private IRollupService rollupService;
+
+    @Autowired
+    private AccountBlindIndex accountBlindIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Truy vấn khoảng ngày: chỉ các ngày có phát sinh trong [from, to], tổng cộng đúng, khoảng sai bị từ chối")
+    void summarizesDateRange() {
+        String source = "8500000001";
+        String dest = "8500000002";
+        LocalDate day = LocalDate.of(2025, 8, 1);
+        post("ROLLUP-D-1", source, dest, day.atTime(9, 0));
+        post("ROLLUP-D-2", source, dest, day.atTime(23, 59, 59));
+        post("ROLLUP-D-3", source, dest, day.plusDays(1).atStartOfDay());
+        post("ROLLUP-D-4", source, dest, day.plusDays(3).atTime(12, 0));
+        post("ROLLUP-D-5", source, dest, day.plusDays(4).atTime(12, 0));
+
+        DailyRollupResponse summary = rollupService.getDailyRollups(source, day, day.plusDays(3));
+        Assertions.assertEquals(List.of(day, day.plusDays(1), day.plusDays(3)),
+                summary.getDays().stream().map(DailyRollupResponse.Day::getDate).toList());
+        DailyRollupResponse.Day first = summary.getDays().get(0);
+        Assertions.assertEquals(2, first.getDebitCount());
+        Assertions.assertEquals(0, first.getCreditCount());
+        Assertions.assertEquals(0, new BigDecimal("20000.00").compareTo(first.getTotalInDebt()));
+        Assertions.assertEquals(0, new BigDecimal("40000.00").compareTo(summary.getTotalInDebt()));
+        Assertions.assertEquals(0, BigDecimal.ZERO.compareTo(summary.getTotalHave()));
+
+        DailyRollupResponse credits = rollupService.getDailyRollups(dest, day.plusDays(1), day.plusDays(1));
+        Assertions.assertEquals(1, credits.getDays().size());
+        Assertions.assertEquals(1, credits.getDays().get(0).getCreditCount());
+        Assertions.assertEquals(0, new BigDecimal("10000.00").compareTo(credits.getTotalHave()));
+
+        Assertions.assertTrue(rollupService.getDailyRollups("8500000099", day, day.plusDays(3)).getDays().isEmpty());
+        Assertions.assertThrows(BadRequestException.class,
+                () -> rollupService.getDailyRollups(source, day.plusDays(1), day));
+        Assertions.assertThrows(BadRequestException.class,
+                () -> rollupService.getDailyRollups(source, day, day.plusDays(31)));
+    }
+
+    @Test
+    @DisplayName("Backfill sửa dòng lệch, thiếu và mồ côi về đúng tổng lịch sử; lần chạy sau không còn gì để sửa")
+    void backfillRepairsRollups() {
+        String source = "8600000001";
+        String dest = "8600000002";
+        String orphan = "8600000099";
+        LocalDate day = LocalDate.of(2025, 9, 1);
+        post("ROLLUP-B-1", source, dest, day.atTime(10, 0));
+        post("ROLLUP-B-2", source, dest, day.plusDays(1).atTime(10, 0));
+        assertClean(rollupService.backfill());
+
+        jdbcTemplate.update(CORRUPT_SQL, 1, 1, accountBlindIndex.of(dest), day);
+        jdbcTemplate.update(DELETE_SQL, accountBlindIndex.of(source), day.plusDays(1));
+        jdbcTemplate.update(INSERT_SQL, accountBlindIndex.of(orphan), day, 500, LocalDateTime.now());
+
+        RollupBackfillResponse backfill = rollupService.backfill();
+
+        Assertions.assertEquals(16, backfill.getPartitions());
+        Assertions.assertEquals(1, backfill.getDrifted());
+        Assertions.assertEquals(1, backfill.getMissing());
+        Assertions.assertEquals(1, backfill.getOrphaned());
+        Assertions.assertEquals(3, backfill.getRepaired());
+        Assertions.assertEquals(0, backfill.getSkippedConcurrent());
+
+        DailyRollupResponse credits = rollupService.getDailyRollups(dest, day, day.plusDays(1));
+        Assertions.assertEquals(2, credits.getDays().size());
+        Assertions.assertEquals(1, credits.getDays().get(0).getCreditCount());
+        Assertions.assertEquals(0, new BigDecimal("20000.00").compareTo(credits.getTotalHave()));
+        DailyRollupResponse debits = rollupService.getDailyRollups(source, day, day.plusDays(1));
+        Assertions.assertEquals(List.of(day, day.plusDays(1)),
+                debits.getDays().stream().map(DailyRollupResponse.Day::getDate).toList());
+        Assertions.assertEquals(0, new BigDecimal("20000.00").compareTo(debits.getTotalInDebt()));
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject(COUNT_SQL, Integer.class, accountBlindIndex.of(orphan)));
+        assertClean(rollupService.backfill());
+    }
+
+    private void post(String transactionId, String source, String dest, LocalDateTime time) {
+        transactionService.createTransaction(TransactionRequest.builder()
+                .transactionId(transactionId)
+                .sourceAccount(source)
+                .destAccount(dest)
+                .amount(new BigDecimal("10000.00"))
+                .time(time)
+                .build());
+    }
+
+    private static void assertClean(RollupBackfillResponse backfill) {
+        Assertions.assertEquals(0, backfill.getDrifted());
+        Assertions.assertEquals(0, backfill.getMissing());
+        Assertions.assertEquals(0, backfill.getOrphaned());
+    }
+}
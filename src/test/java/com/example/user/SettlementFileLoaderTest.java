@@ -0,0 +1,115 @@
+package com.example.user;
+
+import com.example.user.dto.response.SettlementLoadResponse;
+import com.example.user.dto.response.TransactionResponse;
+import com.example.user.exception.BadRequestException;
+import com.example.user.exception.NotFoundException;
+import com.example.user.service.ISettlementLoaderService;
+import com.example.user.service.ITransactionService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Nạp file quyết toán: đếm đúng bản ghi hợp lệ/trùng/lỗi khi file bị chia thành nhiều segment nhỏ,
+ * và dữ liệu ghi xuống đọc lại được qua API.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:settlementtest;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+        // Nhiều worker trên file nhỏ: mỗi segment chỉ vài dòng, buộc căn ranh giới dòng giữa các segment
+        "app.settlement.workers=4",
+        "app.settlement.batch-transactions=3",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class SettlementFileLoaderTest {
+    private static final int VALID_RECORDS = 40;
+
+    @TempDir
+    static Path settlementDir;
+
+    @Autowired
+    private ISettlementLoaderService settlementLoaderService;
+
+    @Autowired
+    private ITransactionService transactionService;
+
+    @DynamicPropertySource
+    static void settlementProperties(DynamicPropertyRegistry registry) {
+        registry.add("app.settlement.base-dir", () -> settlementDir.toString());
+    }
+
+    @Test
+    @DisplayName("Bản ghi hợp lệ, trùng và sai định dạng được đếm đúng; giao dịch đọc lại được với số liệu gốc")
+    void loadsValidRecordsAndCountsTheRest() throws IOException {
+        StringBuilder file = new StringBuilder("transactionId,sourceAccount,destAccount,amount,time\n");
+        for (int i = 0; i < VALID_RECORDS; i++) {
+            file.append("SETTLE-T-").append(i).append(',').append(1_000_000_000L + i).append(',')
+                    .append(9_000_000_000L - i).append(',').append(10_000 + i).append(".25,2025-01-15T10:15:30")
+                    .append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        file.append("SETTLE-T-0,1000000000,9000000000,10000.25,2025-01-15T10:15:30\n");    // trùng trong file
+        file.append("SETTLE-BAD-1,123,9000000000,10000.00,2025-01-15T10:15:30\n");         // tài khoản quá ngắn
+        file.append("SETTLE-BAD-2,1000000000,9000000000,10.001,2025-01-15T10:15:30\n");    // quá 2 chữ số thập phân
+        file.append("SETTLE-BAD-3,1000000000,9000000000,10000.00,2025-02-30T10:15:30\n");  // ngày không tồn tại
+        file.append("SETTLE-BAD-4,1000000000,9000000000\n");                                // thiếu trường
+        file.append("SETTLE-T-LAST,1000000099,9000000099,50000,2025-01-31T23:59:59.5");     // dòng cuối không có \n
+        Files.writeString(settlementDir.resolve("day1.csv"), file, StandardCharsets.US_ASCII);
+
+        SettlementLoadResponse result = settlementLoaderService.load("day1.csv");
+
+        Assertions.assertTrue(result.getSegments() > 1, "file should be split into several segments");
+        Assertions.assertEquals(VALID_RECORDS + 1, result.getAccepted());
+        Assertions.assertEquals(1, result.getDuplicates());
+        Assertions.assertEquals(4, result.getRejected());
+        Assertions.assertEquals(VALID_RECORDS + 6, result.getRecords());
+        Assertions.assertEquals((VALID_RECORDS + 1) * 2L, result.getRowsWritten());
+
+        List<TransactionResponse> legs = transactionService.getTransactionByTransactionId("SETTLE-T-7");
+        Assertions.assertEquals(2, legs.size());
+        Assertions.assertTrue(legs.stream().anyMatch(leg -> "1000000007".equals(leg.getAccount())
+                && new BigDecimal("10007.25").compareTo(leg.getInDebt()) == 0));
+        Assertions.assertTrue(legs.stream().anyMatch(leg -> "8999999993".equals(leg.getAccount())
+                && new BigDecimal("10007.25").compareTo(leg.getHave()) == 0));
+        Assertions.assertEquals(LocalDateTime.of(2025, 1, 31, 23, 59, 59, 500_000_000),
+                transactionService.getTransactionByTransactionId("SETTLE-T-LAST").get(0).getTime());
+
+        // Nạp lại cùng file: mọi bản ghi hợp lệ đều là trùng, không ghi thêm dòng nào
+        SettlementLoadResponse reload = settlementLoaderService.load("day1.csv");
+        Assertions.assertEquals(0, reload.getAccepted());
+        Assertions.assertEquals(VALID_RECORDS + 2, reload.getDuplicates());
+        Assertions.assertEquals(0, reload.getRowsWritten());
+    }
+
+    @Test
+    @DisplayName("Chặn đường dẫn ra ngoài thư mục cấu hình và file không tồn tại")
+    void rejectsPathsOutsideBaseDir() {
+        Assertions.assertThrows(BadRequestException.class, () -> settlementLoaderService.load("../etc/passwd"));
+        Assertions.assertThrows(NotFoundException.class, () -> settlementLoaderService.load("missing.csv"));
+    }
+}
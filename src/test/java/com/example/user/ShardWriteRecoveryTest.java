@@ -0,0 +1,239 @@
+package com.example.user;
+
+import com.example.user.dto.response.BalanceResponse;
+import com.example.user.entity.AccountBalance;
+import com.example.user.entity.ShardWriteIntent;
+import com.example.user.enums.PostingLeg;
+import com.example.user.repository.ShardWriteIntentRepository;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.repository.TransactionHistoryBatchRepository;
+import com.example.user.service.IAccountBalanceService;
+import com.example.user.service.impl.AccountBalanceSequencer;
+import com.example.user.service.impl.AccountBlindIndex;
+import com.example.user.service.impl.LedgerEngine;
+import com.example.user.service.impl.OutboxRelay;
+import com.example.user.service.impl.PostingStreamHub;
+import com.example.user.service.impl.ShardWriteRecovery;
+import com.example.user.service.impl.TransactionBatchWriter;
+import com.example.user.service.impl.TransactionIdGuard;
+import com.example.user.utils.AesUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.SecretKey;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ghi lên shard phụ bị dừng giữa commit trên shard và commit trên DB chính: ý định còn lại trên DB chính và job khôi
+ * phục ghi nốt trạng thái dẫn xuất (số dư) đúng một lần, thay vì để các vế mồ côi trên shard.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shardrecoveryprimary;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+        "app.transaction-cache.enabled=false",
+
+        "app.sharding.urls=jdbc:h2:mem:shardrecovery1;DB_CLOSE_DELAY=-1;MODE=MySQL,jdbc:h2:mem:shardrecovery2;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "app.sharding.username=sa",
+        "app.sharding.password=",
+        // Job chỉ chạy khi test gọi recover(); mọi ý định còn lại lúc đó đều là của lần ghi đã dừng
+        "app.sharding.recovery.interval-ms=0",
+        "app.sharding.recovery.grace-ms=0",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class ShardWriteRecoveryTest {
+    private static final String INTENT_COUNT_SQL = "SELECT COUNT(*) FROM " + ShardWriteIntent.TABLE_NAME;
+    private static final String BALANCE_COUNT_SQL = "SELECT COUNT(*) FROM " + AccountBalance.TABLE_NAME
+            + " WHERE account_hash = ?";
+    private static final String LEG_COUNT_SQL = "SELECT COUNT(*) FROM transaction_history WHERE transaction_id = ?";
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 5, 1, 9, 0);
+    private static final AtomicLong IDS = new AtomicLong(9_400_000_000L);
+
+    @Autowired
+    private TransactionBatchWriter batchWriter;
+
+    @Autowired
+    private ShardWriteRecovery recovery;
+
+    @Autowired
+    private TransactionHistoryBatchRepository batchRepository;
+
+    @Autowired
+    private ShardedTransactionHistoryRepository historyShards;
+
+    @Autowired
+    private ShardWriteIntentRepository intentRepository;
+
+    @Autowired
+    private AccountBalanceSequencer balanceSequencer;
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private PostingStreamHub postingStream;
+
+    @Autowired
+    private TransactionIdGuard transactionIdGuard;
+
+    @Autowired
+    private IAccountBalanceService accountBalanceService;
+
+    @Autowired
+    private AccountBlindIndex accountBlindIndex;
+
+    @Autowired
+    private SecretKey aesSecretKey;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Dừng giữa commit trên shard và commit trên DB chính: ghi lại bị coi là trùng, job khôi phục ghi số dư đúng một lần")
+    void recoversCrashBetweenShardAndPrimaryCommits() {
+        String source = "8800000001";
+        String dest = "8800000002";
+        TransactionBatchWriter.PendingTransaction transaction = pending(secondaryShardTransactionId("shard-crash-"), source, dest);
+        ShardedTransactionHistoryRepository.Shard owner = historyShards.shardOf(transaction.transactionId());
+
+        // Transaction thứ 2 trên DB chính (trạng thái dẫn xuất) không bao giờ bắt đầu: tiến trình "dừng" sau commit shard
+        Assertions.assertThrows(SimulatedCrash.class, () -> crashingWriter(2).writeAll(List.of(transaction)));
+
+        Assertions.assertEquals(2, legs(owner, transaction.transactionId()));
+        Assertions.assertEquals(1, intents());
+        Assertions.assertEquals(0, balanceRows(source));
+
+        // Ghi lại (ví dụ Journal phát lại sau khi khởi động): các vế đã có trên shard, ý định được giữ cho job khôi phục
+        Assertions.assertTrue(batchWriter.writeAll(List.of(transaction)).isEmpty());
+        Assertions.assertEquals(1, intents());
+        Assertions.assertEquals(0, balanceRows(source));
+
+        Assertions.assertEquals(1, recovery.recover());
+
+        Assertions.assertEquals(0, intents());
+        Assertions.assertEquals(2, legs(owner, transaction.transactionId()));
+        assertBalance(source, "100.00", "0.00");
+        assertBalance(dest, "0.00", "100.00");
+        Assertions.assertEquals(0, recovery.recover());
+        assertBalance(source, "100.00", "0.00");
+    }
+
+    @Test
+    @DisplayName("Ghi thành công hoặc bị trùng không để lại ý định; ý định không có vế nào trên shard chỉ bị xóa")
+    void leavesNoIntentBehind() {
+        String source = "8800000011";
+        String dest = "8800000012";
+        TransactionBatchWriter.PendingTransaction transaction = pending(secondaryShardTransactionId("shard-ok-"), source, dest);
+
+        Assertions.assertEquals(1, batchWriter.writeAll(List.of(transaction)).size());
+        Assertions.assertEquals(0, intents());
+        assertBalance(source, "100.00", "0.00");
+
+        Assertions.assertTrue(batchWriter.writeAll(List.of(transaction)).isEmpty());
+        Assertions.assertEquals(0, intents());
+
+        // Dừng sau khi ghi ý định nhưng trước khi ghi shard
+        String ghost = secondaryShardTransactionId("shard-ghost-");
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                intentRepository.record(List.of(ghost), LocalDateTime.now()));
+        Assertions.assertEquals(1, recovery.recover());
+        Assertions.assertEquals(0, intents());
+        Assertions.assertEquals(0, legs(historyShards.shardOf(ghost), ghost));
+        assertBalance(source, "100.00", "0.00");
+    }
+
+    /**
+     * Bộ ghi mà lần mở transaction thứ {@code crashAt} trên DB chính "làm dừng tiến trình": {@link Error} đi qua nhánh
+     * bù trừ (chỉ bắt {@link RuntimeException}) giống như tiến trình bị kill.
+     */
+    private TransactionBatchWriter crashingWriter(int crashAt) {
+        AtomicInteger opened = new AtomicInteger();
+        PlatformTransactionManager crashing = new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                if (opened.incrementAndGet() == crashAt) {
+                    throw new SimulatedCrash();
+                }
+                return transactionManager.getTransaction(definition);
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+                transactionManager.commit(status);
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+                transactionManager.rollback(status);
+            }
+        };
+        return new TransactionBatchWriter(batchRepository, historyShards, balanceSequencer, ledgerEngine, outboxRelay,
+                postingStream, transactionIdGuard, intentRepository, crashing, 1000);
+    }
+
+    private String secondaryShardTransactionId(String prefix) {
+        for (int i = 0; ; i++) {
+            String transactionId = prefix + i;
+            if (!historyShards.shardOf(transactionId).isPrimary()) return transactionId;
+        }
+    }
+
+    private TransactionBatchWriter.PendingTransaction pending(String transactionId, String source, String dest) {
+        return new TransactionBatchWriter.PendingTransaction(transactionId, List.of(
+                new TransactionHistoryBatchRepository.Row(IDS.getAndIncrement(), transactionId, PostingLeg.DEBIT,
+                        AesUtil.encrypt(source, aesSecretKey), accountBlindIndex.of(source), 10_000, 0, TIME),
+                new TransactionHistoryBatchRepository.Row(IDS.getAndIncrement(), transactionId, PostingLeg.CREDIT,
+                        AesUtil.encrypt(dest, aesSecretKey), accountBlindIndex.of(dest), 0, 10_000, TIME)));
+    }
+
+    private int legs(ShardedTransactionHistoryRepository.Shard shard, String transactionId) {
+        return shard.jdbcTemplate().queryForObject(LEG_COUNT_SQL, Integer.class, transactionId);
+    }
+
+    private int intents() {
+        return jdbcTemplate.queryForObject(INTENT_COUNT_SQL, Integer.class);
+    }
+
+    private int balanceRows(String account) {
+        return jdbcTemplate.queryForObject(BALANCE_COUNT_SQL, Integer.class, accountBlindIndex.of(account));
+    }
+
+    private void assertBalance(String account, String totalInDebt, String totalHave) {
+        BalanceResponse balance = accountBalanceService.getBalance(account);
+        Assertions.assertEquals(0, new BigDecimal(totalInDebt).compareTo(balance.getTotalInDebt()), "inDebt of " + account);
+        Assertions.assertEquals(0, new BigDecimal(totalHave).compareTo(balance.getTotalHave()), "have of " + account);
+        Assertions.assertEquals(1, balance.getPostingCount(), "postings of " + account);
+    }
+
+    private static final class SimulatedCrash extends Error {
+    }
+}
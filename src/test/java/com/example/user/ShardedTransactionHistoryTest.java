@@ -0,0 +1,121 @@
+package com.example.user;
+
+import com.example.user.dto.request.TransactionRequest;
+import com.example.user.dto.response.BalanceResponse;
+import com.example.user.dto.response.StatementResponse;
+import com.example.user.dto.response.TransactionResponse;
+import com.example.user.exception.ConflictException;
+import com.example.user.repository.ShardedTransactionHistoryRepository;
+import com.example.user.service.IAccountBalanceService;
+import com.example.user.service.ITransactionService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Kiểm tra phân mảnh {@code transaction_history} trên 3 DB H2 (DB chính + 2 shard phụ): định tuyến theo transactionId,
+ * tra cứu một shard, sao kê Scatter-Gather và trạng thái dẫn xuất (số dư) trên DB chính.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shardprimary;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+        "app.transaction-cache.enabled=false",
+
+        "app.sharding.urls=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1;MODE=MySQL,jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "app.sharding.username=sa",
+        "app.sharding.password=",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class ShardedTransactionHistoryTest {
+    private static final String SOURCE = "1000000001";
+    private static final String DEST = "2000000002";
+    private static final BigDecimal AMOUNT = new BigDecimal("100000.50");
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final int TRANSACTIONS = 60;
+
+    @Autowired
+    private ITransactionService transactionService;
+
+    @Autowired
+    private IAccountBalanceService accountBalanceService;
+
+    @Autowired
+    private ShardedTransactionHistoryRepository historyShards;
+
+    @Test
+    @DisplayName("Giao dịch được định tuyến theo transactionId, tra cứu một shard và sao kê gộp từ mọi shard")
+    void routesAndScatterGathers() {
+        Assertions.assertEquals(3, historyShards.shards().size());
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            transactionService.createTransaction(request("shard-tx-" + i, BASE_TIME.plusMinutes(i)));
+        }
+
+        Set<Integer> usedShards = new HashSet<>();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            String transactionId = "shard-tx-" + i;
+            ShardedTransactionHistoryRepository.Shard owner = historyShards.shardOf(transactionId);
+            usedShards.add(owner.index());
+            for (ShardedTransactionHistoryRepository.Shard shard : historyShards.shards()) {
+                Integer legs = shard.jdbcTemplate().queryForObject(
+                        "SELECT COUNT(*) FROM transaction_history WHERE transaction_id = ?", Integer.class, transactionId);
+                Assertions.assertEquals(shard == owner ? 2 : 0, legs, transactionId + " on shard " + shard.index());
+            }
+
+            List<TransactionResponse> responses = transactionService.getTransactionByTransactionId(transactionId);
+            Assertions.assertEquals(2, responses.size());
+            Assertions.assertTrue(responses.stream().anyMatch(response -> SOURCE.equals(response.getAccount())));
+            Assertions.assertTrue(responses.stream().anyMatch(response -> DEST.equals(response.getAccount())));
+        }
+        Assertions.assertEquals(3, usedShards.size(), "Every shard should receive some transactions");
+
+        Assertions.assertThrows(ConflictException.class,
+                () -> transactionService.createTransaction(request("shard-tx-0", BASE_TIME)));
+
+        List<StatementResponse.Entry> entries = new ArrayList<>();
+        String cursor = null;
+        do {
+            StatementResponse page = transactionService.getStatement(SOURCE, BASE_TIME, BASE_TIME.plusDays(1), cursor, 25);
+            entries.addAll(page.getEntries());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        Assertions.assertEquals(TRANSACTIONS, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            Assertions.assertEquals(BASE_TIME.plusMinutes(TRANSACTIONS - 1 - i), entries.get(i).getTime());
+        }
+
+        BalanceResponse balance = accountBalanceService.getBalance(SOURCE);
+        Assertions.assertEquals(TRANSACTIONS, balance.getPostingCount());
+        Assertions.assertEquals(0, AMOUNT.multiply(BigDecimal.valueOf(TRANSACTIONS)).compareTo(balance.getTotalInDebt()));
+    }
+
+    private TransactionRequest request(String transactionId, LocalDateTime time) {
+        return TransactionRequest.builder()
+                .transactionId(transactionId)
+                .sourceAccount(SOURCE)
+                .destAccount(DEST)
+                .amount(AMOUNT)
+                .time(time)
+                .build();
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.user;
+
+import com.example.user.service.impl.SnowflakeIdGenerator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tính duy nhất, thứ tự và xử lý lệch đồng hồ của {@link SnowflakeIdGenerator} (không cần Spring context).
+ */
+class SnowflakeIdGeneratorTest {
+    private static final long START = SnowflakeIdGenerator.EPOCH + 1_000_000L;
+    private static final int SEQUENCE_PER_MILLI = 1 << SnowflakeIdGenerator.SEQUENCE_BITS;
+
+    @Test
+    @DisplayName("Nhiều luồng cấp phát đồng thời: mọi ID duy nhất và tăng ngặt trong từng luồng")
+    void uniqueUnderContention() throws Exception {
+        int threads = 8;
+        int perThread = 200_000;
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, 1000, System::currentTimeMillis);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            long[][] ids = new long[threads][perThread];
+            for (int t = 0; t < threads; t++) {
+                long[] own = ids[t];
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        own[i] = generator.nextId();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            long[] all = new long[threads * perThread];
+            for (int t = 0; t < threads; t++) {
+                for (int i = 1; i < perThread; i++) {
+                    Assertions.assertTrue(ids[t][i] > ids[t][i - 1], "ids must increase within a thread");
+                }
+                System.arraycopy(ids[t], 0, all, t * perThread, perThread);
+            }
+            Arrays.sort(all);
+            for (int i = 1; i < all.length; i++) {
+                Assertions.assertNotEquals(all[i - 1], all[i], "duplicate id");
+            }
+            Assertions.assertTrue(all[0] > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Hết số thứ tự trong một mili giây: mượn mili giây kế tiếp thay vì cấp trùng")
+    void borrowsNextMillisecondWhenSequenceIsExhausted() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 1000, () -> START);
+        long previous = generator.nextId();
+        for (int i = 1; i < 3 * SEQUENCE_PER_MILLI; i++) {
+            long id = generator.nextId();
+            Assertions.assertTrue(id > previous);
+            previous = id;
+        }
+        Assertions.assertEquals(START - SnowflakeIdGenerator.EPOCH + 2, timestampOf(previous));
+    }
+
+    @Test
+    @DisplayName("Đồng hồ lùi trong giới hạn cho phép: ID vẫn tăng dần")
+    void toleratesSmallClockRollback() {
+        AtomicLong clock = new AtomicLong(START);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 1000, clock::get);
+        long before = generator.nextId();
+        clock.addAndGet(-500);
+        long during = generator.nextId();
+        clock.addAndGet(1000);
+        long after = generator.nextId();
+
+        Assertions.assertTrue(during > before);
+        Assertions.assertTrue(after > during);
+        Assertions.assertEquals(START - SnowflakeIdGenerator.EPOCH + 500, timestampOf(after));
+    }
+
+    @Test
+    @DisplayName("Đồng hồ lùi quá giới hạn: từ chối cấp phát, cấp lại bình thường khi đồng hồ theo kịp")
+    void rejectsLargeClockRollback() {
+        AtomicLong clock = new AtomicLong(START);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 1000, clock::get);
+        long before = generator.nextId();
+        clock.addAndGet(-5000);
+        Assertions.assertThrows(IllegalStateException.class, generator::nextId);
+
+        clock.set(START + 1);
+        Assertions.assertTrue(generator.nextId() > before);
+    }
+
+    @Test
+    @DisplayName("Node id nằm trong các bit riêng và phải thuộc khoảng hợp lệ")
+    void encodesNodeId() {
+        long id = new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID, 1000, () -> START).nextId();
+        Assertions.assertEquals(SnowflakeIdGenerator.MAX_NODE_ID,
+                (id >>> SnowflakeIdGenerator.SEQUENCE_BITS) & SnowflakeIdGenerator.MAX_NODE_ID);
+        Assertions.assertEquals(Long.toString(id),
+                new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID, 1000, () -> START).nextTransactionId());
+        Assertions.assertNotEquals(new SnowflakeIdGenerator(1, 1000, () -> START).nextId(),
+                new SnowflakeIdGenerator(2, 1000, () -> START).nextId());
+
+        Assertions.assertThrows(IllegalStateException.class, () -> new SnowflakeIdGenerator(-1, 1000, () -> START));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1, 1000, () -> START));
+    }
+
+    private static long timestampOf(long id) {
+        return id >>> (SnowflakeIdGenerator.NODE_BITS + SnowflakeIdGenerator.SEQUENCE_BITS);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.user;
+
+import com.example.user.logging.SqlStatementRecorder;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Gom histogram theo hình dạng câu lệnh của {@link SqlStatementRecorder} (không cần Spring context).
+ */
+class SqlStatementRecorderTest {
+
+    @Test
+    @DisplayName("Các biến thể IN-list của một câu lệnh dùng chung một Timer, không chiếm hết slot hình dạng")
+    void groupsInListVariantsIntoOneShape() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SqlStatementRecorder recorder = new SqlStatementRecorder(() -> registry, 60_000, 0);
+
+        for (int size = 1; size <= 600; size++) {
+            String placeholders = IntStream.range(0, size).mapToObj(i -> "?").collect(Collectors.joining(", "));
+            recorder.record("SELECT * FROM transaction_history WHERE id IN (" + placeholders + ")", 1_000, null, 0, 0);
+        }
+        recorder.record("SELECT  *  FROM account_balance\n WHERE account_hash = ?", 1_000, null, 0, 0);
+
+        Collection<Timer> timers = registry.find("sql.statement.duration").timers();
+        Assertions.assertEquals(2, timers.size());
+        Timer inList = registry.find("sql.statement.duration")
+                .tag("shape", "SELECT * FROM transaction_history WHERE id IN (?)")
+                .timer();
+        Assertions.assertNotNull(inList);
+        Assertions.assertEquals(600, inList.count());
+        Assertions.assertNotNull(registry.find("sql.statement.duration")
+                .tag("shape", "SELECT * FROM account_balance WHERE account_hash = ?")
+                .timer());
+        Assertions.assertNull(registry.find("sql.statement.duration").tag("shape", "other").timer());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.user;
+
+import com.example.user.utils.TailWatermark;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mốc đọc phần đuôi {@link TailWatermark}: quét lại khoảng chồng lấn, bỏ qua dòng đã nhận và chỉ quên ID đã ra khỏi
+ * khoảng đó (không cần Spring context).
+ */
+class TailWatermarkTest {
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @Test
+    @DisplayName("Dòng đã nhận bị bỏ qua khi quét lại; dòng ID nhỏ commit muộn trong khoảng chồng lấn vẫn được nhận")
+    void acceptsLateLowerIdsOnceWithinOverlap() {
+        TailWatermark tail = new TailWatermark(1_000);
+        Assertions.assertEquals(TailWatermark.BEGINNING, tail.scanFrom());
+
+        Assertions.assertTrue(tail.accept(500, T0.plusNanos(900_000_000)));
+        Assertions.assertEquals(T0.minusNanos(100_000_000), tail.scanFrom());
+        Assertions.assertFalse(tail.accept(500, T0.plusNanos(900_000_000)));
+
+        // ID nhỏ hơn, ghi trước nhưng commit sau: nằm trong [watermark - overlap, watermark]
+        Assertions.assertTrue(tail.accept(10, T0.plusNanos(200_000_000)));
+        Assertions.assertFalse(tail.accept(10, T0.plusNanos(200_000_000)));
+        Assertions.assertEquals(T0.plusNanos(900_000_000), tail.watermark());
+    }
+
+    @Test
+    @DisplayName("Chỉ quên các ID cũ hơn watermark - overlap")
+    void evictsOnlyIdsBeforeTheScanHorizon() {
+        TailWatermark tail = new TailWatermark(1_000);
+        tail.accept(1, T0);
+        tail.accept(2, T0.plusSeconds(1));
+        tail.accept(3, T0.plusSeconds(2));
+
+        Assertions.assertEquals(1, tail.evict());
+        Assertions.assertEquals(2, tail.tracked());
+        Assertions.assertFalse(tail.accept(2, T0.plusSeconds(1)));
+        Assertions.assertEquals(T0.plusSeconds(1), tail.scanFrom());
+    }
+
+    @Test
+    @DisplayName("Nạp lại từ micro-giây (Snapshot) cho cùng trạng thái")
+    void restoresFromMicros() {
+        TailWatermark source = new TailWatermark(5_000);
+        source.accept(7, T0.plusNanos(123_456_000));
+        source.accept(8, T0.plusSeconds(3));
+
+        TailWatermark restored = new TailWatermark(5_000);
+        source.forEach(restored::accept);
+
+        Assertions.assertEquals(source.watermark(), restored.watermark());
+        Assertions.assertEquals(source.scanFrom(), restored.scanFrom());
+        Assertions.assertFalse(restored.accept(7, T0.plusNanos(123_456_000)));
+        Assertions.assertFalse(restored.accept(8, T0.plusSeconds(3)));
+    }
+}
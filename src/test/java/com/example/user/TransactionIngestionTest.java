@@ -0,0 +1,157 @@
+package com.example.user;
+
+import com.example.user.dto.response.BulkIngestionResponse;
+import com.example.user.enums.BulkFormat;
+import com.example.user.service.ITransactionIngestionService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Nạp giao dịch hàng loạt: bỏ qua header CSV và dòng trống, đếm accepted/duplicate/rejected đúng theo từng chunk
+ * (kể cả khi trùng vượt qua ranh giới chunk), và từ chối Content-Type không hỗ trợ với 400.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ingestiontest;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+        // Chunk 3 dòng: payload nhỏ cũng đi qua nhiều chunk và gối đầu Prepare/Write
+        "app.ingestion.chunk-size=3",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class TransactionIngestionTest {
+    private static final String COUNT_LEGS_SQL = "SELECT COUNT(*) FROM transaction_history WHERE transaction_id = ?";
+
+    @Autowired
+    private ITransactionIngestionService ingestionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("NDJSON: dòng trống bị bỏ qua, trùng (cả qua ranh giới chunk) và dòng lỗi được đếm theo từng chunk")
+    void countsNdjsonOutcomesPerChunk() {
+        String payload = String.join("\n",
+                json("BULK-N-1"),
+                "",
+                json("BULK-N-2"),
+                // chunk 1: trùng với chunk 0, JSON hỏng, vi phạm validate
+                json("BULK-N-1"),
+                "{\"transactionId\": \"BULK-N-BAD\"",
+                "{\"transactionId\":\"BULK-N-NEG\",\"sourceAccount\":\"1100000001\",\"destAccount\":\"1100000002\","
+                        + "\"amount\":-5,\"time\":\"2025-06-01T12:00:00\"}",
+                // chunk 2: trùng trong cùng chunk
+                json("BULK-N-3"),
+                json("BULK-N-3"));
+
+        BulkIngestionResponse response = ingest(payload, BulkFormat.NDJSON);
+
+        Assertions.assertEquals(3, response.getChunks().size());
+        assertChunk(response.getChunks().get(0), 2, 2, 0, 0);
+        assertChunk(response.getChunks().get(1), 3, 0, 1, 2);
+        assertChunk(response.getChunks().get(2), 2, 1, 1, 0);
+        Assertions.assertEquals("line 5: malformed NDJSON record", response.getChunks().get(1).getErrors().get(0));
+        Assertions.assertTrue(response.getChunks().get(1).getErrors().get(1).startsWith("line 6: amount "),
+                response.getChunks().get(1).getErrors().toString());
+
+        Assertions.assertEquals(7, response.getReceived());
+        Assertions.assertEquals(3, response.getAccepted());
+        Assertions.assertEquals(2, response.getDuplicates());
+        Assertions.assertEquals(2, response.getRejected());
+        Assertions.assertEquals(2, legs("BULK-N-1"));
+        Assertions.assertEquals(2, legs("BULK-N-3"));
+        Assertions.assertEquals(0, legs("BULK-N-NEG"));
+    }
+
+    @Test
+    @DisplayName("CSV: header ở dòng đầu không được tính, số cột sai bị từ chối, giao dịch đã có bị tính là trùng")
+    void skipsCsvHeaderAndCountsRows() {
+        ingest(csv("BULK-C-OLD"), BulkFormat.CSV);
+        String payload = String.join("\r\n",
+                "transactionId,sourceAccount,destAccount,amount,time",
+                csv("BULK-C-1"),
+                "BULK-C-SHORT,1200000001,1200000002",
+                "",
+                csv("BULK-C-OLD"),
+                csv("BULK-C-2")) + "\r\n";
+
+        BulkIngestionResponse response = ingest(payload, BulkFormat.CSV);
+
+        Assertions.assertEquals(2, response.getChunks().size());
+        assertChunk(response.getChunks().get(0), 2, 1, 0, 1);
+        assertChunk(response.getChunks().get(1), 2, 1, 1, 0);
+        Assertions.assertEquals("line 3: malformed CSV record", response.getChunks().get(0).getErrors().get(0));
+        Assertions.assertEquals(2, legs("BULK-C-1"));
+        Assertions.assertEquals(2, legs("BULK-C-2"));
+        Assertions.assertEquals(2, legs("BULK-C-OLD"));
+    }
+
+    @Test
+    @DisplayName("Content-Type không hỗ trợ hoặc thiếu trả về 400")
+    void rejectsUnsupportedContentType() throws Exception {
+        mockMvc.perform(post("/api/transactions/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json("BULK-J-1")))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/transactions/bulk").content(json("BULK-J-2")))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/transactions/bulk")
+                        .contentType("text/csv; charset=UTF-8")
+                        .content(csv("BULK-J-3")))
+                .andExpect(status().isOk());
+        Assertions.assertEquals(0, legs("BULK-J-1"));
+        Assertions.assertEquals(2, legs("BULK-J-3"));
+    }
+
+    private BulkIngestionResponse ingest(String payload, BulkFormat format) {
+        return ingestionService.ingest(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)), format);
+    }
+
+    private static String json(String transactionId) {
+        return "{\"transactionId\":\"" + transactionId + "\",\"sourceAccount\":\"1100000001\","
+                + "\"destAccount\":\"1100000002\",\"amount\":15000.50,\"time\":\"2025-06-01T12:00:00\"}";
+    }
+
+    private static String csv(String transactionId) {
+        return transactionId + ",1200000001,1200000002,20000.00,2025-06-01T12:00:00";
+    }
+
+    private static void assertChunk(BulkIngestionResponse.ChunkResult chunk, int received, int accepted,
+                                    int duplicates, int rejected) {
+        Assertions.assertEquals(received, chunk.getReceived(), "received of chunk " + chunk.getChunk());
+        Assertions.assertEquals(accepted, chunk.getAccepted(), "accepted of chunk " + chunk.getChunk());
+        Assertions.assertEquals(duplicates, chunk.getDuplicates(), "duplicates of chunk " + chunk.getChunk());
+        Assertions.assertEquals(rejected, chunk.getRejected(), "rejected of chunk " + chunk.getChunk());
+    }
+
+    private int legs(String transactionId) {
+        return jdbcTemplate.queryForObject(COUNT_LEGS_SQL, Integer.class, transactionId);
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.user;
+
+import com.example.user.enums.PostingLeg;
+import com.example.user.repository.TransactionHistoryBatchRepository;
+import com.example.user.service.impl.AccountBlindIndex;
+import com.example.user.service.impl.TransactionBatchWriter;
+import com.example.user.service.impl.TransactionIdGuard;
+import com.example.user.service.impl.TransactionJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Khôi phục của {@link TransactionJournal}: đọc lại Journal ghi mỗi giao dịch đúng một lần, bản ghi ghi dở ở cuối Segment
+ * bị bỏ qua mà không chặn khởi động, và giao dịch không ghi được vào DB bị cách ly thay vì chặn Flusher.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:journaltest;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sql-log.enabled=false",
+        "app.id.snowflake.node-id=0",
+
+        "crypto.aes.key=YAp6F5djB/yOfx7nr/v9jz9jMNYYqsVYTrtWshcgNUQ=",
+        "crypto.rsa.keystore-path=security/keystore.p12",
+        "crypto.rsa.keystore-password=duongduong",
+        "crypto.rsa.alias=rsa-key"
+})
+class TransactionJournalTest {
+    private static final String COUNT_LEGS_SQL = "SELECT COUNT(*) FROM transaction_history WHERE transaction_id = ?";
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @TempDir
+    Path journalDir;
+
+    @Autowired
+    private TransactionBatchWriter batchWriter;
+
+    @Autowired
+    private TransactionIdGuard transactionIdGuard;
+
+    @Autowired
+    private AccountBlindIndex accountBlindIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Đọc lại Journal sau khi khởi động lại: giao dịch đã có trong DB bị bỏ qua, giao dịch chưa Flush được ghi đúng một lần")
+    void replaysEachTransactionExactlyOnce() throws IOException {
+        TransactionJournal first = newJournal();
+        first.start();
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(first.append(transaction("JRN-R-" + i, 5_000_000L + i * 2L, accountBlindIndex.of("6600000001"))));
+        }
+        Assertions.assertFalse(first.append(transaction("JRN-R-0", 5_100_000L, accountBlindIndex.of("6600000001"))));
+        first.stop();
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals(2, legs("JRN-R-" + i));
+        }
+
+        // Giả lập sự cố sau khi xác nhận nhưng trước khi Flush: các giao dịch này chỉ còn trong Journal
+        deleteTransactions("'JRN-R-7', 'JRN-R-8', 'JRN-R-9'");
+
+        TransactionJournal restarted = newJournal();
+        restarted.start();
+        restarted.stop();
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals(2, legs("JRN-R-" + i), "JRN-R-" + i + " must be written exactly once");
+        }
+
+        // Lần khởi động tiếp theo không còn gì để đọc lại
+        TransactionJournal again = newJournal();
+        again.start();
+        again.stop();
+        Assertions.assertEquals(2, legs("JRN-R-9"));
+    }
+
+    @Test
+    @DisplayName("Bản ghi ghi dở (CRC không khớp) ở cuối Segment bị bỏ qua, các bản ghi trước nó vẫn được khôi phục")
+    void ignoresTornRecordOnRecovery() throws IOException {
+        TransactionJournal first = newJournal();
+        first.start();
+        Assertions.assertTrue(first.append(transaction("JRN-T-1", 6_000_000L, accountBlindIndex.of("6600000002"))));
+        Assertions.assertTrue(first.append(transaction("JRN-T-2", 6_000_002L, accountBlindIndex.of("6600000002"))));
+        first.stop();
+        deleteTransactions("'JRN-T-2'");
+        appendTornRecord(singleSegment());
+
+        TransactionJournal restarted = newJournal();
+        restarted.start();
+        try {
+            Assertions.assertEquals(2, legs("JRN-T-1"));
+            Assertions.assertEquals(2, legs("JRN-T-2"));
+            Assertions.assertTrue(restarted.append(transaction("JRN-T-3", 6_000_004L, accountBlindIndex.of("6600000002"))));
+        } finally {
+            restarted.stop();
+        }
+        Assertions.assertEquals(2, legs("JRN-T-3"));
+    }
+
+    @Test
+    @DisplayName("Giao dịch vi phạm ràng buộc không phải chống trùng được cách ly, các giao dịch khác vẫn được Flush")
+    void quarantinesPoisonRecords() throws IOException {
+        TransactionJournal journal = newJournal();
+        journal.start();
+        Assertions.assertTrue(journal.append(transaction("JRN-P-1", 7_000_000L, accountBlindIndex.of("6600000003"))));
+        // account_hash dài hơn cột VARCHAR(64): lỗi do dữ liệu, thử lại bao nhiêu lần cũng thất bại
+        Assertions.assertTrue(journal.append(transaction("JRN-P-2", 7_000_002L, "f".repeat(80))));
+        Assertions.assertTrue(journal.append(transaction("JRN-P-3", 7_000_004L, accountBlindIndex.of("6600000003"))));
+        journal.stop();
+
+        Assertions.assertEquals(2, legs("JRN-P-1"));
+        Assertions.assertEquals(0, legs("JRN-P-2"));
+        Assertions.assertEquals(2, legs("JRN-P-3"));
+        Path quarantine = journalDir.resolve("quarantine.rejected");
+        Assertions.assertTrue(Files.size(quarantine) > 0);
+
+        // Đọc lại Segment khi khởi động cũng không ghi giao dịch lỗi vào DB và không chặn khởi động
+        TransactionJournal restarted = newJournal();
+        restarted.start();
+        restarted.stop();
+        Assertions.assertEquals(0, legs("JRN-P-2"));
+    }
+
+    private TransactionJournal newJournal() {
+        return new TransactionJournal(batchWriter, transactionIdGuard, new SimpleMeterRegistry(), true,
+                journalDir.toString(), 1 << 20, 100, 10, 1024, 1_000);
+    }
+
+    private static TransactionBatchWriter.PendingTransaction transaction(String transactionId, long id, String accountHash) {
+        return new TransactionBatchWriter.PendingTransaction(transactionId, List.of(
+                new TransactionHistoryBatchRepository.Row(id, transactionId, PostingLeg.DEBIT, "encrypted", accountHash,
+                        1_000_000, 0, TIME),
+                new TransactionHistoryBatchRepository.Row(id + 1, transactionId, PostingLeg.CREDIT, "encrypted", accountHash,
+                        0, 1_000_000, TIME)));
+    }
+
+    /**
+     * Xóa giao dịch khỏi DB như thể chưa từng được Flush: cả các vế lẫn đăng ký trong {@code transaction_registry}.
+     */
+    private void deleteTransactions(String quotedIds) {
+        jdbcTemplate.update("DELETE FROM transaction_registry WHERE transaction_id IN (" + quotedIds + ")");
+        jdbcTemplate.update("DELETE FROM transaction_history WHERE transaction_id IN (" + quotedIds + ")");
+    }
+
+    private int legs(String transactionId) {
+        return jdbcTemplate.queryForObject(COUNT_LEGS_SQL, Integer.class, transactionId);
+    }
+
+    private Path singleSegment() throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            List<Path> segments = files.filter(file -> file.getFileName().toString().endsWith(".journal")).toList();
+            Assertions.assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+
+    /**
+     * Sau bản ghi cuối: header đầy đủ nhưng payload chưa được ghi hết (CRC không khớp), như khi tiến trình dừng giữa chừng.
+     */
+    private static void appendTornRecord(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int offset = 0;
+            while (buffer.getInt(offset) > 0) {
+                offset += Integer.BYTES * 2 + buffer.getInt(offset);
+            }
+            buffer.putInt(offset + Integer.BYTES, 0x1234_5678);
+            buffer.put(offset + Integer.BYTES * 2, ByteBuffer.allocate(16).putLong(42).array(), 0, 8);
+            buffer.putInt(offset, 64);
+            buffer.force();
+        }
+    }
+}
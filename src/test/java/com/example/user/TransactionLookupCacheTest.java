@@ -0,0 +1,149 @@
+package com.example.user;
+
+import com.example.user.dto.response.TransactionResponse;
+import com.example.user.service.impl.TransactionLookupCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cache giao dịch đã giải mã {@link TransactionLookupCache}: một lần nạp cho nhiều request trượt cùng khóa, không cache
+ * kết quả rỗng, giữ bản sao không sửa được và tôn trọng giới hạn dung lượng (không cần Spring context).
+ */
+class TransactionLookupCacheTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @Test
+    @DisplayName("Nhiều request cùng trượt một khóa chỉ gọi loader một lần")
+    void loadsOncePerKeyUnderConcurrentMisses() throws Exception {
+        TransactionLookupCache cache = new TransactionLookupCache(new SimpleMeterRegistry(), true, 1 << 20);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        int readers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<List<TransactionResponse>>> futures = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                futures.add(executor.submit(() -> cache.get("TX-HOT", id -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return legs(id);
+                })));
+            }
+            Assertions.assertTrue(loading.await(10, TimeUnit.SECONDS));
+            // Cho các request còn lại thời gian để cùng trượt khóa đang được nạp
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<List<TransactionResponse>> future : futures) {
+                Assertions.assertEquals(2, future.get(10, TimeUnit.SECONDS).size());
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("Giao dịch không tồn tại không được cache; giao dịch đã nạp hoặc vừa ghi không gọi lại loader")
+    void cachesOnlyExistingTransactions() {
+        TransactionLookupCache cache = new TransactionLookupCache(new SimpleMeterRegistry(), true, 1 << 20);
+        AtomicInteger loads = new AtomicInteger();
+
+        Assertions.assertNull(cache.get("TX-MISSING", id -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        Assertions.assertNull(cache.get("TX-MISSING", id -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        Assertions.assertEquals(2, loads.get());
+
+        cache.get("TX-READ", id -> {
+            loads.incrementAndGet();
+            return legs(id);
+        });
+        cache.put("TX-WRITTEN", legs("TX-WRITTEN"));
+        Assertions.assertEquals(2, cache.get("TX-READ", id -> Assertions.fail("must be cached")).size());
+        Assertions.assertEquals(2, cache.get("TX-WRITTEN", id -> Assertions.fail("must be cached")).size());
+        Assertions.assertEquals(3, loads.get());
+    }
+
+    @Test
+    @DisplayName("Cache giữ bản sao không sửa được: thay đổi danh sách gốc không ảnh hưởng dữ liệu đã cache")
+    void storesUnmodifiableCopies() {
+        TransactionLookupCache cache = new TransactionLookupCache(new SimpleMeterRegistry(), true, 1 << 20);
+        List<TransactionResponse> written = new ArrayList<>(legs("TX-COPY"));
+        cache.put("TX-COPY", written);
+        written.clear();
+
+        List<TransactionResponse> cached = cache.get("TX-COPY", id -> Assertions.fail("must be cached"));
+        Assertions.assertEquals(2, cached.size());
+        Assertions.assertThrows(UnsupportedOperationException.class, cached::clear);
+    }
+
+    @Test
+    @DisplayName("Dung lượng ước tính không vượt quá max-bytes khi nạp nhiều giao dịch hơn sức chứa")
+    void staysWithinMaxBytes() throws InterruptedException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        long maxBytes = 64 * 1024;
+        TransactionLookupCache cache = new TransactionLookupCache(registry, true, maxBytes);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("TX-BULK-" + i, legs("TX-BULK-" + i));
+        }
+
+        Gauge estimated = registry.find("transaction.cache.estimated.bytes").gauge();
+        Assertions.assertNotNull(estimated);
+        // Caffeine loại bỏ bất đồng bộ: chờ tới khi lượt dọn dẹp hoàn tất
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (estimated.value() > maxBytes && System.nanoTime() < deadline) {
+            cache.get("TX-BULK-0", id -> null);
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(estimated.value() <= maxBytes, "estimated bytes: " + estimated.value());
+        Assertions.assertTrue(estimated.value() > 0);
+    }
+
+    @Test
+    @DisplayName("Khi tắt cache, mọi lần đọc đều gọi loader")
+    void disabledCacheAlwaysLoads() {
+        TransactionLookupCache cache = new TransactionLookupCache(new SimpleMeterRegistry(), false, 1 << 20);
+        AtomicInteger loads = new AtomicInteger();
+        cache.put("TX-OFF", legs("TX-OFF"));
+        for (int i = 0; i < 3; i++) {
+            cache.get("TX-OFF", id -> {
+                loads.incrementAndGet();
+                return legs(id);
+            });
+        }
+        Assertions.assertEquals(3, loads.get());
+    }
+
+    private static List<TransactionResponse> legs(String transactionId) {
+        return List.of(
+                TransactionResponse.builder().transactionId(transactionId).account("1000000001")
+                        .inDebt(new BigDecimal("10000.00")).have(BigDecimal.ZERO).time(TIME).build(),
+                TransactionResponse.builder().transactionId(transactionId).account("9000000001")
+                        .inDebt(BigDecimal.ZERO).have(new BigDecimal("10000.00")).time(TIME).build());
+    }
+}
@@ -3,7 +3,7 @@ package com.example.user;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "app.id.snowflake.node-id=0")
 class UserCrudApplicationTests {
 
 	@Test